@@ -7,7 +7,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main application class for the Payment Queue Listener service.
- * This service listens to two AWS SQS queues for payment data,
+ * This service listens to the configured AWS SQS queues for payment data,
  * enriches the data with additional information, and stores it in AWS DynamoDB.
  * It also monitors a transaction table for unprocessed records, sends them to SQS,
  * and marks them as processed.
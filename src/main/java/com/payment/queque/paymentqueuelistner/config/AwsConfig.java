@@ -2,20 +2,28 @@ package com.payment.queque.paymentqueuelistner.config;
 
 import io.awspring.cloud.sqs.operations.SqsTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 
 import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.repository.PaymentTableSchema;
 
 /**
  * Configuration class for AWS services (SQS and DynamoDB).
+ * The DynamoDB clients and table handles are only created when payments are stored in DynamoDB
+ * ({@code app.storage.backend=dynamodb}, the default).
  */
 @Configuration
 public class AwsConfig {
@@ -32,6 +40,9 @@ public class AwsConfig {
     @Value("${aws.dynamodb.table-name}")
     private String dynamoDbTableName;
 
+    @Value("${app.dynamodb.encoding:standard}")
+    private String dynamoDbEncoding;
+
     /**
      * Creates an AWS credentials provider using the configured access key and secret key.
      */
@@ -64,6 +75,7 @@ public class AwsConfig {
      * Creates a DynamoDB client using the configured region and credentials.
      */
     @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
     public DynamoDbClient dynamoDbClient(StaticCredentialsProvider credentialsProvider) {
         return DynamoDbClient.builder()
                 .region(Region.of(region))
@@ -75,17 +87,68 @@ public class AwsConfig {
      * Creates a DynamoDB enhanced client for easier interaction with DynamoDB.
      */
     @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
     public DynamoDbEnhancedClient dynamoDbEnhancedClient(DynamoDbClient dynamoDbClient) {
         return DynamoDbEnhancedClient.builder()
                 .dynamoDbClient(dynamoDbClient)
                 .build();
     }
 
+    /**
+     * Creates a DynamoDB async client when payments are saved with {@code app.dynamodb.client=async}.
+     * Requests are sent over the SDK's default non-blocking HTTP client.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+    @ConditionalOnProperty(name = "app.dynamodb.client", havingValue = "async")
+    public DynamoDbAsyncClient dynamoDbAsyncClient(StaticCredentialsProvider credentialsProvider) {
+        return DynamoDbAsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider)
+                .build();
+    }
+
+    /**
+     * Creates a DynamoDB enhanced async client on top of the async client.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+    @ConditionalOnProperty(name = "app.dynamodb.client", havingValue = "async")
+    public DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        return DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build();
+    }
+
     /**
      * Creates a TableSchema for the EnrichedPaymentData class.
+     * The schema is built explicitly rather than introspected from the bean at startup, and writes
+     * items in the compact format when {@code app.dynamodb.encoding=compact}.
      */
     @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
     public TableSchema<EnrichedPaymentData> enrichedPaymentDataTableSchema() {
-        return TableSchema.fromBean(EnrichedPaymentData.class);
+        return PaymentTableSchema.create("compact".equalsIgnoreCase(dynamoDbEncoding));
+    }
+
+    /**
+     * Creates the table handle for enriched payment data, shared by everything that reads or writes it.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+    public DynamoDbTable<EnrichedPaymentData> paymentDataTable(DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                                                               TableSchema<EnrichedPaymentData> tableSchema) {
+        return dynamoDbEnhancedClient.table(dynamoDbTableName, tableSchema);
+    }
+
+    /**
+     * Creates the async table handle for enriched payment data.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+    @ConditionalOnProperty(name = "app.dynamodb.client", havingValue = "async")
+    public DynamoDbAsyncTable<EnrichedPaymentData> paymentDataAsyncTable(
+            DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient, TableSchema<EnrichedPaymentData> tableSchema) {
+        return dynamoDbEnhancedAsyncClient.table(dynamoDbTableName, tableSchema);
     }
 }
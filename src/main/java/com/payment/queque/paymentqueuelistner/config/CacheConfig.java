@@ -0,0 +1,12 @@
+package com.payment.queque.paymentqueuelistner.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the in-memory lookup caches.
+ */
+@Configuration
+@EnableConfigurationProperties(CategoryCacheProperties.class)
+public class CacheConfig {
+}
@@ -0,0 +1,45 @@
+package com.payment.queque.paymentqueuelistner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the customer and merchant category caches.
+ * Each lookup has its own settings, so a small hot set of merchants can be cached
+ * differently from a long tail of customers.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.category-cache")
+public class CategoryCacheProperties {
+
+    /** How long a lookup waits for other requests for the same ID before it starts; zero starts it at once. */
+    private Duration coalescingWindow = Duration.ofMillis(5);
+
+    private CacheSpec customer = new CacheSpec();
+
+    private CacheSpec merchant = new CacheSpec();
+
+    /**
+     * Settings for a single lookup cache.
+     */
+    @Data
+    public static class CacheSpec {
+
+        /** Whether lookups go through the cache; when false every payment pays the full lookup. */
+        private boolean enabled = true;
+
+        /** Maximum number of entries before the least valuable ones are evicted. */
+        private long maximumSize = 10_000;
+
+        /** How long a found category is kept. */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /** Age after which a found category is reloaded in the background on its next read. */
+        private Duration refreshAfter = Duration.ofMinutes(5);
+
+        /** How long an unknown ID is remembered as unknown. */
+        private Duration negativeTtl = Duration.ofMinutes(1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.payment.queque.paymentqueuelistner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the bulkhead and circuit breaker around each enrichment dependency
+ * and the payment store. Each dependency has its own settings, so a slow lookup service can be
+ * given a shorter leash than DynamoDB.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.resilience")
+public class ResilienceProperties {
+
+    private GuardSpec customerLookup = new GuardSpec();
+
+    private GuardSpec merchantLookup = new GuardSpec();
+
+    private GuardSpec riskScoring = new GuardSpec();
+
+    private GuardSpec fraudScoring = new GuardSpec();
+
+    private GuardSpec paymentStore = new GuardSpec();
+
+    /**
+     * Settings for the guard around a single dependency.
+     */
+    @Data
+    public static class GuardSpec {
+
+        /** Whether calls go through the guard; when false every call goes straight to the dependency. */
+        private boolean enabled = true;
+
+        /** Maximum number of calls to the dependency in flight at once. */
+        private int maxConcurrentCalls = 50;
+
+        /** How long a call waits for a free slot before it is rejected; zero rejects at once. */
+        private Duration maxWait = Duration.ofMillis(10);
+
+        /** Number of most recent calls the failure and slow call rates are computed over. */
+        private int slidingWindowSize = 50;
+
+        /** Number of calls that must be recorded before the rates can open the circuit. */
+        private int minimumCalls = 20;
+
+        /** Percentage of failed calls in the window at which the circuit opens. */
+        private int failureRateThreshold = 50;
+
+        /** Calls taking at least this long count as slow. */
+        private Duration slowCallDuration = Duration.ofSeconds(1);
+
+        /** Percentage of slow calls in the window at which the circuit opens. */
+        private int slowCallRateThreshold = 100;
+
+        /** How long an open circuit rejects calls before letting probe calls through. */
+        private Duration openDuration = Duration.ofSeconds(10);
+
+        /** Number of probe calls that must succeed in a row to close a half-open circuit. */
+        private int halfOpenCalls = 5;
+
+        /** How long a half-open circuit waits for its probe calls to complete before it opens again. */
+        private Duration maxWaitInHalfOpen = Duration.ofSeconds(30);
+
+        /** Whether a failed call falls back like a rejected one; when false the failure is passed on. */
+        private boolean fallbackOnFailure = false;
+    }
+}
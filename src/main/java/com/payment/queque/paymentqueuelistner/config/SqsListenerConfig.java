@@ -0,0 +1,70 @@
+package com.payment.queque.paymentqueuelistner.config;
+
+import io.awspring.cloud.sqs.config.SqsMessageListenerContainerFactory;
+import io.awspring.cloud.sqs.listener.ListenerMode;
+import io.awspring.cloud.sqs.listener.acknowledgement.handler.AcknowledgementMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration class for the SQS listener containers.
+ * Controls how many messages may be in flight at once and how acknowledgements
+ * are grouped into batch-delete calls. These are the defaults for every queue
+ * declared under {@code app.sqs.queues}; each queue may override its concurrency and batch size.
+ */
+@Configuration
+@EnableConfigurationProperties(SqsQueueProperties.class)
+public class SqsListenerConfig {
+
+    @Value("${app.sqs.max-in-flight-messages:100}")
+    private int maxInFlightMessages;
+
+    @Value("${app.sqs.acknowledgement.threshold:10}")
+    private int acknowledgementThreshold;
+
+    @Value("${app.sqs.acknowledgement.interval-ms:1000}")
+    private long acknowledgementIntervalMs;
+
+    @Value("${aws.sqs.max-number-of-messages:10}")
+    private int maxMessagesPerPoll;
+
+    @Value("${aws.sqs.visibility-timeout:30}")
+    private int visibilityTimeoutSeconds;
+
+    @Value("${aws.sqs.wait-time-seconds:20}")
+    private int waitTimeSeconds;
+
+    /**
+     * Creates the default SQS listener container factory.
+     * Acknowledgement is manual so the listener decides for each message whether it is deleted: in
+     * ack-on-completion mode only after it has been saved, otherwise once it has been handed off, and
+     * in either mode never when it could not be quarantined. The container holds a permit for every message until the
+     * listener's future completes, so no more than the configured number of messages are in flight.
+     * Acknowledgements are buffered and flushed as batch-delete calls when the threshold or
+     * interval is reached. The approximate receive count is requested with every message so
+     * that repeatedly failing messages can be quarantined.
+     */
+    @Bean
+    public SqsMessageListenerContainerFactory<String> defaultSqsListenerContainerFactory(SqsAsyncClient sqsAsyncClient) {
+        return SqsMessageListenerContainerFactory.<String>builder()
+                .sqsAsyncClient(sqsAsyncClient)
+                .configure(options -> options
+                        .listenerMode(ListenerMode.BATCH)
+                        .acknowledgementMode(AcknowledgementMode.MANUAL)
+                        .maxConcurrentMessages(maxInFlightMessages)
+                        .maxMessagesPerPoll(maxMessagesPerPoll)
+                        .messageVisibility(Duration.ofSeconds(visibilityTimeoutSeconds))
+                        .pollTimeout(Duration.ofSeconds(waitTimeSeconds))
+                        .acknowledgementThreshold(acknowledgementThreshold)
+                        .acknowledgementInterval(Duration.ofMillis(acknowledgementIntervalMs))
+                        .messageSystemAttributeNames(List.of(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT)))
+                .build();
+    }
+}
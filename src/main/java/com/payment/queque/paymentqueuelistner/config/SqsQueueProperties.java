@@ -0,0 +1,49 @@
+package com.payment.queque.paymentqueuelistner.config;
+
+import com.payment.queque.paymentqueuelistner.dispatch.PaymentLane;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties describing the SQS queues this service listens to.
+ * Each entry registers one listener container at startup; no code change is needed
+ * to add a queue or rebalance capacity between queues.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.sqs")
+public class SqsQueueProperties {
+
+    private List<QueueDefinition> queues = new ArrayList<>();
+
+    /**
+     * Definition of a single SQS queue.
+     */
+    @Data
+    public static class QueueDefinition {
+
+        /** URL of the queue. */
+        private String url;
+
+        /** Source tag written to PaymentData.sourceQueue and used as the scheduling lane name. */
+        private String source;
+
+        /** Maximum number of messages in flight for this queue; defaults to app.sqs.max-in-flight-messages. */
+        private Integer maxConcurrency;
+
+        /** Maximum number of messages per receive call; defaults to aws.sqs.max-number-of-messages. */
+        private Integer batchSize;
+
+        /** Relative share of enrichment capacity this queue receives when all queues are busy. */
+        private int weight = 1;
+
+        /**
+         * Lane every payment from this queue is enriched in. A queue dedicated to one lane has its own
+         * listener container, so its in-flight limit is never taken by the other lane's messages.
+         * When unset, each payment is routed by the PaymentLaneClassifier.
+         */
+        private PaymentLane lane;
+    }
+}
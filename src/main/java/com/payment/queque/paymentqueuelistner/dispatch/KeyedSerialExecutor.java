@@ -0,0 +1,233 @@
+package com.payment.queque.paymentqueuelistner.dispatch;
+
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs asynchronous tasks that share an ordering key one after another, in arrival order,
+ * while tasks with different keys run in parallel. Keys are hashed onto a fixed number of stripes;
+ * each stripe is a lock-free mailbox (a {@link ConcurrentLinkedQueue} plus an atomic depth counter)
+ * and starts its next task only when the previous task's future has completed. Two updates for the
+ * same customer or transaction therefore reach DynamoDB in the order they were received.
+ *
+ * Striping trades some parallelism for a fixed footprint: keys that hash to the same stripe are
+ * serialized too, so a slow or busy key holds up every other key on its stripe. With {@code n}
+ * keys in flight over {@code s} stripes, roughly {@code n / s} of them share each stripe, so
+ * {@code app.ordering.stripes} should be sized well above the number of keys expected in flight
+ * at once rather than left small to save memory.
+ *
+ * The ordering key is the payment's customer ID or transaction ID, selected by
+ * {@code app.ordering.key}. Payments without a key are not ordered. Stripe depth is published as
+ * the {@code payment.ordering.stripe.depth} summary and the deepest stripe as a gauge. A warning is
+ * logged and {@code payment.ordering.stripes.hot} counted when a stripe backs up beyond the hot-key
+ * threshold, naming the stripe and a sample of the keys queued on it; the stripe is not reported again until it has drained to half the threshold, so a
+ * depth hovering around the threshold logs once rather than on every task.
+ */
+@Component
+@Slf4j
+public class KeyedSerialExecutor {
+
+    /**
+     * Payment field used as the ordering key.
+     */
+    public enum OrderingKey {
+        CUSTOMER_ID,
+        TRANSACTION_ID
+    }
+
+    // Distinct keys listed in a hot stripe warning
+    private static final int HOT_KEY_SAMPLE = 5;
+
+    private final boolean enabled;
+    private final OrderingKey orderingKey;
+    private final int hotStripeDepth;
+    private final Stripe[] stripes;
+    private final DistributionSummary stripeDepth;
+    private final Counter hotStripes;
+
+    public KeyedSerialExecutor(MeterRegistry meterRegistry,
+                               @Value("${app.ordering.enabled:true}") boolean enabled,
+                               @Value("${app.ordering.key:CUSTOMER_ID}") OrderingKey orderingKey,
+                               @Value("${app.ordering.stripes:1024}") int stripeCount,
+                               @Value("${app.ordering.hot-stripe-depth:50}") int hotStripeDepth) {
+        this.enabled = enabled;
+        this.orderingKey = orderingKey;
+        this.hotStripeDepth = hotStripeDepth;
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        this.stripeDepth = DistributionSummary.builder("payment.ordering.stripe.depth")
+                .description("Tasks queued on a stripe, including the new task, at the time of submission")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("payment.ordering.stripe.depth.max", this, KeyedSerialExecutor::maxStripeDepth)
+                .description("Depth of the most backed-up stripe")
+                .register(meterRegistry);
+        Gauge.builder("payment.ordering.stripes.busy", this, KeyedSerialExecutor::busyStripes)
+                .description("Stripes with at least one task running or queued")
+                .register(meterRegistry);
+        this.hotStripes = Counter.builder("payment.ordering.stripes.hot")
+                .description("Times a stripe backed up beyond the hot-key threshold")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Submits a payment's task behind any earlier tasks with the same ordering key.
+     *
+     * @param paymentData the payment the task processes
+     * @param task supplies the asynchronous work once earlier tasks for the key have completed
+     * @return a future that completes with the task's result
+     */
+    public <T> CompletableFuture<T> submit(PaymentData paymentData, Supplier<CompletableFuture<T>> task) {
+        String key = orderingKey == OrderingKey.CUSTOMER_ID ? paymentData.getCustomerId() : paymentData.getTransactionId();
+        return submit(key, task);
+    }
+
+    /**
+     * Submits a task behind any earlier tasks with the same key.
+     *
+     * @param key the ordering key, or {@code null} to run the task without ordering
+     * @param task supplies the asynchronous work once earlier tasks for the key have completed
+     * @return a future that completes with the task's result
+     */
+    public <T> CompletableFuture<T> submit(String key, Supplier<CompletableFuture<T>> task) {
+        if (!enabled || key == null) {
+            return start(task);
+        }
+
+        int index = stripeIndex(key);
+        Stripe stripe = stripes[index];
+        CompletableFuture<T> result = new CompletableFuture<>();
+        stripe.queue.add(new QueuedTask(key, () -> {
+            CompletableFuture<T> future = start(task);
+            future.whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            return future;
+        }));
+
+        int depth = stripe.depth.incrementAndGet();
+        stripeDepth.record(depth);
+        if (depth > hotStripeDepth && stripe.hot.compareAndSet(false, true)) {
+            hotStripes.increment();
+            log.warn("Ordering stripe {} has backed up beyond {} queued tasks, with keys queued including {}",
+                    index, hotStripeDepth, queuedKeys(index, HOT_KEY_SAMPLE));
+        }
+        if (depth == 1) {
+            drain(stripe);
+        }
+        return result;
+    }
+
+    /**
+     * Runs queued tasks on a stripe until it is empty or a task is still running. A task that
+     * completes later resumes draining from its completion callback. Tasks that complete immediately
+     * are run in a loop rather than recursively, so a long backlog cannot overflow the stack.
+     */
+    private void drain(Stripe stripe) {
+        do {
+            CompletableFuture<?> running = stripe.queue.poll().task().get();
+            if (!running.isDone()) {
+                running.whenComplete((value, error) -> {
+                    if (finish(stripe) > 0) {
+                        drain(stripe);
+                    }
+                });
+                return;
+            }
+        } while (finish(stripe) > 0);
+    }
+
+    /**
+     * Removes a finished task from the stripe's depth, clearing the hot flag once it has drained.
+     *
+     * @return the number of tasks still running or queued on the stripe
+     */
+    private int finish(Stripe stripe) {
+        int depth = stripe.depth.decrementAndGet();
+        if (depth <= hotStripeDepth / 2 && stripe.hot.get()) {
+            stripe.hot.set(false);
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the index of the stripe a key is ordered on.
+     */
+    int stripeIndex(String key) {
+        return Math.floorMod(spread(key.hashCode()), stripes.length);
+    }
+
+    /**
+     * Returns up to {@code limit} distinct keys with tasks queued on a stripe behind the running one, oldest first.
+     */
+    Set<String> queuedKeys(int index, int limit) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (QueuedTask queued : stripes[index].queue) {
+            if (keys.size() == limit) {
+                break;
+            }
+            keys.add(queued.key());
+        }
+        return keys;
+    }
+
+    private static <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> task) {
+        try {
+            return task.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private double maxStripeDepth() {
+        int max = 0;
+        for (Stripe stripe : stripes) {
+            max = Math.max(max, stripe.depth.get());
+        }
+        return max;
+    }
+
+    private double busyStripes() {
+        int busy = 0;
+        for (Stripe stripe : stripes) {
+            if (stripe.depth.get() > 0) {
+                busy++;
+            }
+        }
+        return busy;
+    }
+
+    private record QueuedTask(String key, Supplier<CompletableFuture<?>> task) {
+    }
+
+    private static final class Stripe {
+        private final ConcurrentLinkedQueue<QueuedTask> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean hot = new AtomicBoolean();
+    }
+}
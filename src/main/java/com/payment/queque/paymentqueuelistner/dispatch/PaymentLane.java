@@ -0,0 +1,19 @@
+package com.payment.queque.paymentqueuelistner.dispatch;
+
+/**
+ * Enrichment lanes that a payment can be routed to. Each lane has its own concurrency budget,
+ * so a backlog of bulk payments never delays high-value or VIP payments.
+ */
+public enum PaymentLane {
+    /** High-value and VIP/business customer payments. */
+    PRIORITY,
+    /** All other payments. */
+    BULK;
+
+    /**
+     * Returns the lane name used in configuration keys and metric tags.
+     */
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
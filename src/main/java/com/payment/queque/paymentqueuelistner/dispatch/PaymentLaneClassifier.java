@@ -0,0 +1,53 @@
+package com.payment.queque.paymentqueuelistner.dispatch;
+
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.rules.RuleEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Routes parsed payments to an enrichment lane using only fields already on the payment,
+ * so classification costs no lookups. A payment goes to the {@link PaymentLane#PRIORITY} lane
+ * when the active risk rules of the {@link RuleEngine} score its amount and currency as high risk,
+ * or when its customer ID carries a VIP or business prefix. Reloaded rules move the boundary of
+ * the priority lane with them.
+ */
+@Component
+public class PaymentLaneClassifier {
+
+    private static final String HIGH_RISK = "HIGH";
+
+    private final RuleEngine ruleEngine;
+    private final List<String> priorityCustomerPrefixes;
+
+    public PaymentLaneClassifier(RuleEngine ruleEngine,
+                                 @Value("${app.lanes.priority.customer-prefixes:VIP,BIZ}") List<String> priorityCustomerPrefixes) {
+        this.ruleEngine = ruleEngine;
+        this.priorityCustomerPrefixes = List.copyOf(priorityCustomerPrefixes);
+    }
+
+    /**
+     * Determines the lane for a payment.
+     *
+     * @param paymentData the parsed payment
+     * @return the lane the payment should be enriched in
+     */
+    public PaymentLane classify(PaymentData paymentData) {
+        if (paymentData.getAmount() != null
+                && HIGH_RISK.equals(ruleEngine.riskScore(paymentData.getAmount(), paymentData.getCurrency()))) {
+            return PaymentLane.PRIORITY;
+        }
+
+        String customerId = paymentData.getCustomerId();
+        if (customerId != null) {
+            for (String prefix : priorityCustomerPrefixes) {
+                if (customerId.startsWith(prefix)) {
+                    return PaymentLane.PRIORITY;
+                }
+            }
+        }
+        return PaymentLane.BULK;
+    }
+}
@@ -0,0 +1,87 @@
+package com.payment.queque.paymentqueuelistner.dispatch;
+
+import com.payment.queque.paymentqueuelistner.config.SqsQueueProperties;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Entry point to the enrichment stage. Each payment is classified by the {@link PaymentLaneClassifier}
+ * and submitted to that lane's own {@link WeightedFairScheduler}. The lanes have separate concurrency
+ * budgets, so priority payments never wait behind bulk payments, while inside each lane the source
+ * queues still share capacity by weight and messages closest to their deadline start first.
+ *
+ * The lane budgets apply once a payment has been received. Messages from a queue holding both lanes
+ * share that queue's container in-flight limit, so a bulk backlog can still delay the receipt of
+ * priority payments. A queue declared with a {@code lane} sends every payment to that lane without
+ * classifying it, so routing priority payments to a queue of their own gives the priority lane its
+ * own container and in-flight limit.
+ *
+ * Every lane records the time from submission to completion in the {@code payment.lane.latency}
+ * timer, tagged by lane, so priority and bulk latency can be compared directly.
+ */
+@Component
+@Slf4j
+public class PaymentLaneDispatcher {
+
+    private final PaymentLaneClassifier classifier;
+    private final Map<PaymentLane, WeightedFairScheduler> schedulers = new EnumMap<>(PaymentLane.class);
+    private final Map<PaymentLane, Timer> latencies = new EnumMap<>(PaymentLane.class);
+    private final Map<String, PaymentLane> queueLanes = new HashMap<>();
+
+    public PaymentLaneDispatcher(PaymentLaneClassifier classifier,
+                                 SqsQueueProperties queueProperties,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.lanes.priority.max-concurrency:20}") int priorityMaxConcurrency,
+                                 @Value("${app.lanes.bulk.max-concurrency:50}") int bulkMaxConcurrency) {
+        this.classifier = classifier;
+        for (PaymentLane lane : PaymentLane.values()) {
+            int maxConcurrency = lane == PaymentLane.PRIORITY ? priorityMaxConcurrency : bulkMaxConcurrency;
+            schedulers.put(lane, new WeightedFairScheduler(lane.tag(), queueProperties, meterRegistry, maxConcurrency));
+            latencies.put(lane, Timer.builder("payment.lane.latency")
+                    .tag("lane", lane.tag())
+                    .description("Time from submission to completion of enrichment, including time spent waiting")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+            log.info("Configured {} enrichment lane with max concurrency {}", lane.tag(), maxConcurrency);
+        }
+        for (SqsQueueProperties.QueueDefinition queue : queueProperties.getQueues()) {
+            if (queue.getLane() != null) {
+                queueLanes.put(queue.getSource(), queue.getLane());
+            }
+        }
+    }
+
+    /**
+     * Classifies a payment and submits its enrichment task to the matching lane, or to the lane of its
+     * source queue if the queue is dedicated to one.
+     *
+     * @param paymentData the payment being enriched
+     * @param sourceQueue the source queue tag
+     * @param deadline supplies the current epoch millis by which the task should start
+     * @param task supplies the asynchronous work once the lane grants a slot
+     * @return a future that completes with the task's result
+     */
+    public <T> CompletableFuture<T> submit(PaymentData paymentData, String sourceQueue, LongSupplier deadline,
+                                           Supplier<CompletableFuture<T>> task) {
+        PaymentLane lane = queueLanes.get(sourceQueue);
+        if (lane == null) {
+            lane = classifier.classify(paymentData);
+        }
+        Timer latency = latencies.get(lane);
+        long submittedAt = System.nanoTime();
+        return schedulers.get(lane).submit(sourceQueue, deadline, task)
+                .whenComplete((result, error) -> latency.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,224 @@
+package com.payment.queque.paymentqueuelistner.dispatch;
+
+import com.payment.queque.paymentqueuelistner.config.SqsQueueProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Weighted fair scheduler for the enrichment stage.
+ * Each source queue gets its own lane of pending tasks. At most {@code maxConcurrency} tasks run
+ * at once, and free slots are handed out to lanes in weighted round-robin order: on its turn a lane
+ * may start up to {@code weight} tasks before the next non-empty lane is served. A flood on one
+ * queue therefore only grows that queue's lane and cannot starve the others.
+ *
+ * Within a lane, tasks are started earliest-deadline-first, so messages that are close to their
+ * visibility timeout run before freshly received ones. Tasks with equal deadlines keep arrival order.
+ * A deadline may move later while its task waits, as when the message's visibility is extended; a
+ * task whose deadline has moved is re-queued under the new one when it reaches the head of its lane.
+ *
+ * The {@link PaymentLaneDispatcher} owns one scheduler per {@link PaymentLane}; the scheduler name
+ * tags its gauges so each lane's backlog can be told apart.
+ */
+@Slf4j
+public class WeightedFairScheduler {
+
+    private final String name;
+    private final int maxConcurrency;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private final List<Lane> ring = new ArrayList<>();
+    private int cursor;
+    private int running;
+    private long sequence;
+
+    public WeightedFairScheduler(String name, SqsQueueProperties queueProperties,
+                                 MeterRegistry meterRegistry, int maxConcurrency) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.meterRegistry = meterRegistry;
+        for (SqsQueueProperties.QueueDefinition queue : queueProperties.getQueues()) {
+            registerLane(queue.getSource(), queue.getWeight());
+        }
+    }
+
+    /**
+     * Registers a lane with the given weight, or updates the weight of an existing lane.
+     *
+     * @param laneName the lane name (the queue's source tag)
+     * @param weight the relative share of capacity for the lane
+     */
+    public synchronized void registerLane(String laneName, int weight) {
+        Lane lane = lanes.get(laneName);
+        if (lane != null) {
+            lane.weight = Math.max(1, weight);
+            return;
+        }
+        lane = new Lane(Math.max(1, weight));
+        lanes.put(laneName, lane);
+        ring.add(lane);
+        Gauge.builder("payment.scheduler.pending", lane, l -> pendingCount(l))
+                .tag("scheduler", name)
+                .tag("queue", laneName)
+                .description("Enrichment tasks waiting for a scheduler slot")
+                .register(meterRegistry);
+        Gauge.builder("payment.scheduler.active", lane, l -> activeCount(l))
+                .tag("scheduler", name)
+                .tag("queue", laneName)
+                .description("Enrichment tasks currently running")
+                .register(meterRegistry);
+        log.info("Registered lane {} on {} scheduler with weight {}", laneName, name, lane.weight);
+    }
+
+    /**
+     * Submits a task without a deadline to the given lane.
+     *
+     * @param laneName the lane to submit to; unknown lanes are registered with weight 1
+     * @param task supplies the asynchronous work to run
+     * @return a future that completes with the task's result
+     */
+    public <T> CompletableFuture<T> submit(String laneName, Supplier<CompletableFuture<T>> task) {
+        return submit(laneName, Long.MAX_VALUE, task);
+    }
+
+    /**
+     * Submits a task to the given lane. The task is started once the scheduler grants the lane a slot,
+     * and the slot is held until the future returned by the task completes.
+     *
+     * @param laneName the lane to submit to; unknown lanes are registered with weight 1
+     * @param deadlineMillis epoch millis by which the task should have finished
+     * @param task supplies the asynchronous work to run
+     * @return a future that completes with the task's result
+     */
+    public <T> CompletableFuture<T> submit(String laneName, long deadlineMillis, Supplier<CompletableFuture<T>> task) {
+        return submit(laneName, () -> deadlineMillis, task);
+    }
+
+    /**
+     * Submits a task to the given lane with a deadline that may move later while the task waits.
+     *
+     * @param laneName the lane to submit to; unknown lanes are registered with weight 1
+     * @param deadline supplies the current epoch millis by which the task should have finished
+     * @param task supplies the asynchronous work to run
+     * @return a future that completes with the task's result
+     */
+    public <T> CompletableFuture<T> submit(String laneName, LongSupplier deadline, Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long deadlineMillis = deadline.getAsLong();
+        synchronized (this) {
+            if (!lanes.containsKey(laneName)) {
+                registerLane(laneName, 1);
+            }
+            Lane lane = lanes.get(laneName);
+            lane.pending.add(new PendingTask(deadlineMillis, sequence++, deadline, () -> start(lane, task, result)));
+        }
+        dispatch();
+        return result;
+    }
+
+    private <T> void start(Lane lane, Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+        try {
+            future = task.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, error) -> {
+            synchronized (this) {
+                running--;
+                lane.active--;
+            }
+            dispatch();
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    private void dispatch() {
+        List<Runnable> toStart = new ArrayList<>();
+        synchronized (this) {
+            while (running < maxConcurrency) {
+                Lane lane = nextLane();
+                if (lane == null) {
+                    break;
+                }
+                running++;
+                lane.active++;
+                toStart.add(poll(lane).start());
+            }
+        }
+        toStart.forEach(Runnable::run);
+    }
+
+    /**
+     * Takes the pending task with the earliest current deadline. Deadlines only move later, so once
+     * the head's deadline is current no other task can be due sooner.
+     */
+    private static PendingTask poll(Lane lane) {
+        PendingTask task = lane.pending.poll();
+        long deadlineMillis = task.deadline().getAsLong();
+        while (deadlineMillis != task.deadlineMillis()) {
+            lane.pending.add(new PendingTask(deadlineMillis, task.sequence(), task.deadline(), task.start()));
+            task = lane.pending.poll();
+            deadlineMillis = task.deadline().getAsLong();
+        }
+        return task;
+    }
+
+    /**
+     * Picks the next lane to serve. The current lane keeps its turn while it has credit and work;
+     * when it runs out of either its credit is refilled and the turn passes on.
+     */
+    private Lane nextLane() {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        for (int scanned = 0; scanned <= ring.size(); scanned++) {
+            Lane lane = ring.get(cursor);
+            if (lane.credit > 0 && !lane.pending.isEmpty()) {
+                lane.credit--;
+                return lane;
+            }
+            lane.credit = lane.weight;
+            cursor = (cursor + 1) % ring.size();
+        }
+        return null;
+    }
+
+    private synchronized int pendingCount(Lane lane) {
+        return lane.pending.size();
+    }
+
+    private synchronized int activeCount(Lane lane) {
+        return lane.active;
+    }
+
+    private record PendingTask(long deadlineMillis, long sequence, LongSupplier deadline, Runnable start) {
+    }
+
+    private static final class Lane {
+        private final PriorityQueue<PendingTask> pending = new PriorityQueue<>(
+                Comparator.comparingLong(PendingTask::deadlineMillis).thenComparingLong(PendingTask::sequence));
+        private int weight;
+        private int credit;
+        private int active;
+
+        private Lane(int weight) {
+            this.weight = weight;
+            this.credit = weight;
+        }
+    }
+}
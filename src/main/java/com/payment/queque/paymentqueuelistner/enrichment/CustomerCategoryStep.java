@@ -0,0 +1,57 @@
+package com.payment.queque.paymentqueuelistner.enrichment;
+
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichmentValues;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.service.CategoryLookupService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds the customer category, looked up through the {@link CategoryLookupService} cache.
+ */
+@Component
+public class CustomerCategoryStep implements EnrichmentStep {
+
+    private static final Map<String, String> FALLBACK =
+            Map.of(AdditionalDataKey.CUSTOMER_CATEGORY.key(), EnrichmentValues.UNKNOWN);
+
+    private final CategoryLookupService categoryLookupService;
+    private final Duration timeout;
+
+    public CustomerCategoryStep(CategoryLookupService categoryLookupService,
+                               @Value("${app.enrichment.timeout.lookup-ms:100}") long timeoutMs) {
+        this.categoryLookupService = categoryLookupService;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    @Override
+    public String name() {
+        return "customerCategory";
+    }
+
+    @Override
+    public Set<String> outputs() {
+        return Set.of(AdditionalDataKey.CUSTOMER_CATEGORY.key());
+    }
+
+    @Override
+    public Duration timeout() {
+        return timeout;
+    }
+
+    @Override
+    public Map<String, String> enrich(PaymentData paymentData, Map<String, String> inputs) {
+        return Map.of(AdditionalDataKey.CUSTOMER_CATEGORY.key(),
+                categoryLookupService.customerCategory(paymentData.getCustomerId()));
+    }
+
+    @Override
+    public Map<String, String> fallback() {
+        return FALLBACK;
+    }
+}
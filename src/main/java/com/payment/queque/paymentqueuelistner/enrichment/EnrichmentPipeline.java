@@ -0,0 +1,229 @@
+package com.payment.queque.paymentqueuelistner.enrichment;
+
+import com.payment.queque.paymentqueuelistner.model.AdditionalData;
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.model.EnrichmentValues;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the registered {@link EnrichmentStep}s as a dependency graph.
+ *
+ * At startup the steps are linked by matching each declared input to the step that outputs it and
+ * sorted topologically; a missing producer, a field written by two steps or a cycle fails startup.
+ * For each payment every step is started on a virtual thread as soon as the steps it depends on
+ * have finished, so independent steps run in parallel and a new step only lengthens the critical
+ * path when it really needs another step's output.
+ *
+ * Each step is bounded by its own timeout, counted from when it starts, and by the overall
+ * deadline. A step that overruns is cancelled and its fallback values are used, its dependents
+ * still run, and the record is marked {@code PARTIAL} with the step listed under
+ * {@code timedOutSteps}. A step whose dependency is unavailable, because its circuit breaker is
+ * open, its bulkhead is full or a call failed that is configured to fall back, gets its fallback
+ * values the same way and is listed under {@code degradedSteps}. Any other exception thrown by a
+ * step fails the whole enrichment.
+ *
+ * Outputs other than the risk score and fraud status go to the record's additional data, which
+ * is created as a compact {@link AdditionalData} with a fixed slot for each known field.
+ */
+@Component
+@Slf4j
+public class EnrichmentPipeline {
+
+    /** Output field written to {@link EnrichedPaymentData#getRiskScore()}. */
+    public static final String RISK_SCORE = "riskScore";
+
+    /** Output field written to {@link EnrichedPaymentData#getFraudStatus()}. */
+    public static final String FRAUD_STATUS = "fraudStatus";
+
+    private final List<EnrichmentStep> steps;
+    private final Map<EnrichmentStep, List<EnrichmentStep>> dependencies = new IdentityHashMap<>();
+    private final ExecutorService virtualThreadExecutor;
+    private final long deadlineMs;
+
+    public EnrichmentPipeline(List<EnrichmentStep> steps,
+                              ExecutorService virtualThreadExecutor,
+                              @Value("${app.enrichment.deadline-ms:250}") long deadlineMs) {
+        this.virtualThreadExecutor = virtualThreadExecutor;
+        this.deadlineMs = deadlineMs;
+
+        Map<String, EnrichmentStep> producers = new HashMap<>();
+        for (EnrichmentStep step : steps) {
+            for (String output : step.outputs()) {
+                EnrichmentStep existing = producers.putIfAbsent(output, step);
+                if (existing != null) {
+                    throw new IllegalStateException("Enrichment field " + output + " is written by both "
+                            + existing.name() + " and " + step.name());
+                }
+            }
+        }
+        for (EnrichmentStep step : steps) {
+            List<EnrichmentStep> upstream = new ArrayList<>();
+            for (String input : step.inputs()) {
+                EnrichmentStep producer = producers.get(input);
+                if (producer == null) {
+                    throw new IllegalStateException("Enrichment step " + step.name() + " reads " + input
+                            + " but no step writes it");
+                }
+                if (!upstream.contains(producer)) {
+                    upstream.add(producer);
+                }
+            }
+            dependencies.put(step, upstream);
+        }
+        this.steps = sort(steps);
+        log.info("Configured enrichment pipeline with steps {}", this.steps.stream().map(EnrichmentStep::name).toList());
+    }
+
+    /**
+     * Runs every step for a payment and writes their outputs to the enriched record, along with
+     * its processing status. Steps still running when this method returns are cancelled.
+     *
+     * @param paymentData the payment being enriched
+     * @param enrichedData the record to fill in
+     * @throws ExecutionException if a step failed
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public void enrich(PaymentData paymentData, EnrichedPaymentData enrichedData)
+            throws ExecutionException, InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        Map<EnrichmentStep, CompletableFuture<StepResult>> results = new IdentityHashMap<>();
+        List<Future<?>> forks = Collections.synchronizedList(new ArrayList<>(steps.size()));
+        try {
+            for (EnrichmentStep step : steps) {
+                List<CompletableFuture<StepResult>> upstream = dependencies.get(step).stream().map(results::get).toList();
+                results.put(step, CompletableFuture.allOf(upstream.toArray(new CompletableFuture[0]))
+                        .thenCompose(v -> start(step, paymentData, inputsOf(upstream), deadlineNanos, forks)));
+            }
+            CompletableFuture.allOf(results.values().toArray(new CompletableFuture[0])).get();
+
+            Map<String, String> additionalData = enrichedData.getAdditionalData() != null
+                    ? enrichedData.getAdditionalData() : new AdditionalData();
+            List<String> timedOut = new ArrayList<>();
+            List<String> degraded = new ArrayList<>();
+            for (EnrichmentStep step : steps) {
+                StepResult result = results.get(step).join();
+                if (result.timedOut()) {
+                    timedOut.add(step.name());
+                }
+                if (result.degraded()) {
+                    degraded.add(step.name());
+                }
+                result.outputs().forEach((field, value) -> {
+                    switch (field) {
+                        case RISK_SCORE -> enrichedData.setRiskScore(value);
+                        case FRAUD_STATUS -> enrichedData.setFraudStatus(value);
+                        default -> additionalData.put(field, value);
+                    }
+                });
+            }
+
+            putSteps(additionalData, AdditionalDataKey.TIMED_OUT_STEPS, timedOut);
+            putSteps(additionalData, AdditionalDataKey.DEGRADED_STEPS, degraded);
+            enrichedData.setProcessingStatus(timedOut.isEmpty() && degraded.isEmpty()
+                    ? EnrichmentValues.STATUS_COMPLETED : EnrichmentValues.STATUS_PARTIAL);
+            enrichedData.setAdditionalData(additionalData);
+        } finally {
+            forks.forEach(fork -> fork.cancel(true));
+        }
+    }
+
+    /**
+     * Starts a step whose dependencies have finished, bounded by its timeout and the remaining
+     * time before the overall deadline.
+     */
+    private CompletableFuture<StepResult> start(EnrichmentStep step, PaymentData paymentData,
+                                                Map<String, String> inputs, long deadlineNanos,
+                                                List<Future<?>> forks) {
+        long timeoutNanos = Math.min(step.timeout().toNanos(), deadlineNanos - System.nanoTime());
+        StepResult fallback = new StepResult(step.fallback(), true, false);
+        if (timeoutNanos <= 0) {
+            log.warn("Enrichment step {} skipped because the deadline has passed, using fallback value", step.name());
+            return CompletableFuture.completedFuture(fallback);
+        }
+
+        CompletableFuture<StepResult> outputs = new CompletableFuture<>();
+        forks.add(virtualThreadExecutor.submit(() -> {
+            try {
+                outputs.complete(new StepResult(step.enrich(paymentData, inputs), false, false));
+            } catch (DependencyUnavailableException e) {
+                log.warn("Enrichment step {} degraded, using fallback value: {}", step.name(), e.getMessage());
+                outputs.complete(new StepResult(step.fallback(), false, true));
+            } catch (Throwable e) {
+                outputs.completeExceptionally(e);
+            }
+            return null;
+        }));
+        return outputs
+                .completeOnTimeout(fallback, timeoutNanos, TimeUnit.NANOSECONDS)
+                .whenComplete((result, error) -> {
+                    if (result != null && result.timedOut()) {
+                        log.warn("Enrichment step {} timed out after {}ms, using fallback value", step.name(),
+                                TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+                    }
+                });
+    }
+
+    /**
+     * Lists the steps under a key, or removes the key when there are none.
+     */
+    private static void putSteps(Map<String, String> additionalData, AdditionalDataKey key, List<String> stepNames) {
+        if (stepNames.isEmpty()) {
+            additionalData.remove(key.key());
+        } else {
+            Collections.sort(stepNames);
+            additionalData.put(key.key(), String.join(",", stepNames));
+        }
+    }
+
+    private static Map<String, String> inputsOf(List<CompletableFuture<StepResult>> upstream) {
+        if (upstream.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> inputs = new HashMap<>();
+        upstream.forEach(result -> inputs.putAll(result.join().outputs()));
+        return inputs;
+    }
+
+    /**
+     * Orders the steps so that every step comes after the steps it depends on, keeping
+     * registration order between independent steps.
+     */
+    private List<EnrichmentStep> sort(List<EnrichmentStep> registered) {
+        Map<EnrichmentStep, Integer> remaining = new LinkedHashMap<>();
+        registered.forEach(step -> remaining.put(step, dependencies.get(step).size()));
+        List<EnrichmentStep> sorted = new ArrayList<>(registered.size());
+        while (!remaining.isEmpty()) {
+            EnrichmentStep ready = remaining.entrySet().stream()
+                    .filter(entry -> entry.getValue() == 0)
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Enrichment steps "
+                            + remaining.keySet().stream().map(EnrichmentStep::name).toList() + " form a cycle"));
+            remaining.remove(ready);
+            sorted.add(ready);
+            remaining.replaceAll((step, count) -> dependencies.get(step).contains(ready) ? count - 1 : count);
+        }
+        return List.copyOf(sorted);
+    }
+
+    private record StepResult(Map<String, String> outputs, boolean timedOut, boolean degraded) {
+    }
+}
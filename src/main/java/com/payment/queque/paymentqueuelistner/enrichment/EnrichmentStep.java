@@ -0,0 +1,57 @@
+package com.payment.queque.paymentqueuelistner.enrichment;
+
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single unit of payment enrichment. Steps are discovered as Spring beans and run by the
+ * {@link EnrichmentPipeline}, which orders them by their declared inputs and outputs and runs
+ * steps that do not depend on each other in parallel.
+ *
+ * Outputs are field names. {@link EnrichmentPipeline#RISK_SCORE} and
+ * {@link EnrichmentPipeline#FRAUD_STATUS} are written to the matching fields of the enriched
+ * record; any other output becomes an entry in its {@code additionalData} map.
+ */
+public interface EnrichmentStep {
+
+    /**
+     * Returns the step name used in logs and in the {@code timedOutSteps} entry.
+     */
+    String name();
+
+    /**
+     * Returns the output fields of other steps that this step reads. The step only starts once
+     * every step producing one of these fields has finished.
+     */
+    default Set<String> inputs() {
+        return Set.of();
+    }
+
+    /**
+     * Returns the fields this step writes. Every key returned by {@link #enrich} and
+     * {@link #fallback()} must be one of them.
+     */
+    Set<String> outputs();
+
+    /**
+     * Returns how long the step may run before its fallback values are used instead.
+     */
+    Duration timeout();
+
+    /**
+     * Computes the step's output fields.
+     *
+     * @param paymentData the payment being enriched
+     * @param inputs the values of the fields declared in {@link #inputs()}
+     * @return the values of the step's output fields
+     */
+    Map<String, String> enrich(PaymentData paymentData, Map<String, String> inputs) throws Exception;
+
+    /**
+     * Returns the values written when the step does not finish within its timeout.
+     */
+    Map<String, String> fallback();
+}
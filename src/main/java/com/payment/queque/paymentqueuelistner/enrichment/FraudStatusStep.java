@@ -0,0 +1,111 @@
+package com.payment.queque.paymentqueuelistner.enrichment;
+
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichmentValues;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuard;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import com.payment.queque.paymentqueuelistner.rules.RuleEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Determines the fraud status of the payment using the fraud rules of the {@link RuleEngine}.
+ * A payment the rules clear is still sent for review when its customer or merchant exceeds a
+ * velocity limit, using the features written by the {@link VelocityStep}. A limit of zero is off.
+ * Scoring runs behind the {@code fraudScoring} guard; while scoring is failing or slow the payment
+ * falls back to REVIEW_REQUIRED without waiting for the timeout.
+ */
+@Component
+public class FraudStatusStep implements EnrichmentStep {
+
+    private static final Map<String, String> FALLBACK =
+            Map.of(EnrichmentPipeline.FRAUD_STATUS, EnrichmentValues.FRAUD_REVIEW_REQUIRED);
+
+    private static final Set<String> INPUTS = Set.of(AdditionalDataKey.CUSTOMER_COUNT_1M.key(),
+            AdditionalDataKey.CUSTOMER_AMOUNT_60M.key(), AdditionalDataKey.MERCHANT_COUNT_1M.key());
+
+    private final RuleEngine ruleEngine;
+    private final DependencyGuard guard;
+    private final Duration timeout;
+    private final long customerMaxCount1m;
+    private final double customerMaxAmount60m;
+    private final long merchantMaxCount1m;
+
+    public FraudStatusStep(RuleEngine ruleEngine, DependencyGuards dependencyGuards,
+                           @Value("${app.enrichment.timeout.scoring-ms:150}") long timeoutMs,
+                           @Value("${app.velocity.fraud.customer-max-count-1m:5}") long customerMaxCount1m,
+                           @Value("${app.velocity.fraud.customer-max-amount-60m:20000}") double customerMaxAmount60m,
+                           @Value("${app.velocity.fraud.merchant-max-count-1m:0}") long merchantMaxCount1m) {
+        this.ruleEngine = ruleEngine;
+        this.guard = dependencyGuards.fraudScoring();
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.customerMaxCount1m = customerMaxCount1m;
+        this.customerMaxAmount60m = customerMaxAmount60m;
+        this.merchantMaxCount1m = merchantMaxCount1m;
+    }
+
+    @Override
+    public String name() {
+        return EnrichmentPipeline.FRAUD_STATUS;
+    }
+
+    @Override
+    public Set<String> inputs() {
+        return INPUTS;
+    }
+
+    @Override
+    public Set<String> outputs() {
+        return Set.of(EnrichmentPipeline.FRAUD_STATUS);
+    }
+
+    @Override
+    public Duration timeout() {
+        return timeout;
+    }
+
+    @Override
+    public Map<String, String> enrich(PaymentData paymentData, Map<String, String> inputs) {
+        String status = guard.call(() -> score(paymentData));
+        if (EnrichmentValues.FRAUD_CLEAR.equals(status) && exceedsVelocityLimit(inputs)) {
+            status = EnrichmentValues.FRAUD_REVIEW_REQUIRED;
+        }
+        return Map.of(EnrichmentPipeline.FRAUD_STATUS, status);
+    }
+
+    @Override
+    public Map<String, String> fallback() {
+        // An unscored payment is sent for review rather than cleared
+        return FALLBACK;
+    }
+
+    private String score(PaymentData paymentData) {
+        // Simulate some processing time
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return ruleEngine.fraudStatus(paymentData.getAmount(), paymentData.getCurrency());
+    }
+
+    /**
+     * Checks the velocity features against the configured limits. Missing features, as when the
+     * velocity step timed out, never exceed a limit.
+     */
+    private boolean exceedsVelocityLimit(Map<String, String> inputs) {
+        return exceeds(inputs.get(AdditionalDataKey.CUSTOMER_COUNT_1M.key()), customerMaxCount1m)
+                || exceeds(inputs.get(AdditionalDataKey.CUSTOMER_AMOUNT_60M.key()), customerMaxAmount60m)
+                || exceeds(inputs.get(AdditionalDataKey.MERCHANT_COUNT_1M.key()), merchantMaxCount1m);
+    }
+
+    private static boolean exceeds(String value, double limit) {
+        return limit > 0 && value != null && Double.parseDouble(value) > limit;
+    }
+}
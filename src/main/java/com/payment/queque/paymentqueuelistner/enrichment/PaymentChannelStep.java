@@ -0,0 +1,89 @@
+package com.payment.queque.paymentqueuelistner.enrichment;
+
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichmentValues;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds the processing timestamp and payment channel to the additional data.
+ * In a real-world scenario, this might involve calling external services or databases.
+ */
+@Component
+public class PaymentChannelStep implements EnrichmentStep {
+
+    private static final Map<String, String> FALLBACK =
+            Map.of(AdditionalDataKey.PAYMENT_CHANNEL.key(), EnrichmentValues.UNKNOWN);
+
+    private final Duration timeout;
+
+    public PaymentChannelStep(@Value("${app.enrichment.timeout.additional-data-ms:200}") long timeoutMs) {
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    @Override
+    public String name() {
+        return "paymentChannel";
+    }
+
+    @Override
+    public Set<String> outputs() {
+        return Set.of(AdditionalDataKey.PROCESSING_TIMESTAMP.key(), AdditionalDataKey.PAYMENT_CHANNEL.key());
+    }
+
+    @Override
+    public Duration timeout() {
+        return timeout;
+    }
+
+    @Override
+    public Map<String, String> enrich(PaymentData paymentData, Map<String, String> inputs) {
+        // Simulate some processing time
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return Map.of(AdditionalDataKey.PROCESSING_TIMESTAMP.key(), LocalDateTime.now().toString(),
+                AdditionalDataKey.PAYMENT_CHANNEL.key(), determinePaymentChannel(paymentData));
+    }
+
+    @Override
+    public Map<String, String> fallback() {
+        return FALLBACK;
+    }
+
+    /**
+     * Determines the payment channel based on the payment data.
+     *
+     * @param paymentData the payment data
+     * @return the payment channel
+     */
+    private String determinePaymentChannel(PaymentData paymentData) {
+        String paymentMethod = paymentData.getPaymentMethod();
+        if (paymentMethod == null) {
+            return EnrichmentValues.UNKNOWN;
+        }
+
+        switch (paymentMethod.toUpperCase()) {
+            case "CREDIT_CARD":
+            case "DEBIT_CARD":
+                return EnrichmentValues.CHANNEL_CARD;
+            case "BANK_TRANSFER":
+            case "ACH":
+                return EnrichmentValues.CHANNEL_BANK;
+            case "PAYPAL":
+            case "VENMO":
+                return EnrichmentValues.CHANNEL_DIGITAL_WALLET;
+            default:
+                return EnrichmentValues.CHANNEL_OTHER;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.payment.queque.paymentqueuelistner.enrichment;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichmentValues;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuard;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import com.payment.queque.paymentqueuelistner.rules.RuleEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calculates a risk score for the payment using the risk rules of the {@link RuleEngine}.
+ * Scoring runs behind the {@code riskScoring} guard, so while scoring is failing or slow the
+ * score falls back to UNKNOWN without waiting for the timeout.
+ */
+@Component
+public class RiskScoreStep implements EnrichmentStep {
+
+    private static final Map<String, String> FALLBACK =
+            Map.of(EnrichmentPipeline.RISK_SCORE, EnrichmentValues.UNKNOWN);
+
+    private final RuleEngine ruleEngine;
+    private final DependencyGuard guard;
+    private final Duration timeout;
+
+    public RiskScoreStep(RuleEngine ruleEngine, DependencyGuards dependencyGuards,
+                         @Value("${app.enrichment.timeout.scoring-ms:150}") long timeoutMs) {
+        this.ruleEngine = ruleEngine;
+        this.guard = dependencyGuards.riskScoring();
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    @Override
+    public String name() {
+        return EnrichmentPipeline.RISK_SCORE;
+    }
+
+    @Override
+    public Set<String> outputs() {
+        return Set.of(EnrichmentPipeline.RISK_SCORE);
+    }
+
+    @Override
+    public Duration timeout() {
+        return timeout;
+    }
+
+    @Override
+    public Map<String, String> enrich(PaymentData paymentData, Map<String, String> inputs) {
+        return Map.of(EnrichmentPipeline.RISK_SCORE, guard.call(() -> score(paymentData)));
+    }
+
+    @Override
+    public Map<String, String> fallback() {
+        return FALLBACK;
+    }
+
+    private String score(PaymentData paymentData) {
+        // Simulate some processing time
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return ruleEngine.riskScore(paymentData.getAmount(), paymentData.getCurrency());
+    }
+}
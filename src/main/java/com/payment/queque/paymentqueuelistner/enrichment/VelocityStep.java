@@ -0,0 +1,83 @@
+package com.payment.queque.paymentqueuelistner.enrichment;
+
+import com.payment.queque.paymentqueuelistner.model.AdditionalData;
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.velocity.PaymentVelocity;
+import com.payment.queque.paymentqueuelistner.velocity.VelocityFeatures;
+import com.payment.queque.paymentqueuelistner.velocity.VelocityTracker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the payment in the {@link VelocityTracker} and adds the customer's and merchant's payment
+ * counts and amounts in the payment's currency over the last 1, 5 and 60 minutes. The counts
+ * include this payment.
+ */
+@Component
+public class VelocityStep implements EnrichmentStep {
+
+    private static final Set<String> OUTPUTS = Set.of(
+            AdditionalDataKey.CUSTOMER_COUNT_1M.key(), AdditionalDataKey.CUSTOMER_AMOUNT_1M.key(),
+            AdditionalDataKey.CUSTOMER_COUNT_5M.key(), AdditionalDataKey.CUSTOMER_AMOUNT_5M.key(),
+            AdditionalDataKey.CUSTOMER_COUNT_60M.key(), AdditionalDataKey.CUSTOMER_AMOUNT_60M.key(),
+            AdditionalDataKey.MERCHANT_COUNT_1M.key(), AdditionalDataKey.MERCHANT_AMOUNT_1M.key(),
+            AdditionalDataKey.MERCHANT_COUNT_5M.key(), AdditionalDataKey.MERCHANT_AMOUNT_5M.key(),
+            AdditionalDataKey.MERCHANT_COUNT_60M.key(), AdditionalDataKey.MERCHANT_AMOUNT_60M.key());
+
+    private final VelocityTracker velocityTracker;
+    private final Duration timeout;
+
+    public VelocityStep(VelocityTracker velocityTracker,
+                        @Value("${app.enrichment.timeout.velocity-ms:50}") long timeoutMs) {
+        this.velocityTracker = velocityTracker;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    @Override
+    public String name() {
+        return "velocity";
+    }
+
+    @Override
+    public Set<String> outputs() {
+        return OUTPUTS;
+    }
+
+    @Override
+    public Duration timeout() {
+        return timeout;
+    }
+
+    @Override
+    public Map<String, String> enrich(PaymentData paymentData, Map<String, String> inputs) {
+        PaymentVelocity velocity = velocityTracker.record(paymentData);
+        VelocityFeatures customer = velocity.customer();
+        VelocityFeatures merchant = velocity.merchant();
+
+        AdditionalData outputs = new AdditionalData();
+        outputs.put(AdditionalDataKey.CUSTOMER_COUNT_1M, Long.toString(customer.count1m()));
+        outputs.put(AdditionalDataKey.CUSTOMER_AMOUNT_1M, VelocityFeatures.formatMinorUnits(customer.amountMinor1m()));
+        outputs.put(AdditionalDataKey.CUSTOMER_COUNT_5M, Long.toString(customer.count5m()));
+        outputs.put(AdditionalDataKey.CUSTOMER_AMOUNT_5M, VelocityFeatures.formatMinorUnits(customer.amountMinor5m()));
+        outputs.put(AdditionalDataKey.CUSTOMER_COUNT_60M, Long.toString(customer.count60m()));
+        outputs.put(AdditionalDataKey.CUSTOMER_AMOUNT_60M, VelocityFeatures.formatMinorUnits(customer.amountMinor60m()));
+        outputs.put(AdditionalDataKey.MERCHANT_COUNT_1M, Long.toString(merchant.count1m()));
+        outputs.put(AdditionalDataKey.MERCHANT_AMOUNT_1M, VelocityFeatures.formatMinorUnits(merchant.amountMinor1m()));
+        outputs.put(AdditionalDataKey.MERCHANT_COUNT_5M, Long.toString(merchant.count5m()));
+        outputs.put(AdditionalDataKey.MERCHANT_AMOUNT_5M, VelocityFeatures.formatMinorUnits(merchant.amountMinor5m()));
+        outputs.put(AdditionalDataKey.MERCHANT_COUNT_60M, Long.toString(merchant.count60m()));
+        outputs.put(AdditionalDataKey.MERCHANT_AMOUNT_60M, VelocityFeatures.formatMinorUnits(merchant.amountMinor60m()));
+        return outputs;
+    }
+
+    @Override
+    public Map<String, String> fallback() {
+        // Without velocity features the fraud decision falls back to the amount rules alone
+        return Map.of();
+    }
+}
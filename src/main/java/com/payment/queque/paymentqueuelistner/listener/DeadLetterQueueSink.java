@@ -0,0 +1,37 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.queque.paymentqueuelistner.model.QuarantinedMessage;
+import io.awspring.cloud.sqs.operations.SqsTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Quarantine sink that sends each message, wrapped with its reason, to a dead-letter SQS queue.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sqs.quarantine.sink", havingValue = "sqs")
+@Slf4j
+public class DeadLetterQueueSink implements QuarantineSink {
+
+    private final SqsTemplate sqsTemplate;
+    private final ObjectMapper objectMapper;
+    private final String deadLetterQueueUrl;
+
+    public DeadLetterQueueSink(SqsTemplate sqsTemplate,
+                               ObjectMapper objectMapper,
+                               @Value("${app.sqs.quarantine.dead-letter-queue-url}") String deadLetterQueueUrl) {
+        this.sqsTemplate = sqsTemplate;
+        this.objectMapper = objectMapper;
+        this.deadLetterQueueUrl = deadLetterQueueUrl;
+    }
+
+    @Override
+    public void quarantine(QuarantinedMessage message) throws Exception {
+        sqsTemplate.send(deadLetterQueueUrl, objectMapper.writeValueAsString(message));
+        log.warn("Quarantined message {} from {} to dead-letter queue: {}",
+                message.getMessageId(), message.getSourceQueue(), message.getReason());
+    }
+}
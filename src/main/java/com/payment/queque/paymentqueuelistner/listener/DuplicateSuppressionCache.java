@@ -0,0 +1,128 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded, expiring record of the messages and payments that have already been processed.
+ * A message is claimed under both its SQS MessageId and its payment key {@code (id, transactionId)},
+ * so redeliveries of the same message and outbox re-sends of the same transaction are both caught.
+ *
+ * A claim is held as {@link Claim#IN_PROGRESS} while the payment is being enriched and becomes
+ * {@link Claim#COMPLETED} once it has been saved. A failed payment releases its claim so a redelivery
+ * is processed normally. Memory stays fixed because entries expire after the TTL and the cache is
+ * capped at {@code maximumSize} entries.
+ */
+@Component
+public class DuplicateSuppressionCache {
+
+    /**
+     * Result of trying to claim a message.
+     */
+    public enum Claim {
+        /** No earlier claim existed; the caller now owns the message. */
+        NEW,
+        /** The same message or payment is still being processed. */
+        IN_PROGRESS,
+        /** The same message or payment has already been processed successfully. */
+        COMPLETED
+    }
+
+    private final boolean enabled;
+    private final ConcurrentMap<String, Claim> claims;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public DuplicateSuppressionCache(MeterRegistry meterRegistry,
+                                     @Value("${app.dedup.enabled:true}") boolean enabled,
+                                     @Value("${app.dedup.maximum-size:100000}") long maximumSize,
+                                     @Value("${app.dedup.ttl-seconds:3600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.hits = meterRegistry.counter("payment.dedup.hits");
+        this.misses = meterRegistry.counter("payment.dedup.misses");
+        this.evictions = meterRegistry.counter("payment.dedup.evictions");
+
+        Cache<String, Claim> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .removalListener((String key, Claim claim, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+        this.claims = cache.asMap();
+        meterRegistry.gaugeMapSize("payment.dedup.size", Tags.empty(), claims);
+    }
+
+    /**
+     * Claims a message for processing.
+     *
+     * @param messageId the SQS message ID
+     * @param id the payment ID
+     * @param transactionId the payment's transaction ID
+     * @return {@link Claim#NEW} if the caller should process the message, otherwise the state of the earlier claim
+     */
+    public Claim tryClaim(String messageId, String id, String transactionId) {
+        if (!enabled) {
+            return Claim.NEW;
+        }
+
+        String messageKey = messageKey(messageId);
+        Claim existing = claims.putIfAbsent(messageKey, Claim.IN_PROGRESS);
+        if (existing != null) {
+            hits.increment();
+            return existing;
+        }
+
+        existing = claims.putIfAbsent(paymentKey(id, transactionId), Claim.IN_PROGRESS);
+        if (existing != null) {
+            claims.remove(messageKey, Claim.IN_PROGRESS);
+            hits.increment();
+            return existing;
+        }
+
+        misses.increment();
+        return Claim.NEW;
+    }
+
+    /**
+     * Marks a claimed message as successfully processed.
+     */
+    public void complete(String messageId, String id, String transactionId) {
+        if (!enabled) {
+            return;
+        }
+        claims.put(messageKey(messageId), Claim.COMPLETED);
+        claims.put(paymentKey(id, transactionId), Claim.COMPLETED);
+    }
+
+    /**
+     * Releases a claim after processing failed, so that a redelivery is processed again.
+     */
+    public void release(String messageId, String id, String transactionId) {
+        if (!enabled) {
+            return;
+        }
+        claims.remove(messageKey(messageId), Claim.IN_PROGRESS);
+        claims.remove(paymentKey(id, transactionId), Claim.IN_PROGRESS);
+    }
+
+    private static String messageKey(String messageId) {
+        return "m:" + messageId;
+    }
+
+    private static String paymentKey(String id, String transactionId) {
+        return "p:" + id + '|' + transactionId;
+    }
+}
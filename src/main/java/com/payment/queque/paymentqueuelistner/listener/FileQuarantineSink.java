@@ -0,0 +1,45 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.queque.paymentqueuelistner.model.QuarantinedMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Quarantine sink that appends each message as a JSON line to a local file.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sqs.quarantine.sink", havingValue = "file", matchIfMissing = true)
+@Slf4j
+public class FileQuarantineSink implements QuarantineSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileQuarantineSink(ObjectMapper objectMapper,
+                              @Value("${app.sqs.quarantine.file:quarantine/poison-messages.jsonl}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file);
+    }
+
+    @Override
+    public synchronized void quarantine(QuarantinedMessage message) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(message) + System.lineSeparator())
+                .getBytes(StandardCharsets.UTF_8);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(file, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        log.warn("Quarantined message {} from {} to {}: {}",
+                message.getMessageId(), message.getSourceQueue(), file, message.getReason());
+    }
+}
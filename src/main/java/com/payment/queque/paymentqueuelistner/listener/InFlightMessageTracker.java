@@ -0,0 +1,183 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks messages that are being processed and keeps them invisible while work is still under way.
+ * Each tracked message records when its visibility timeout runs out. A periodic heartbeat extends
+ * the visibility of every message that is about to expire, grouping the extensions per queue into
+ * ChangeMessageVisibilityBatch calls of up to 10 entries, so slow or queued messages are not
+ * redelivered and processed twice. A successful extension moves the message's deadline, which the
+ * enrichment scheduler reads so an extended message no longer jumps ahead of ones closer to expiry.
+ */
+@Component
+@Slf4j
+public class InFlightMessageTracker {
+
+    private static final int MAX_BATCH_ENTRIES = 10;
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final Map<String, InFlightMessage> inFlight = new ConcurrentHashMap<>();
+    private final Counter extensions;
+    private final Counter extensionFailures;
+
+    @Value("${aws.sqs.visibility-timeout:30}")
+    private int visibilityTimeoutSeconds;
+
+    @Value("${app.sqs.visibility-heartbeat.enabled:true}")
+    private boolean heartbeatEnabled;
+
+    @Value("${app.sqs.visibility-heartbeat.extend-within-seconds:10}")
+    private int extendWithinSeconds;
+
+    @Value("${app.sqs.visibility-heartbeat.max-in-flight-seconds:900}")
+    private int maxInFlightSeconds;
+
+    public InFlightMessageTracker(SqsAsyncClient sqsAsyncClient, MeterRegistry meterRegistry) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.extensions = meterRegistry.counter("payment.visibility.extensions");
+        this.extensionFailures = meterRegistry.counter("payment.visibility.extension.failures");
+        meterRegistry.gaugeMapSize("payment.visibility.in-flight", Tags.empty(), inFlight);
+    }
+
+    /**
+     * Starts tracking a message and returns the time at which its current visibility timeout expires.
+     *
+     * @param message the received message
+     * @return the visibility deadline in epoch millis
+     */
+    public long track(Message<?> message) {
+        Instant receivedAt = message.getHeaders().get(SqsHeaders.SQS_RECEIVED_AT_HEADER, Instant.class);
+        long receivedAtMillis = receivedAt != null ? receivedAt.toEpochMilli() : System.currentTimeMillis();
+        long deadline = receivedAtMillis + visibilityTimeoutSeconds * 1000L;
+
+        String queueUrl = message.getHeaders().get(SqsHeaders.SQS_QUEUE_URL_HEADER, String.class);
+        String receiptHandle = message.getHeaders().get(SqsHeaders.SQS_RECEIPT_HANDLE_HEADER, String.class);
+        if (queueUrl != null && receiptHandle != null) {
+            inFlight.put(String.valueOf(message.getHeaders().getId()),
+                    new InFlightMessage(queueUrl, receiptHandle, receivedAtMillis, deadline));
+        }
+        return deadline;
+    }
+
+    /**
+     * Returns the current visibility deadline of a message, which moves forward each time the
+     * heartbeat extends its visibility.
+     *
+     * @param message the tracked message
+     * @param trackedDeadline the deadline returned when the message was tracked
+     * @return the visibility deadline in epoch millis, or {@code trackedDeadline} if the message is
+     *         not tracked and so is never extended
+     */
+    public long deadline(Message<?> message, long trackedDeadline) {
+        InFlightMessage inFlightMessage = inFlight.get(String.valueOf(message.getHeaders().getId()));
+        return inFlightMessage != null ? inFlightMessage.deadline : trackedDeadline;
+    }
+
+    /**
+     * Stops tracking a message once it has an outcome.
+     *
+     * @param message the message to stop tracking
+     */
+    public void untrack(Message<?> message) {
+        inFlight.remove(String.valueOf(message.getHeaders().getId()));
+    }
+
+    /**
+     * Extends the visibility of tracked messages whose timeout expires within the configured window.
+     * Messages that have been in flight longer than the configured maximum are no longer extended and
+     * will be redelivered once their current timeout runs out.
+     */
+    @Scheduled(fixedDelayString = "${app.sqs.visibility-heartbeat.interval-ms:5000}")
+    public void extendExpiringMessages() {
+        if (!heartbeatEnabled || inFlight.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<String, List<Map.Entry<String, InFlightMessage>>> expiringByQueue = new HashMap<>();
+        for (Map.Entry<String, InFlightMessage> entry : inFlight.entrySet()) {
+            InFlightMessage message = entry.getValue();
+            if (message.deadline - now > extendWithinSeconds * 1000L) {
+                continue;
+            }
+            if (now - message.receivedAt > maxInFlightSeconds * 1000L) {
+                log.warn("Message {} has been in flight for over {}s; no longer extending its visibility",
+                        entry.getKey(), maxInFlightSeconds);
+                inFlight.remove(entry.getKey());
+                continue;
+            }
+            expiringByQueue.computeIfAbsent(message.queueUrl, url -> new ArrayList<>()).add(entry);
+        }
+
+        expiringByQueue.forEach((queueUrl, entries) -> {
+            for (int from = 0; from < entries.size(); from += MAX_BATCH_ENTRIES) {
+                extend(queueUrl, entries.subList(from, Math.min(from + MAX_BATCH_ENTRIES, entries.size())), now);
+            }
+        });
+    }
+
+    private void extend(String queueUrl, List<Map.Entry<String, InFlightMessage>> entries, long now) {
+        List<ChangeMessageVisibilityBatchRequestEntry> requestEntries = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            requestEntries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                    .id(String.valueOf(i))
+                    .receiptHandle(entries.get(i).getValue().receiptHandle)
+                    .visibilityTimeout(visibilityTimeoutSeconds)
+                    .build());
+        }
+
+        sqsAsyncClient.changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest.builder()
+                        .queueUrl(queueUrl)
+                        .entries(requestEntries)
+                        .build())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        extensionFailures.increment(entries.size());
+                        log.warn("Failed to extend visibility of {} messages on {}: {}",
+                                entries.size(), queueUrl, error.getMessage());
+                        return;
+                    }
+                    response.failed().forEach(failure -> log.warn("Failed to extend visibility of message {}: {}",
+                            entries.get(Integer.parseInt(failure.id())).getKey(), failure.message()));
+                    extensionFailures.increment(response.failed().size());
+                    extensions.increment(response.successful().size());
+
+                    long extendedDeadline = now + visibilityTimeoutSeconds * 1000L;
+                    response.successful().forEach(success ->
+                            entries.get(Integer.parseInt(success.id())).getValue().deadline = extendedDeadline);
+                });
+    }
+
+    private static final class InFlightMessage {
+        private final String queueUrl;
+        private final String receiptHandle;
+        private final long receivedAt;
+        private volatile long deadline;
+
+        private InFlightMessage(String queueUrl, String receiptHandle, long receivedAt, long deadline) {
+            this.queueUrl = queueUrl;
+            this.receiptHandle = receiptHandle;
+            this.receivedAt = receivedAt;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+/**
+ * Final outcome of processing a single SQS message.
+ */
+public enum MessageOutcome {
+
+    /** The message was processed and deleted from the queue. */
+    ACKNOWLEDGED,
+
+    /** The message or its payment had already been processed; it was deleted without enrichment. */
+    DUPLICATE,
+
+    /** Processing failed and the message was returned to the queue for another attempt. */
+    RETRIED,
+
+    /** The message was moved to the quarantine sink and deleted from the queue. */
+    QUARANTINED
+}
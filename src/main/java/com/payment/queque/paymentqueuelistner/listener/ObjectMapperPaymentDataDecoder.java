@@ -0,0 +1,29 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Decoder that maps payloads through Jackson data binding.
+ * The reader for PaymentData is resolved once and reused for every message.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sqs.payload-decoder", havingValue = "object-mapper")
+public class ObjectMapperPaymentDataDecoder implements PaymentDataDecoder {
+
+    private final ObjectReader reader;
+
+    public ObjectMapperPaymentDataDecoder(ObjectMapper objectMapper) {
+        this.reader = objectMapper.readerFor(PaymentData.class);
+    }
+
+    @Override
+    public PaymentData decode(String payload) throws IOException {
+        return reader.readValue(payload);
+    }
+}
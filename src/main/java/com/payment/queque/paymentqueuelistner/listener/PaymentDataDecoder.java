@@ -0,0 +1,21 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+
+import java.io.IOException;
+
+/**
+ * Decodes SQS message payloads into PaymentData objects.
+ * The implementation is selected with the {@code app.sqs.payload-decoder} property.
+ */
+public interface PaymentDataDecoder {
+
+    /**
+     * Decodes a JSON payload into a PaymentData object.
+     *
+     * @param payload the JSON payload
+     * @return the decoded PaymentData object
+     * @throws IOException if the payload is not valid payment JSON
+     */
+    PaymentData decode(String payload) throws IOException;
+}
@@ -1,23 +1,51 @@
 package com.payment.queque.paymentqueuelistner.listener;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.queque.paymentqueuelistner.dispatch.KeyedSerialExecutor;
+import com.payment.queque.paymentqueuelistner.dispatch.PaymentLaneDispatcher;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
 import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.model.QuarantinedMessage;
 import com.payment.queque.paymentqueuelistner.service.PaymentEnrichmentService;
-import io.awspring.cloud.sqs.annotation.SqsListener;
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.awspring.cloud.sqs.listener.Visibility;
+import io.awspring.cloud.sqs.listener.acknowledgement.Acknowledgement;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
 
 /**
- * Listener for SQS queues that processes payment messages.
+ * Handles batches of payment messages received from any configured SQS queue.
+ * Listener containers are registered per queue by {@link QueueListenerRegistry}; every
+ * parsed payment is handed to the {@link PaymentLaneDispatcher}, which routes high-value and VIP
+ * payments to a priority lane with its own capacity and shares each lane between queues by weight.
+ * Payments for the same customer pass through the {@link KeyedSerialExecutor} first, so they are
+ * enriched and saved in the order they were received.
+ *
+ * Each message in a batch gets its own {@link MessageOutcome}. When ack-on-completion is enabled,
+ * a message is acknowledged (deleted from the queue) only after its enrichment and DynamoDB write
+ * have succeeded; a failed message has its visibility reset so it alone is redelivered, and once it
+ * has been received too many times it is moved to the {@link QuarantineSink}. Malformed payloads are
+ * quarantined straight away and never reach enrichment, and messages already seen by the
+ * {@link DuplicateSuppressionCache} are dropped without enrichment. While a message waits for or
+ * runs enrichment, the {@link InFlightMessageTracker} keeps extending its visibility, and the scheduler
+ * starts the messages closest to their visibility deadline first. The returned future keeps the batch in flight
+ * until every message has an outcome, so the container's in-flight limit applies back pressure and
+ * stops polling until capacity frees up.
  */
 @Component
 @RequiredArgsConstructor
@@ -25,104 +53,243 @@ import java.util.UUID;
 public class PaymentQueueListener {
 
     private final PaymentEnrichmentService paymentEnrichmentService;
-    private final ObjectMapper objectMapper;
+    private final PaymentDataDecoder paymentDataDecoder;
+    private final KeyedSerialExecutor keyedSerialExecutor;
+    private final PaymentLaneDispatcher laneDispatcher;
+    private final QuarantineSink quarantineSink;
+    private final DuplicateSuppressionCache duplicateSuppressionCache;
+    private final InFlightMessageTracker inFlightMessageTracker;
+    private final MeterRegistry meterRegistry;
 
-    @Value("${aws.sqs.queue1.url}")
-    private String queue1Url;
+    @Value("${app.sqs.ack-on-completion.enabled:true}")
+    private boolean ackOnCompletion;
 
-    @Value("${aws.sqs.queue2.url}")
-    private String queue2Url;
+    @Value("${app.sqs.retry-visibility-seconds:30}")
+    private int retryVisibilitySeconds;
+
+    @Value("${app.sqs.quarantine.max-receive-count:5}")
+    private int maxReceiveCount;
 
     /**
-     * Listens to the first SQS queue and processes payment messages in batches.
+     * Processes a batch of messages received from the given queue.
+     * Outcomes are decided per message, so one failure never causes the rest of the batch
+     * to be redelivered. When ack-on-completion is disabled, each message is acknowledged as soon as
+     * it has been handed off, except a malformed one the quarantine sink could not store.
+     * The whole batch is parsed first and its category lookups are started together, so each
+     * distinct customer and merchant in the batch is looked up once.
      *
-     * @param payloads the message payloads
-     * @param messageIds the message IDs
+     * @param sourceQueue the source queue tag
+     * @param messages the received messages
+     * @return a future that completes when every message in the batch has an outcome
      */
-    @SqsListener("${aws.sqs.queue1.url}")
-    public void receiveQueue1Messages(@Payload List<String> payloads, @Header("MessageId") List<String> messageIds) {
-        log.info("Received batch of {} messages from queue1", payloads.size());
-
-        for (int i = 0; i < payloads.size(); i++) {
-            String payload = payloads.get(i);
-            String messageId = messageIds.get(i);
+    public CompletableFuture<Void> processBatch(String sourceQueue, Collection<Message<String>> messages) {
+        log.info("Received batch of {} messages from {}", messages.size(), sourceQueue);
 
+        List<CompletableFuture<MessageOutcome>> outcomes = new ArrayList<>(messages.size());
+        List<Message<String>> parsed = new ArrayList<>(messages.size());
+        List<PaymentData> payments = new ArrayList<>(messages.size());
+        for (Message<String> message : messages) {
             try {
-                PaymentData paymentData = parsePaymentData(payload);
-                paymentData.setSourceQueue("queue1");
+                PaymentData paymentData = parsePaymentData(message.getPayload());
+                paymentData.setSourceQueue(sourceQueue);
+                parsed.add(message);
+                payments.add(paymentData);
+            } catch (IOException e) {
+                log.error("Error parsing payment data in message {} from {}: {}",
+                        message.getHeaders().getId(), sourceQueue, e.getMessage());
+                outcomes.add(retryOnError(sourceQueue,
+                        quarantine(sourceQueue, message, "Malformed payload: " + e.getMessage())));
+            }
+        }
+
+        paymentEnrichmentService.prefetch(payments);
+        for (int i = 0; i < parsed.size(); i++) {
+            outcomes.add(retryOnError(sourceQueue, processMessage(sourceQueue, parsed.get(i), payments.get(i))));
+        }
 
-                log.info("Processing payment from queue1 with ID: {}, MessageID: {}", 
-                        paymentData.getId(), messageId);
+        return CompletableFuture.allOf(outcomes.toArray(new CompletableFuture[0]))
+                .thenRun(() -> recordBatchOutcome(sourceQueue, outcomes));
+    }
+
+    private CompletableFuture<MessageOutcome> retryOnError(String sourceQueue, CompletableFuture<MessageOutcome> outcome) {
+        return outcome.exceptionally(e -> {
+            log.error("Error processing message from {}: {}", sourceQueue, e.getMessage(), e);
+            return MessageOutcome.RETRIED;
+        });
+    }
 
-                // Process asynchronously using virtual threads
-                paymentEnrichmentService.processPaymentDataAsync(paymentData);
-            } catch (Exception e) {
-                log.error("Error processing message from queue1: {}", e.getMessage(), e);
+    /**
+     * Processes a single parsed message and resolves its outcome.
+     *
+     * @param sourceQueue the source queue tag
+     * @param message the received message
+     * @param paymentData the payment parsed from the message
+     * @return a future that completes with the message's outcome
+     */
+    private CompletableFuture<MessageOutcome> processMessage(String sourceQueue, Message<String> message,
+                                                             PaymentData paymentData) {
+        UUID messageId = message.getHeaders().getId();
+
+        String dedupId = String.valueOf(messageId);
+        switch (duplicateSuppressionCache.tryClaim(dedupId, paymentData.getId(), paymentData.getTransactionId())) {
+            case COMPLETED -> {
+                log.info("Dropping duplicate payment from {} with ID: {}, MessageID: {}",
+                        sourceQueue, paymentData.getId(), messageId);
+                return acknowledge(message).thenApply(v -> MessageOutcome.DUPLICATE);
+            }
+            case IN_PROGRESS -> {
+                log.info("Payment from {} with ID: {} is already in progress, deferring MessageID: {}",
+                        sourceQueue, paymentData.getId(), messageId);
+                if (!ackOnCompletion) {
+                    // The first copy has already been acknowledged, so it will not be redelivered either
+                    return acknowledge(message).thenApply(v -> MessageOutcome.DUPLICATE);
+                }
+                // Leave the copy invisible; if the first attempt fails it will be redelivered and processed
+                return CompletableFuture.completedFuture(MessageOutcome.RETRIED);
             }
+            default -> log.info("Processing payment from {} with ID: {}, MessageID: {}",
+                    sourceQueue, paymentData.getId(), messageId);
+        }
+
+        // Track the message so its visibility is extended while it waits or runs, and schedule it by its current
+        // deadline once every earlier payment with the same ordering key has finished
+        long trackedDeadline = ackOnCompletion ? inFlightMessageTracker.track(message) : Long.MAX_VALUE;
+        LongSupplier deadline = ackOnCompletion
+                ? () -> inFlightMessageTracker.deadline(message, trackedDeadline)
+                : () -> Long.MAX_VALUE;
+        CompletableFuture<EnrichedPaymentData> enrichment = keyedSerialExecutor.submit(paymentData,
+                () -> laneDispatcher.submit(paymentData, sourceQueue, deadline,
+                        () -> paymentEnrichmentService.enrichAndSavePaymentDataAsync(paymentData)))
+                .whenComplete((saved, error) -> {
+                    if (error == null) {
+                        duplicateSuppressionCache.complete(dedupId, paymentData.getId(), paymentData.getTransactionId());
+                    } else {
+                        duplicateSuppressionCache.release(dedupId, paymentData.getId(), paymentData.getTransactionId());
+                    }
+                });
+        if (!ackOnCompletion) {
+            return acknowledge(message).thenApply(v -> MessageOutcome.ACKNOWLEDGED);
         }
+
+        return enrichment
+                .handle((saved, error) -> {
+                    inFlightMessageTracker.untrack(message);
+                    return error;
+                })
+                .thenCompose(error -> error == null
+                        ? acknowledge(message).thenApply(v -> MessageOutcome.ACKNOWLEDGED)
+                        : handleFailure(sourceQueue, message, unwrap(error)));
     }
 
     /**
-     * Listens to the second SQS queue and processes payment messages in batches.
-     *
-     * @param payloads the message payloads
-     * @param messageIds the message IDs
+     * Handles a message whose enrichment failed. The message is quarantined once it has reached
+     * the maximum receive count; otherwise its visibility is reset so that SQS redelivers it.
      */
-    @SqsListener("${aws.sqs.queue2.url}")
-    public void receiveQueue2Messages(@Payload List<String> payloads, @Header("MessageId") List<String> messageIds) {
-        log.info("Received batch of {} messages from queue2", payloads.size());
+    private CompletableFuture<MessageOutcome> handleFailure(String sourceQueue, Message<String> message, Throwable error) {
+        int receiveCount = receiveCount(message);
+        if (receiveCount >= maxReceiveCount) {
+            return quarantine(sourceQueue, message,
+                    "Failed after " + receiveCount + " attempts: " + error.getMessage());
+        }
 
-        for (int i = 0; i < payloads.size(); i++) {
-            String payload = payloads.get(i);
-            String messageId = messageIds.get(i);
+        log.warn("Message {} from {} failed on attempt {} and will be redelivered: {}",
+                message.getHeaders().getId(), sourceQueue, receiveCount, error.getMessage());
+        return resetVisibility(message).thenApply(v -> MessageOutcome.RETRIED);
+    }
 
-            try {
-                PaymentData paymentData = parsePaymentData(payload);
-                paymentData.setSourceQueue("queue2");
+    /**
+     * Moves a message to the quarantine sink and then deletes it from its queue.
+     * If the sink cannot store the message, the message is left on the queue instead.
+     */
+    private CompletableFuture<MessageOutcome> quarantine(String sourceQueue, Message<String> message, String reason) {
+        QuarantinedMessage quarantinedMessage = QuarantinedMessage.builder()
+                .messageId(String.valueOf(message.getHeaders().getId()))
+                .sourceQueue(sourceQueue)
+                .receiveCount(receiveCount(message))
+                .reason(reason)
+                .payload(message.getPayload())
+                .quarantinedAt(LocalDateTime.now())
+                .build();
+        try {
+            quarantineSink.quarantine(quarantinedMessage);
+        } catch (Exception e) {
+            log.error("Failed to quarantine message {} from {}: {}",
+                    quarantinedMessage.getMessageId(), sourceQueue, e.getMessage(), e);
+            return resetVisibility(message).thenApply(v -> MessageOutcome.RETRIED);
+        }
+        return acknowledge(message).thenApply(v -> MessageOutcome.QUARANTINED);
+    }
 
-                log.info("Processing payment from queue2 with ID: {}, MessageID: {}", 
-                        paymentData.getId(), messageId);
+    private CompletableFuture<Void> acknowledge(Message<String> message) {
+        return Acknowledgement.acknowledgeAsync(message);
+    }
 
-                // Process asynchronously using virtual threads
-                paymentEnrichmentService.processPaymentDataAsync(paymentData);
-            } catch (Exception e) {
-                log.error("Error processing message from queue2: {}", e.getMessage(), e);
-            }
+    private CompletableFuture<Void> resetVisibility(Message<String> message) {
+        Visibility visibility = message.getHeaders().get(SqsHeaders.SQS_VISIBILITY_TIMEOUT_HEADER, Visibility.class);
+        if (visibility == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return visibility.changeToAsync(retryVisibilitySeconds)
+                .exceptionally(e -> {
+                    log.warn("Failed to reset visibility of message {}: {}", message.getHeaders().getId(), e.getMessage());
+                    return null;
+                });
+    }
+
+    private static int receiveCount(Message<String> message) {
+        Object receiveCount = message.getHeaders().get(SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_RECEIVE_COUNT);
+        if (receiveCount == null) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(receiveCount.toString());
+        } catch (NumberFormatException e) {
+            return 1;
         }
     }
 
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private void recordBatchOutcome(String sourceQueue, List<CompletableFuture<MessageOutcome>> outcomes) {
+        Map<MessageOutcome, Integer> counts = new EnumMap<>(MessageOutcome.class);
+        for (CompletableFuture<MessageOutcome> outcome : outcomes) {
+            MessageOutcome value = outcome.join();
+            counts.merge(value, 1, Integer::sum);
+            meterRegistry.counter("payment.messages.processed", "queue", sourceQueue, "outcome", value.name())
+                    .increment();
+        }
+        log.info("Completed batch from {}: {}", sourceQueue, counts);
+    }
+
     /**
      * Parses a JSON payload into a PaymentData object.
-     * If the payload is invalid or missing required fields, it creates a default PaymentData object.
+     * Missing IDs and timestamps are filled in; payloads that cannot be decoded are rejected.
      *
      * @param payload the JSON payload
      * @return the parsed PaymentData object
+     * @throws IOException if the payload is not valid payment JSON
      */
-    private PaymentData parsePaymentData(String payload) {
-        try {
-            PaymentData paymentData = objectMapper.readValue(payload, PaymentData.class);
-
-            // If ID is missing, generate one
-            if (paymentData.getId() == null || paymentData.getId().isEmpty()) {
-                paymentData.setId(UUID.randomUUID().toString());
-            }
+    private PaymentData parsePaymentData(String payload) throws IOException {
+        if (payload == null || payload.isBlank()) {
+            throw new IOException("Empty payload");
+        }
+        PaymentData paymentData = paymentDataDecoder.decode(payload);
+        if (paymentData.getAmount() == null) {
+            throw new IOException("Missing required field amount");
+        }
 
-            // If timestamp is missing, set current time
-            if (paymentData.getTimestamp() == null) {
-                paymentData.setTimestamp(LocalDateTime.now());
-            }
+        // If ID is missing, generate one
+        if (paymentData.getId() == null || paymentData.getId().isEmpty()) {
+            paymentData.setId(UUID.randomUUID().toString());
+        }
 
-            return paymentData;
-        } catch (JsonProcessingException e) {
-            log.error("Error parsing payment data: {}", e.getMessage(), e);
-
-            // Create a default payment data object for error cases
-            return PaymentData.builder()
-                    .id(UUID.randomUUID().toString())
-                    .transactionId("ERROR-" + UUID.randomUUID().toString())
-                    .status("ERROR")
-                    .timestamp(LocalDateTime.now())
-                    .build();
+        // If timestamp is missing, set current time
+        if (paymentData.getTimestamp() == null) {
+            paymentData.setTimestamp(LocalDateTime.now());
         }
+
+        return paymentData;
     }
 }
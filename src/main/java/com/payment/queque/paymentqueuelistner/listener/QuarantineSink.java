@@ -0,0 +1,19 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.payment.queque.paymentqueuelistner.model.QuarantinedMessage;
+
+/**
+ * Destination for messages that are malformed or keep failing.
+ * The implementation is selected with the {@code app.sqs.quarantine.sink} property.
+ */
+public interface QuarantineSink {
+
+    /**
+     * Stores a quarantined message. The source message is only deleted from its queue
+     * after this method returns normally.
+     *
+     * @param message the message and the reason it was quarantined
+     * @throws Exception if the message could not be stored
+     */
+    void quarantine(QuarantinedMessage message) throws Exception;
+}
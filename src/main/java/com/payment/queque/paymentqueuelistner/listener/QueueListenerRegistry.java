@@ -0,0 +1,93 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.payment.queque.paymentqueuelistner.config.SqsQueueProperties;
+import io.awspring.cloud.sqs.config.SqsMessageListenerContainerFactory;
+import io.awspring.cloud.sqs.listener.AsyncMessageListener;
+import io.awspring.cloud.sqs.listener.SqsMessageListenerContainer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Registers one SQS listener container per queue declared under {@code app.sqs.queues}.
+ * Every container delivers its batches to {@link PaymentQueueListener} tagged with the queue's
+ * source, so adding a queue or changing its concurrency, batch size or weight is a configuration change.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.cloud.aws.sqs.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class QueueListenerRegistry implements SmartLifecycle {
+
+    private final SqsQueueProperties queueProperties;
+    private final SqsMessageListenerContainerFactory<String> containerFactory;
+    private final PaymentQueueListener paymentQueueListener;
+
+    private final List<SqsMessageListenerContainer<String>> containers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Override
+    public synchronized void start() {
+        for (SqsQueueProperties.QueueDefinition queue : queueProperties.getQueues()) {
+            SqsMessageListenerContainer<String> container = containerFactory.createContainer(queue.getUrl());
+            container.setId(queue.getSource() + "-listener");
+            container.configure(options -> {
+                if (queue.getMaxConcurrency() != null) {
+                    options.maxConcurrentMessages(queue.getMaxConcurrency());
+                }
+                if (queue.getBatchSize() != null) {
+                    options.maxMessagesPerPoll(queue.getBatchSize());
+                }
+            });
+            container.setAsyncMessageListener(new SourceTaggingListener(queue.getSource()));
+            container.start();
+            containers.add(container);
+
+            log.info("Registered listener for queue {} ({}) with max concurrency {}, batch size {}, weight {} and lane {}",
+                    queue.getSource(), queue.getUrl(),
+                    container.getContainerOptions().getMaxConcurrentMessages(),
+                    container.getContainerOptions().getMaxMessagesPerPoll(),
+                    queue.getWeight(), queue.getLane() != null ? queue.getLane().tag() : "classified");
+        }
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        containers.forEach(SqsMessageListenerContainer::stop);
+        containers.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Adapts a container's batches to {@link PaymentQueueListener#processBatch(String, Collection)}.
+     */
+    @RequiredArgsConstructor
+    private class SourceTaggingListener implements AsyncMessageListener<String> {
+
+        private final String sourceQueue;
+
+        @Override
+        public CompletableFuture<Void> onMessage(Message<String> message) {
+            return paymentQueueListener.processBatch(sourceQueue, List.of(message));
+        }
+
+        @Override
+        public CompletableFuture<Void> onMessage(Collection<Message<String>> messages) {
+            return paymentQueueListener.processBatch(sourceQueue, messages);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Decoder that reads PaymentData with a streaming token parser.
+ * Fields are assigned directly as tokens are read, unknown fields are skipped without
+ * building a tree, and low-cardinality values (currency, payment method and status)
+ * are interned so repeated values share a single String instance. Payloads are decoded into an
+ * {@link EnrichedPaymentData}, which the enrichment service fills in and saves without copying.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sqs.payload-decoder", havingValue = "streaming", matchIfMissing = true)
+public class StreamingPaymentDataDecoder implements PaymentDataDecoder {
+
+    private final JsonFactory jsonFactory;
+    private final ValueInterner interner = new ValueInterner(256);
+
+    public StreamingPaymentDataDecoder(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @Override
+    public PaymentData decode(String payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected payment data to be a JSON object");
+            }
+
+            // Decode straight into the record that will be enriched and saved, so it is not copied later
+            PaymentData paymentData = new EnrichedPaymentData();
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+
+                switch (fieldName) {
+                    case "id" -> paymentData.setId(readText(parser));
+                    case "transactionId" -> paymentData.setTransactionId(readText(parser));
+                    case "amount" -> paymentData.setAmount(readAmount(parser));
+                    case "currency" -> paymentData.setCurrency(readInterned(parser));
+                    case "paymentMethod" -> paymentData.setPaymentMethod(readInterned(parser));
+                    case "status" -> paymentData.setStatus(readInterned(parser));
+                    case "customerId" -> paymentData.setCustomerId(readText(parser));
+                    case "merchantId" -> paymentData.setMerchantId(readText(parser));
+                    case "timestamp" -> paymentData.setTimestamp(readTimestamp(parser));
+                    case "sourceQueue" -> paymentData.setSourceQueue(readInterned(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            return paymentData;
+        }
+    }
+
+    private static String readText(JsonParser parser) throws IOException {
+        if (!parser.currentToken().isScalarValue()) {
+            throw new JsonParseException(parser, "Expected a scalar value for field " + parser.currentName());
+        }
+        return parser.getText();
+    }
+
+    private String readInterned(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            return readText(parser);
+        }
+        return interner.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    private static Double readAmount(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        double amount;
+        if (token.isNumeric()) {
+            amount = parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_STRING) {
+            try {
+                amount = Double.parseDouble(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "Invalid amount: " + parser.getText(), e);
+            }
+        } else {
+            throw new JsonParseException(parser, "Expected a numeric value for field amount");
+        }
+        // NaN and infinity would otherwise pass every amount threshold check
+        if (!Double.isFinite(amount)) {
+            throw new JsonParseException(parser, "Invalid amount: " + parser.getText());
+        }
+        return amount;
+    }
+
+    private static LocalDateTime readTimestamp(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return LocalDateTime.parse(parser.getText());
+            } catch (DateTimeParseException e) {
+                throw new JsonParseException(parser, "Invalid timestamp: " + parser.getText(), e);
+            }
+        }
+        if (token == JsonToken.START_ARRAY) {
+            // Array form written by Jackson when dates are serialized as timestamps
+            int[] parts = new int[7];
+            int count = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (count == parts.length || parser.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+                    throw new JsonParseException(parser, "Invalid timestamp array");
+                }
+                parts[count++] = parser.getIntValue();
+            }
+            if (count < 5) {
+                throw new JsonParseException(parser, "Invalid timestamp array");
+            }
+            try {
+                return LocalDateTime.of(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]);
+            } catch (DateTimeException e) {
+                throw new JsonParseException(parser, "Invalid timestamp array", e);
+            }
+        }
+        throw new JsonParseException(parser, "Expected a string value for field timestamp");
+    }
+
+    /**
+     * Fixed-size, lock-free cache of String instances keyed by their characters.
+     * A lookup that hits returns the cached instance without allocating; a miss creates the
+     * String and replaces whatever occupied the slot. Strings are immutable, so racing writers
+     * can only cost an extra allocation, never a wrong value.
+     */
+    static final class ValueInterner {
+
+        private final String[] slots;
+        private final int mask;
+
+        ValueInterner(int size) {
+            int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+            this.slots = new String[capacity];
+            this.mask = capacity - 1;
+        }
+
+        String intern(char[] chars, int offset, int length) {
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            int index = (hash ^ (hash >>> 16)) & mask;
+
+            String cached = slots[index];
+            if (cached != null && matches(cached, chars, offset, length)) {
+                return cached;
+            }
+            String value = new String(chars, offset, length);
+            slots[index] = value;
+            return value;
+        }
+
+        private static boolean matches(String cached, char[] chars, int offset, int length) {
+            if (cached.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (cached.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
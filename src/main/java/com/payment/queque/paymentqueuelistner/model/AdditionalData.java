@@ -0,0 +1,191 @@
+package com.payment.queque.paymentqueuelistner.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact map for the additional data of an enriched payment.
+ * Values of the {@link AdditionalDataKey known keys} are kept in a fixed array indexed by the key,
+ * so a fully enriched payment costs one small array instead of a hash table and an entry node per
+ * field. Any other key goes to an overflow map that is only created when first needed.
+ *
+ * It is a regular {@code Map<String, String>}: it compares equal to any map with the same entries,
+ * and Jackson and the DynamoDB mapper read and write it like the {@code HashMap} it replaces.
+ * Null values are not stored; putting {@code null} removes the key. Not thread-safe.
+ */
+public final class AdditionalData extends AbstractMap<String, String> {
+
+    private final String[] slots = new String[AdditionalDataKey.count()];
+    private Map<String, String> overflow;
+    private int slotCount;
+
+    public AdditionalData() {
+    }
+
+    public AdditionalData(Map<String, String> values) {
+        putAll(values);
+    }
+
+    /**
+     * @return the value stored under a known key, or {@code null}
+     */
+    public String get(AdditionalDataKey key) {
+        return slots[key.ordinal()];
+    }
+
+    /**
+     * Stores a value under a known key.
+     *
+     * @return the previous value, or {@code null}
+     */
+    public String put(AdditionalDataKey key, String value) {
+        String previous = slots[key.ordinal()];
+        slots[key.ordinal()] = value;
+        if (previous == null && value != null) {
+            slotCount++;
+        } else if (previous != null && value == null) {
+            slotCount--;
+        }
+        return previous;
+    }
+
+    @Override
+    public String get(Object key) {
+        AdditionalDataKey known = AdditionalDataKey.of(key);
+        if (known != null) {
+            return get(known);
+        }
+        return overflow != null ? overflow.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        AdditionalDataKey known = AdditionalDataKey.of(key);
+        if (known != null) {
+            return put(known, value);
+        }
+        if (value == null) {
+            return remove(key);
+        }
+        if (overflow == null) {
+            overflow = new HashMap<>(4);
+        }
+        return overflow.put(key, value);
+    }
+
+    @Override
+    public String remove(Object key) {
+        AdditionalDataKey known = AdditionalDataKey.of(key);
+        if (known != null) {
+            return put(known, null);
+        }
+        return overflow != null ? overflow.remove(key) : null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, null);
+        slotCount = 0;
+        overflow = null;
+    }
+
+    @Override
+    public int size() {
+        return slotCount + (overflow != null ? overflow.size() : 0);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                action.accept(AdditionalDataKey.at(i).key(), slots[i]);
+            }
+        }
+        if (overflow != null) {
+            overflow.forEach(action);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return AdditionalData.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterates the known keys in declaration order, then the overflow entries.
+     */
+    private final class EntryIterator implements Iterator<Entry<String, String>> {
+
+        private int next = advance(0);
+        private int current = -1;
+        private Iterator<Entry<String, String>> overflowIterator;
+
+        @Override
+        public boolean hasNext() {
+            if (next < slots.length) {
+                return true;
+            }
+            if (overflowIterator == null && overflow != null) {
+                overflowIterator = overflow.entrySet().iterator();
+            }
+            return overflowIterator != null && overflowIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (next < slots.length) {
+                current = next;
+                next = advance(next + 1);
+                return new SimpleImmutableEntry<>(AdditionalDataKey.at(current).key(), slots[current]);
+            }
+            current = slots.length;
+            return overflowIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            if (current < slots.length) {
+                put(AdditionalDataKey.at(current), null);
+            } else {
+                overflowIterator.remove();
+            }
+            current = -1;
+        }
+
+        private int advance(int from) {
+            int index = from;
+            while (index < slots.length && slots[index] == null) {
+                index++;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.payment.queque.paymentqueuelistner.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Known keys of {@link EnrichedPaymentData#getAdditionalData()}.
+ * Each key has a fixed slot in {@link AdditionalData}, so the common enrichment fields are stored
+ * without hashing or per-entry nodes. The attribute names are the ones stored in DynamoDB.
+ * The compact DynamoDB encoding stores a key by its code, so a code must never change or be reused,
+ * and a new key takes the next unused code.
+ */
+public enum AdditionalDataKey {
+    PROCESSING_TIMESTAMP(1, "processingTimestamp"),
+    PAYMENT_CHANNEL(2, "paymentChannel"),
+    CUSTOMER_CATEGORY(3, "customerCategory"),
+    MERCHANT_CATEGORY(4, "merchantCategory"),
+    TIMED_OUT_STEPS(5, "timedOutSteps"),
+    DEGRADED_STEPS(6, "degradedSteps"),
+    CUSTOMER_COUNT_1M(7, "customerCount1m"),
+    CUSTOMER_AMOUNT_1M(8, "customerAmount1m"),
+    CUSTOMER_COUNT_5M(9, "customerCount5m"),
+    CUSTOMER_AMOUNT_5M(10, "customerAmount5m"),
+    CUSTOMER_COUNT_60M(11, "customerCount60m"),
+    CUSTOMER_AMOUNT_60M(12, "customerAmount60m"),
+    MERCHANT_COUNT_1M(13, "merchantCount1m"),
+    MERCHANT_AMOUNT_1M(14, "merchantAmount1m"),
+    MERCHANT_COUNT_5M(15, "merchantCount5m"),
+    MERCHANT_AMOUNT_5M(16, "merchantAmount5m"),
+    MERCHANT_COUNT_60M(17, "merchantCount60m"),
+    MERCHANT_AMOUNT_60M(18, "merchantAmount60m");
+
+    private static final AdditionalDataKey[] VALUES = values();
+    private static final Map<String, AdditionalDataKey> BY_KEY = new HashMap<>();
+    private static final AdditionalDataKey[] BY_CODE = new AdditionalDataKey[256];
+
+    static {
+        for (AdditionalDataKey value : VALUES) {
+            BY_KEY.put(value.key, value);
+            if (value.code < 1 || value.code >= BY_CODE.length || BY_CODE[value.code] != null) {
+                throw new IllegalStateException("Invalid or duplicate additional data key code " + value.code);
+            }
+            BY_CODE[value.code] = value;
+        }
+    }
+
+    private final int code;
+    private final String key;
+
+    AdditionalDataKey(int code, String key) {
+        this.code = code;
+        this.key = key;
+    }
+
+    /**
+     * @return the code that stands for this key in the compact DynamoDB encoding, from 1 to 255
+     */
+    public int code() {
+        return code;
+    }
+
+    /**
+     * @return the attribute name stored in the additional data map
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Finds the known key with the given attribute name.
+     *
+     * @param key the attribute name
+     * @return the matching key, or {@code null} if the name is not a known key
+     */
+    public static AdditionalDataKey of(Object key) {
+        return key instanceof String name ? BY_KEY.get(name) : null;
+    }
+
+    /**
+     * Finds the key with the given code.
+     *
+     * @param code the code stored in the compact encoding
+     * @return the matching key, or {@code null} if no key has the code
+     */
+    public static AdditionalDataKey ofCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    static AdditionalDataKey at(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    static int count() {
+        return VALUES.length;
+    }
+}
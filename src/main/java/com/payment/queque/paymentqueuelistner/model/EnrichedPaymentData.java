@@ -15,6 +15,10 @@ import java.util.Map;
 /**
  * Enriched payment data model that will be stored in DynamoDB.
  * Extends the base PaymentData class and adds additional enriched fields.
+ *
+ * The streaming decoder reads payloads straight into this class, so the parsed payment is also the
+ * record that is enriched and saved: {@link #of(PaymentData)} hands it back instead of copying its
+ * fields into a second object. Additional data is normally an {@link AdditionalData} map.
  */
 @Data
 @SuperBuilder
@@ -32,6 +36,55 @@ public class EnrichedPaymentData extends PaymentData {
     private String processingStatus;
     private Long processingTimeMs;
     
+    /**
+     * Returns the record to enrich for a payment.
+     * A payment that was decoded as an EnrichedPaymentData is enriched in place; any other payment
+     * is copied into a new record.
+     *
+     * @param paymentData the parsed payment
+     * @return the record to fill in with enrichment results
+     */
+    public static EnrichedPaymentData of(PaymentData paymentData) {
+        if (paymentData instanceof EnrichedPaymentData enrichedData) {
+            return enrichedData;
+        }
+        EnrichedPaymentData enrichedData = new EnrichedPaymentData();
+        copyPaymentFields(paymentData, enrichedData);
+        return enrichedData;
+    }
+
+    /**
+     * Returns a copy of this record, with its own additional data map, that later changes to
+     * this record do not affect.
+     *
+     * @return the copy
+     */
+    public EnrichedPaymentData copy() {
+        EnrichedPaymentData copy = new EnrichedPaymentData();
+        copyPaymentFields(this, copy);
+        copy.setEnrichmentId(enrichmentId);
+        copy.setAdditionalData(additionalData != null ? new AdditionalData(additionalData) : null);
+        copy.setRiskScore(riskScore);
+        copy.setFraudStatus(fraudStatus);
+        copy.setEnrichmentTimestamp(enrichmentTimestamp);
+        copy.setProcessingStatus(processingStatus);
+        copy.setProcessingTimeMs(processingTimeMs);
+        return copy;
+    }
+
+    private static void copyPaymentFields(PaymentData from, EnrichedPaymentData to) {
+        to.setId(from.getId());
+        to.setTransactionId(from.getTransactionId());
+        to.setAmount(from.getAmount());
+        to.setCurrency(from.getCurrency());
+        to.setPaymentMethod(from.getPaymentMethod());
+        to.setStatus(from.getStatus());
+        to.setCustomerId(from.getCustomerId());
+        to.setMerchantId(from.getMerchantId());
+        to.setTimestamp(from.getTimestamp());
+        to.setSourceQueue(from.getSourceQueue());
+    }
+
     // Override to add DynamoDB partition key annotation
     @Override
     @DynamoDbPartitionKey
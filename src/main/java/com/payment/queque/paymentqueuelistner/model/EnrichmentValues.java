@@ -0,0 +1,40 @@
+package com.payment.queque.paymentqueuelistner.model;
+
+/**
+ * Shared values written by the enrichment steps.
+ * Every record refers to the same String instances instead of building its own copies, and
+ * lookups, fallbacks and tests agree on the spelling.
+ */
+public final class EnrichmentValues {
+
+    /** Value used when a category, channel or score cannot be determined. */
+    public static final String UNKNOWN = "UNKNOWN";
+
+    // Customer categories
+    public static final String CUSTOMER_VIP = "VIP";
+    public static final String CUSTOMER_BUSINESS = "BUSINESS";
+    public static final String CUSTOMER_REGULAR = "REGULAR";
+
+    // Merchant categories
+    public static final String MERCHANT_RETAIL = "RETAIL";
+    public static final String MERCHANT_FOOD_AND_BEVERAGE = "FOOD_AND_BEVERAGE";
+    public static final String MERCHANT_TRAVEL = "TRAVEL";
+    public static final String MERCHANT_OTHER = "OTHER";
+
+    // Payment channels
+    public static final String CHANNEL_CARD = "CARD";
+    public static final String CHANNEL_BANK = "BANK";
+    public static final String CHANNEL_DIGITAL_WALLET = "DIGITAL_WALLET";
+    public static final String CHANNEL_OTHER = "OTHER";
+
+    // Fraud statuses
+    public static final String FRAUD_CLEAR = "CLEAR";
+    public static final String FRAUD_REVIEW_REQUIRED = "REVIEW_REQUIRED";
+
+    // Processing status
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_PARTIAL = "PARTIAL";
+
+    private EnrichmentValues() {
+    }
+}
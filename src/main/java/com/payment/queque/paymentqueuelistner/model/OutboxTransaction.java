@@ -0,0 +1,23 @@
+package com.payment.queque.paymentqueuelistner.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a row of the transaction table, as the outbox poller reads and sends it.
+ * Unlike a {@link Transaction} entity it is never attached to the persistence context, so a page of
+ * rows costs no snapshot copies or dirty checking and is garbage once the page has been sent. It
+ * serializes to the same JSON as the entity.
+ */
+public record OutboxTransaction(
+        String id,
+        String transactionId,
+        Double amount,
+        String currency,
+        String paymentMethod,
+        String status,
+        String customerId,
+        String merchantId,
+        LocalDateTime timestamp,
+        String processingStatus,
+        LocalDateTime processedTimestamp) {
+}
@@ -1,7 +1,7 @@
 package com.payment.queque.paymentqueuelistner.model;
 
 import lombok.AllArgsConstructor;
-import lombok.Builder;
+import lombok.experimental.SuperBuilder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -11,7 +11,7 @@ import java.time.LocalDateTime;
  * Base model class for payment data received from SQS queues.
  */
 @Data
-@Builder
+@SuperBuilder
 @NoArgsConstructor
 @AllArgsConstructor
 public class PaymentData {
@@ -0,0 +1,25 @@
+package com.payment.queque.paymentqueuelistner.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message that was removed from its source queue because it could not be processed,
+ * together with the reason it was quarantined.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuarantinedMessage {
+    private String messageId;
+    private String sourceQueue;
+    private int receiveCount;
+    private String reason;
+    private String payload;
+    private LocalDateTime quarantinedAt;
+}
@@ -8,19 +8,22 @@ import lombok.NoArgsConstructor;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 
 /**
  * Entity class representing a transaction record in the database.
  * This table is updated by external applications and monitored by this application.
+ * The index on {@code (processing_status, timestamp, id)} serves the outbox poller's keyset pages.
  */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+        indexes = @Index(name = "idx_transactions_outbox", columnList = "processing_status, timestamp, id"))
 public class Transaction {
 
     @Id
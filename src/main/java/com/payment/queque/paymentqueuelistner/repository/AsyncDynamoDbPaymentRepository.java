@@ -0,0 +1,95 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuard;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link PaymentRepository} backed by the asynchronous DynamoDB enhanced client, used when
+ * {@code app.dynamodb.client=async}.
+ *
+ * A save returns a future straight away and no thread waits for the HTTP round trip; the future
+ * completes on the SDK's response thread once DynamoDB has accepted the item. Saves go through the
+ * {@code paymentStore} guard, whose slot is held until the write completes and is never waited for,
+ * so a full bulkhead fails the save at once. Records are written one {@code PutItem} at a time; the
+ * write-behind buffer only applies to the synchronous client.
+ *
+ * Bulk reads are sent as BatchGetItem requests by the {@link PaymentBatchReader}, and every read
+ * goes through the {@link PaymentReadCache}, which saves keep up to date.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+@ConditionalOnProperty(name = "app.dynamodb.client", havingValue = "async")
+@Slf4j
+public class AsyncDynamoDbPaymentRepository implements PaymentRepository {
+
+    private final DynamoDbAsyncTable<EnrichedPaymentData> table;
+    private final DependencyGuard guard;
+    private final PaymentBatchReader batchReader;
+    private final PaymentReadCache readCache;
+
+    public AsyncDynamoDbPaymentRepository(DynamoDbAsyncTable<EnrichedPaymentData> table,
+                                          DependencyGuards dependencyGuards,
+                                          PaymentBatchReader batchReader,
+                                          PaymentReadCache readCache) {
+        this.table = table;
+        this.guard = dependencyGuards.paymentStore();
+        this.batchReader = batchReader;
+        this.readCache = readCache;
+    }
+
+    @Override
+    public EnrichedPaymentData save(EnrichedPaymentData paymentData) {
+        try {
+            return saveAsync(paymentData).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to save payment data to DynamoDB", e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<EnrichedPaymentData> saveAsync(EnrichedPaymentData paymentData) {
+        return readCache.onSave(paymentData, guard.callAsync(() -> table.putItem(paymentData))
+                .handle((result, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        log.error("Error saving payment data to DynamoDB: {}", cause.getMessage(), cause);
+                        throw new CompletionException(cause);
+                    }
+                    log.info("Successfully saved payment data with ID: {}", paymentData.getId());
+                    return paymentData;
+                }));
+    }
+
+    @Override
+    public Optional<EnrichedPaymentData> findById(String id, String transactionId) {
+        try {
+            return readCache.get(new PaymentKey(id, transactionId),
+                    key -> Optional.ofNullable(table.getItem(key.toKey()).join()));
+        } catch (CompletionException e) {
+            log.error("Error retrieving payment data from DynamoDB: {}", e.getCause().getMessage(), e.getCause());
+            throw new RuntimeException("Failed to retrieve payment data from DynamoDB", e.getCause());
+        }
+    }
+
+    @Override
+    public Map<PaymentKey, EnrichedPaymentData> findAllByIds(Collection<PaymentKey> keys) {
+        try {
+            return readCache.getAll(keys, batchReader::readAll);
+        } catch (RuntimeException e) {
+            log.error("Error retrieving payment data from DynamoDB: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to retrieve payment data from DynamoDB", e);
+        }
+    }
+}
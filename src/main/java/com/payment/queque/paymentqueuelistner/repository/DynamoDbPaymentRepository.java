@@ -0,0 +1,94 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link PaymentRepository} backed by the synchronous DynamoDB enhanced client, used unless
+ * {@code app.dynamodb.client=async}. Saves go through the {@code paymentStore} guard, so while
+ * DynamoDB is failing or slow a save is rejected at once and the message is retried later, instead
+ * of every enrichment waiting on it.
+ *
+ * In write-behind mode saves are handed to the {@link PaymentWriteBuffer}, which groups the records
+ * of concurrent saves into BatchWriteItem requests. A save still returns only once its own record
+ * has been written.
+ *
+ * Bulk reads are sent as BatchGetItem requests by the {@link PaymentBatchReader}, and every read
+ * goes through the {@link PaymentReadCache}, which saves keep up to date.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+@ConditionalOnProperty(name = "app.dynamodb.client", havingValue = "sync", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class DynamoDbPaymentRepository implements PaymentRepository {
+
+    private final DynamoDbTable<EnrichedPaymentData> table;
+    private final DependencyGuards dependencyGuards;
+    private final PaymentWriteBuffer writeBuffer;
+    private final PaymentBatchReader batchReader;
+    private final PaymentReadCache readCache;
+
+    @Override
+    public EnrichedPaymentData save(EnrichedPaymentData paymentData) {
+        if (writeBuffer.isEnabled()) {
+            try {
+                return readCache.onSave(paymentData, writeBuffer.write(paymentData)).join();
+            } catch (CompletionException e) {
+                throw new RuntimeException("Failed to save payment data to DynamoDB", e.getCause());
+            }
+        }
+        return dependencyGuards.paymentStore().call(() -> {
+            try {
+                table.putItem(paymentData);
+                readCache.saved(paymentData);
+                log.info("Successfully saved payment data with ID: {}", paymentData.getId());
+                return paymentData;
+            } catch (Exception e) {
+                readCache.saveFailed(paymentData);
+                log.error("Error saving payment data to DynamoDB: {}", e.getMessage(), e);
+                throw new RuntimeException("Failed to save payment data to DynamoDB", e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<EnrichedPaymentData> saveAsync(EnrichedPaymentData paymentData) {
+        if (writeBuffer.isEnabled()) {
+            return readCache.onSave(paymentData, writeBuffer.write(paymentData));
+        }
+        return PaymentRepository.super.saveAsync(paymentData);
+    }
+
+    @Override
+    public Optional<EnrichedPaymentData> findById(String id, String transactionId) {
+        try {
+            return readCache.get(new PaymentKey(id, transactionId),
+                    key -> Optional.ofNullable(table.getItem(key.toKey())));
+        } catch (Exception e) {
+            log.error("Error retrieving payment data from DynamoDB: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to retrieve payment data from DynamoDB", e);
+        }
+    }
+
+    @Override
+    public Map<PaymentKey, EnrichedPaymentData> findAllByIds(Collection<PaymentKey> keys) {
+        try {
+            return readCache.getAll(keys, batchReader::readAll);
+        } catch (Exception e) {
+            log.error("Error retrieving payment data from DynamoDB: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to retrieve payment data from DynamoDB", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link PaymentRepository} that keeps payments in memory, used when {@code app.storage.backend=memory}.
+ *
+ * Meant for load tests and local development: the pipeline runs without AWS, and its throughput
+ * can be measured apart from storage. Payments are spread over lock-striped hash maps, so saves
+ * of different payments rarely wait for each other. The locks are {@link ReentrantLock}s rather
+ * than monitors so a virtual thread waiting for one does not pin its carrier. Nothing survives a
+ * restart, and records are stored and returned as they are, so callers must not modify a record
+ * once it is saved.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "memory")
+public class InMemoryPaymentRepository implements PaymentRepository {
+
+    private final Stripe[] stripes;
+
+    public InMemoryPaymentRepository(MeterRegistry meterRegistry,
+                                     @Value("${app.storage.memory.stripes:64}") int stripeCount) {
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        Gauge.builder("payment.store.items", this, InMemoryPaymentRepository::size)
+                .tag("backend", "memory")
+                .description("Payments held by the storage backend")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EnrichedPaymentData save(EnrichedPaymentData paymentData) {
+        PaymentKey key = PaymentKey.of(paymentData);
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            stripe.payments.put(key, paymentData);
+        } finally {
+            stripe.lock.unlock();
+        }
+        return paymentData;
+    }
+
+    @Override
+    public Optional<EnrichedPaymentData> findById(String id, String transactionId) {
+        PaymentKey key = new PaymentKey(id, transactionId);
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            return Optional.ofNullable(stripe.payments.get(key));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of payments held.
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.payments.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(PaymentKey key) {
+        int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<PaymentKey, EnrichedPaymentData> payments = new HashMap<>();
+    }
+}
@@ -0,0 +1,232 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * {@link PaymentRepository} that appends payments to memory-mapped log files, used when
+ * {@code app.storage.backend=mmap} for a durable single-node mode without AWS.
+ *
+ * The log is a directory of segment files of {@code segment-bytes} each, mapped into memory as a
+ * whole and written only at their end. Records are framed by {@link SegmentRecords}, and each
+ * payload is the payment ID and transaction ID followed by the payment as JSON.
+ * An in-memory index maps every {@code (id, transactionId)} to the position of its latest record,
+ * so a read is one lookup and one decode, and saving a payment again leaves the earlier record as
+ * garbage that is never read.
+ *
+ * On startup the segments are scanned in order to rebuild the index. A segment ends at the first
+ * record whose length or checksum does not match, so a record torn by a crash is ignored and
+ * overwritten by the next save. Appends are serialized by a single lock; reads take no lock. With
+ * {@code force-on-write} every save returns only once its record has been flushed to disk.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "mmap")
+@Slf4j
+public class MappedLogPaymentRepository implements PaymentRepository {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean forceOnWrite;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    // Latest record of every payment: segment number in the high int, offset in the low int
+    private final Map<PaymentKey, Long> index = new ConcurrentHashMap<>();
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+
+    // Append position in the last segment, guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private int position;
+    private volatile long appendedBytes;
+
+    public MappedLogPaymentRepository(ObjectMapper objectMapper,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.storage.mmap.directory:data/payment-store}") Path directory,
+                                      @Value("${app.storage.mmap.segment-bytes:67108864}") int segmentBytes,
+                                      @Value("${app.storage.mmap.force-on-write:true}") boolean forceOnWrite)
+            throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.forceOnWrite = forceOnWrite;
+        this.writer = objectMapper.writerFor(EnrichedPaymentData.class);
+        this.reader = objectMapper.readerFor(EnrichedPaymentData.class);
+
+        Files.createDirectories(directory);
+        recover();
+
+        Gauge.builder("payment.store.items", index, Map::size)
+                .tag("backend", "mmap")
+                .description("Payments held by the storage backend")
+                .register(meterRegistry);
+        Gauge.builder("payment.store.log.bytes", this, repository -> repository.appendedBytes)
+                .description("Bytes of live and superseded records in the payment log")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EnrichedPaymentData save(EnrichedPaymentData paymentData) {
+        PaymentKey key = PaymentKey.of(paymentData);
+        if (key.id() == null || key.transactionId() == null) {
+            // Both are written into the record, so a missing one would otherwise surface as a bare NPE
+            throw new RuntimeException("Failed to save payment data to the payment log",
+                    new IllegalArgumentException("Payment " + key + " has no " + (key.id() == null ? "id" : "transactionId")));
+        }
+        byte[] payload = encode(key, paymentData);
+        int recordBytes = SegmentRecords.HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            throw new IllegalArgumentException("Payment " + key + " takes " + recordBytes
+                    + " bytes, more than a log segment of " + segmentBytes);
+        }
+        int checksum = SegmentRecords.checksum(payload);
+
+        appendLock.lock();
+        try {
+            if (segments.isEmpty() || position + recordBytes > segments.get(segments.size() - 1).capacity()) {
+                addSegment();
+            }
+            int segment = segments.size() - 1;
+            MappedByteBuffer buffer = segments.get(segment);
+            int offset = position;
+            position = SegmentRecords.write(buffer, offset, payload, checksum);
+            if (forceOnWrite) {
+                buffer.force(offset, recordBytes);
+            }
+            appendedBytes += recordBytes;
+            index.put(key, (long) segment << 32 | offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append payment " + key + " to the log", e);
+        } finally {
+            appendLock.unlock();
+        }
+        return paymentData;
+    }
+
+    @Override
+    public Optional<EnrichedPaymentData> findById(String id, String transactionId) {
+        Long location = index.get(new PaymentKey(id, transactionId));
+        if (location == null) {
+            return Optional.empty();
+        }
+        MappedByteBuffer buffer = segments.get((int) (location >>> 32));
+        int offset = (int) (long) location;
+        byte[] payload = new byte[buffer.getInt(offset)];
+        buffer.get(offset + SegmentRecords.HEADER_BYTES, payload);
+        return Optional.of(decode(payload));
+    }
+
+    /**
+     * Flushes every segment to disk before the application stops.
+     */
+    @PreDestroy
+    public void flush() {
+        appendLock.lock();
+        try {
+            segments.forEach(MappedByteBuffer::force);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Maps the existing segments in order and rebuilds the index from their records.
+     */
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            MappedByteBuffer buffer = SegmentRecords.map(file, Files.size(file));
+            segments.add(buffer);
+            position = scan(segments.size() - 1, buffer);
+            appendedBytes += position;
+        }
+        if (!files.isEmpty()) {
+            log.info("Recovered {} payments from {} log segments in {}", index.size(), files.size(), directory);
+        }
+    }
+
+    /**
+     * Indexes the records of a segment.
+     *
+     * @return the offset just past the last valid record
+     */
+    private int scan(int segment, MappedByteBuffer buffer) {
+        int offset = 0;
+        byte[] payload;
+        while ((payload = SegmentRecords.read(buffer, offset, buffer.capacity(), "payment log segment " + segment))
+                != null) {
+            index.put(decodeKey(payload), (long) segment << 32 | offset);
+            offset += SegmentRecords.HEADER_BYTES + payload.length;
+        }
+        return offset;
+    }
+
+    private void addSegment() throws IOException {
+        Path file = directory.resolve(String.format("%010d%s", segments.size(), SEGMENT_SUFFIX));
+        segments.add(SegmentRecords.map(file, segmentBytes));
+        position = 0;
+    }
+
+    private byte[] encode(PaymentKey key, EnrichedPaymentData paymentData) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(key.id());
+            out.writeUTF(key.transactionId());
+            writer.writeValue((OutputStream) out, paymentData);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode payment " + key, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private EnrichedPaymentData decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            in.readUTF();
+            in.readUTF();
+            int json = in.available();
+            return reader.readValue(payload, payload.length - json, json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode a payment from the log", e);
+        }
+    }
+
+    private static PaymentKey decodeKey(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return new PaymentKey(in.readUTF(), in.readUTF());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode a payment key from the log", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPage;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reads enriched payments from DynamoDB in {@code BatchGetItem} requests.
+ *
+ * Keys are sent in requests of at most 100, the most DynamoDB accepts. Keys DynamoDB returns as
+ * unprocessed, because the request hit the table's read capacity or the 16 MB response limit, are
+ * requested again with exponential backoff and full jitter for up to {@code max-attempts} attempts;
+ * a key still unprocessed after that fails the whole read rather than being reported as missing.
+ *
+ * Requests are sent with the synchronous enhanced client whichever client saves payments, as the
+ * repositories' reads already wait for their result.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+@Slf4j
+public class PaymentBatchReader {
+
+    /** Maximum number of keys DynamoDB accepts in one BatchGetItem call. */
+    public static final int MAX_BATCH_SIZE = 100;
+
+    private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final DynamoDbTable<EnrichedPaymentData> table;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    private final DistributionSummary batchSizes;
+    private final Timer batchLatency;
+    private final Counter unprocessed;
+
+    public PaymentBatchReader(DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                              DynamoDbTable<EnrichedPaymentData> table,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.dynamodb.batch-get.max-attempts:8}") int maxAttempts,
+                              @Value("${app.dynamodb.batch-get.backoff-ms:50}") long backoffMs,
+                              @Value("${app.dynamodb.batch-get.max-backoff-ms:2000}") long maxBackoffMs) {
+        this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.table = table;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+
+        this.batchSizes = DistributionSummary.builder("payment.store.batch.get.size")
+                .description("Keys per BatchGetItem request")
+                .register(meterRegistry);
+        this.batchLatency = Timer.builder("payment.store.batch.get.latency")
+                .description("Time taken by BatchGetItem requests")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.unprocessed = Counter.builder("payment.store.batch.get.unprocessed")
+                .description("Keys DynamoDB returned unprocessed and that were requested again")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the items with the given keys.
+     *
+     * @param keys the keys to read, without duplicates
+     * @return the items found, by key; keys with no item are left out
+     * @throws RuntimeException if a request fails, or keys are still unprocessed after every attempt
+     */
+    public Map<PaymentKey, EnrichedPaymentData> readAll(Collection<PaymentKey> keys) {
+        Map<PaymentKey, EnrichedPaymentData> found = new HashMap<>((int) (keys.size() / 0.75f) + 1);
+        List<Key> chunk = new ArrayList<>(Math.min(keys.size(), MAX_BATCH_SIZE));
+        for (PaymentKey key : keys) {
+            chunk.add(key.toKey());
+            if (chunk.size() == MAX_BATCH_SIZE) {
+                readChunk(chunk, found);
+                chunk = new ArrayList<>(MAX_BATCH_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            readChunk(chunk, found);
+        }
+        return found;
+    }
+
+    /**
+     * Reads one chunk of keys, requesting unprocessed keys again with backoff.
+     */
+    private void readChunk(List<Key> keys, Map<PaymentKey, EnrichedPaymentData> found) {
+        List<Key> remaining = keys;
+        for (int attempt = 1; ; attempt++) {
+            List<Key> request = remaining;
+            batchSizes.record(request.size());
+            BatchGetResultPage page = batchLatency.record(() -> readPage(request));
+            page.resultsForTable(table).forEach(item -> found.put(PaymentKey.of(item), item));
+            remaining = page.unprocessedKeysForTable(table);
+            if (remaining.isEmpty()) {
+                return;
+            }
+
+            unprocessed.increment(remaining.size());
+            if (attempt >= maxAttempts) {
+                throw new IllegalStateException(
+                        "DynamoDB left " + remaining.size() + " keys unprocessed after " + attempt + " attempts");
+            }
+            log.warn("Reading {} unprocessed payment keys again after attempt {} of {}", remaining.size(), attempt,
+                    maxAttempts);
+            try {
+                Thread.sleep(backoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reading payment data", e);
+            }
+        }
+    }
+
+    /**
+     * Sends a single BatchGetItem request. The enhanced client would otherwise request unprocessed
+     * keys again at once as further pages, so only the first page is read.
+     */
+    private BatchGetResultPage readPage(List<Key> keys) {
+        ReadBatch.Builder<EnrichedPaymentData> readBatch = ReadBatch.builder(EnrichedPaymentData.class)
+                .mappedTableResource(table);
+        keys.forEach(readBatch::addGetItem);
+        ReadBatch request = readBatch.build();
+        return dynamoDbEnhancedClient.batchGetItem(r -> r.readBatches(request)).iterator().next();
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,30 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+
+/**
+ * Primary key of an enriched payment item: the payment ID and the transaction ID.
+ *
+ * @param id the payment ID, the partition key
+ * @param transactionId the transaction ID, the sort key
+ */
+public record PaymentKey(String id, String transactionId) {
+
+    /**
+     * Returns the key of a record.
+     */
+    public static PaymentKey of(EnrichedPaymentData paymentData) {
+        return new PaymentKey(paymentData.getId(), paymentData.getTransactionId());
+    }
+
+    /**
+     * Returns the key as a DynamoDB enhanced client key.
+     */
+    public Key toKey() {
+        return Key.builder()
+                .partitionValue(id)
+                .sortValue(transactionId)
+                .build();
+    }
+}
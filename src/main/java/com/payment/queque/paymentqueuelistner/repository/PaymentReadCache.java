@@ -0,0 +1,231 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Optional bounded read-through cache in front of the payment repository's reads.
+ *
+ * Reconciliation and support tooling read the same payments again and again; with the cache
+ * enabled a key is read from DynamoDB once per {@code ttl}, and a key with no item once per
+ * {@code negative-ttl}. Concurrent reads of a key that is not cached share one load. Saves made
+ * through this application replace the cached record once the write succeeds and evict it if the
+ * write fails, so a read never returns a record older than the last local save. The cache keeps a
+ * copy of the record as it was when the save started, so the caller may keep updating its own
+ * record. A bulk read that was already loading when a save completed or failed does not put its
+ * older records back. Records written by other instances are seen once the entry expires.
+ *
+ * Duplicate keys in a bulk read are requested once whether or not the cache is enabled, and are
+ * counted in {@code payment.store.read.duplicates}. Cache statistics are published under
+ * {@code cache.*} with {@code cache=paymentData}, along with a
+ * {@code payment.store.cache.hit.ratio} gauge. Cached records are shared, so callers must not
+ * modify the records they read.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+@Slf4j
+public class PaymentReadCache {
+
+    private final Cache<PaymentKey, Optional<EnrichedPaymentData>> cache;
+    private final Counter duplicates;
+    private final AtomicLong failedSaves = new AtomicLong();
+
+    public PaymentReadCache(MeterRegistry meterRegistry,
+                            @Value("${app.dynamodb.read-cache.enabled:false}") boolean enabled,
+                            @Value("${app.dynamodb.read-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${app.dynamodb.read-cache.ttl-seconds:300}") long ttlSeconds,
+                            @Value("${app.dynamodb.read-cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.duplicates = Counter.builder("payment.store.read.duplicates")
+                .description("Keys repeated within a bulk read and requested only once")
+                .register(meterRegistry);
+        if (!enabled) {
+            log.info("Payment read cache is disabled");
+            this.cache = null;
+            return;
+        }
+
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<PaymentKey, Optional<EnrichedPaymentData>>() {
+                    @Override
+                    public long expireAfterCreate(PaymentKey key, Optional<EnrichedPaymentData> value,
+                                                  long currentTime) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(PaymentKey key, Optional<EnrichedPaymentData> value,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(PaymentKey key, Optional<EnrichedPaymentData> value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "paymentData");
+        Gauge.builder("payment.store.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Fraction of payment reads served from the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns whether reads go through the cache.
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Reads a payment from the cache, or loads it on a miss.
+     *
+     * @param key the key to read
+     * @param loader reads the item from the table
+     * @return the payment, or empty if there is no item with the key
+     */
+    public Optional<EnrichedPaymentData> get(PaymentKey key, Function<PaymentKey, Optional<EnrichedPaymentData>> loader) {
+        return cache != null ? cache.get(key, loader) : loader.apply(key);
+    }
+
+    /**
+     * Reads payments from the cache, and loads the keys that are not cached with a single call.
+     *
+     * @param keys the keys to read, possibly with duplicates
+     * @param loader reads the items with the given distinct keys from the table
+     * @return the payments found, by key, in the order the keys were given; keys with no item are left out
+     */
+    public Map<PaymentKey, EnrichedPaymentData> getAll(Collection<PaymentKey> keys,
+                                                       Function<Set<PaymentKey>, Map<PaymentKey, EnrichedPaymentData>> loader) {
+        Set<PaymentKey> distinct = new LinkedHashSet<>(keys);
+        if (distinct.size() < keys.size()) {
+            duplicates.increment(keys.size() - distinct.size());
+        }
+        if (distinct.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<PaymentKey, EnrichedPaymentData> found = new LinkedHashMap<>();
+        if (cache == null) {
+            Map<PaymentKey, EnrichedPaymentData> loaded = loader.apply(distinct);
+            for (PaymentKey key : distinct) {
+                EnrichedPaymentData item = loaded.get(key);
+                if (item != null) {
+                    found.put(key, item);
+                }
+            }
+            return found;
+        }
+
+        Map<PaymentKey, Optional<EnrichedPaymentData>> cached = new LinkedHashMap<>(cache.getAllPresent(distinct));
+        Set<PaymentKey> missing = new LinkedHashSet<>(distinct);
+        missing.removeAll(cached.keySet());
+        if (!missing.isEmpty()) {
+            cached.putAll(load(missing, loader));
+        }
+        for (PaymentKey key : distinct) {
+            cached.get(key).ifPresent(item -> found.put(key, item));
+        }
+        return found;
+    }
+
+    /**
+     * Loads keys that are not cached and caches what was read, unless a save has changed a key since.
+     * Caffeine's own bulk load would replace a record saved while the load was running, so records
+     * are only added where the key is still absent, and are taken out again if any save failed while
+     * loading, as the item that save may have written could be newer than the one read.
+     */
+    private Map<PaymentKey, Optional<EnrichedPaymentData>> load(
+            Set<PaymentKey> missing, Function<Set<PaymentKey>, Map<PaymentKey, EnrichedPaymentData>> loader) {
+        long failedBefore = failedSaves.get();
+        Map<PaymentKey, EnrichedPaymentData> loaded = loader.apply(Collections.unmodifiableSet(missing));
+
+        Map<PaymentKey, Optional<EnrichedPaymentData>> values = new LinkedHashMap<>();
+        Map<PaymentKey, Optional<EnrichedPaymentData>> added = new LinkedHashMap<>();
+        for (PaymentKey key : missing) {
+            // Keys with no item are cached as missing too, so they are not read again until they expire
+            Optional<EnrichedPaymentData> value = Optional.ofNullable(loaded.get(key));
+            values.put(key, value);
+            if (cache.asMap().putIfAbsent(key, value) == null) {
+                added.put(key, value);
+            }
+        }
+        if (failedSaves.get() != failedBefore) {
+            added.forEach((key, value) -> cache.asMap().remove(key, value));
+        }
+        return values;
+    }
+
+    /**
+     * Replaces the cached payment once a save completes, or evicts it if the save fails.
+     *
+     * @param paymentData the payment being saved
+     * @param write the save in progress
+     * @return the save, completing after the cache has been updated
+     */
+    public CompletableFuture<EnrichedPaymentData> onSave(EnrichedPaymentData paymentData,
+                                                         CompletableFuture<EnrichedPaymentData> write) {
+        if (cache == null) {
+            return write;
+        }
+        EnrichedPaymentData written = paymentData.copy();
+        return write.whenComplete((saved, error) -> {
+            if (error == null) {
+                cache.put(PaymentKey.of(written), Optional.of(written));
+            } else {
+                saveFailed(written);
+            }
+        });
+    }
+
+    /**
+     * Caches a copy of a payment that has been written.
+     *
+     * @param paymentData the saved payment
+     */
+    public void saved(EnrichedPaymentData paymentData) {
+        if (cache != null) {
+            cache.put(PaymentKey.of(paymentData), Optional.of(paymentData.copy()));
+        }
+    }
+
+    /**
+     * Evicts a payment whose save failed, as the item may or may not have been written.
+     *
+     * @param paymentData the payment that could not be saved
+     */
+    public void saveFailed(EnrichedPaymentData paymentData) {
+        if (cache != null) {
+            failedSaves.incrementAndGet();
+            cache.invalidate(PaymentKey.of(paymentData));
+        }
+    }
+}
@@ -1,77 +1,66 @@
 package com.payment.queque.paymentqueuelistner.repository;
 
 import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Repository;
-import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
-import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
-import software.amazon.awssdk.enhanced.dynamodb.Key;
-import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Repository for storing and retrieving payment data from DynamoDB.
+ * Repository for storing and retrieving enriched payment data.
+ * The storage backend is selected with the {@code app.storage.backend} property: {@code dynamodb}
+ * (the default), {@code memory} or {@code mmap}. The DynamoDB client is selected with
+ * {@code app.dynamodb.client}.
  */
-@Repository
-@RequiredArgsConstructor
-@Slf4j
-public class PaymentRepository {
-
-    private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
-    private final TableSchema<EnrichedPaymentData> tableSchema;
-
-    @Value("${aws.dynamodb.table-name}")
-    private String tableName;
+public interface PaymentRepository {
 
     /**
-     * Saves an enriched payment data item to DynamoDB.
+     * Saves an enriched payment data item, returning once it has been written.
      *
      * @param paymentData the enriched payment data to save
      * @return the saved enriched payment data
      */
-    public EnrichedPaymentData save(EnrichedPaymentData paymentData) {
+    EnrichedPaymentData save(EnrichedPaymentData paymentData);
+
+    /**
+     * Saves an enriched payment data item without waiting for the write.
+     *
+     * @param paymentData the enriched payment data to save
+     * @return a future that completes with the saved enriched payment data once it has been written
+     */
+    default CompletableFuture<EnrichedPaymentData> saveAsync(EnrichedPaymentData paymentData) {
         try {
-            DynamoDbTable<EnrichedPaymentData> table = getTable();
-            table.putItem(paymentData);
-            log.info("Successfully saved payment data with ID: {}", paymentData.getId());
-            return paymentData;
-        } catch (Exception e) {
-            log.error("Error saving payment data to DynamoDB: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to save payment data to DynamoDB", e);
+            return CompletableFuture.completedFuture(save(paymentData));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
     /**
-     * Retrieves an enriched payment data item from DynamoDB by ID.
+     * Retrieves an enriched payment data item by its key.
      *
      * @param id the ID of the payment data to retrieve
+     * @param transactionId the transaction ID of the payment data to retrieve
      * @return an Optional containing the enriched payment data if found, or empty if not found
      */
-    public Optional<EnrichedPaymentData> findById(String id, String transactionId) {
-        try {
-            DynamoDbTable<EnrichedPaymentData> table = getTable();
-            Key key = Key.builder()
-                    .partitionValue(id)
-                    .sortValue(transactionId)
-                    .build();
-            
-            EnrichedPaymentData result = table.getItem(key);
-            return Optional.ofNullable(result);
-        } catch (Exception e) {
-            log.error("Error retrieving payment data from DynamoDB: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to retrieve payment data from DynamoDB", e);
-        }
-    }
+    Optional<EnrichedPaymentData> findById(String id, String transactionId);
 
     /**
-     * Gets the DynamoDB table for enriched payment data.
+     * Retrieves the enriched payment data items with the given keys in as few requests as possible.
+     * Each distinct key is read once, however often it is given.
      *
-     * @return the DynamoDB table
+     * @param keys the keys of the payment data to retrieve
+     * @return the enriched payment data found, by key, in the order the keys were given; keys with
+     *         no item are left out
      */
-    private DynamoDbTable<EnrichedPaymentData> getTable() {
-        return dynamoDbEnhancedClient.table(tableName, tableSchema);
+    default Map<PaymentKey, EnrichedPaymentData> findAllByIds(Collection<PaymentKey> keys) {
+        Map<PaymentKey, EnrichedPaymentData> found = new LinkedHashMap<>();
+        for (PaymentKey key : new LinkedHashSet<>(keys)) {
+            findById(key.id(), key.transactionId()).ifPresent(item -> found.put(key, item));
+        }
+        return found;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,478 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.ApiCallAttemptTimeoutException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Local write-ahead journal for enriched payments that could not be saved, used when
+ * {@code app.storage.spill.enabled=true}.
+ *
+ * When a save fails because DynamoDB is throttling, failing or behind an open {@code paymentStore}
+ * circuit, the payment is appended here instead, so the enrichment work is kept and the message is
+ * acknowledged as soon as the record is on local disk. The {@link PaymentSpillReplayer} saves the
+ * journaled payments again, in the order they were spilled, once the store recovers. Only failures
+ * known to be transient are spilled: throttling, server errors, timeouts and calls shed by the
+ * {@code paymentStore} guard. Any other failed save, such as an invalid item, fails as before.
+ *
+ * The journal is a directory of memory-mapped segment files of {@code segment-bytes} each, with
+ * records framed by {@link SegmentRecords} as in the {@link MappedLogPaymentRepository} log and the
+ * payment as JSON for the payload. An append only copies the record into the mapping under a
+ * lock; the records appended within {@code sync-interval} are then flushed to disk together and
+ * their futures completed, so one fsync covers a whole burst of spills. The replay position is kept
+ * in a cursor file. Segments replayed in full are deleted, and once every record has been replayed
+ * the journal starts again from an empty segment. A record that cannot be replayed is set aside as
+ * a JSON file in the {@code rejected} subdirectory, so it does not hold up the records after it.
+ */
+@Component
+@Slf4j
+public class PaymentSpillJournal {
+
+    private static final String SEGMENT_SUFFIX = ".spill";
+    private static final String CURSOR_FILE = "replay.cursor";
+    private static final String REJECTED_DIRECTORY = "rejected";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final Executor syncExecutor;
+
+    // Segments still to be replayed by number, the append position in the last one and the replay
+    // cursor, all guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final NavigableMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private long nextSegment;
+    private int position;
+    private int syncedPosition;
+    private List<SyncRange> unsyncedRanges = new ArrayList<>();
+    private List<PendingSpill> unsynced = new ArrayList<>();
+    private long cursorSegment;
+    private int cursorOffset;
+    private MappedByteBuffer cursor;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter appended;
+    private final DistributionSummary syncSizes;
+
+    public PaymentSpillJournal(ObjectMapper objectMapper,
+                               ExecutorService virtualThreadExecutor,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.storage.spill.enabled:false}") boolean enabled,
+                               @Value("${app.storage.spill.directory:data/payment-spill}") Path directory,
+                               @Value("${app.storage.spill.segment-bytes:16777216}") int segmentBytes,
+                               @Value("${app.storage.spill.sync-interval-ms:5}") long syncIntervalMs)
+            throws IOException {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.writer = objectMapper.writerFor(EnrichedPaymentData.class);
+        this.reader = objectMapper.readerFor(EnrichedPaymentData.class);
+        this.syncExecutor = CompletableFuture.delayedExecutor(syncIntervalMs, TimeUnit.MILLISECONDS,
+                virtualThreadExecutor);
+
+        this.appended = Counter.builder("payment.spill.appended")
+                .description("Payments written to the spill journal after their save failed")
+                .register(meterRegistry);
+        this.syncSizes = DistributionSummary.builder("payment.spill.sync.size")
+                .description("Spilled payments made durable by one flush to disk")
+                .register(meterRegistry);
+        Gauge.builder("payment.spill.pending", pending, AtomicLong::get)
+                .description("Spilled payments waiting to be replayed")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            log.info("Payment spill journal is disabled");
+            return;
+        }
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Returns whether failed saves are spilled to the journal.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether a payment whose save failed with the given error should be spilled.
+     *
+     * @param error the error the save failed with
+     * @return true if the journal is enabled and the error is transient
+     */
+    public boolean accepts(Throwable error) {
+        return enabled && isTransient(error);
+    }
+
+    /**
+     * Returns whether a save failed for a reason that is known to pass: DynamoDB throttling or a
+     * server error, a timeout, or a call shed by the {@code paymentStore} guard. When DynamoDB
+     * answered, its status decides, even if the guard wrapped the error.
+     *
+     * @param error the error a save failed with
+     * @return true if saving the same payment again later may succeed
+     */
+    public static boolean isTransient(Throwable error) {
+        boolean transientFailure = false;
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AwsServiceException serviceException) {
+                return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
+            }
+            if (cause instanceof DependencyUnavailableException || cause instanceof ApiCallTimeoutException
+                    || cause instanceof ApiCallAttemptTimeoutException || cause instanceof TimeoutException
+                    || cause instanceof SocketTimeoutException) {
+                transientFailure = true;
+            }
+        }
+        return transientFailure;
+    }
+
+    /**
+     * Returns whether DynamoDB rejected a write itself, such as an invalid item or a failed
+     * condition, so that saving the same payment again can never succeed. Throttling, server errors,
+     * timeouts and calls shed by the {@code paymentStore} guard are not rejections.
+     *
+     * @param error the error a save failed with
+     * @return true if the error is a client error other than throttling
+     */
+    public static boolean isRejected(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AwsServiceException serviceException) {
+                int status = serviceException.statusCode();
+                return status >= 400 && status < 500 && !serviceException.isThrottlingException();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends a payment to the journal.
+     *
+     * @param paymentData the payment whose save failed
+     * @return a future that completes with the payment once its record has been flushed to disk
+     */
+    public CompletableFuture<EnrichedPaymentData> append(EnrichedPaymentData paymentData) {
+        byte[] payload;
+        try {
+            payload = writer.writeValueAsBytes(paymentData);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        int recordBytes = SegmentRecords.HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Payment " + paymentData.getId()
+                    + " takes " + recordBytes + " bytes, more than a spill segment of " + segmentBytes));
+        }
+        int checksum = SegmentRecords.checksum(payload);
+
+        PendingSpill spill = new PendingSpill(paymentData, new CompletableFuture<>());
+        boolean firstUnsynced;
+        lock.lock();
+        try {
+            if (segments.isEmpty() || position + recordBytes > segments.lastEntry().getValue().capacity()) {
+                addSegment();
+            }
+            position = SegmentRecords.write(segments.lastEntry().getValue(), position, payload, checksum);
+            unsynced.add(spill);
+            firstUnsynced = unsynced.size() == 1;
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(
+                    new UncheckedIOException("Failed to spill payment " + paymentData.getId(), e));
+        } finally {
+            lock.unlock();
+        }
+
+        pending.incrementAndGet();
+        appended.increment();
+        if (firstUnsynced) {
+            // Appends arriving before the timer fires are flushed by the same sync
+            syncExecutor.execute(this::sync);
+        }
+        return spill.future();
+    }
+
+    /**
+     * Returns the number of spilled payments not yet replayed.
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    /**
+     * Reads the next spilled payments to replay, without moving the replay cursor.
+     *
+     * @param max the most payments to read
+     * @return the payments after the cursor, in the order they were spilled
+     */
+    public List<SpilledPayment> peek(int max) {
+        NavigableMap<Long, MappedByteBuffer> toRead;
+        long lastSegment;
+        int end;
+        long fromSegment;
+        int fromOffset;
+        lock.lock();
+        try {
+            toRead = new TreeMap<>(segments.tailMap(cursorSegment, true));
+            lastSegment = segments.isEmpty() ? -1 : segments.lastKey();
+            end = position;
+            fromSegment = cursorSegment;
+            fromOffset = cursorOffset;
+        } finally {
+            lock.unlock();
+        }
+
+        List<SpilledPayment> batch = new ArrayList<>(Math.min(max, 256));
+        for (Map.Entry<Long, MappedByteBuffer> segment : toRead.entrySet()) {
+            MappedByteBuffer buffer = segment.getValue();
+            int offset = segment.getKey() == fromSegment ? fromOffset : 0;
+            int limit = segment.getKey() == lastSegment ? end : buffer.capacity();
+            while (batch.size() < max) {
+                byte[] payload = SegmentRecords.read(buffer, offset, limit, segmentFile(segment.getKey()));
+                if (payload == null) {
+                    break;
+                }
+                offset += SegmentRecords.HEADER_BYTES + payload.length;
+                batch.add(new SpilledPayment(decode(payload, segment.getKey(), offset), payload, segment.getKey(),
+                        offset));
+            }
+            if (batch.size() >= max) {
+                break;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Moves the replay cursor past payments that have been replayed, and deletes the segments that
+     * hold only replayed payments.
+     *
+     * @param replayed the payments replayed, a prefix of the last {@link #peek(int)}
+     */
+    public void markReplayed(List<SpilledPayment> replayed) {
+        if (replayed.isEmpty()) {
+            return;
+        }
+        SpilledPayment last = replayed.get(replayed.size() - 1);
+        List<Path> replayedSegments = new ArrayList<>();
+        lock.lock();
+        try {
+            cursorSegment = last.segment();
+            cursorOffset = last.nextOffset();
+            boolean drained = !segments.isEmpty() && segments.lastKey() == cursorSegment && cursorOffset == position;
+            if (drained) {
+                // Everything has been replayed, so the next spill starts a new segment
+                cursorSegment = nextSegment;
+                cursorOffset = 0;
+                position = 0;
+                syncedPosition = 0;
+                unsyncedRanges.clear();
+            }
+            // The cursor is stored first, so a segment it has passed is never replayed again
+            cursor.putLong(0, cursorSegment).putInt(8, cursorOffset);
+            cursor.force();
+            for (Iterator<Long> numbers = segments.headMap(cursorSegment, false).keySet().iterator();
+                 numbers.hasNext(); ) {
+                replayedSegments.add(segmentFile(numbers.next()));
+                numbers.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        pending.addAndGet(-replayed.size());
+        for (Path file : replayedSegments) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete replayed spill segment {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copies a record that cannot be replayed to the {@code rejected} subdirectory, so it can be
+     * looked at and saved by hand. The caller then passes it to {@link #markReplayed(List)} with the
+     * records before it.
+     *
+     * @param spilled the record to set aside
+     * @return the file the record was written to
+     * @throws IOException if the record could not be written
+     */
+    public Path setAside(SpilledPayment spilled) throws IOException {
+        Path rejected = Files.createDirectories(directory.resolve(REJECTED_DIRECTORY));
+        Path file = rejected.resolve(String.format("%019d-%010d.json", spilled.segment(), spilled.nextOffset()));
+        Files.write(file, spilled.payload());
+        return file;
+    }
+
+    /**
+     * Flushes the spilled payments not yet on disk before the application stops.
+     */
+    @PreDestroy
+    public void flush() {
+        if (enabled) {
+            sync();
+        }
+    }
+
+    /**
+     * Flushes the records appended since the last sync to disk and completes their futures.
+     */
+    private void sync() {
+        List<PendingSpill> batch;
+        List<SyncRange> ranges;
+        lock.lock();
+        try {
+            batch = unsynced;
+            unsynced = new ArrayList<>();
+            ranges = unsyncedRanges;
+            unsyncedRanges = new ArrayList<>();
+            if (position > syncedPosition) {
+                ranges.add(new SyncRange(segments.lastEntry().getValue(), syncedPosition, position - syncedPosition));
+            }
+            syncedPosition = position;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            // Forced outside the lock, so appends carry on while the disk catches up
+            ranges.forEach(range -> range.buffer().force(range.offset(), range.length()));
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} spilled payments to disk: {}", batch.size(), e.getMessage());
+            batch.forEach(spill -> spill.future().completeExceptionally(e));
+            return;
+        }
+        if (!batch.isEmpty()) {
+            syncSizes.record(batch.size());
+        }
+        batch.forEach(spill -> spill.future().complete(spill.paymentData()));
+    }
+
+    /**
+     * Reads the replay cursor, deletes the segments it has passed and maps the others, counting the
+     * records still to be replayed.
+     */
+    private void recover() throws IOException {
+        cursor = SegmentRecords.map(directory.resolve(CURSOR_FILE), 12);
+        cursorSegment = cursor.getLong(0);
+        cursorOffset = cursor.getInt(8);
+        nextSegment = cursorSegment;
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        long toReplay = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long number = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            if (number < cursorSegment) {
+                Files.delete(file);
+                continue;
+            }
+            MappedByteBuffer buffer = SegmentRecords.map(file, Files.size(file));
+            segments.put(number, buffer);
+            nextSegment = number + 1;
+
+            int from = number == cursorSegment ? cursorOffset : 0;
+            int offset = 0;
+            byte[] payload;
+            while ((payload = SegmentRecords.read(buffer, offset, buffer.capacity(), file)) != null) {
+                if (offset >= from) {
+                    toReplay++;
+                }
+                offset += SegmentRecords.HEADER_BYTES + payload.length;
+            }
+            position = offset;
+        }
+        syncedPosition = position;
+        pending.set(toReplay);
+        if (toReplay > 0) {
+            log.info("Recovered {} spilled payments to replay from {}", toReplay, directory);
+        }
+    }
+
+    private void addSegment() throws IOException {
+        if (!segments.isEmpty() && position > syncedPosition) {
+            unsyncedRanges.add(new SyncRange(segments.lastEntry().getValue(), syncedPosition, position - syncedPosition));
+        }
+        long number = nextSegment++;
+        segments.put(number, SegmentRecords.map(segmentFile(number), segmentBytes));
+        position = 0;
+        syncedPosition = 0;
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve(String.format("%019d%s", number, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * @return the payment, or null if the record cannot be read as one
+     */
+    private EnrichedPaymentData decode(byte[] payload, long segment, int nextOffset) {
+        try {
+            return reader.readValue(payload);
+        } catch (IOException e) {
+            log.warn("Cannot decode the spilled payment ending at offset {} of segment {}: {}",
+                    nextOffset, segment, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A payment read from the journal, with the position just past its record.
+     *
+     * @param paymentData the spilled payment, or null if the record cannot be decoded
+     * @param payload the record as it is stored
+     * @param segment the number of the segment holding the record
+     * @param nextOffset the offset just past the record in that segment
+     */
+    public record SpilledPayment(EnrichedPaymentData paymentData, byte[] payload, long segment, int nextOffset) {
+    }
+
+    private record PendingSpill(EnrichedPaymentData paymentData, CompletableFuture<EnrichedPaymentData> future) {
+    }
+
+    private record SyncRange(MappedByteBuffer buffer, int offset, int length) {
+    }
+}
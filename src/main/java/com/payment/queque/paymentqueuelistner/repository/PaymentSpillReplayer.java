@@ -0,0 +1,170 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.repository.PaymentSpillJournal.SpilledPayment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Saves the payments in the {@link PaymentSpillJournal} again once the payment store recovers.
+ *
+ * Every {@code replay-interval} up to {@code replay-batch-size} spilled payments are saved one at a
+ * time in the order they were spilled, which bounds the extra write load the journal puts on a table
+ * that is just recovering. A run stops at the first save that fails, and that payment is tried again
+ * by the next run, so while the {@code paymentStore} circuit is open a run costs one rejected call.
+ * A record that cannot be replayed is set aside so it cannot hold up the journal: one that cannot
+ * be decoded or that DynamoDB rejects outright at once, and one whose save keeps failing for any
+ * other reason that is not transient after {@code max-replay-attempts} runs.
+ *
+ * A payment is only replayed if the store does not already hold a copy enriched at the same time or
+ * later. A redelivered message may have been enriched and saved directly while its older spilled copy
+ * waited in the journal, and replaying that copy would overwrite the newer item with stale data.
+ *
+ * Replay is at least once: a payment replayed just before the application stops may be saved again
+ * after a restart, which rewrites the same item. Runs are scheduled on a thread of their own in the
+ * scheduling pool ({@code spring.task.scheduling.pool.size}), so a run blocked on a slow store does
+ * not hold up the visibility heartbeat.
+ */
+@Component
+@Slf4j
+public class PaymentSpillReplayer {
+
+    private final PaymentSpillJournal journal;
+    private final PaymentRepository paymentRepository;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    // The record at the head of the journal whose replay has been failing, and how many times
+    private long failedSegment = -1;
+    private int failedOffset;
+    private int failedAttempts;
+
+    private final Counter replayed;
+    private final Counter superseded;
+    private final Counter setAside;
+
+    public PaymentSpillReplayer(PaymentSpillJournal journal,
+                                PaymentRepository paymentRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.storage.spill.replay-batch-size:100}") int batchSize,
+                                @Value("${app.storage.spill.max-replay-attempts:5}") int maxAttempts) {
+        this.journal = journal;
+        this.paymentRepository = paymentRepository;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+
+        this.replayed = Counter.builder("payment.spill.replayed")
+                .description("Spilled payments saved to the payment store")
+                .register(meterRegistry);
+        this.superseded = Counter.builder("payment.spill.superseded")
+                .description("Spilled payments skipped because the store already holds a newer copy")
+                .register(meterRegistry);
+        this.setAside = Counter.builder("payment.spill.set.aside")
+                .description("Spilled payments that could not be replayed and were set aside")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replays the next batch of spilled payments.
+     */
+    @Scheduled(fixedDelayString = "${app.storage.spill.replay-interval-ms:1000}")
+    public void replay() {
+        if (!journal.isEnabled() || journal.pending() == 0) {
+            return;
+        }
+
+        List<SpilledPayment> batch = journal.peek(batchSize);
+        int done = 0;
+        for (SpilledPayment spilled : batch) {
+            if (spilled.paymentData() == null) {
+                if (!setAside(spilled, "it cannot be decoded")) {
+                    break;
+                }
+                done++;
+                continue;
+            }
+            try {
+                if (isSuperseded(spilled.paymentData())) {
+                    log.info("Skipping spilled payment {} as the store already holds a newer copy",
+                            spilled.paymentData().getId());
+                    superseded.increment();
+                } else {
+                    paymentRepository.save(spilled.paymentData());
+                    replayed.increment();
+                }
+            } catch (RuntimeException e) {
+                if (PaymentSpillJournal.isTransient(e)) {
+                    log.warn("Stopping replay of spilled payments after {} of {}: {}", done, batch.size(),
+                            e.getMessage());
+                    break;
+                }
+                int attempts = PaymentSpillJournal.isRejected(e) ? maxAttempts : recordFailure(spilled);
+                if (attempts < maxAttempts) {
+                    log.warn("Failed to replay spilled payment {}, attempt {} of {}: {}",
+                            spilled.paymentData().getId(), attempts, maxAttempts, e.getMessage());
+                    break;
+                }
+                if (!setAside(spilled, e.getMessage())) {
+                    break;
+                }
+            }
+            done++;
+        }
+
+        journal.markReplayed(batch.subList(0, done));
+        if (done > 0) {
+            log.info("Replayed {} spilled payments, {} still pending", done, journal.pending());
+        }
+    }
+
+    /**
+     * @return whether the store holds a copy of the payment enriched no earlier than the spilled one
+     */
+    private boolean isSuperseded(EnrichedPaymentData paymentData) {
+        LocalDateTime spilledAt = paymentData.getEnrichmentTimestamp();
+        if (spilledAt == null) {
+            return false;
+        }
+        return paymentRepository.findById(paymentData.getId(), paymentData.getTransactionId())
+                .map(EnrichedPaymentData::getEnrichmentTimestamp)
+                .filter(storedAt -> !storedAt.isBefore(spilledAt))
+                .isPresent();
+    }
+
+    /**
+     * @return the number of times in a row replaying the record has now failed
+     */
+    private int recordFailure(SpilledPayment spilled) {
+        if (spilled.segment() != failedSegment || spilled.nextOffset() != failedOffset) {
+            failedSegment = spilled.segment();
+            failedOffset = spilled.nextOffset();
+            failedAttempts = 0;
+        }
+        return ++failedAttempts;
+    }
+
+    /**
+     * @return whether the record was set aside; if not, replay stops and tries it again next run
+     */
+    private boolean setAside(SpilledPayment spilled, String reason) {
+        String id = spilled.paymentData() != null ? spilled.paymentData().getId() : "record";
+        try {
+            Path file = journal.setAside(spilled);
+            log.error("Set aside spilled payment {} in {} as it cannot be replayed: {}", id, file, reason);
+            setAside.increment();
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to set aside spilled payment {}: {}", id, e.getMessage());
+            return false;
+        }
+    }
+}
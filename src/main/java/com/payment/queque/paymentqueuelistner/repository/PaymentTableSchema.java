@@ -0,0 +1,413 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.AdditionalData;
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.model.EnrichmentValues;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeConverter;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeValueType;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primarySortKey;
+
+/**
+ * Explicitly built DynamoDB schema for {@link EnrichedPaymentData}.
+ *
+ * {@code TableSchema.fromBean} introspects the class with reflection and generates a getter and a
+ * setter lambda per property when the application starts. This schema lists the attributes with
+ * plain method references instead, so building it costs nothing noticeable. Attribute names and
+ * types are the ones the bean schema derives from the class, so items written by either schema
+ * read back the same.
+ *
+ * The additional data map is read straight into an {@link AdditionalData} map, without first
+ * building the {@code HashMap} the default map converter returns.
+ *
+ * In compact mode ({@code app.dynamodb.encoding=compact}) items are written smaller, as DynamoDB
+ * bills writes and reads by item size:
+ * <ul>
+ *   <li>the common values of {@code riskScore}, {@code fraudStatus} and {@code processingStatus}
+ *       are stored as number codes; other values are stored as they are</li>
+ *   <li>timestamps are stored as numbers, UTC epoch seconds with the fraction of a second as
+ *       decimals, so no precision is lost</li>
+ *   <li>{@code additionalData} is stored as one binary attribute, with known keys written as their
+ *       {@link AdditionalDataKey#code() code} and the whole deflated when that makes it smaller</li>
+ * </ul>
+ * Either schema reads items in both formats, so the mode can be switched on a live table and
+ * {@code findById} decodes old and new items alike.
+ */
+public final class PaymentTableSchema {
+
+    private PaymentTableSchema() {
+    }
+
+    /**
+     * Builds the schema that writes items in the standard format, the one the bean schema uses.
+     *
+     * @return the table schema for enriched payment data
+     */
+    public static StaticTableSchema<EnrichedPaymentData> create() {
+        return create(false);
+    }
+
+    /**
+     * Builds the schema. Callers keep the result; the application uses a single instance.
+     *
+     * @param compact whether items are written in the compact format
+     * @return the table schema for enriched payment data
+     */
+    public static StaticTableSchema<EnrichedPaymentData> create(boolean compact) {
+        TimestampConverter timestamps = new TimestampConverter(compact);
+        return StaticTableSchema.builder(EnrichedPaymentData.class)
+                .newItemSupplier(EnrichedPaymentData::new)
+                // Inherited PaymentData fields
+                .addAttribute(String.class, a -> a.name("id")
+                        .getter(EnrichedPaymentData::getId)
+                        .setter(EnrichedPaymentData::setId)
+                        .tags(primaryPartitionKey()))
+                .addAttribute(String.class, a -> a.name("transactionId")
+                        .getter(EnrichedPaymentData::getTransactionId)
+                        .setter(EnrichedPaymentData::setTransactionId)
+                        .tags(primarySortKey()))
+                .addAttribute(Double.class, a -> a.name("amount")
+                        .getter(EnrichedPaymentData::getAmount)
+                        .setter(EnrichedPaymentData::setAmount))
+                .addAttribute(String.class, a -> a.name("currency")
+                        .getter(EnrichedPaymentData::getCurrency)
+                        .setter(EnrichedPaymentData::setCurrency))
+                .addAttribute(String.class, a -> a.name("paymentMethod")
+                        .getter(EnrichedPaymentData::getPaymentMethod)
+                        .setter(EnrichedPaymentData::setPaymentMethod))
+                .addAttribute(String.class, a -> a.name("status")
+                        .getter(EnrichedPaymentData::getStatus)
+                        .setter(EnrichedPaymentData::setStatus))
+                .addAttribute(String.class, a -> a.name("customerId")
+                        .getter(EnrichedPaymentData::getCustomerId)
+                        .setter(EnrichedPaymentData::setCustomerId))
+                .addAttribute(String.class, a -> a.name("merchantId")
+                        .getter(EnrichedPaymentData::getMerchantId)
+                        .setter(EnrichedPaymentData::setMerchantId))
+                .addAttribute(LocalDateTime.class, a -> a.name("timestamp")
+                        .getter(EnrichedPaymentData::getTimestamp)
+                        .setter(EnrichedPaymentData::setTimestamp)
+                        .attributeConverter(timestamps))
+                .addAttribute(String.class, a -> a.name("sourceQueue")
+                        .getter(EnrichedPaymentData::getSourceQueue)
+                        .setter(EnrichedPaymentData::setSourceQueue))
+                // Enrichment results
+                .addAttribute(String.class, a -> a.name("enrichmentId")
+                        .getter(EnrichedPaymentData::getEnrichmentId)
+                        .setter(EnrichedPaymentData::setEnrichmentId))
+                .addAttribute(EnhancedType.mapOf(String.class, String.class), a -> a.name("additionalData")
+                        .getter(EnrichedPaymentData::getAdditionalData)
+                        .setter(EnrichedPaymentData::setAdditionalData)
+                        .attributeConverter(new AdditionalDataConverter(compact)))
+                .addAttribute(String.class, a -> a.name("riskScore")
+                        .getter(EnrichedPaymentData::getRiskScore)
+                        .setter(EnrichedPaymentData::setRiskScore)
+                        .attributeConverter(new CodeConverter(compact, Map.of(
+                                EnrichmentValues.UNKNOWN, "0", "LOW", "1", "MEDIUM", "2", "HIGH", "3"))))
+                .addAttribute(String.class, a -> a.name("fraudStatus")
+                        .getter(EnrichedPaymentData::getFraudStatus)
+                        .setter(EnrichedPaymentData::setFraudStatus)
+                        .attributeConverter(new CodeConverter(compact, Map.of(
+                                EnrichmentValues.UNKNOWN, "0", EnrichmentValues.FRAUD_CLEAR, "1",
+                                EnrichmentValues.FRAUD_REVIEW_REQUIRED, "2", "SUSPICIOUS", "3"))))
+                .addAttribute(LocalDateTime.class, a -> a.name("enrichmentTimestamp")
+                        .getter(EnrichedPaymentData::getEnrichmentTimestamp)
+                        .setter(EnrichedPaymentData::setEnrichmentTimestamp)
+                        .attributeConverter(timestamps))
+                .addAttribute(String.class, a -> a.name("processingStatus")
+                        .getter(EnrichedPaymentData::getProcessingStatus)
+                        .setter(EnrichedPaymentData::setProcessingStatus)
+                        .attributeConverter(new CodeConverter(compact, Map.of(
+                                EnrichmentValues.STATUS_COMPLETED, "1", EnrichmentValues.STATUS_PARTIAL, "2"))))
+                .addAttribute(Long.class, a -> a.name("processingTimeMs")
+                        .getter(EnrichedPaymentData::getProcessingTimeMs)
+                        .setter(EnrichedPaymentData::setProcessingTimeMs))
+                .build();
+    }
+
+    /**
+     * Converts timestamps to ISO-8601 strings, or in compact mode to UTC epoch seconds. Reads both.
+     */
+    private static final class TimestampConverter implements AttributeConverter<LocalDateTime> {
+
+        private final boolean compact;
+
+        private TimestampConverter(boolean compact) {
+            this.compact = compact;
+        }
+
+        @Override
+        public AttributeValue transformFrom(LocalDateTime input) {
+            if (!compact) {
+                return AttributeValue.fromS(input.toString());
+            }
+            BigDecimal seconds = BigDecimal.valueOf(input.toEpochSecond(ZoneOffset.UTC));
+            if (input.getNano() != 0) {
+                seconds = seconds.add(BigDecimal.valueOf(input.getNano(), 9)).stripTrailingZeros();
+            }
+            return AttributeValue.fromN(seconds.toPlainString());
+        }
+
+        @Override
+        public LocalDateTime transformTo(AttributeValue input) {
+            if (input.n() == null) {
+                return LocalDateTime.parse(input.s());
+            }
+            BigDecimal seconds = new BigDecimal(input.n());
+            long epochSecond = seconds.setScale(0, RoundingMode.FLOOR).longValueExact();
+            int nano = seconds.subtract(BigDecimal.valueOf(epochSecond)).movePointRight(9).intValue();
+            return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+        }
+
+        @Override
+        public EnhancedType<LocalDateTime> type() {
+            return EnhancedType.of(LocalDateTime.class);
+        }
+
+        @Override
+        public AttributeValueType attributeValueType() {
+            return compact ? AttributeValueType.N : AttributeValueType.S;
+        }
+    }
+
+    /**
+     * Converts a string field with a few common values. In compact mode those values are stored as
+     * number codes, which no stored string can be mistaken for; any other value is stored as it is.
+     * Reads both. The attribute type reported in compact mode is N, the type of the codes, as for
+     * compact timestamps; these attributes are never keys, so the stray string values do not matter
+     * to the table definition.
+     */
+    private static final class CodeConverter implements AttributeConverter<String> {
+
+        private final boolean compact;
+        private final Map<String, String> codes;
+        private final Map<String, String> values = new HashMap<>();
+
+        /**
+         * @param compact whether known values are written as codes
+         * @param codes the code of each known value; codes are stored, so they must never change
+         */
+        private CodeConverter(boolean compact, Map<String, String> codes) {
+            this.compact = compact;
+            this.codes = codes;
+            codes.forEach((value, code) -> values.put(code, value));
+        }
+
+        @Override
+        public AttributeValue transformFrom(String input) {
+            String code = compact ? codes.get(input) : null;
+            return code != null ? AttributeValue.fromN(code) : AttributeValue.fromS(input);
+        }
+
+        @Override
+        public String transformTo(AttributeValue input) {
+            if (input.n() == null) {
+                return input.s();
+            }
+            String value = values.get(input.n());
+            if (value == null) {
+                throw new IllegalStateException("Unknown value code " + input.n());
+            }
+            return value;
+        }
+
+        @Override
+        public EnhancedType<String> type() {
+            return EnhancedType.of(String.class);
+        }
+
+        @Override
+        public AttributeValueType attributeValueType() {
+            return compact ? AttributeValueType.N : AttributeValueType.S;
+        }
+    }
+
+    /**
+     * Converts the additional data to a DynamoDB map of strings, or in compact mode to one binary
+     * value, and reads both back as an {@link AdditionalData} map.
+     *
+     * The binary value starts with a format byte, {@code 0} for plain or {@code 1} for raw deflate,
+     * followed by the entries. Each entry is a tag byte, the {@link AdditionalDataKey#code() code} of
+     * a known key or {@code 0} followed by the key name for any other key, then the value. Names and
+     * values are written with {@link DataOutputStream#writeUTF(String)}, which takes at most 64 KB, so
+     * a map with a longer name or value is written as a DynamoDB map, as in the standard format.
+     */
+    private static final class AdditionalDataConverter implements AttributeConverter<Map<String, String>> {
+
+        private static final AttributeValue NUL = AttributeValue.fromNul(true);
+        private static final int PLAIN = 0;
+        private static final int DEFLATED = 1;
+
+        // Deflaters hold native buffers, so they are reused instead of created for every item
+        private static final Queue<Deflater> DEFLATERS = new ConcurrentLinkedQueue<>();
+        private static final Queue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+
+        private final boolean compact;
+
+        private AdditionalDataConverter(boolean compact) {
+            this.compact = compact;
+        }
+
+        @Override
+        public AttributeValue transformFrom(Map<String, String> input) {
+            byte[] encoded = compact ? encode(input) : null;
+            if (encoded != null) {
+                return AttributeValue.fromB(SdkBytes.fromByteArrayUnsafe(encoded));
+            }
+            Map<String, AttributeValue> values = new HashMap<>((int) (input.size() / 0.75f) + 1);
+            input.forEach((key, value) -> values.put(key, value == null ? NUL : AttributeValue.fromS(value)));
+            return AttributeValue.fromM(values);
+        }
+
+        @Override
+        public Map<String, String> transformTo(AttributeValue input) {
+            if (input.b() != null) {
+                return decode(input.b().asByteArrayUnsafe());
+            }
+            AdditionalData additionalData = new AdditionalData();
+            input.m().forEach((key, value) -> additionalData.put(key, value.s()));
+            return additionalData;
+        }
+
+        @Override
+        public EnhancedType<Map<String, String>> type() {
+            return EnhancedType.mapOf(String.class, String.class);
+        }
+
+        @Override
+        public AttributeValueType attributeValueType() {
+            return compact ? AttributeValueType.B : AttributeValueType.M;
+        }
+
+        /**
+         * @return the binary value, or {@code null} if a name or value is too long to write
+         */
+        private static byte[] encode(Map<String, String> input) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * input.size() + 1);
+            bytes.write(PLAIN);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                for (Map.Entry<String, String> entry : input.entrySet()) {
+                    // A null value means the key is not set, so it is left out
+                    if (entry.getValue() == null) {
+                        continue;
+                    }
+                    AdditionalDataKey key = AdditionalDataKey.of(entry.getKey());
+                    if (key != null) {
+                        out.writeByte(key.code());
+                    } else {
+                        out.writeByte(0);
+                        out.writeUTF(entry.getKey());
+                    }
+                    out.writeUTF(entry.getValue());
+                }
+            } catch (UTFDataFormatException e) {
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            byte[] plain = bytes.toByteArray();
+            byte[] deflated = deflate(plain);
+            return deflated != null ? deflated : plain;
+        }
+
+        /**
+         * @return the deflated value, or {@code null} if deflating does not make it smaller
+         */
+        private static byte[] deflate(byte[] plain) {
+            Deflater deflater = DEFLATERS.poll();
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+            }
+            try {
+                deflater.setInput(plain, 1, plain.length - 1);
+                deflater.finish();
+                byte[] buffer = new byte[plain.length];
+                buffer[0] = DEFLATED;
+                int length = 1;
+                while (!deflater.finished() && length < buffer.length) {
+                    length += deflater.deflate(buffer, length, buffer.length - length);
+                }
+                return deflater.finished() && length < plain.length ? Arrays.copyOf(buffer, length) : null;
+            } finally {
+                deflater.reset();
+                DEFLATERS.offer(deflater);
+            }
+        }
+
+        private static AdditionalData decode(byte[] bytes) {
+            byte[] plain = bytes[0] == DEFLATED ? inflate(bytes) : bytes;
+            AdditionalData additionalData = new AdditionalData();
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(plain, 1, plain.length - 1))) {
+                while (in.available() > 0) {
+                    int tag = in.readUnsignedByte();
+                    String key;
+                    if (tag == 0) {
+                        key = in.readUTF();
+                    } else {
+                        AdditionalDataKey known = AdditionalDataKey.ofCode(tag);
+                        if (known == null) {
+                            throw new IllegalStateException("Unknown additional data key code " + tag);
+                        }
+                        key = known.key();
+                    }
+                    additionalData.put(key, in.readUTF());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return additionalData;
+        }
+
+        private static byte[] inflate(byte[] deflated) {
+            Inflater inflater = INFLATERS.poll();
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            }
+            try {
+                inflater.setInput(deflated, 1, deflated.length - 1);
+                ByteArrayOutputStream plain = new ByteArrayOutputStream(deflated.length * 3);
+                plain.write(PLAIN);
+                byte[] buffer = new byte[256];
+                while (!inflater.finished()) {
+                    int length = inflater.inflate(buffer);
+                    if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IllegalStateException("Truncated additional data");
+                    }
+                    plain.write(buffer, 0, length);
+                }
+                return plain.toByteArray();
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt additional data", e);
+            } finally {
+                inflater.reset();
+                INFLATERS.offer(inflater);
+            }
+        }
+    }
+}
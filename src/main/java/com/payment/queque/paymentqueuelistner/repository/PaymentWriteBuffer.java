@@ -0,0 +1,355 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuard;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer that saves enriched payments to DynamoDB in {@code BatchWriteItem} requests.
+ *
+ * Records are collected until a batch holds {@code batch-size} items, at most the 25 that DynamoDB
+ * accepts per request, or the oldest record has waited {@code max-linger}, whichever comes first.
+ * Each batch is written on a virtual thread through the {@code paymentStore} guard. Items DynamoDB
+ * returns as unprocessed, and batches whose request fails, are retried with exponential backoff and
+ * full jitter for up to {@code max-attempts} attempts.
+ *
+ * Every record gets its own future, completed only once DynamoDB has accepted that record, or
+ * completed exceptionally once its retries are exhausted, so a message is still acknowledged only
+ * after its own record is durable. A batch never holds two records with the same key, which
+ * DynamoDB would reject: a later save of a buffered key replaces the buffered record, and both saves
+ * complete once the newer record is written. Saves of the same key are written in order, as a batch
+ * holding a key that an earlier batch is still writing waits for that batch to finish.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "dynamodb", matchIfMissing = true)
+@Slf4j
+public class PaymentWriteBuffer {
+
+    /** Maximum number of put requests DynamoDB accepts in one BatchWriteItem call. */
+    public static final int MAX_BATCH_SIZE = 25;
+
+    private final boolean enabled;
+    private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final DynamoDbTable<EnrichedPaymentData> table;
+    private final DependencyGuard guard;
+    private final ExecutorService virtualThreadExecutor;
+    private final Executor lingerExecutor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    // Records waiting for the next batch by key, and the completion of the last batch written for
+    // each key still being written, guarded by this
+    private Map<PaymentKey, PendingWrite> pending = new LinkedHashMap<>();
+    private final Map<PaymentKey, CompletableFuture<Void>> writing = new HashMap<>();
+    private long generation;
+
+    private final DistributionSummary batchSizes;
+    private final Timer batchLatency;
+    private final Counter unprocessed;
+    private final Counter failed;
+
+    public PaymentWriteBuffer(DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                              DynamoDbTable<EnrichedPaymentData> table,
+                              DependencyGuards dependencyGuards,
+                              ExecutorService virtualThreadExecutor,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.dynamodb.write-behind.enabled:false}") boolean enabled,
+                              @Value("${app.dynamodb.write-behind.batch-size:25}") int batchSize,
+                              @Value("${app.dynamodb.write-behind.max-linger-ms:10}") long maxLingerMs,
+                              @Value("${app.dynamodb.write-behind.max-attempts:8}") int maxAttempts,
+                              @Value("${app.dynamodb.write-behind.backoff-ms:50}") long backoffMs,
+                              @Value("${app.dynamodb.write-behind.max-backoff-ms:2000}") long maxBackoffMs) {
+        this.enabled = enabled;
+        this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.table = table;
+        this.guard = dependencyGuards.paymentStore();
+        this.virtualThreadExecutor = virtualThreadExecutor;
+        this.lingerExecutor = CompletableFuture.delayedExecutor(maxLingerMs, TimeUnit.MILLISECONDS, virtualThreadExecutor);
+        this.batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, batchSize));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+
+        this.batchSizes = DistributionSummary.builder("payment.store.batch.size")
+                .description("Records per BatchWriteItem request")
+                .register(meterRegistry);
+        this.batchLatency = Timer.builder("payment.store.batch.latency")
+                .description("Time taken by BatchWriteItem requests")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.unprocessed = Counter.builder("payment.store.unprocessed")
+                .description("Records DynamoDB returned unprocessed and that were retried")
+                .register(meterRegistry);
+        this.failed = Counter.builder("payment.store.failed")
+                .description("Records that could not be written after every retry")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns whether saves go through the buffer.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds a record to the next batch.
+     *
+     * @param paymentData the enriched payment to save
+     * @return a future that completes with the record once DynamoDB has accepted it
+     */
+    public CompletableFuture<EnrichedPaymentData> write(EnrichedPaymentData paymentData) {
+        PaymentKey key = PaymentKey.of(paymentData);
+        CompletableFuture<EnrichedPaymentData> future = new CompletableFuture<>();
+        Batch ready = null;
+        long lingerGeneration = -1;
+        synchronized (this) {
+            PendingWrite buffered = pending.get(key);
+            if (buffered != null) {
+                // DynamoDB rejects a batch holding the same key twice, so the newer record replaces the buffered one
+                buffered.replace(paymentData, future);
+            } else {
+                pending.put(key, new PendingWrite(key, paymentData, future));
+                if (pending.size() >= batchSize) {
+                    ready = takeBatch();
+                } else if (pending.size() == 1) {
+                    lingerGeneration = generation;
+                }
+            }
+        }
+
+        if (ready != null) {
+            dispatch(ready);
+        }
+        if (lingerGeneration >= 0) {
+            long expected = lingerGeneration;
+            lingerExecutor.execute(() -> flushIfLingering(expected));
+        }
+        return future;
+    }
+
+    /**
+     * Writes the records still buffered before the application stops, on the calling thread, and
+     * waits for the batches already being written.
+     */
+    @PreDestroy
+    public void flushPending() {
+        Batch batch;
+        List<CompletableFuture<Void>> inFlight;
+        synchronized (this) {
+            batch = pending.isEmpty() ? null : takeBatch();
+            inFlight = List.copyOf(writing.values());
+        }
+        if (batch != null) {
+            log.info("Writing {} buffered payment records before shutdown", batch.writes().size());
+            batch.after().join();
+            flush(batch);
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void flushIfLingering(long expectedGeneration) {
+        Batch batch;
+        synchronized (this) {
+            // The batch this timer was started for has already been written
+            if (generation != expectedGeneration || pending.isEmpty()) {
+                return;
+            }
+            batch = takeBatch();
+        }
+        batch.after().thenRun(() -> flush(batch));
+    }
+
+    /**
+     * Takes the buffered records as a batch, to be written once the batches still writing any of
+     * its keys have finished. Must be called holding this.
+     */
+    private Batch takeBatch() {
+        List<PendingWrite> writes = new ArrayList<>(pending.values());
+        pending = new LinkedHashMap<>();
+        generation++;
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        List<CompletableFuture<Void>> earlier = new ArrayList<>();
+        for (PendingWrite write : writes) {
+            CompletableFuture<Void> previous = writing.put(write.key(), done);
+            if (previous != null) {
+                earlier.add(previous);
+            }
+        }
+        CompletableFuture<Void> after = earlier.isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.allOf(earlier.toArray(new CompletableFuture[0]));
+        return new Batch(writes, after, done);
+    }
+
+    private void dispatch(Batch batch) {
+        batch.after().thenRunAsync(() -> flush(batch), virtualThreadExecutor);
+    }
+
+    /**
+     * Writes a batch and marks its keys as no longer being written.
+     */
+    private void flush(Batch batch) {
+        try {
+            flush(batch.writes());
+        } finally {
+            synchronized (this) {
+                batch.writes().forEach(write -> writing.remove(write.key(), batch.done()));
+            }
+            batch.done().complete(null);
+        }
+    }
+
+    /**
+     * Writes a batch, retrying unprocessed records and failed requests with backoff, and completes
+     * each record's futures.
+     */
+    private void flush(List<PendingWrite> batch) {
+        batchSizes.record(batch.size());
+        List<PendingWrite> remaining = batch;
+        for (int attempt = 1; ; attempt++) {
+            RuntimeException error = null;
+            try {
+                remaining = writeBatch(remaining);
+                if (remaining.isEmpty()) {
+                    return;
+                }
+                unprocessed.increment(remaining.size());
+            } catch (RuntimeException e) {
+                error = e;
+            }
+
+            if (attempt >= maxAttempts) {
+                fail(remaining, error != null ? error : new IllegalStateException(
+                        "DynamoDB left " + remaining.size() + " records unprocessed after " + attempt + " attempts"));
+                return;
+            }
+            log.warn("Retrying {} payment records after attempt {} of {}: {}", remaining.size(), attempt, maxAttempts,
+                    error != null ? error.getMessage() : "unprocessed by DynamoDB");
+            try {
+                Thread.sleep(backoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(remaining, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends one BatchWriteItem request and completes the futures of the records DynamoDB accepted.
+     *
+     * @return the records DynamoDB returned unprocessed
+     */
+    private List<PendingWrite> writeBatch(List<PendingWrite> batch) {
+        WriteBatch.Builder<EnrichedPaymentData> writeBatch = WriteBatch.builder(EnrichedPaymentData.class)
+                .mappedTableResource(table);
+        batch.forEach(write -> writeBatch.addPutItem(write.latest()));
+        WriteBatch request = writeBatch.build();
+
+        BatchWriteResult result = guard.call(() -> batchLatency.record(
+                () -> dynamoDbEnhancedClient.batchWriteItem(r -> r.writeBatches(request))));
+        List<EnrichedPaymentData> unprocessedItems = result.unprocessedPutItemsForTable(table);
+        if (unprocessedItems.isEmpty()) {
+            batch.forEach(PendingWrite::complete);
+            return List.of();
+        }
+
+        Set<PaymentKey> unprocessedKeys = unprocessedItems.stream().map(PaymentKey::of).collect(Collectors.toSet());
+        List<PendingWrite> retry = new ArrayList<>(unprocessedKeys.size());
+        for (PendingWrite write : batch) {
+            if (unprocessedKeys.contains(write.key())) {
+                retry.add(write);
+            } else {
+                write.complete();
+            }
+        }
+        return retry;
+    }
+
+    private void fail(List<PendingWrite> writes, Throwable error) {
+        log.error("Failed to write {} payment records to DynamoDB: {}", writes.size(), error.getMessage());
+        failed.increment(writes.size());
+        writes.forEach(write -> write.fail(error));
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * A buffered key: the newest record saved for it, written to DynamoDB, and every save of it
+     * waiting for that write, each completed with its own record.
+     */
+    private static final class PendingWrite {
+
+        private final PaymentKey key;
+        private final List<EnrichedPaymentData> records = new ArrayList<>(1);
+        private final List<CompletableFuture<EnrichedPaymentData>> futures = new ArrayList<>(1);
+
+        PendingWrite(PaymentKey key, EnrichedPaymentData paymentData, CompletableFuture<EnrichedPaymentData> future) {
+            this.key = key;
+            replace(paymentData, future);
+        }
+
+        PaymentKey key() {
+            return key;
+        }
+
+        EnrichedPaymentData latest() {
+            return records.get(records.size() - 1);
+        }
+
+        void replace(EnrichedPaymentData paymentData, CompletableFuture<EnrichedPaymentData> future) {
+            records.add(paymentData);
+            futures.add(future);
+        }
+
+        void complete() {
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).complete(records.get(i));
+            }
+        }
+
+        void fail(Throwable error) {
+            futures.forEach(future -> future.completeExceptionally(error));
+        }
+    }
+
+    /**
+     * Records taken from the buffer together, the batches they must be written after, and the
+     * completion of this batch's write.
+     */
+    private record Batch(List<PendingWrite> writes, CompletableFuture<Void> after, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,99 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Record framing for the memory-mapped segment files of the {@link MappedLogPaymentRepository} and
+ * the {@link PaymentSpillJournal}. Each record is its payload length, a CRC-32C of the payload, then
+ * the payload. The length is written last and a zero length follows the record, so a segment reads
+ * up to the last record written in full: a record torn by a crash, whether its length or its
+ * checksum does not match, marks the end of the segment and is overwritten by the next append.
+ */
+@Slf4j
+final class SegmentRecords {
+
+    /** Bytes in front of every payload: its length and its checksum. */
+    static final int HEADER_BYTES = 8;
+
+    private SegmentRecords() {
+    }
+
+    /**
+     * Maps a segment file into memory, creating it if needed.
+     *
+     * @param file the segment file
+     * @param size the bytes to map
+     * @return the mapping, which stays valid once the file is closed
+     */
+    static MappedByteBuffer map(Path file, long size) throws IOException {
+        // The mapping stays valid once the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Computes the checksum stored with a payload. Callers compute it before taking their append
+     * lock, so the lock is held only while the record is copied.
+     */
+    static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a record at an offset the caller has checked leaves room for it.
+     *
+     * @param buffer the segment
+     * @param offset the offset to write at
+     * @param payload the payload
+     * @param checksum the payload's {@link #checksum(byte[])}
+     * @return the offset just past the record
+     */
+    static int write(MappedByteBuffer buffer, int offset, byte[] payload, int checksum) {
+        buffer.putInt(offset + 4, checksum);
+        buffer.put(offset + HEADER_BYTES, payload);
+        // The length goes last, so a record cut short before it reads as the end of the segment
+        buffer.putInt(offset, payload.length);
+        int next = offset + HEADER_BYTES + payload.length;
+        if (next + 4 <= buffer.capacity()) {
+            buffer.putInt(next, 0);
+        }
+        return next;
+    }
+
+    /**
+     * Reads the record at an offset.
+     *
+     * @param buffer the segment
+     * @param offset the offset of the record
+     * @param limit the offset no record may extend past
+     * @param segment describes the segment in the warning logged for a torn record
+     * @return the record's payload, or null if there is no intact record before the limit
+     */
+    static byte[] read(MappedByteBuffer buffer, int offset, int limit, Object segment) {
+        if (offset + HEADER_BYTES > limit) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > limit - offset - HEADER_BYTES) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER_BYTES, payload);
+        if (checksum(payload) != buffer.getInt(offset + 4)) {
+            log.warn("Ignoring the torn record at offset {} of {}", offset, segment);
+            return null;
+        }
+        return payload;
+    }
+}
@@ -1,13 +1,17 @@
 package com.payment.queque.paymentqueuelistner.repository;
 
+import com.payment.queque.paymentqueuelistner.model.OutboxTransaction;
 import com.payment.queque.paymentqueuelistner.model.Transaction;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -36,6 +40,34 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
     @Query(value = "SELECT * FROM transactions WHERE processing_status = :processingStatus", nativeQuery = true)
     List<Transaction> findByProcessingStatusNative(@Param("processingStatus") String processingStatus);
 
+    /**
+     * Finds the next page of transactions with the specified processing status, in
+     * {@code (timestamp, id)} order, as read-only projections.
+     *
+     * Pages are found by keyset rather than by offset: a page starts just after the last row of the
+     * previous one, so reading a page costs the same however deep into the backlog it is, and rows
+     * whose status changes once they are processed do not shift the pages after them. Rows without
+     * a timestamp come first. For the first page, pass a null timestamp and an empty ID.
+     *
+     * @param processingStatus the processing status to search for
+     * @param afterTimestamp the timestamp of the last row of the previous page
+     * @param afterId the ID of the last row of the previous page
+     * @param limit the page size
+     * @return the transactions after the given row, at most {@code limit} of them
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.payment.queque.paymentqueuelistner.model.OutboxTransaction("
+            + "t.id, t.transactionId, t.amount, t.currency, t.paymentMethod, t.status, t.customerId, t.merchantId, "
+            + "t.timestamp, t.processingStatus, t.processedTimestamp) "
+            + "FROM Transaction t WHERE t.processingStatus = :processingStatus "
+            + "AND ((:timestamp IS NULL AND (t.timestamp IS NOT NULL OR t.id > :id)) "
+            + "OR t.timestamp > :timestamp OR (t.timestamp = :timestamp AND t.id > :id)) "
+            + "ORDER BY t.timestamp NULLS FIRST, t.id")
+    List<OutboxTransaction> findPageByProcessingStatus(@Param("processingStatus") String processingStatus,
+                                                       @Param("timestamp") LocalDateTime afterTimestamp,
+                                                       @Param("id") String afterId,
+                                                       Limit limit);
+
     /**
      * Updates the processing status and processed timestamp of a transaction.
      *
@@ -47,4 +79,18 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
     @Modifying
     @Query("UPDATE Transaction t SET t.processingStatus = :processingStatus, t.processedTimestamp = :processedTimestamp WHERE t.id = :id")
     int updateProcessingStatus(@Param("id") String id, @Param("processingStatus") String processingStatus, @Param("processedTimestamp") LocalDateTime processedTimestamp);
+
+    /**
+     * Updates the processing status and processed timestamp of several transactions with a single
+     * UPDATE statement, in its own transaction.
+     *
+     * @param ids the IDs of the transactions to update
+     * @param processingStatus the new processing status
+     * @param processedTimestamp the timestamp when the transactions were processed
+     * @return the number of rows affected
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.processingStatus = :processingStatus, t.processedTimestamp = :processedTimestamp WHERE t.id IN :ids")
+    int updateProcessingStatusByIds(@Param("ids") Collection<String> ids, @Param("processingStatus") String processingStatus, @Param("processedTimestamp") LocalDateTime processedTimestamp);
 }
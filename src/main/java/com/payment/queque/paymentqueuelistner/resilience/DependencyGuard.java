@@ -0,0 +1,421 @@
+package com.payment.queque.paymentqueuelistner.resilience;
+
+import com.payment.queque.paymentqueuelistner.config.ResilienceProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A bulkhead and a circuit breaker around calls to one downstream dependency.
+ *
+ * The bulkhead caps the calls in flight: a call that cannot get a slot within {@code maxWait} is
+ * rejected instead of queueing behind a slow dependency, so the virtual threads waiting on it stay
+ * bounded. An asynchronous call waits for a slot without blocking: it is queued and started by the
+ * call that frees the slot, or rejected if none is freed within {@code maxWait}. Queued asynchronous
+ * calls are handed freed slots before synchronous callers waiting on the bulkhead.
+ *
+ * The circuit breaker records the outcome of the last {@code slidingWindowSize} calls and opens
+ * once enough of them failed or took longer than {@code slowCallDuration}. An open circuit
+ * rejects every call for {@code openDuration}, then turns half-open and lets {@code halfOpenCalls}
+ * probe calls through: if they all succeed in time the circuit closes, the first failed or slow
+ * probe opens it again. Probes that have not all completed within {@code maxWaitInHalfOpen} open it
+ * again too, so a probe that hangs cannot leave the circuit rejecting every call for good. Only the
+ * outcome of a call started in the current state counts, so a probe finishing late is ignored.
+ *
+ * Rejected calls throw {@link DependencyUnavailableException}. Failed calls are recorded and their
+ * exception is passed on, wrapped in a {@link DependencyUnavailableException} when the dependency is
+ * configured to fall back on failure. State changes are counted in
+ * {@code payment.resilience.transitions} and the current state is published as
+ * {@code payment.resilience.state} (0 closed, 1 open, 2 half-open).
+ *
+ * The guard is written here rather than built on Resilience4j because the build resolves its
+ * dependencies from the Spring Boot dependency set it already uses, which Caffeine is part of and
+ * Resilience4j is not. The breaker is count-based only, which is the subset of Resilience4j's
+ * behaviour this application needs.
+ */
+@Slf4j
+public class DependencyGuard {
+
+    /**
+     * Circuit breaker states, in the order of their gauge values.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final ResilienceProperties.GuardSpec spec;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final Semaphore bulkhead;
+    private final long maxWaitNanos;
+    private final Executor slotTimeouts;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final long maxHalfOpenNanos;
+
+    // Asynchronous calls waiting for a bulkhead slot, oldest first, guarded by itself
+    private final Deque<Runnable> slotWaiters = new ArrayDeque<>();
+
+    // Circuit breaker state, guarded by this
+    private final byte[] outcomes;
+    private int nextOutcome;
+    private int recordedCalls;
+    private int failedCalls;
+    private int slowCalls;
+    private volatile State state = State.CLOSED;
+    private long generation;
+    private long openUntilNanos;
+    private long halfOpenUntilNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    private final Timer succeeded;
+    private final Timer failed;
+    private final Counter slow;
+    private final Counter bulkheadRejected;
+    private final Counter circuitRejected;
+
+    public DependencyGuard(String name, ResilienceProperties.GuardSpec spec, MeterRegistry meterRegistry) {
+        this(name, spec, meterRegistry, System::nanoTime);
+    }
+
+    DependencyGuard(String name, ResilienceProperties.GuardSpec spec, MeterRegistry meterRegistry,
+                    LongSupplier nanoClock) {
+        this.name = name;
+        this.spec = spec;
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        this.bulkhead = new Semaphore(Math.max(1, spec.getMaxConcurrentCalls()));
+        this.maxWaitNanos = spec.getMaxWait().toNanos();
+        // Expiring a queued call only takes it off the queue, so it runs on the timer thread itself
+        this.slotTimeouts = CompletableFuture.delayedExecutor(maxWaitNanos, TimeUnit.NANOSECONDS, Runnable::run);
+        this.slowCallNanos = spec.getSlowCallDuration().toNanos();
+        this.openNanos = spec.getOpenDuration().toNanos();
+        this.maxHalfOpenNanos = spec.getMaxWaitInHalfOpen().toNanos();
+        this.outcomes = new byte[Math.max(1, spec.getSlidingWindowSize())];
+
+        this.succeeded = callTimer("success");
+        this.failed = callTimer("failure");
+        this.slow = Counter.builder("payment.resilience.slow.calls")
+                .tag("dependency", name)
+                .description("Calls that took at least the slow call duration")
+                .register(meterRegistry);
+        this.bulkheadRejected = rejectedCounter("bulkhead_full");
+        this.circuitRejected = rejectedCounter("circuit_open");
+        Gauge.builder("payment.resilience.state", this, guard -> guard.state.ordinal())
+                .tag("dependency", name)
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge.builder("payment.resilience.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .tag("dependency", name)
+                .description("Free call slots in the bulkhead")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Calls the dependency if the circuit and the bulkhead allow it.
+     *
+     * @param call the call to the dependency
+     * @return the call's result
+     * @throws DependencyUnavailableException if the call was rejected, or failed and the dependency
+     *         falls back on failure
+     */
+    public <T> T call(Supplier<T> call) {
+        if (!spec.isEnabled()) {
+            return call.get();
+        }
+
+        long callGeneration = acquire(maxWaitNanos);
+        long start = nanoClock.getAsLong();
+        try {
+            T result = call.get();
+            onResult(callGeneration, false, nanoClock.getAsLong() - start);
+            return result;
+        } catch (RuntimeException e) {
+            onResult(callGeneration, true, nanoClock.getAsLong() - start);
+            if (spec.isFallbackOnFailure()) {
+                throw new DependencyUnavailableException(name, "call failed", e);
+            }
+            throw e;
+        } catch (Error e) {
+            onResult(callGeneration, true, nanoClock.getAsLong() - start);
+            throw e;
+        } finally {
+            releaseSlot();
+        }
+    }
+
+    /**
+     * Starts an asynchronous call to the dependency if the circuit and the bulkhead allow it. When the
+     * bulkhead is full the call is queued for up to {@code maxWait} and started once a slot is freed,
+     * so the calling thread never blocks. The slot is held until the returned future completes.
+     *
+     * @param call starts the call to the dependency
+     * @return the call's result, or a future failed with {@link DependencyUnavailableException} if
+     *         the call was rejected, or failed and the dependency falls back on failure
+     */
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        if (!spec.isEnabled()) {
+            return start(call);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable startWithSlot = () -> startWithSlot(call, result);
+        boolean acquired;
+        boolean queued = false;
+        synchronized (slotWaiters) {
+            acquired = bulkhead.tryAcquire();
+            if (!acquired && maxWaitNanos > 0) {
+                queued = slotWaiters.add(startWithSlot);
+            }
+        }
+
+        if (acquired) {
+            startWithSlot.run();
+        } else if (queued) {
+            slotTimeouts.execute(() -> {
+                boolean expired;
+                synchronized (slotWaiters) {
+                    expired = slotWaiters.remove(startWithSlot);
+                }
+                if (expired) {
+                    bulkheadRejected.increment();
+                    result.completeExceptionally(new DependencyUnavailableException(name, "bulkhead full", null));
+                }
+            });
+        } else {
+            bulkheadRejected.increment();
+            result.completeExceptionally(new DependencyUnavailableException(name, "bulkhead full", null));
+        }
+        return result;
+    }
+
+    /**
+     * Starts an asynchronous call that holds a bulkhead slot, if the circuit allows it.
+     */
+    private <T> void startWithSlot(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+        long callGeneration = tryAcquirePermission();
+        if (callGeneration < 0) {
+            releaseSlot();
+            circuitRejected.increment();
+            result.completeExceptionally(new DependencyUnavailableException(name, "circuit open", null));
+            return;
+        }
+        long start = nanoClock.getAsLong();
+        start(call).whenComplete((value, error) -> {
+            releaseSlot();
+            onResult(callGeneration, error != null, nanoClock.getAsLong() - start);
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            result.completeExceptionally(spec.isFallbackOnFailure() && cause instanceof RuntimeException
+                    ? new DependencyUnavailableException(name, "call failed", cause) : cause);
+        });
+    }
+
+    /**
+     * Hands a freed bulkhead slot to the longest-queued asynchronous call, or returns it to the bulkhead.
+     */
+    private void releaseSlot() {
+        Runnable next;
+        synchronized (slotWaiters) {
+            next = slotWaiters.poll();
+            if (next == null) {
+                bulkhead.release();
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    /**
+     * Starts the call, turning an exception thrown before it returns a future into a failed future.
+     */
+    private static <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException | Error e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns the dependency name used in logs and metric tags.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the current circuit breaker state.
+     */
+    public State state() {
+        return state;
+    }
+
+    /**
+     * @return the generation of the circuit state the call is permitted in
+     */
+    private long acquire(long waitNanos) {
+        boolean permitted;
+        try {
+            permitted = waitNanos > 0 ? bulkhead.tryAcquire(waitNanos, TimeUnit.NANOSECONDS) : bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permitted = false;
+        }
+        if (!permitted) {
+            bulkheadRejected.increment();
+            throw new DependencyUnavailableException(name, "bulkhead full", null);
+        }
+        long callGeneration = tryAcquirePermission();
+        if (callGeneration < 0) {
+            releaseSlot();
+            circuitRejected.increment();
+            throw new DependencyUnavailableException(name, "circuit open", null);
+        }
+        return callGeneration;
+    }
+
+    /**
+     * @return the generation of the current state if a call may go through, or -1
+     */
+    private synchronized long tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openUntilNanos < 0) {
+                return -1;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                if (nanoClock.getAsLong() - halfOpenUntilNanos >= 0) {
+                    // The probes have not all completed in time, so the dependency is treated as still down
+                    transitionTo(State.OPEN);
+                }
+                return -1;
+            }
+            halfOpenPermits--;
+        }
+        return generation;
+    }
+
+    private void onResult(long callGeneration, boolean failure, long elapsedNanos) {
+        boolean slowCall = elapsedNanos >= slowCallNanos;
+        (failure ? failed : succeeded).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (slowCall) {
+            slow.increment();
+        }
+        record(callGeneration, failure, slowCall);
+    }
+
+    private synchronized void record(long callGeneration, boolean failure, boolean slowCall) {
+        if (callGeneration != generation) {
+            // The call started before the last state change; its outcome no longer matters
+            return;
+        }
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failure || slowCall) {
+                    transitionTo(State.OPEN);
+                } else if (++halfOpenSuccesses >= Math.max(1, spec.getHalfOpenCalls())) {
+                    transitionTo(State.CLOSED);
+                }
+            }
+            case CLOSED -> {
+                // Replace the oldest outcome in the window
+                if (recordedCalls == outcomes.length) {
+                    byte oldest = outcomes[nextOutcome];
+                    failedCalls -= oldest & FAILED;
+                    slowCalls -= (oldest & SLOW) >> 1;
+                } else {
+                    recordedCalls++;
+                }
+                outcomes[nextOutcome] = (byte) ((failure ? FAILED : 0) | (slowCall ? SLOW : 0));
+                nextOutcome = (nextOutcome + 1) % outcomes.length;
+                failedCalls += failure ? 1 : 0;
+                slowCalls += slowCall ? 1 : 0;
+
+                if (recordedCalls >= spec.getMinimumCalls()
+                        && (failedCalls * 100 >= spec.getFailureRateThreshold() * recordedCalls
+                        || slowCalls * 100 >= spec.getSlowCallRateThreshold() * recordedCalls)) {
+                    transitionTo(State.OPEN);
+                }
+            }
+            case OPEN -> {
+                // No call is let through while the circuit is open
+            }
+        }
+    }
+
+    private void transitionTo(State next) {
+        State previous = state;
+        switch (next) {
+            case OPEN -> {
+                openUntilNanos = nanoClock.getAsLong() + openNanos;
+                if (previous == State.HALF_OPEN) {
+                    log.warn("Circuit for {} opened again after a failed, slow or unfinished probe call", name);
+                } else {
+                    log.warn("Circuit for {} opened after {} failed and {} slow of the last {} calls",
+                            name, failedCalls, slowCalls, recordedCalls);
+                }
+            }
+            case HALF_OPEN -> {
+                halfOpenPermits = Math.max(1, spec.getHalfOpenCalls());
+                halfOpenSuccesses = 0;
+                halfOpenUntilNanos = nanoClock.getAsLong() + maxHalfOpenNanos;
+                log.info("Circuit for {} half-open, letting {} probe calls through", name, halfOpenPermits);
+            }
+            case CLOSED -> log.info("Circuit for {} closed", name);
+        }
+        nextOutcome = 0;
+        recordedCalls = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+        generation++;
+        state = next;
+
+        Counter.builder("payment.resilience.transitions")
+                .tag("dependency", name)
+                .tag("from", previous.name())
+                .tag("to", next.name())
+                .description("Circuit breaker state changes")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer callTimer(String outcome) {
+        return Timer.builder("payment.resilience.calls")
+                .tag("dependency", name)
+                .tag("outcome", outcome)
+                .description("Calls made to the dependency through its guard")
+                .register(meterRegistry);
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("payment.resilience.rejected")
+                .tag("dependency", name)
+                .tag("reason", reason)
+                .description("Calls rejected without reaching the dependency")
+                .register(meterRegistry);
+    }
+}
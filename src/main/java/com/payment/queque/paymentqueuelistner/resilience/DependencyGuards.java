@@ -0,0 +1,62 @@
+package com.payment.queque.paymentqueuelistner.resilience;
+
+import com.payment.queque.paymentqueuelistner.config.ResilienceProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * The {@link DependencyGuard}s for the downstream dependencies of payment enrichment, one per
+ * dependency so that a slow or failing dependency only sheds its own calls.
+ */
+@Component
+public class DependencyGuards {
+
+    private final DependencyGuard customerLookup;
+    private final DependencyGuard merchantLookup;
+    private final DependencyGuard riskScoring;
+    private final DependencyGuard fraudScoring;
+    private final DependencyGuard paymentStore;
+
+    public DependencyGuards(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.customerLookup = new DependencyGuard("customerLookup", properties.getCustomerLookup(), meterRegistry);
+        this.merchantLookup = new DependencyGuard("merchantLookup", properties.getMerchantLookup(), meterRegistry);
+        this.riskScoring = new DependencyGuard("riskScoring", properties.getRiskScoring(), meterRegistry);
+        this.fraudScoring = new DependencyGuard("fraudScoring", properties.getFraudScoring(), meterRegistry);
+        this.paymentStore = new DependencyGuard("paymentStore", properties.getPaymentStore(), meterRegistry);
+    }
+
+    /**
+     * Returns the guard around customer category lookups that miss the cache.
+     */
+    public DependencyGuard customerLookup() {
+        return customerLookup;
+    }
+
+    /**
+     * Returns the guard around merchant category lookups that miss the cache.
+     */
+    public DependencyGuard merchantLookup() {
+        return merchantLookup;
+    }
+
+    /**
+     * Returns the guard around risk scoring.
+     */
+    public DependencyGuard riskScoring() {
+        return riskScoring;
+    }
+
+    /**
+     * Returns the guard around fraud scoring.
+     */
+    public DependencyGuard fraudScoring() {
+        return fraudScoring;
+    }
+
+    /**
+     * Returns the guard around saving enriched payments to DynamoDB.
+     */
+    public DependencyGuard paymentStore() {
+        return paymentStore;
+    }
+}
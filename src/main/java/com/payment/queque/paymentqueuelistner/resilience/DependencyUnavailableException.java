@@ -0,0 +1,19 @@
+package com.payment.queque.paymentqueuelistner.resilience;
+
+import lombok.Getter;
+
+/**
+ * Thrown by a {@link DependencyGuard} when a call is not made because the dependency's circuit is
+ * open or its bulkhead is full, or when a call failed and the dependency is configured to fall back
+ * on failure. Enrichment steps that throw it get their fallback values instead of failing the payment.
+ */
+@Getter
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final String dependency;
+
+    public DependencyUnavailableException(String dependency, String reason, Throwable cause) {
+        super("Dependency " + dependency + " unavailable: " + reason, cause);
+        this.dependency = dependency;
+    }
+}
@@ -0,0 +1,144 @@
+package com.payment.queque.paymentqueuelistner.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A rule set compiled into flat decision tables.
+ *
+ * Every amount bound used by the rules splits the amount axis into intervals, and the first-match
+ * result of each interval is worked out once at compile time. There is one table for each currency
+ * named by a rule, holding that currency's rules together with the currency-independent ones, and a
+ * table of the currency-independent rules for every other currency. Evaluating a payment is a map
+ * lookup and a binary search over a {@code double[]}: it allocates nothing and costs O(log n) in the
+ * number of rules.
+ */
+public final class CompiledRuleSet {
+
+    private final Map<String, DecisionTable> tablesByCurrency;
+    private final DecisionTable anyCurrencyTable;
+    private final int ruleCount;
+
+    private CompiledRuleSet(Map<String, DecisionTable> tablesByCurrency, DecisionTable anyCurrencyTable, int ruleCount) {
+        this.tablesByCurrency = tablesByCurrency;
+        this.anyCurrencyTable = anyCurrencyTable;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Validates and compiles a rule set.
+     *
+     * @param name the rule set name, used in error messages
+     * @param ruleSet the rule set to compile
+     * @return the compiled rule set
+     * @throws IllegalArgumentException if the rule set is invalid
+     */
+    public static CompiledRuleSet compile(String name, RuleDefinitions.RuleSet ruleSet) {
+        if (ruleSet == null || isBlank(ruleSet.getDefaultResult())) {
+            throw new IllegalArgumentException("Rule set " + name + " has no default result");
+        }
+        List<RuleDefinitions.Rule> rules = ruleSet.getRules() != null ? ruleSet.getRules() : List.of();
+        for (int i = 0; i < rules.size(); i++) {
+            RuleDefinitions.Rule rule = rules.get(i);
+            if (isBlank(rule.getResult())) {
+                throw new IllegalArgumentException("Rule " + i + " in " + name + " has no result");
+            }
+            if (rule.getMinAmount() != null && rule.getMaxAmount() != null && rule.getMinAmount() >= rule.getMaxAmount()) {
+                throw new IllegalArgumentException("Rule " + i + " in " + name + " has minAmount >= maxAmount");
+            }
+        }
+
+        Map<String, DecisionTable> tablesByCurrency = new HashMap<>();
+        for (RuleDefinitions.Rule rule : rules) {
+            if (rule.getCurrency() != null && !tablesByCurrency.containsKey(rule.getCurrency())) {
+                tablesByCurrency.put(rule.getCurrency(), DecisionTable.compile(rules, rule.getCurrency(),
+                        ruleSet.getDefaultResult()));
+            }
+        }
+        return new CompiledRuleSet(Map.copyOf(tablesByCurrency),
+                DecisionTable.compile(rules, null, ruleSet.getDefaultResult()), rules.size());
+    }
+
+    /**
+     * Returns the result of the first rule that matches the payment, or the default result.
+     *
+     * @param amount the payment amount
+     * @param currency the payment currency, may be null
+     * @return the rule result
+     */
+    public String evaluate(double amount, String currency) {
+        DecisionTable table = currency != null ? tablesByCurrency.get(currency) : null;
+        return (table != null ? table : anyCurrencyTable).evaluate(amount);
+    }
+
+    /**
+     * Returns the number of rules the set was compiled from.
+     */
+    public int ruleCount() {
+        return ruleCount;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * First-match results for consecutive amount intervals. {@code results[i]} applies to amounts in
+     * {@code (bounds[i - 1], bounds[i]]}, and the last result to amounts above every bound.
+     */
+    private static final class DecisionTable {
+
+        private final double[] bounds;
+        private final String[] results;
+
+        private DecisionTable(double[] bounds, String[] results) {
+            this.bounds = bounds;
+            this.results = results;
+        }
+
+        private static DecisionTable compile(List<RuleDefinitions.Rule> rules, String currency, String defaultResult) {
+            List<RuleDefinitions.Rule> applicable = new ArrayList<>();
+            TreeSet<Double> boundSet = new TreeSet<>();
+            for (RuleDefinitions.Rule rule : rules) {
+                if (rule.getCurrency() == null || rule.getCurrency().equals(currency)) {
+                    applicable.add(rule);
+                    if (rule.getMinAmount() != null) {
+                        boundSet.add(rule.getMinAmount());
+                    }
+                    if (rule.getMaxAmount() != null) {
+                        boundSet.add(rule.getMaxAmount());
+                    }
+                }
+            }
+
+            double[] bounds = boundSet.stream().mapToDouble(Double::doubleValue).toArray();
+            String[] results = new String[bounds.length + 1];
+            for (int i = 0; i <= bounds.length; i++) {
+                // Every amount in an interval matches the same rules as its upper end
+                double representative = i < bounds.length ? bounds[i] : Double.POSITIVE_INFINITY;
+                results[i] = firstMatch(applicable, representative, defaultResult);
+            }
+            return new DecisionTable(bounds, results);
+        }
+
+        private static String firstMatch(List<RuleDefinitions.Rule> rules, double amount, String defaultResult) {
+            for (RuleDefinitions.Rule rule : rules) {
+                boolean aboveMin = rule.getMinAmount() == null || amount > rule.getMinAmount();
+                boolean belowMax = rule.getMaxAmount() == null || amount <= rule.getMaxAmount();
+                if (aboveMin && belowMax) {
+                    return rule.getResult();
+                }
+            }
+            return defaultResult;
+        }
+
+        private String evaluate(double amount) {
+            int index = Arrays.binarySearch(bounds, amount);
+            return results[index >= 0 ? index : -index - 1];
+        }
+    }
+}
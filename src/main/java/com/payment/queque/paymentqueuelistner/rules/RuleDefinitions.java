@@ -0,0 +1,58 @@
+package com.payment.queque.paymentqueuelistner.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Risk and fraud rules as read from the rules file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleDefinitions {
+
+    private RuleSet risk = new RuleSet();
+
+    private RuleSet fraud = new RuleSet();
+
+    /**
+     * An ordered list of rules; the first rule that matches a payment decides its result.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RuleSet {
+
+        /** Result for payments that match no rule. */
+        private String defaultResult;
+
+        private List<Rule> rules = new ArrayList<>();
+    }
+
+    /**
+     * A single rule. Every condition that is set must hold for the rule to match.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+
+        /** Matches amounts strictly greater than this value. */
+        private Double minAmount;
+
+        /** Matches amounts less than or equal to this value. */
+        private Double maxAmount;
+
+        /** Matches only payments in this currency. */
+        private String currency;
+
+        /** Result returned when the rule matches. */
+        private String result;
+    }
+}
@@ -0,0 +1,103 @@
+package com.payment.queque.paymentqueuelistner.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * Evaluates the risk and fraud rules loaded from {@code app.rules.location}.
+ *
+ * The rules are compiled into {@link CompiledRuleSet}s when they are loaded. A reload reads and
+ * compiles the whole file first and then replaces the active rules with a single volatile write,
+ * so payments being enriched see either the old rules or the new ones, never a mix, and the
+ * listeners keep running throughout. A file that fails to load or compile leaves the active
+ * rules in place.
+ */
+@Component
+@Slf4j
+public class RuleEngine {
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final String location;
+    private volatile ActiveRules activeRules;
+
+    public RuleEngine(ResourceLoader resourceLoader, ObjectMapper objectMapper,
+                      @Value("${app.rules.location:classpath:rules/payment-rules.json}") String location) throws IOException {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.location = location;
+        this.activeRules = load(1);
+    }
+
+    /**
+     * Determines the risk score for a payment.
+     *
+     * @param amount the payment amount
+     * @param currency the payment currency
+     * @return the risk score
+     */
+    public String riskScore(double amount, String currency) {
+        return activeRules.risk.evaluate(amount, currency);
+    }
+
+    /**
+     * Determines the fraud status for a payment.
+     *
+     * @param amount the payment amount
+     * @param currency the payment currency
+     * @return the fraud status
+     */
+    public String fraudStatus(double amount, String currency) {
+        return activeRules.fraud.evaluate(amount, currency);
+    }
+
+    /**
+     * Reloads and compiles the rules file, then swaps the new rules in.
+     *
+     * @return a summary of the rules now active
+     * @throws IOException if the rules file cannot be read
+     * @throws IllegalArgumentException if the rules are invalid
+     */
+    public synchronized RulesSummary reload() throws IOException {
+        ActiveRules reloaded = load(activeRules.summary.version() + 1);
+        activeRules = reloaded;
+        log.info("Reloaded payment rules: {}", reloaded.summary);
+        return reloaded.summary;
+    }
+
+    /**
+     * Returns a summary of the rules currently active.
+     */
+    public RulesSummary summary() {
+        return activeRules.summary;
+    }
+
+    private ActiveRules load(long version) throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        RuleDefinitions definitions;
+        try (InputStream in = resource.getInputStream()) {
+            definitions = objectMapper.readValue(in, RuleDefinitions.class);
+        }
+        CompiledRuleSet risk = CompiledRuleSet.compile("risk", definitions.getRisk());
+        CompiledRuleSet fraud = CompiledRuleSet.compile("fraud", definitions.getFraud());
+        return new ActiveRules(risk, fraud,
+                new RulesSummary(version, location, risk.ruleCount(), fraud.ruleCount(), Instant.now()));
+    }
+
+    /**
+     * Summary of a loaded rules file.
+     */
+    public record RulesSummary(long version, String location, int riskRules, int fraudRules, Instant loadedAt) {
+    }
+
+    private record ActiveRules(CompiledRuleSet risk, CompiledRuleSet fraud, RulesSummary summary) {
+    }
+}
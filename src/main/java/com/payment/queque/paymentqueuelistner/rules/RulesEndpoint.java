@@ -0,0 +1,44 @@
+package com.payment.queque.paymentqueuelistner.rules;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint for the risk and fraud rules. {@code GET /actuator/rules} shows the active
+ * rules and {@code POST /actuator/rules} reloads them from the rules file.
+ */
+@Component
+@Endpoint(id = "rules")
+@RequiredArgsConstructor
+@Slf4j
+public class RulesEndpoint {
+
+    private final RuleEngine ruleEngine;
+
+    @ReadOperation
+    public RuleEngine.RulesSummary rules() {
+        return ruleEngine.summary();
+    }
+
+    @WriteOperation
+    public Map<String, Object> reload() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            response.put("status", "RELOADED");
+            response.put("rules", ruleEngine.reload());
+        } catch (Exception e) {
+            log.error("Failed to reload payment rules, keeping the active rules: {}", e.getMessage(), e);
+            response.put("status", "FAILED");
+            response.put("error", e.getMessage());
+            response.put("rules", ruleEngine.summary());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,291 @@
+package com.payment.queque.paymentqueuelistner.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.payment.queque.paymentqueuelistner.config.CategoryCacheProperties;
+import com.payment.queque.paymentqueuelistner.model.EnrichmentValues;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuard;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Service for looking up customer and merchant categories.
+ *
+ * Payment traffic repeats a small set of customers and merchants, so each lookup is fronted by a
+ * bounded Caffeine cache. Entries older than {@code refreshAfter} are reloaded in the background on
+ * their next read while the current value keeps being served, so hot keys never pay the lookup again.
+ * IDs the lookup does not know are cached as unknown for the shorter {@code negativeTtl}. Cache
+ * statistics are published under {@code cache.*} with {@code cache=customerCategory|merchantCategory},
+ * along with a hit-ratio gauge and a {@code payment.category.lookup.latency} timer for loads.
+ *
+ * Loads are coalesced: a lookup for an ID starts after the configured coalescing window, and every
+ * request for that ID that arrives before the lookup completes, from the same batch or from concurrent
+ * batches, shares its result. {@link #prefetch(Collection)} starts the lookups for a whole batch up
+ * front so each distinct ID is resolved once. Shared loads are counted in
+ * {@code payment.category.lookup.coalesced}.
+ *
+ * Each lookup that reaches the customer or merchant service goes through that service's
+ * {@link DependencyGuard}. A lookup the guard rejects or fails is not cached, and the
+ * {@code DependencyUnavailableException} is passed on so the enrichment step can fall back.
+ */
+@Service
+@Slf4j
+public class CategoryLookupService {
+
+    private final CategoryLookup customerCategories;
+    private final CategoryLookup merchantCategories;
+
+    public CategoryLookupService(CategoryCacheProperties properties,
+                                 MeterRegistry meterRegistry,
+                                 ExecutorService virtualThreadExecutor,
+                                 DependencyGuards dependencyGuards) {
+        Executor coalescingExecutor = properties.getCoalescingWindow().isZero()
+                ? virtualThreadExecutor
+                : CompletableFuture.delayedExecutor(properties.getCoalescingWindow().toNanos(), TimeUnit.NANOSECONDS,
+                        virtualThreadExecutor);
+        this.customerCategories = new CategoryLookup("customerCategory", properties.getCustomer(),
+                this::lookupCustomerCategory, dependencyGuards.customerLookup(), meterRegistry,
+                virtualThreadExecutor, coalescingExecutor);
+        this.merchantCategories = new CategoryLookup("merchantCategory", properties.getMerchant(),
+                this::lookupMerchantCategory, dependencyGuards.merchantLookup(), meterRegistry,
+                virtualThreadExecutor, coalescingExecutor);
+    }
+
+    /**
+     * Determines the customer category for a customer ID.
+     *
+     * @param customerId the customer ID
+     * @return the customer category, or UNKNOWN if the customer is not known
+     */
+    public String customerCategory(String customerId) {
+        if (customerId == null) {
+            return EnrichmentValues.UNKNOWN;
+        }
+        return customerCategories.get(customerId).orElse(EnrichmentValues.UNKNOWN);
+    }
+
+    /**
+     * Determines the merchant category for a merchant ID.
+     *
+     * @param merchantId the merchant ID
+     * @return the merchant category, or UNKNOWN if the merchant is not known
+     */
+    public String merchantCategory(String merchantId) {
+        if (merchantId == null) {
+            return EnrichmentValues.UNKNOWN;
+        }
+        return merchantCategories.get(merchantId).orElse(EnrichmentValues.UNKNOWN);
+    }
+
+    /**
+     * Starts the customer and merchant lookups for a batch of payments without waiting for them.
+     * Each distinct ID that is not already cached is looked up once; the enrichment of each payment
+     * then joins the lookup already in flight for its IDs.
+     *
+     * @param payments the payments about to be enriched
+     */
+    public void prefetch(Collection<PaymentData> payments) {
+        Set<String> customerIds = new HashSet<>();
+        Set<String> merchantIds = new HashSet<>();
+        for (PaymentData payment : payments) {
+            if (payment.getCustomerId() != null) {
+                customerIds.add(payment.getCustomerId());
+            }
+            if (payment.getMerchantId() != null) {
+                merchantIds.add(payment.getMerchantId());
+            }
+        }
+        customerIds.forEach(customerCategories::prefetch);
+        merchantIds.forEach(merchantCategories::prefetch);
+    }
+
+    /**
+     * Looks up the customer category for a customer ID.
+     * In a real-world scenario, this would involve looking up customer information
+     * in a database or calling a customer service.
+     *
+     * @param customerId the customer ID
+     * @return the customer category, or null if the customer is not known
+     */
+    private String lookupCustomerCategory(String customerId) {
+        // Simulate some processing time
+        try {
+            Thread.sleep(30);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Simple customer categorization based on customer ID
+        if (customerId.isBlank()) {
+            return null;
+        } else if (customerId.startsWith("VIP")) {
+            return EnrichmentValues.CUSTOMER_VIP;
+        } else if (customerId.startsWith("BIZ")) {
+            return EnrichmentValues.CUSTOMER_BUSINESS;
+        } else {
+            return EnrichmentValues.CUSTOMER_REGULAR;
+        }
+    }
+
+    /**
+     * Looks up the merchant category for a merchant ID.
+     * In a real-world scenario, this would involve looking up merchant information
+     * in a database or calling a merchant service.
+     *
+     * @param merchantId the merchant ID
+     * @return the merchant category, or null if the merchant is not known
+     */
+    private String lookupMerchantCategory(String merchantId) {
+        // Simulate some processing time
+        try {
+            Thread.sleep(30);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Simple merchant categorization based on merchant ID
+        if (merchantId.isBlank()) {
+            return null;
+        } else if (merchantId.startsWith("RETAIL")) {
+            return EnrichmentValues.MERCHANT_RETAIL;
+        } else if (merchantId.startsWith("FOOD")) {
+            return EnrichmentValues.MERCHANT_FOOD_AND_BEVERAGE;
+        } else if (merchantId.startsWith("TRAVEL")) {
+            return EnrichmentValues.MERCHANT_TRAVEL;
+        } else {
+            return EnrichmentValues.MERCHANT_OTHER;
+        }
+    }
+
+    /**
+     * A single lookup with its optional cache and the loads currently in flight.
+     */
+    private static final class CategoryLookup {
+
+        private final Function<String, String> lookup;
+        private final DependencyGuard guard;
+        private final Executor coalescingExecutor;
+        private final AsyncLoadingCache<String, Optional<String>> cache;
+        private final Map<String, CompletableFuture<Optional<String>>> inFlight = new ConcurrentHashMap<>();
+        private final Timer loadLatency;
+        private final Counter coalesced;
+
+        private CategoryLookup(String name, CategoryCacheProperties.CacheSpec spec, Function<String, String> lookup,
+                               DependencyGuard guard, MeterRegistry meterRegistry, ExecutorService executor,
+                               Executor coalescingExecutor) {
+            this.lookup = lookup;
+            this.guard = guard;
+            this.coalescingExecutor = coalescingExecutor;
+            this.loadLatency = Timer.builder("payment.category.lookup.latency")
+                    .tag("lookup", name)
+                    .description("Time taken by category lookups that were not served from the cache")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.coalesced = Counter.builder("payment.category.lookup.coalesced")
+                    .tag("lookup", name)
+                    .description("Category requests that shared a lookup already in flight")
+                    .register(meterRegistry);
+            if (!spec.isEnabled()) {
+                log.info("Category cache {} is disabled", name);
+                this.cache = null;
+                return;
+            }
+
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(spec.getMaximumSize())
+                    .expireAfter(new Expiry<String, Optional<String>>() {
+                        @Override
+                        public long expireAfterCreate(String key, Optional<String> value, long currentTime) {
+                            return (value.isPresent() ? spec.getTtl() : spec.getNegativeTtl()).toNanos();
+                        }
+
+                        @Override
+                        public long expireAfterUpdate(String key, Optional<String> value, long currentTime,
+                                                      long currentDuration) {
+                            return expireAfterCreate(key, value, currentTime);
+                        }
+
+                        @Override
+                        public long expireAfterRead(String key, Optional<String> value, long currentTime,
+                                                    long currentDuration) {
+                            return currentDuration;
+                        }
+                    })
+                    .refreshAfterWrite(spec.getRefreshAfter())
+                    .executor(executor)
+                    .recordStats()
+                    .buildAsync((key, loaderExecutor) -> load(key));
+
+            CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), name);
+            Gauge.builder("payment.category.cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                    .tag("lookup", name)
+                    .description("Fraction of category lookups served from the cache")
+                    .register(meterRegistry);
+        }
+
+        private Optional<String> get(String key) {
+            // The cache loads asynchronously, so no thread blocks while holding a cache lock
+            try {
+                return (cache != null ? cache.get(key) : load(key)).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        private void prefetch(String key) {
+            if (cache != null) {
+                cache.get(key);
+            } else {
+                load(key);
+            }
+        }
+
+        /**
+         * Returns the load in flight for a key, or starts one after the coalescing window.
+         */
+        private CompletableFuture<Optional<String>> load(String key) {
+            CompletableFuture<Optional<String>> created = new CompletableFuture<>();
+            CompletableFuture<Optional<String>> existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+
+            coalescingExecutor.execute(() -> {
+                // Stop sharing the load before completing it, so later requests start a fresh lookup
+                Optional<String> value;
+                try {
+                    value = Optional.ofNullable(guard.call(() -> loadLatency.record(() -> lookup.apply(key))));
+                } catch (Throwable e) {
+                    inFlight.remove(key, created);
+                    created.completeExceptionally(e);
+                    return;
+                }
+                inFlight.remove(key, created);
+                created.complete(value);
+            });
+            return created;
+        }
+    }
+}
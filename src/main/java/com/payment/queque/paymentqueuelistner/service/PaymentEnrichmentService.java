@@ -1,20 +1,33 @@
 package com.payment.queque.paymentqueuelistner.service;
 
+import com.payment.queque.paymentqueuelistner.enrichment.EnrichmentPipeline;
 import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
 import com.payment.queque.paymentqueuelistner.model.PaymentData;
 import com.payment.queque.paymentqueuelistner.repository.PaymentRepository;
+import com.payment.queque.paymentqueuelistner.repository.PaymentSpillJournal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
 /**
  * Service for enriching payment data with additional information.
+ *
+ * The enrichment itself is done by the {@link EnrichmentPipeline}, which runs the registered
+ * enrichment steps in parallel wherever they do not depend on each other. A step that misses its
+ * timeout is replaced by a fallback value, and the record is saved with
+ * {@code processingStatus=PARTIAL} instead of delaying or failing the whole payment.
+ *
+ * With the {@link PaymentSpillJournal} enabled, a payment whose save fails because the store is
+ * throttling or unavailable is written to the local journal instead, and counts as saved once it is
+ * on disk; it reaches DynamoDB when the journal is replayed.
  */
 @Service
 @RequiredArgsConstructor
@@ -23,52 +36,33 @@ public class PaymentEnrichmentService {
 
     private final PaymentRepository paymentRepository;
     private final ExecutorService virtualThreadExecutor;
+    private final EnrichmentPipeline enrichmentPipeline;
+    private final CategoryLookupService categoryLookupService;
+    private final PaymentSpillJournal spillJournal;
 
     /**
      * Enriches payment data with additional information and stores it in DynamoDB.
-     * This method uses virtual threads for parallel processing.
+     * The enrichment steps run in parallel on virtual threads; any step that does not finish
+     * in time is given a fallback value and the record is marked {@code PARTIAL}.
      *
      * @param paymentData the payment data to enrich
      * @return the enriched payment data
      */
     public EnrichedPaymentData enrichAndSavePaymentData(PaymentData paymentData) {
         long startTime = System.currentTimeMillis();
-        log.info("Starting enrichment process for payment with ID: {}", paymentData.getId());
-
         try {
-            // Create enriched payment data
-            EnrichedPaymentData enrichedData = new EnrichedPaymentData();
-            // Copy base fields from payment data
-            enrichedData.setId(paymentData.getId());
-            enrichedData.setTransactionId(paymentData.getTransactionId());
-            enrichedData.setAmount(paymentData.getAmount());
-            enrichedData.setCurrency(paymentData.getCurrency());
-            enrichedData.setPaymentMethod(paymentData.getPaymentMethod());
-            enrichedData.setStatus(paymentData.getStatus());
-            enrichedData.setCustomerId(paymentData.getCustomerId());
-            enrichedData.setMerchantId(paymentData.getMerchantId());
-            enrichedData.setTimestamp(paymentData.getTimestamp());
-            enrichedData.setSourceQueue(paymentData.getSourceQueue());
-
-            // Set enrichment fields
-            enrichedData.setEnrichmentId(UUID.randomUUID().toString());
-            enrichedData.setAdditionalData(generateAdditionalData(paymentData));
-            enrichedData.setRiskScore(calculateRiskScore(paymentData));
-            enrichedData.setFraudStatus(determineFraudStatus(paymentData));
-            enrichedData.setEnrichmentTimestamp(LocalDateTime.now());
-            enrichedData.setProcessingStatus("COMPLETED");
-
-            // Save to DynamoDB
-            EnrichedPaymentData savedData = paymentRepository.save(enrichedData);
-
-            // Calculate processing time
-            long processingTime = System.currentTimeMillis() - startTime;
-            savedData.setProcessingTimeMs(processingTime);
-
-            log.info("Completed enrichment process for payment with ID: {} in {}ms", 
-                    paymentData.getId(), processingTime);
-
-            return savedData;
+            EnrichedPaymentData enrichedData = enrich(paymentData);
+            EnrichedPaymentData savedData;
+            try {
+                // Save to DynamoDB
+                savedData = paymentRepository.save(enrichedData);
+            } catch (RuntimeException e) {
+                if (!spillJournal.accepts(e)) {
+                    throw e;
+                }
+                savedData = spill(enrichedData, e).join();
+            }
+            return completed(paymentData, savedData, startTime);
         } catch (Exception e) {
             log.error("Error enriching payment data: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to enrich payment data", e);
@@ -76,186 +70,102 @@ public class PaymentEnrichmentService {
     }
 
     /**
-     * Processes payment data asynchronously using virtual threads.
-     *
-     * @param paymentData the payment data to process
-     */
-    public void processPaymentDataAsync(PaymentData paymentData) {
-        virtualThreadExecutor.submit(() -> {
-            try {
-                enrichAndSavePaymentData(paymentData);
-            } catch (Exception e) {
-                log.error("Error in async processing of payment data: {}", e.getMessage(), e);
-            }
-        });
-    }
-
-    /**
-     * Generates additional data for the payment based on the original payment data.
-     * In a real-world scenario, this might involve calling external services or databases.
-     *
-     * @param paymentData the original payment data
-     * @return a map of additional data
+     * Runs the enrichment pipeline for a payment.
      */
-    private Map<String, String> generateAdditionalData(PaymentData paymentData) {
-        // Simulate some processing time
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    private EnrichedPaymentData enrich(PaymentData paymentData) throws ExecutionException, InterruptedException {
+        log.info("Starting enrichment process for payment with ID: {}", paymentData.getId());
 
-        Map<String, String> additionalData = new HashMap<>();
-        additionalData.put("processingTimestamp", LocalDateTime.now().toString());
-        additionalData.put("paymentChannel", determinePaymentChannel(paymentData));
-        additionalData.put("customerCategory", determineCustomerCategory(paymentData.getCustomerId()));
-        additionalData.put("merchantCategory", determineMerchantCategory(paymentData.getMerchantId()));
+        // Enrich the decoded record in place, or a copy if the payment was decoded as plain PaymentData
+        EnrichedPaymentData enrichedData = EnrichedPaymentData.of(paymentData);
 
-        return additionalData;
+        // Set enrichment fields
+        enrichedData.setEnrichmentId(UUID.randomUUID().toString());
+        enrichmentPipeline.enrich(paymentData, enrichedData);
+        enrichedData.setEnrichmentTimestamp(LocalDateTime.now());
+        return enrichedData;
     }
 
     /**
-     * Calculates a risk score for the payment.
-     * This is a simplified example - in a real-world scenario, this would involve
-     * complex risk assessment algorithms.
-     *
-     * @param paymentData the payment data
-     * @return a risk score as a string
+     * Writes a payment whose save failed to the spill journal.
      */
-    private String calculateRiskScore(PaymentData paymentData) {
-        // Simulate some processing time
-        try {
-            Thread.sleep(50);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        // Simple risk calculation based on amount
-        double amount = paymentData.getAmount();
-        if (amount > 1000) {
-            return "HIGH";
-        } else if (amount > 500) {
-            return "MEDIUM";
-        } else {
-            return "LOW";
-        }
+    private CompletableFuture<EnrichedPaymentData> spill(EnrichedPaymentData enrichedData, Throwable error) {
+        log.warn("Spilling payment with ID: {} to the local journal after its save failed: {}",
+                enrichedData.getId(), error.getMessage());
+        return spillJournal.append(enrichedData);
     }
 
-    /**
-     * Determines the fraud status of the payment.
-     * This is a simplified example - in a real-world scenario, this would involve
-     * complex fraud detection algorithms.
-     *
-     * @param paymentData the payment data
-     * @return a fraud status as a string
-     */
-    private String determineFraudStatus(PaymentData paymentData) {
-        // Simulate some processing time
-        try {
-            Thread.sleep(50);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        // Simple fraud detection based on amount and currency
-        double amount = paymentData.getAmount();
-        String currency = paymentData.getCurrency();
+    private EnrichedPaymentData completed(PaymentData paymentData, EnrichedPaymentData savedData, long startTime) {
+        // Calculate processing time
+        long processingTime = System.currentTimeMillis() - startTime;
+        savedData.setProcessingTimeMs(processingTime);
 
-        if (amount > 5000 && "USD".equals(currency)) {
-            return "REVIEW_REQUIRED";
-        } else if (amount > 10000) {
-            return "SUSPICIOUS";
-        } else {
-            return "CLEAR";
-        }
+        log.info("Completed enrichment process for payment with ID: {} in {}ms",
+                paymentData.getId(), processingTime);
+        return savedData;
     }
 
     /**
-     * Determines the payment channel based on the payment data.
+     * Processes payment data asynchronously using virtual threads.
      *
-     * @param paymentData the payment data
-     * @return the payment channel
+     * @param paymentData the payment data to process
      */
-    private String determinePaymentChannel(PaymentData paymentData) {
-        String paymentMethod = paymentData.getPaymentMethod();
-        if (paymentMethod == null) {
-            return "UNKNOWN";
-        }
-
-        switch (paymentMethod.toUpperCase()) {
-            case "CREDIT_CARD":
-            case "DEBIT_CARD":
-                return "CARD";
-            case "BANK_TRANSFER":
-            case "ACH":
-                return "BANK";
-            case "PAYPAL":
-            case "VENMO":
-                return "DIGITAL_WALLET";
-            default:
-                return "OTHER";
-        }
+    public void processPaymentDataAsync(PaymentData paymentData) {
+        virtualThreadExecutor.submit(() -> {
+            try {
+                enrichAndSavePaymentData(paymentData);
+            } catch (Exception e) {
+                log.error("Error in async processing of payment data: {}", e.getMessage(), e);
+            }
+        });
     }
 
     /**
-     * Determines the customer category based on the customer ID.
-     * In a real-world scenario, this would involve looking up customer information
-     * in a database or calling a customer service.
+     * Enriches and saves payment data asynchronously using virtual threads.
+     * Unlike {@link #processPaymentDataAsync(PaymentData)}, the returned future completes only
+     * once the enriched data has been written to DynamoDB, so callers can defer acknowledging
+     * the source message until the write is durable.
+     *
+     * The enrichment runs on a virtual thread and the save is chained onto it with
+     * {@link PaymentRepository#saveAsync}, so with the async DynamoDB client or the write-behind
+     * buffer no thread waits for the write. A failed save is spilled to the journal when it accepts
+     * the error.
      *
-     * @param customerId the customer ID
-     * @return the customer category
+     * @param paymentData the payment data to process
+     * @return a future that completes with the saved enriched payment data
      */
-    private String determineCustomerCategory(String customerId) {
-        // Simulate some processing time
-        try {
-            Thread.sleep(30);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        // Simple customer categorization based on customer ID
-        if (customerId == null) {
-            return "UNKNOWN";
-        }
-
-        if (customerId.startsWith("VIP")) {
-            return "VIP";
-        } else if (customerId.startsWith("BIZ")) {
-            return "BUSINESS";
-        } else {
-            return "REGULAR";
-        }
+    public CompletableFuture<EnrichedPaymentData> enrichAndSavePaymentDataAsync(PaymentData paymentData) {
+        long startTime = System.currentTimeMillis();
+        return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return enrich(paymentData);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, virtualThreadExecutor)
+                .thenCompose(enrichedData -> paymentRepository.saveAsync(enrichedData)
+                        .exceptionallyCompose(error -> spillJournal.accepts(error)
+                                ? spill(enrichedData, error)
+                                : CompletableFuture.failedFuture(error)))
+                .handle((savedData, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        log.error("Error enriching payment data: {}", cause.getMessage(), cause);
+                        throw new CompletionException(new RuntimeException("Failed to enrich payment data", cause));
+                    }
+                    return completed(paymentData, savedData, startTime);
+                });
     }
 
     /**
-     * Determines the merchant category based on the merchant ID.
-     * In a real-world scenario, this would involve looking up merchant information
-     * in a database or calling a merchant service.
+     * Starts the customer and merchant lookups for a batch of payments about to be enriched, such
+     * as the messages from one SQS receive, so each distinct customer and merchant is resolved once
+     * and shared by every payment in the batch that refers to it, as well as by concurrent batches
+     * within the coalescing window.
      *
-     * @param merchantId the merchant ID
-     * @return the merchant category
+     * @param payments the payments about to be enriched
      */
-    private String determineMerchantCategory(String merchantId) {
-        // Simulate some processing time
-        try {
-            Thread.sleep(30);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        // Simple merchant categorization based on merchant ID
-        if (merchantId == null) {
-            return "UNKNOWN";
-        }
-
-        if (merchantId.startsWith("RETAIL")) {
-            return "RETAIL";
-        } else if (merchantId.startsWith("FOOD")) {
-            return "FOOD_AND_BEVERAGE";
-        } else if (merchantId.startsWith("TRAVEL")) {
-            return "TRAVEL";
-        } else {
-            return "OTHER";
-        }
+    public void prefetch(Collection<PaymentData> payments) {
+        categoryLookupService.prefetch(payments);
     }
 }
@@ -2,26 +2,31 @@ package com.payment.queque.paymentqueuelistner.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.payment.queque.paymentqueuelistner.model.Transaction;
+import com.payment.queque.paymentqueuelistner.model.OutboxTransaction;
 import com.payment.queque.paymentqueuelistner.repository.TransactionRepository;
 import io.awspring.cloud.sqs.operations.SqsTemplate;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.stream.Collectors;
 
 /**
  * Service for processing transactions from the transaction table.
  * This service is responsible for fetching unprocessed transactions,
  * sending them to SQS, and updating their status.
+ *
+ * Unprocessed transactions are read in keyset pages of {@code page-size} rows as read-only
+ * projections, and the next page is loaded while the current one is being sent, so memory use
+ * depends on the page size rather than on the size of the backlog. Once a page has been sent, the
+ * transactions sent are marked as processed with one UPDATE per {@code update-chunk-size} IDs.
  */
 @Service
 @Slf4j
@@ -35,8 +40,11 @@ public class TransactionService {
     @Value("${aws.sqs.transaction-queue.url}")
     private String transactionQueueUrl;
 
-    @Value("${app.use-native-query:false}")
-    private boolean useNativeQuery;
+    @Value("${app.transaction-poller.page-size:500}")
+    private int pageSize;
+
+    @Value("${app.transaction-poller.update-chunk-size:500}")
+    private int updateChunkSize;
 
     public TransactionService(
             TransactionRepository transactionRepository,
@@ -53,81 +61,124 @@ public class TransactionService {
      * Processes all unprocessed transactions.
      * This method fetches all transactions with a processing status of "UNPROCESSED",
      * sends them to SQS, and updates their status to "PROCESSED".
-     * 
-     * It can use either JPA or native SQL queries based on configuration.
+     *
+     * Transactions are fetched a page at a time, each page in its own read-only transaction.
+     * The next page is fetched on a virtual thread while the current page is processed.
      *
      * @return the number of transactions processed
      */
-    @Transactional
     public int processUnprocessedTransactions() {
-        log.info("Fetching unprocessed transactions using {}", 
-                useNativeQuery ? "native SQL query" : "JPA query");
-
-        List<Transaction> unprocessedTransactions;
-        if (useNativeQuery) {
-            unprocessedTransactions = transactionRepository.findByProcessingStatusNative("UNPROCESSED");
-        } else {
-            unprocessedTransactions = transactionRepository.findByProcessingStatus("UNPROCESSED");
-        }
+        log.info("Fetching unprocessed transactions in pages of {}", pageSize);
 
-        if (unprocessedTransactions.isEmpty()) {
+        List<OutboxTransaction> page = fetchPage(null);
+        if (page.isEmpty()) {
             log.info("No unprocessed transactions found");
             return 0;
         }
 
-        log.info("Found {} unprocessed transactions", unprocessedTransactions.size());
+        int foundCount = 0;
+        int processedCount = 0;
+        while (!page.isEmpty()) {
+            // Start loading the next page; a short page is the last one
+            OutboxTransaction last = page.get(page.size() - 1);
+            CompletableFuture<List<OutboxTransaction>> nextPage = page.size() < pageSize
+                    ? CompletableFuture.completedFuture(List.of())
+                    : CompletableFuture.supplyAsync(() -> fetchPage(last), executorService);
+
+            foundCount += page.size();
+            processedCount += processPage(page);
+            page = nextPage.join();
+        }
 
-        // Process transactions in parallel using virtual threads
-        List<CompletableFuture<Boolean>> futures = unprocessedTransactions.stream()
-                .map(transaction -> CompletableFuture.supplyAsync(() -> 
-                    processTransaction(transaction), executorService))
-                .collect(Collectors.toList());
+        log.info("Successfully processed {} of {} unprocessed transactions", processedCount, foundCount);
+        return processedCount;
+    }
 
-        // Wait for all tasks to complete and count successful ones
-        int processedCount = (int) futures.stream()
-                .map(CompletableFuture::join)
-                .filter(Boolean::booleanValue)
-                .count();
+    /**
+     * Fetches the page of unprocessed transactions after the given one.
+     *
+     * @param last the last transaction of the previous page, or null for the first page
+     */
+    private List<OutboxTransaction> fetchPage(OutboxTransaction last) {
+        return last == null
+                ? transactionRepository.findPageByProcessingStatus("UNPROCESSED", null, "", Limit.of(pageSize))
+                : transactionRepository.findPageByProcessingStatus("UNPROCESSED", last.timestamp(), last.id(),
+                        Limit.of(pageSize));
+    }
 
-        log.info("Successfully processed {} transactions", processedCount);
-        return processedCount;
+    /**
+     * Sends the transactions of a page in parallel using virtual threads, then marks the ones sent
+     * as processed.
+     *
+     * @return the number of transactions processed successfully
+     */
+    private int processPage(List<OutboxTransaction> page) {
+        List<CompletableFuture<Boolean>> futures = page.stream()
+                .map(transaction -> CompletableFuture.supplyAsync(() ->
+                    sendTransaction(transaction), executorService))
+                .toList();
+
+        // Wait for all tasks to complete and collect the successful ones
+        List<String> sentIds = new ArrayList<>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            if (futures.get(i).join()) {
+                sentIds.add(page.get(i).id());
+            }
+        }
+        return markProcessed(sentIds);
+    }
+
+    /**
+     * Updates the status of sent transactions to PROCESSED, with one UPDATE statement and
+     * transaction per chunk of {@code update-chunk-size} IDs. A chunk whose update fails is left
+     * unprocessed, so its transactions are sent again by the next poll.
+     *
+     * @param ids the IDs of the transactions sent to SQS
+     * @return the number of transactions updated
+     */
+    private int markProcessed(List<String> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        int chunkSize = Math.max(1, updateChunkSize);
+        int updatedRows = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+            try {
+                int updated = transactionRepository.updateProcessingStatusByIds(chunk, "PROCESSED", now);
+                if (updated < chunk.size()) {
+                    log.warn("Updated transaction status to PROCESSED for only {} of {} sent transactions",
+                            updated, chunk.size());
+                }
+                updatedRows += updated;
+            } catch (Exception e) {
+                log.error("Error updating status of {} sent transactions: {}", chunk.size(), e.getMessage(), e);
+            }
+        }
+        return updatedRows;
     }
 
     /**
-     * Processes a single transaction by sending it to SQS and updating its status.
+     * Sends a single transaction to SQS.
      * This method is designed to be executed in parallel by multiple threads.
      *
-     * @param transaction the transaction to process
-     * @return true if the transaction was processed successfully, false otherwise
+     * @param transaction the transaction to send
+     * @return true if the transaction was sent successfully, false otherwise
      */
-    private boolean processTransaction(Transaction transaction) {
+    private boolean sendTransaction(OutboxTransaction transaction) {
         try {
             // Convert transaction to JSON
             String transactionJson = objectMapper.writeValueAsString(transaction);
 
             // Send to SQS
             sqsTemplate.send(transactionQueueUrl, transactionJson);
-            log.info("Sent transaction with ID {} to SQS", transaction.getId());
-
-            // Update transaction status
-            LocalDateTime now = LocalDateTime.now();
-            int updatedRows = transactionRepository.updateProcessingStatus(
-                    transaction.getId(), "PROCESSED", now);
-
-            if (updatedRows > 0) {
-                log.info("Updated transaction status to PROCESSED for ID {}", transaction.getId());
-                return true;
-            } else {
-                log.warn("Failed to update transaction status for ID {}", transaction.getId());
-                return false;
-            }
+            log.info("Sent transaction with ID {} to SQS", transaction.id());
+            return true;
         } catch (JsonProcessingException e) {
             log.error("Error serializing transaction with ID {}: {}", 
-                    transaction.getId(), e.getMessage(), e);
+                    transaction.id(), e.getMessage(), e);
             return false;
         } catch (Exception e) {
             log.error("Error processing transaction with ID {}: {}", 
-                    transaction.getId(), e.getMessage(), e);
+                    transaction.id(), e.getMessage(), e);
             return false;
         }
     }
@@ -0,0 +1,10 @@
+package com.payment.queque.paymentqueuelistner.velocity;
+
+/**
+ * Velocity of a payment's customer and merchant, in the payment's currency.
+ */
+public record PaymentVelocity(VelocityFeatures customer, VelocityFeatures merchant) {
+
+    /** Velocity of a payment that is not tracked. */
+    public static final PaymentVelocity EMPTY = new PaymentVelocity(VelocityFeatures.EMPTY, VelocityFeatures.EMPTY);
+}
@@ -0,0 +1,28 @@
+package com.payment.queque.paymentqueuelistner.velocity;
+
+/**
+ * Payment count and total amount for one key over the last 1, 5 and 60 minutes.
+ * Amounts are in minor units (hundredths of the payment currency).
+ */
+public record VelocityFeatures(long count1m, long amountMinor1m,
+                               long count5m, long amountMinor5m,
+                               long count60m, long amountMinor60m) {
+
+    /** Features of a key with no payments in the last hour. */
+    public static final VelocityFeatures EMPTY = new VelocityFeatures(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Converts a payment amount to minor units. Negative amounts count as zero.
+     */
+    public static long toMinorUnits(double amount) {
+        return amount > 0 ? Math.round(amount * 100) : 0;
+    }
+
+    /**
+     * Formats an amount in minor units as a plain decimal string, such as {@code 1250.50}.
+     */
+    public static String formatMinorUnits(long amountMinor) {
+        long cents = amountMinor % 100;
+        return new StringBuilder(20).append(amountMinor / 100).append(cents < 10 ? ".0" : ".").append(cents).toString();
+    }
+}
@@ -0,0 +1,283 @@
+package com.payment.queque.paymentqueuelistner.velocity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding-window payment counts and amounts per key, kept in memory.
+ *
+ * Each key has a ring of one-minute buckets for the 1- and 5-minute windows and a ring of
+ * five-minute buckets for the 60-minute window, held in a single {@code long[]} of about 300 bytes,
+ * so reading every window touches a handful of adjacent cache lines. A bucket is a pair of longs
+ * holding the payment count and the amount in minor units, each tagged with the minute or period it
+ * belongs to, so a payment updates a bucket with one compare-and-set per value and a bucket left
+ * over from an earlier round of the ring is recognised by its tag and reset by the first write of
+ * the new minute. Recording never takes a lock and never allocates once the key exists.
+ *
+ * Window totals are estimated the way sliding-window rate limiters do: every bucket inside the
+ * window counts in full and the oldest, partly expired bucket is weighted by the part of it still
+ * inside the window.
+ *
+ * Keys are spread over stripes, each a {@link ConcurrentHashMap} holding at most its share of
+ * {@code maxKeys}. Keys without a payment for the idle timeout are evicted; when a stripe is still
+ * full a new key is not tracked and its payment is scored on its own. A full stripe is scanned for
+ * idle keys at most once a minute, as keys only become idle when the minute turns, so a burst of new
+ * keys against a full stripe does not scan it for every key. A payment recorded for a key at the
+ * moment it is evicted may be lost, which can only happen to a key that was idle.
+ */
+public class VelocityStore {
+
+    /** One-minute buckets for the 5-minute window, plus the partly expired oldest minute. */
+    private static final int MINUTE_BUCKETS = 6;
+
+    /** Five-minute buckets for the 60-minute window, plus the partly expired oldest period. */
+    private static final int PERIOD_BUCKETS = 13;
+    private static final int PERIOD_MINUTES = 5;
+
+    /** How far back the buckets reach; a key idle this long has no payments in any window. */
+    static final int HISTORY_MINUTES = PERIOD_BUCKETS * PERIOD_MINUTES;
+
+    // Window layout: the minute of the last payment, then the minute buckets, then the period buckets
+    private static final int LAST_MINUTE = 0;
+    private static final int MINUTE_CELLS = 1;
+    private static final int PERIOD_CELLS = MINUTE_CELLS + MINUTE_BUCKETS * 2;
+    private static final int WINDOW_CELLS = PERIOD_CELLS + PERIOD_BUCKETS * 2;
+
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final int VALUE_BITS = 48;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+    private static final long TAG_MASK = (1L << (Long.SIZE - VALUE_BITS)) - 1;
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final ConcurrentHashMap<String, long[]>[] stripes;
+    private final AtomicLongArray scannedMinutes;
+    private final int maxKeysPerStripe;
+    private final long idleMinutes;
+    private final Counter evicted;
+    private final Counter rejected;
+
+    /**
+     * @param name the dimension name used to tag the store's metrics, such as {@code customer}
+     * @param stripeCount the number of stripes the keys are spread over
+     * @param maxKeys the maximum number of keys tracked at once
+     * @param idleMinutes how long a key is kept without payments; never less than the 65 minutes of history
+     * @param meterRegistry the registry for the store's metrics
+     */
+    @SuppressWarnings("unchecked")
+    public VelocityStore(String name, int stripeCount, int maxKeys, long idleMinutes, MeterRegistry meterRegistry) {
+        this.stripes = new ConcurrentHashMap[Math.max(1, stripeCount)];
+        this.scannedMinutes = new AtomicLongArray(stripes.length);
+        this.maxKeysPerStripe = Math.max(1, maxKeys / stripes.length);
+        this.idleMinutes = Math.max(HISTORY_MINUTES, idleMinutes);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+
+        Gauge.builder("payment.velocity.keys", this, VelocityStore::size)
+                .tag("dimension", name)
+                .description("Keys with velocity windows held in memory")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("payment.velocity.evicted")
+                .tag("dimension", name)
+                .description("Idle keys whose velocity windows were dropped")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("payment.velocity.rejected")
+                .tag("dimension", name)
+                .description("Payments for new keys that were not tracked because the store was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a payment for a key and returns the key's features including that payment.
+     *
+     * @param key the customer or merchant ID
+     * @param amount the payment amount
+     * @param nowMillis the current time in epoch millis
+     * @return the key's payment counts and amounts over each window
+     */
+    public VelocityFeatures record(String key, double amount, long nowMillis) {
+        long minute = nowMillis / MINUTE_MILLIS;
+        long amountMinor = VelocityFeatures.toMinorUnits(amount);
+        long[] window = windowFor(key, minute);
+        if (window == null) {
+            rejected.increment();
+            return new VelocityFeatures(1, amountMinor, 1, amountMinor, 1, amountMinor);
+        }
+        add(window, minute, amountMinor);
+        return features(window, minute, fractionElapsed(nowMillis));
+    }
+
+    /**
+     * Returns a key's features without recording a payment.
+     *
+     * @param key the customer or merchant ID
+     * @param nowMillis the current time in epoch millis
+     * @return the key's payment counts and amounts over each window
+     */
+    public VelocityFeatures features(String key, long nowMillis) {
+        long[] window = stripes[stripeIndex(key)].get(key);
+        return window != null ? features(window, nowMillis / MINUTE_MILLIS, fractionElapsed(nowMillis))
+                : VelocityFeatures.EMPTY;
+    }
+
+    /**
+     * Drops the windows of keys that have had no payment for the idle timeout.
+     *
+     * @param nowMillis the current time in epoch millis
+     * @return the number of keys evicted
+     */
+    public int evictIdle(long nowMillis) {
+        long minute = nowMillis / MINUTE_MILLIS;
+        int count = 0;
+        for (ConcurrentHashMap<String, long[]> stripe : stripes) {
+            count += evictIdle(stripe, minute);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of keys currently tracked.
+     */
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, long[]> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private long[] windowFor(String key, long minute) {
+        int index = stripeIndex(key);
+        ConcurrentHashMap<String, long[]> stripe = stripes[index];
+        long[] window = stripe.get(key);
+        if (window != null) {
+            return window;
+        }
+        if (stripe.size() >= maxKeysPerStripe) {
+            // Scanning the stripe again within the minute could not find a key that has become idle
+            if (scannedMinutes.getAndSet(index, minute) != minute) {
+                evictIdle(stripe, minute);
+            }
+            if (stripe.size() >= maxKeysPerStripe) {
+                return null;
+            }
+        }
+        return stripe.computeIfAbsent(key, k -> {
+            long[] created = new long[WINDOW_CELLS];
+            created[LAST_MINUTE] = minute;
+            return created;
+        });
+    }
+
+    private int evictIdle(ConcurrentHashMap<String, long[]> stripe, long minute) {
+        int removed = 0;
+        for (Map.Entry<String, long[]> entry : stripe.entrySet()) {
+            if (minute - (long) CELLS.getAcquire(entry.getValue(), LAST_MINUTE) > idleMinutes
+                    && stripe.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        evicted.increment(removed);
+        return removed;
+    }
+
+    private int stripeIndex(String key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    private static double fractionElapsed(long nowMillis) {
+        return (double) (nowMillis % MINUTE_MILLIS) / MINUTE_MILLIS;
+    }
+
+    private static void add(long[] window, long minute, long amountMinor) {
+        long period = minute / PERIOD_MINUTES;
+        int minuteCell = MINUTE_CELLS + (int) (minute % MINUTE_BUCKETS) * 2;
+        int periodCell = PERIOD_CELLS + (int) (period % PERIOD_BUCKETS) * 2;
+        add(window, minuteCell, minute & TAG_MASK, 1);
+        add(window, minuteCell + 1, minute & TAG_MASK, amountMinor);
+        add(window, periodCell, period & TAG_MASK, 1);
+        add(window, periodCell + 1, period & TAG_MASK, amountMinor);
+        if (minute > (long) CELLS.getAcquire(window, LAST_MINUTE)) {
+            CELLS.setRelease(window, LAST_MINUTE, minute);
+        }
+    }
+
+    private static void add(long[] window, int cell, long tag, long delta) {
+        long current;
+        long next;
+        do {
+            current = (long) CELLS.getVolatile(window, cell);
+            long value = (current >>> VALUE_BITS) == tag ? current & VALUE_MASK : 0;
+            next = (tag << VALUE_BITS) | Math.min(VALUE_MASK, value + delta);
+        } while (!CELLS.compareAndSet(window, cell, current, next));
+    }
+
+    private static VelocityFeatures features(long[] window, long minute, double fractionElapsed) {
+        if (minute - (long) CELLS.getAcquire(window, LAST_MINUTE) >= HISTORY_MINUTES) {
+            return VelocityFeatures.EMPTY;
+        }
+
+        // 1- and 5-minute windows from the one-minute buckets, walking back from the current slot
+        double count1m = 0, amount1m = 0, count5m = 0, amount5m = 0;
+        int minuteSlot = (int) (minute % MINUTE_BUCKETS);
+        for (int age = 0; age < MINUTE_BUCKETS; age++) {
+            int slot = minuteSlot >= age ? minuteSlot - age : minuteSlot - age + MINUTE_BUCKETS;
+            int cell = MINUTE_CELLS + slot * 2;
+            long tag = (minute - age) & TAG_MASK;
+            long count = value(window, cell, tag);
+            if (count == 0) {
+                continue;
+            }
+            long amount = value(window, cell + 1, tag);
+            double weight1m = weight(age, 1, fractionElapsed);
+            double weight5m = weight(age, 5, fractionElapsed);
+            count1m += count * weight1m;
+            amount1m += amount * weight1m;
+            count5m += count * weight5m;
+            amount5m += amount * weight5m;
+        }
+
+        // 60-minute window from the five-minute buckets
+        long period = minute / PERIOD_MINUTES;
+        double periodElapsed = (minute % PERIOD_MINUTES + fractionElapsed) / PERIOD_MINUTES;
+        double count60m = 0, amount60m = 0;
+        int periodSlot = (int) (period % PERIOD_BUCKETS);
+        for (int age = 0; age < PERIOD_BUCKETS; age++) {
+            int slot = periodSlot >= age ? periodSlot - age : periodSlot - age + PERIOD_BUCKETS;
+            int cell = PERIOD_CELLS + slot * 2;
+            long tag = (period - age) & TAG_MASK;
+            long count = value(window, cell, tag);
+            if (count == 0) {
+                continue;
+            }
+            double weight60m = weight(age, PERIOD_BUCKETS - 1, periodElapsed);
+            count60m += count * weight60m;
+            amount60m += value(window, cell + 1, tag) * weight60m;
+        }
+
+        return new VelocityFeatures(Math.round(count1m), Math.round(amount1m),
+                Math.round(count5m), Math.round(amount5m),
+                Math.round(count60m), Math.round(amount60m));
+    }
+
+    private static long value(long[] window, int cell, long tag) {
+        long value = (long) CELLS.getAcquire(window, cell);
+        return (value >>> VALUE_BITS) == tag ? value & VALUE_MASK : 0;
+    }
+
+    /**
+     * Weight of a bucket in a window of the given number of buckets: buckets inside the window count
+     * fully, the bucket just past it counts for the part of it still inside the window.
+     */
+    private static double weight(int age, int windowBuckets, double fractionElapsed) {
+        return age < windowBuckets ? 1 : age == windowBuckets ? 1 - fractionElapsed : 0;
+    }
+}
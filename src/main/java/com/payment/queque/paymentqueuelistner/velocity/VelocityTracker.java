@@ -0,0 +1,110 @@
+package com.payment.queque.paymentqueuelistner.velocity;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tracks payment velocity per customer and per merchant in two {@link VelocityStore}s.
+ * Every enriched payment is recorded once; the returned features include the payment itself.
+ * Idle keys are evicted on a schedule so memory stays bounded by the configured key limits.
+ *
+ * Amounts in different currencies cannot be added up, so the windows are kept per customer and
+ * currency and per merchant and currency, and a payment's features cover the payments in its own
+ * currency. The IDs of the payments recorded in the last hour are remembered, up to
+ * {@code dedup.max-ids} of them, so a payment enriched again after a failed save or a redelivery
+ * reads its features without being counted twice.
+ *
+ * The stores live in this process only, so with several instances each one sees the share of a
+ * customer's payments that it enriched.
+ */
+@Component
+@Slf4j
+public class VelocityTracker {
+
+    private final boolean enabled;
+    private final VelocityStore customers;
+    private final VelocityStore merchants;
+    private final Cache<String, Boolean> recordedIds;
+
+    public VelocityTracker(MeterRegistry meterRegistry,
+                           @Value("${app.velocity.enabled:true}") boolean enabled,
+                           @Value("${app.velocity.stripes:64}") int stripes,
+                           @Value("${app.velocity.customer.max-keys:50000}") int maxCustomers,
+                           @Value("${app.velocity.merchant.max-keys:10000}") int maxMerchants,
+                           @Value("${app.velocity.idle-timeout-minutes:65}") long idleMinutes,
+                           @Value("${app.velocity.dedup.max-ids:200000}") long maxRecordedIds) {
+        this.enabled = enabled;
+        this.customers = new VelocityStore("customer", stripes, maxCustomers, idleMinutes, meterRegistry);
+        this.merchants = new VelocityStore("merchant", stripes, maxMerchants, idleMinutes, meterRegistry);
+        // A payment older than the longest window no longer counts, so its ID need not be kept longer
+        this.recordedIds = Caffeine.newBuilder()
+                .maximumSize(maxRecordedIds)
+                .expireAfterWrite(Duration.ofMinutes(VelocityStore.HISTORY_MINUTES))
+                .build();
+    }
+
+    /**
+     * Records a payment against its customer and its merchant and returns their features. A payment
+     * whose ID has already been recorded is not counted again.
+     *
+     * @param paymentData the payment to record
+     * @return the velocity of the payment's customer and merchant; features are empty for a payment
+     *         without a customer, merchant or amount
+     */
+    public PaymentVelocity record(PaymentData paymentData) {
+        if (!enabled || paymentData.getAmount() == null) {
+            return PaymentVelocity.EMPTY;
+        }
+        String customerKey = windowKey(paymentData.getCustomerId(), paymentData.getCurrency());
+        String merchantKey = windowKey(paymentData.getMerchantId(), paymentData.getCurrency());
+        long now = System.currentTimeMillis();
+
+        String id = paymentData.getId();
+        if (id != null && recordedIds.asMap().putIfAbsent(id, Boolean.TRUE) != null) {
+            return new PaymentVelocity(features(customers, customerKey, now), features(merchants, merchantKey, now));
+        }
+        double amount = paymentData.getAmount();
+        return new PaymentVelocity(record(customers, customerKey, amount, now),
+                record(merchants, merchantKey, amount, now));
+    }
+
+    /**
+     * Evicts customers and merchants that have had no payment for the idle timeout.
+     */
+    @Scheduled(fixedDelayString = "${app.velocity.eviction-interval-ms:60000}")
+    public void evictIdleKeys() {
+        long now = System.currentTimeMillis();
+        int evicted = customers.evictIdle(now) + merchants.evictIdle(now);
+        if (evicted > 0) {
+            log.debug("Evicted {} idle velocity keys; tracking {} customers and {} merchants",
+                    evicted, customers.size(), merchants.size());
+        }
+    }
+
+    private static VelocityFeatures record(VelocityStore store, String key, double amount, long now) {
+        return key != null ? store.record(key, amount, now) : VelocityFeatures.EMPTY;
+    }
+
+    private static VelocityFeatures features(VelocityStore store, String key, long now) {
+        return key != null ? store.features(key, now) : VelocityFeatures.EMPTY;
+    }
+
+    /**
+     * @return the store key of a customer or merchant's windows in a currency, or null without an ID
+     */
+    private static String windowKey(String id, String currency) {
+        if (id == null) {
+            return null;
+        }
+        // The unit separator cannot appear in an ID or a currency code
+        return currency != null ? id + '\u001F' + currency : id;
+    }
+}
@@ -0,0 +1,83 @@
+package com.payment.queque.paymentqueuelistner;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Shared harness for the opt-in benchmark tests, which run with {@code -Dbenchmark=true}.
+ * A body is run once to warm it up so it is compiled before it is measured, then once more while
+ * the elapsed time and the bytes allocated by the calling thread are recorded.
+ */
+public final class Benchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Keeps results reachable so the measured work cannot be optimized away
+    private static final Object[] SINK = new Object[1024];
+    private static volatile long sinkTotal;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Warms up and then measures a body that performs {@code iterations} operations.
+     *
+     * @param iterations the number of operations one run of the body performs
+     * @param body the work to measure; it passes its results to {@link #keep}
+     * @return the time and bytes allocated per operation
+     */
+    public static Measurement measure(int iterations, Runnable body) {
+        body.run();
+
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        body.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new Measurement((double) elapsed / iterations, (double) allocated / iterations);
+    }
+
+    /**
+     * Keeps the result of the given operation reachable.
+     */
+    public static void keep(int iteration, Object result) {
+        SINK[iteration & (SINK.length - 1)] = result;
+    }
+
+    /**
+     * Keeps a value computed from the results of a run.
+     */
+    public static void keep(long result) {
+        sinkTotal += result;
+    }
+
+    /**
+     * Prints one line of results, labelled with what was measured.
+     *
+     * @param label what was measured
+     * @param measurement the measurement
+     * @param unit the operation a measurement is per, such as {@code item}
+     */
+    public static void report(String label, Measurement measurement, String unit) {
+        System.out.printf("%-24s %8.1f ns/%s %8.2f bytes/%s%n",
+                label, measurement.nanos(), unit, measurement.bytes(), unit);
+    }
+
+    /**
+     * Prints one line with a size, labelled with what was measured.
+     *
+     * @param label what was measured
+     * @param bytes the size in bytes per unit
+     * @param unit what the size is per, such as {@code item}
+     */
+    public static void reportSize(String label, double bytes, String unit) {
+        System.out.printf("%-24s %8.1f bytes/%s%n", label, bytes, unit);
+    }
+
+    /**
+     * The time in nanoseconds and the bytes allocated per operation.
+     */
+    public record Measurement(double nanos, double bytes) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.payment.queque.paymentqueuelistner;
+
+import com.payment.queque.paymentqueuelistner.repository.InMemoryPaymentRepository;
+import com.payment.queque.paymentqueuelistner.repository.PaymentRepository;
+import com.payment.queque.paymentqueuelistner.repository.PaymentSpillReplayer;
+import com.payment.queque.paymentqueuelistner.repository.PaymentWriteBuffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "app.storage.backend=memory")
+class MemoryStorageBackendTests {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void contextLoads_ShouldNotCreateDynamoDbBeans() {
+        // Assert
+        assertInstanceOf(InMemoryPaymentRepository.class, context.getBean(PaymentRepository.class));
+        assertNotNull(context.getBean(PaymentSpillReplayer.class));
+        assertTrue(context.getBeansOfType(DynamoDbClient.class).isEmpty());
+        assertTrue(context.getBeansOfType(PaymentWriteBuffer.class).isEmpty());
+    }
+}
@@ -0,0 +1,143 @@
+package com.payment.queque.paymentqueuelistner.dispatch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedSerialExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KeyedSerialExecutor executor;
+    private List<String> started;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new KeyedSerialExecutor(meterRegistry, true, KeyedSerialExecutor.OrderingKey.CUSTOMER_ID, 64, 50);
+        started = new ArrayList<>();
+    }
+
+    @Test
+    void submit_ShouldRunSameKeyInArrivalOrder() {
+        // Setup
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        executor.submit("CUST-1", task("first", first));
+        CompletableFuture<Void> secondResult = executor.submit("CUST-1", task("second", second));
+        executor.submit("CUST-1", task("third", CompletableFuture.completedFuture(null)));
+
+        // Act & Assert
+        assertEquals(List.of("first"), started);
+        assertEquals(3.0, meterRegistry.get("payment.ordering.stripe.depth.max").gauge().value());
+        first.complete(null);
+        assertEquals(List.of("first", "second"), started);
+        second.complete(null);
+        assertTrue(secondResult.isDone());
+        assertEquals(List.of("first", "second", "third"), started);
+        assertEquals(0.0, meterRegistry.get("payment.ordering.stripes.busy").gauge().value());
+    }
+
+    @Test
+    void submit_ShouldRunDifferentKeysInParallel() {
+        // Act
+        executor.submit("CUST-1", task("a", new CompletableFuture<>()));
+        executor.submit("CUST-2", task("b", new CompletableFuture<>()));
+        executor.submit((String) null, task("c", new CompletableFuture<>()));
+
+        // Assert
+        assertEquals(List.of("a", "b", "c"), started);
+    }
+
+    @Test
+    void submit_ShouldContinueAfterFailedTask() {
+        // Act
+        CompletableFuture<Void> failed = executor.submit("CUST-1",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+        CompletableFuture<Void> next = executor.submit("CUST-1", task("next", CompletableFuture.completedFuture(null)));
+
+        // Assert
+        assertTrue(failed.isCompletedExceptionally());
+        assertTrue(next.isDone());
+        assertEquals(List.of("next"), started);
+    }
+
+    @Test
+    void submit_ShouldDrainLongBacklogWithoutRecursion() {
+        // Setup - hold the stripe while a long backlog of immediately completing tasks builds up
+        CompletableFuture<Void> blocker = new CompletableFuture<>();
+        executor.submit("CUST-1", task("blocker", blocker));
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 50_000; i++) {
+            last = executor.submit("CUST-1", () -> CompletableFuture.completedFuture(null));
+        }
+
+        // Act
+        blocker.complete(null);
+
+        // Assert
+        assertTrue(last.isDone());
+    }
+
+    @Test
+    void submit_ShouldReportAHotStripeOnceUntilItDrains() {
+        // Setup
+        executor = new KeyedSerialExecutor(meterRegistry, true, KeyedSerialExecutor.OrderingKey.CUSTOMER_ID, 64, 4);
+        CompletableFuture<Void> blocker = new CompletableFuture<>();
+        executor.submit("CUST-1", task("blocker", blocker));
+
+        // Act - back the stripe up well beyond the threshold, drain it, then back it up again
+        for (int i = 0; i < 20; i++) {
+            executor.submit("CUST-1", () -> CompletableFuture.completedFuture(null));
+        }
+        double whileBackedUp = meterRegistry.get("payment.ordering.stripes.hot").counter().count();
+        blocker.complete(null);
+        CompletableFuture<Void> secondBlocker = new CompletableFuture<>();
+        executor.submit("CUST-1", task("second", secondBlocker));
+        for (int i = 0; i < 5; i++) {
+            executor.submit("CUST-1", () -> CompletableFuture.completedFuture(null));
+        }
+
+        // Assert
+        assertEquals(1, whileBackedUp);
+        assertEquals(2, meterRegistry.get("payment.ordering.stripes.hot").counter().count());
+    }
+
+    @Test
+    void submit_ShouldHoldBackKeysSharingAStripeWithABusyKey() {
+        // Setup - find another key that hashes onto the same stripe as CUST-1
+        int stripe = executor.stripeIndex("CUST-1");
+        String neighbour = "CUST-2";
+        for (int i = 3; executor.stripeIndex(neighbour) != stripe; i++) {
+            neighbour = "CUST-" + i;
+        }
+        CompletableFuture<Void> blocker = new CompletableFuture<>();
+        executor.submit("CUST-1", task("blocker", blocker));
+
+        // Act
+        executor.submit(neighbour, task("neighbour", CompletableFuture.completedFuture(null)));
+        executor.submit("CUST-1", task("second", CompletableFuture.completedFuture(null)));
+
+        // Assert
+        assertEquals(List.of("blocker"), started);
+        assertEquals(Set.of(neighbour, "CUST-1"), executor.queuedKeys(stripe, 5));
+        assertEquals(Set.of(neighbour), executor.queuedKeys(stripe, 1));
+        blocker.complete(null);
+        assertEquals(List.of("blocker", "neighbour", "second"), started);
+        assertTrue(executor.queuedKeys(stripe, 5).isEmpty());
+    }
+
+    private Supplier<CompletableFuture<Void>> task(String name, CompletableFuture<Void> future) {
+        return () -> {
+            started.add(name);
+            return future;
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.payment.queque.paymentqueuelistner.dispatch;
+
+import com.payment.queque.paymentqueuelistner.config.SqsQueueProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.rules.RuleEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentLaneDispatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path rulesFile;
+    private RuleEngine ruleEngine;
+    private PaymentLaneClassifier classifier;
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentLaneDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rulesFile = tempDir.resolve("rules.json");
+        Files.copy(getClass().getResourceAsStream("/rules/payment-rules.json"), rulesFile);
+        ruleEngine = new RuleEngine(new DefaultResourceLoader(), new ObjectMapper(), rulesFile.toUri().toString());
+        classifier = new PaymentLaneClassifier(ruleEngine, List.of("VIP", "BIZ"));
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new PaymentLaneDispatcher(classifier, new SqsQueueProperties(), meterRegistry, 1, 1);
+    }
+
+    @Test
+    void classify_ShouldRouteHighValueAndVipPaymentsToPriorityLane() {
+        // Act & Assert
+        assertEquals(PaymentLane.PRIORITY, classifier.classify(payment(5000.0, "CUST-1")));
+        assertEquals(PaymentLane.PRIORITY, classifier.classify(payment(10.0, "VIP-7")));
+        assertEquals(PaymentLane.PRIORITY, classifier.classify(payment(10.0, "BIZ-3")));
+        assertEquals(PaymentLane.BULK, classifier.classify(payment(1000.0, "CUST-1")));
+        assertEquals(PaymentLane.BULK, classifier.classify(payment(10.0, null)));
+    }
+
+    @Test
+    void classify_ShouldFollowTheHighRiskBoundaryOfReloadedRules() throws Exception {
+        // Setup
+        Files.writeString(rulesFile, """
+                {
+                  "risk": { "defaultResult": "LOW", "rules": [ { "minAmount": 200, "result": "HIGH" } ] },
+                  "fraud": { "defaultResult": "CLEAR", "rules": [] }
+                }
+                """);
+
+        // Act
+        ruleEngine.reload();
+
+        // Assert
+        assertEquals(PaymentLane.PRIORITY, classifier.classify(payment(500.0, "CUST-1")));
+        assertEquals(PaymentLane.BULK, classifier.classify(payment(200.0, "CUST-1")));
+    }
+
+    @Test
+    void submit_ShouldRunPriorityPaymentsWhileBulkLaneIsSaturated() {
+        // Setup - occupy the only bulk slot and queue another bulk payment behind it
+        CompletableFuture<Void> bulkRunning = new CompletableFuture<>();
+        dispatcher.submit(payment(10.0, "CUST-1"), "queue1", () -> Long.MAX_VALUE, () -> bulkRunning);
+        CompletableFuture<String> bulkQueued = dispatcher.submit(payment(20.0, "CUST-2"), "queue1", () -> Long.MAX_VALUE,
+                () -> CompletableFuture.completedFuture("bulk"));
+
+        // Act
+        CompletableFuture<String> priority = dispatcher.submit(payment(10.0, "VIP-1"), "queue1", () -> Long.MAX_VALUE,
+                () -> CompletableFuture.completedFuture("priority"));
+
+        // Assert
+        assertEquals("priority", priority.join());
+        assertFalse(bulkQueued.isDone());
+        bulkRunning.complete(null);
+        assertEquals("bulk", bulkQueued.join());
+        assertEquals(1, meterRegistry.get("payment.lane.latency").tag("lane", "priority").timer().count());
+        assertEquals(2, meterRegistry.get("payment.lane.latency").tag("lane", "bulk").timer().count());
+    }
+
+    @Test
+    void submit_ShouldSendEveryPaymentFromADedicatedQueueToItsLane() {
+        // Setup - a priority queue with its own container, and the only bulk slot occupied
+        SqsQueueProperties queueProperties = new SqsQueueProperties();
+        SqsQueueProperties.QueueDefinition priorityQueue = new SqsQueueProperties.QueueDefinition();
+        priorityQueue.setSource("priority");
+        priorityQueue.setLane(PaymentLane.PRIORITY);
+        queueProperties.getQueues().add(priorityQueue);
+        dispatcher = new PaymentLaneDispatcher(classifier, queueProperties, meterRegistry, 1, 1);
+        dispatcher.submit(payment(10.0, "CUST-1"), "queue1", () -> Long.MAX_VALUE, CompletableFuture::new);
+
+        // Act
+        CompletableFuture<String> dedicated = dispatcher.submit(payment(10.0, "CUST-2"), "priority", () -> Long.MAX_VALUE,
+                () -> CompletableFuture.completedFuture("priority"));
+
+        // Assert
+        assertEquals("priority", dedicated.join());
+        assertEquals(1, meterRegistry.get("payment.lane.latency").tag("lane", "priority").timer().count());
+    }
+
+    private static PaymentData payment(double amount, String customerId) {
+        PaymentData paymentData = new PaymentData();
+        paymentData.setAmount(amount);
+        paymentData.setCustomerId(customerId);
+        return paymentData;
+    }
+}
@@ -0,0 +1,140 @@
+package com.payment.queque.paymentqueuelistner.dispatch;
+
+import com.payment.queque.paymentqueuelistner.config.SqsQueueProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedFairSchedulerTest {
+
+    private WeightedFairScheduler scheduler;
+    private List<String> startOrder;
+    private List<CompletableFuture<Void>> running;
+
+    @BeforeEach
+    void setUp() {
+        SqsQueueProperties properties = new SqsQueueProperties();
+        properties.getQueues().add(queue("queue1", 2));
+        properties.getQueues().add(queue("queue2", 1));
+
+        scheduler = new WeightedFairScheduler("bulk", properties, new SimpleMeterRegistry(), 1);
+        startOrder = new ArrayList<>();
+        running = new ArrayList<>();
+    }
+
+    @Test
+    void submit_ShouldInterleaveLanesByWeight() {
+        // Setup - a flood on queue1 submitted before queue2's messages
+        for (int i = 0; i < 6; i++) {
+            submit("queue1");
+        }
+        for (int i = 0; i < 3; i++) {
+            submit("queue2");
+        }
+
+        // Act - complete tasks one at a time so the scheduler picks each next task
+        while (!running.isEmpty()) {
+            running.remove(0).complete(null);
+        }
+
+        // Assert
+        assertEquals(List.of("queue1", "queue1", "queue2", "queue1", "queue1", "queue2", "queue1", "queue1", "queue2"),
+                startOrder);
+    }
+
+    @Test
+    void submit_ShouldNotExceedMaxConcurrency() {
+        // Act
+        CompletableFuture<Void> first = submit("queue1");
+        submit("queue2");
+
+        // Assert
+        assertEquals(List.of("queue1"), startOrder);
+        running.remove(0).complete(null);
+        assertTrue(first.isDone());
+        assertEquals(List.of("queue1", "queue2"), startOrder);
+    }
+
+    @Test
+    void submit_ShouldPropagateTaskFailure() {
+        // Act
+        CompletableFuture<Object> result = scheduler.submit("queue3",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+
+        // Assert
+        assertTrue(result.isCompletedExceptionally());
+        CompletableFuture<Void> next = submit("queue1");
+        assertFalse(next.isDone());
+        assertEquals(List.of("queue1"), startOrder);
+    }
+
+    @Test
+    void submit_ShouldStartEarliestDeadlineFirstWithinLane() {
+        // Setup - occupy the only slot, then queue tasks with out-of-order deadlines
+        submit("queue1");
+        List<Long> deadlines = new ArrayList<>();
+        for (long deadline : new long[] {3000L, 1000L, 2000L}) {
+            scheduler.submit("queue1", deadline, () -> {
+                deadlines.add(deadline);
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                running.add(future);
+                return future;
+            });
+        }
+
+        // Act
+        while (!running.isEmpty()) {
+            running.remove(0).complete(null);
+        }
+
+        // Assert
+        assertEquals(List.of(1000L, 2000L, 3000L), deadlines);
+    }
+
+    @Test
+    void submit_ShouldRequeueATaskWhoseDeadlineMovedWhileWaiting() {
+        // Setup - occupy the only slot, then queue a task whose deadline is extended while it waits
+        submit("queue1");
+        List<String> started = new ArrayList<>();
+        long[] extended = {1000L};
+        for (String task : new String[] {"extended", "next"}) {
+            scheduler.submit("queue1", task.equals("extended") ? () -> extended[0] : () -> 2000L, () -> {
+                started.add(task);
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                running.add(future);
+                return future;
+            });
+        }
+        extended[0] = 31_000L;
+
+        // Act
+        while (!running.isEmpty()) {
+            running.remove(0).complete(null);
+        }
+
+        // Assert
+        assertEquals(List.of("next", "extended"), started);
+    }
+
+    private CompletableFuture<Void> submit(String lane) {
+        return scheduler.submit(lane, () -> {
+            startOrder.add(lane);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            running.add(future);
+            return future;
+        });
+    }
+
+    private static SqsQueueProperties.QueueDefinition queue(String source, int weight) {
+        SqsQueueProperties.QueueDefinition queue = new SqsQueueProperties.QueueDefinition();
+        queue.setSource(source);
+        queue.setWeight(weight);
+        return queue;
+    }
+}
@@ -0,0 +1,173 @@
+package com.payment.queque.paymentqueuelistner.enrichment;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrichmentPipelineTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void enrich_ShouldPassUpstreamOutputsToDependentSteps() throws Exception {
+        // Setup - registered out of dependency order
+        EnrichmentPipeline pipeline = new EnrichmentPipeline(List.of(
+                step("tier", Set.of("segment"), Set.of("tier"), 0, inputs -> Map.of("tier", inputs.get("segment") + "-GOLD")),
+                step("segment", Set.of(), Set.of("segment"), 0, inputs -> Map.of("segment", "VIP"))),
+                executor, 1000);
+        EnrichedPaymentData enrichedData = new EnrichedPaymentData();
+
+        // Act
+        pipeline.enrich(new PaymentData(), enrichedData);
+
+        // Assert
+        assertEquals("VIP-GOLD", enrichedData.getAdditionalData().get("tier"));
+        assertEquals("COMPLETED", enrichedData.getProcessingStatus());
+    }
+
+    @Test
+    void enrich_ShouldRunIndependentStepsInParallel() throws Exception {
+        // Setup
+        EnrichmentPipeline pipeline = new EnrichmentPipeline(List.of(
+                step(EnrichmentPipeline.RISK_SCORE, Set.of(), Set.of(EnrichmentPipeline.RISK_SCORE), 100,
+                        inputs -> Map.of(EnrichmentPipeline.RISK_SCORE, "LOW")),
+                step(EnrichmentPipeline.FRAUD_STATUS, Set.of(), Set.of(EnrichmentPipeline.FRAUD_STATUS), 100,
+                        inputs -> Map.of(EnrichmentPipeline.FRAUD_STATUS, "CLEAR")),
+                step("channel", Set.of(), Set.of("paymentChannel"), 100, inputs -> Map.of("paymentChannel", "CARD"))),
+                executor, 1000);
+        EnrichedPaymentData enrichedData = new EnrichedPaymentData();
+
+        // Act
+        long start = System.nanoTime();
+        pipeline.enrich(new PaymentData(), enrichedData);
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // Assert
+        assertTrue(elapsedMs < 250, "took " + elapsedMs + "ms");
+        assertEquals("LOW", enrichedData.getRiskScore());
+        assertEquals("CLEAR", enrichedData.getFraudStatus());
+        assertEquals("CARD", enrichedData.getAdditionalData().get("paymentChannel"));
+    }
+
+    @Test
+    void enrich_ShouldUseFallbackAndStillRunDependentsWhenStepTimesOut() throws Exception {
+        // Setup
+        EnrichmentPipeline pipeline = new EnrichmentPipeline(List.of(
+                step("segment", Set.of(), Set.of("segment"), 5_000, inputs -> Map.of("segment", "VIP")),
+                step("tier", Set.of("segment"), Set.of("tier"), 0, inputs -> Map.of("tier", inputs.get("segment") + "-GOLD"))),
+                executor, 50);
+        EnrichedPaymentData enrichedData = new EnrichedPaymentData();
+
+        // Act
+        pipeline.enrich(new PaymentData(), enrichedData);
+
+        // Assert
+        assertEquals("PARTIAL", enrichedData.getProcessingStatus());
+        assertEquals("FALLBACK", enrichedData.getAdditionalData().get("segment"));
+        assertEquals("FALLBACK", enrichedData.getAdditionalData().get("tier"));
+        assertEquals("segment,tier", enrichedData.getAdditionalData().get("timedOutSteps"));
+    }
+
+    @Test
+    void enrich_ShouldUseFallbackWhenDependencyIsUnavailable() throws Exception {
+        // Setup
+        EnrichmentPipeline pipeline = new EnrichmentPipeline(List.of(
+                step("segment", Set.of(), Set.of("segment"), 0, inputs -> {
+                    throw new DependencyUnavailableException("segmentService", "circuit open", null);
+                }),
+                step("tier", Set.of("segment"), Set.of("tier"), 0, inputs -> Map.of("tier", inputs.get("segment") + "-GOLD"))),
+                executor, 1000);
+        EnrichedPaymentData enrichedData = new EnrichedPaymentData();
+
+        // Act
+        pipeline.enrich(new PaymentData(), enrichedData);
+
+        // Assert
+        assertEquals("PARTIAL", enrichedData.getProcessingStatus());
+        assertEquals("FALLBACK", enrichedData.getAdditionalData().get("segment"));
+        assertEquals("FALLBACK-GOLD", enrichedData.getAdditionalData().get("tier"));
+        assertEquals("segment", enrichedData.getAdditionalData().get("degradedSteps"));
+        assertNull(enrichedData.getAdditionalData().get("timedOutSteps"));
+    }
+
+    @Test
+    void enrich_ShouldFailWhenStepThrows() {
+        // Setup
+        EnrichmentPipeline pipeline = new EnrichmentPipeline(List.of(
+                step("broken", Set.of(), Set.of("broken"), 0, inputs -> {
+                    throw new IllegalStateException("lookup failed");
+                })), executor, 1000);
+
+        // Act & Assert
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> pipeline.enrich(new PaymentData(), new EnrichedPaymentData()));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void constructor_ShouldRejectCyclesAndMissingInputs() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new EnrichmentPipeline(List.of(
+                step("a", Set.of("b"), Set.of("a"), 0, inputs -> Map.of()),
+                step("b", Set.of("a"), Set.of("b"), 0, inputs -> Map.of())), executor, 1000));
+        assertThrows(IllegalStateException.class, () -> new EnrichmentPipeline(List.of(
+                step("a", Set.of("missing"), Set.of("a"), 0, inputs -> Map.of())), executor, 1000));
+        assertThrows(IllegalStateException.class, () -> new EnrichmentPipeline(List.of(
+                step("a", Set.of(), Set.of("same"), 0, inputs -> Map.of()),
+                step("b", Set.of(), Set.of("same"), 0, inputs -> Map.of())), executor, 1000));
+    }
+
+    private static EnrichmentStep step(String name, Set<String> inputs, Set<String> outputs, long sleepMs,
+                                       Function<Map<String, String>, Map<String, String>> body) {
+        return new EnrichmentStep() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Set<String> inputs() {
+                return inputs;
+            }
+
+            @Override
+            public Set<String> outputs() {
+                return outputs;
+            }
+
+            @Override
+            public Duration timeout() {
+                return Duration.ofSeconds(10);
+            }
+
+            @Override
+            public Map<String, String> enrich(PaymentData paymentData, Map<String, String> values) throws Exception {
+                Thread.sleep(sleepMs);
+                return body.apply(values);
+            }
+
+            @Override
+            public Map<String, String> fallback() {
+                return Map.of(outputs.iterator().next(), "FALLBACK");
+            }
+        };
+    }
+}
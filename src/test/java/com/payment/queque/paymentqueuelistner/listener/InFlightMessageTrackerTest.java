@@ -0,0 +1,119 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InFlightMessageTrackerTest {
+
+    @Mock
+    private SqsAsyncClient sqsAsyncClient;
+
+    private InFlightMessageTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new InFlightMessageTracker(sqsAsyncClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tracker, "visibilityTimeoutSeconds", 30);
+        ReflectionTestUtils.setField(tracker, "heartbeatEnabled", true);
+        ReflectionTestUtils.setField(tracker, "extendWithinSeconds", 10);
+        ReflectionTestUtils.setField(tracker, "maxInFlightSeconds", 900);
+    }
+
+    @Test
+    void track_ShouldReturnVisibilityDeadline() {
+        // Setup
+        Instant receivedAt = Instant.now();
+
+        // Act
+        long deadline = tracker.track(message("queue1", receivedAt));
+
+        // Assert
+        assertEquals(receivedAt.toEpochMilli() + 30_000L, deadline);
+    }
+
+    @Test
+    void extendExpiringMessages_ShouldExtendOnlyExpiringMessagesInBatches() {
+        // Setup - 12 messages about to expire and one freshly received
+        when(sqsAsyncClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(ChangeMessageVisibilityBatchResponse.builder().build()));
+        Instant expiring = Instant.now().minusSeconds(25);
+        for (int i = 0; i < 12; i++) {
+            tracker.track(message("queue1", expiring));
+        }
+        tracker.track(message("queue1", Instant.now()));
+
+        // Act
+        tracker.extendExpiringMessages();
+
+        // Assert
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> captor =
+                ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqsAsyncClient, times(2)).changeMessageVisibilityBatch(captor.capture());
+        List<ChangeMessageVisibilityBatchRequest> requests = captor.getAllValues();
+        assertEquals(12, requests.stream().mapToInt(request -> request.entries().size()).sum());
+        assertTrue(requests.stream().allMatch(request -> request.entries().size() <= 10));
+    }
+
+    @Test
+    void extendExpiringMessages_ShouldMoveTheDeadlineOfExtendedMessages() {
+        // Setup
+        when(sqsAsyncClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(ChangeMessageVisibilityBatchResponse.builder()
+                        .successful(ChangeMessageVisibilityBatchResultEntry.builder().id("0").build())
+                        .build()));
+        Message<String> message = message("queue1", Instant.now().minusSeconds(25));
+        long trackedDeadline = tracker.track(message);
+
+        // Act
+        tracker.extendExpiringMessages();
+
+        // Assert
+        assertTrue(tracker.deadline(message, trackedDeadline) >= trackedDeadline + 25_000L);
+        tracker.untrack(message);
+        assertEquals(trackedDeadline, tracker.deadline(message, trackedDeadline));
+    }
+
+    @Test
+    void extendExpiringMessages_ShouldSkipUntrackedMessages() {
+        // Setup
+        Message<String> message = message("queue1", Instant.now().minusSeconds(25));
+        tracker.track(message);
+        tracker.untrack(message);
+
+        // Act
+        tracker.extendExpiringMessages();
+
+        // Assert
+        verifyNoInteractions(sqsAsyncClient);
+    }
+
+    private static Message<String> message(String queue, Instant receivedAt) {
+        return MessageBuilder.withPayload("{}")
+                .setHeader(SqsHeaders.SQS_QUEUE_URL_HEADER, "https://sqs.us-east-1.amazonaws.com/123456789012/" + queue)
+                .setHeader(SqsHeaders.SQS_RECEIPT_HANDLE_HEADER, "receipt-" + receivedAt.toEpochMilli() + Math.random())
+                .setHeader(SqsHeaders.SQS_RECEIVED_AT_HEADER, receivedAt)
+                .build();
+    }
+}
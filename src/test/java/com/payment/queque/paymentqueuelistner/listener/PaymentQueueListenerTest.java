@@ -0,0 +1,233 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.payment.queque.paymentqueuelistner.config.SqsQueueProperties;
+import com.payment.queque.paymentqueuelistner.dispatch.KeyedSerialExecutor;
+import com.payment.queque.paymentqueuelistner.dispatch.PaymentLaneClassifier;
+import com.payment.queque.paymentqueuelistner.dispatch.PaymentLaneDispatcher;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import com.payment.queque.paymentqueuelistner.model.QuarantinedMessage;
+import com.payment.queque.paymentqueuelistner.rules.RuleEngine;
+import com.payment.queque.paymentqueuelistner.service.PaymentEnrichmentService;
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.awspring.cloud.sqs.listener.Visibility;
+import io.awspring.cloud.sqs.listener.acknowledgement.AcknowledgementCallback;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PaymentQueueListenerTest {
+
+    private static final String VALID_PAYLOAD = "{\"id\":\"PAY-1\",\"transactionId\":\"TXN-1\",\"amount\":100.0,\"currency\":\"USD\"}";
+
+    @Mock
+    private PaymentEnrichmentService paymentEnrichmentService;
+
+    @Mock
+    private QuarantineSink quarantineSink;
+
+    @Mock
+    private AcknowledgementCallback<String> acknowledgementCallback;
+
+    @Mock
+    private Visibility visibility;
+
+    @Mock
+    private InFlightMessageTracker inFlightMessageTracker;
+
+    private DuplicateSuppressionCache duplicateSuppressionCache;
+    private PaymentQueueListener listener;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        RuleEngine ruleEngine = new RuleEngine(new DefaultResourceLoader(), objectMapper, "classpath:rules/payment-rules.json");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PaymentLaneDispatcher laneDispatcher = new PaymentLaneDispatcher(
+                new PaymentLaneClassifier(ruleEngine, List.of("VIP", "BIZ")), new SqsQueueProperties(), meterRegistry, 10, 10);
+
+        duplicateSuppressionCache = new DuplicateSuppressionCache(meterRegistry, true, 1000, 60);
+
+        listener = new PaymentQueueListener(paymentEnrichmentService, new StreamingPaymentDataDecoder(objectMapper),
+                new KeyedSerialExecutor(meterRegistry, true, KeyedSerialExecutor.OrderingKey.CUSTOMER_ID, 16, 50),
+                laneDispatcher, quarantineSink, duplicateSuppressionCache, inFlightMessageTracker, meterRegistry);
+        ReflectionTestUtils.setField(listener, "ackOnCompletion", true);
+        ReflectionTestUtils.setField(listener, "retryVisibilitySeconds", 30);
+        ReflectionTestUtils.setField(listener, "maxReceiveCount", 3);
+
+        when(acknowledgementCallback.onAcknowledge(any(Message.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(visibility.changeToAsync(anyInt())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void processBatch_ShouldAcknowledgeOnlySuccessfulMessages() {
+        // Setup
+        Message<String> succeeding = message(VALID_PAYLOAD, 1);
+        Message<String> failing = message(VALID_PAYLOAD.replace("PAY-1", "PAY-2"), 1);
+        when(paymentEnrichmentService.enrichAndSavePaymentDataAsync(any(PaymentData.class))).thenAnswer(invocation -> {
+            PaymentData paymentData = invocation.getArgument(0);
+            return "PAY-1".equals(paymentData.getId())
+                    ? CompletableFuture.completedFuture(new EnrichedPaymentData())
+                    : CompletableFuture.failedFuture(new RuntimeException("DynamoDB unavailable"));
+        });
+
+        // Act
+        listener.processBatch("queue1", List.of(succeeding, failing)).join();
+
+        // Assert
+        verify(acknowledgementCallback, times(1)).onAcknowledge(succeeding);
+        verify(acknowledgementCallback, never()).onAcknowledge(failing);
+        verify(visibility, times(1)).changeToAsync(30);
+        verify(inFlightMessageTracker, times(1)).untrack(succeeding);
+        verify(inFlightMessageTracker, times(1)).untrack(failing);
+    }
+
+    @Test
+    void processBatch_ShouldStartTheCategoryLookupsOfTheParsedPaymentsTogether() {
+        // Setup
+        when(paymentEnrichmentService.enrichAndSavePaymentDataAsync(any(PaymentData.class)))
+                .thenReturn(CompletableFuture.completedFuture(new EnrichedPaymentData()));
+
+        // Act
+        listener.processBatch("queue1", List.of(message(VALID_PAYLOAD, 1), message("{not json", 1),
+                message(VALID_PAYLOAD.replace("PAY-1", "PAY-2"), 1))).join();
+
+        // Assert
+        ArgumentCaptor<List<PaymentData>> captor = ArgumentCaptor.forClass(List.class);
+        verify(paymentEnrichmentService, times(1)).prefetch(captor.capture());
+        assertEquals(List.of("PAY-1", "PAY-2"), captor.getValue().stream().map(PaymentData::getId).toList());
+        verify(paymentEnrichmentService, times(2)).enrichAndSavePaymentDataAsync(any(PaymentData.class));
+    }
+
+    @Test
+    void processBatch_ShouldQuarantineMalformedPayloadWithoutEnrichment() throws Exception {
+        // Setup
+        Message<String> malformed = message("{not json", 1);
+
+        // Act
+        listener.processBatch("queue1", List.of(malformed)).join();
+
+        // Assert
+        ArgumentCaptor<QuarantinedMessage> captor = ArgumentCaptor.forClass(QuarantinedMessage.class);
+        verify(quarantineSink, times(1)).quarantine(captor.capture());
+        assertEquals("queue1", captor.getValue().getSourceQueue());
+        assertTrue(captor.getValue().getReason().startsWith("Malformed payload"));
+        verify(paymentEnrichmentService, never()).enrichAndSavePaymentDataAsync(any(PaymentData.class));
+        verify(acknowledgementCallback, times(1)).onAcknowledge(malformed);
+    }
+
+    @Test
+    void processBatch_ShouldQuarantineMessageAfterMaxReceives() throws Exception {
+        // Setup
+        Message<String> poison = message(VALID_PAYLOAD, 3);
+        when(paymentEnrichmentService.enrichAndSavePaymentDataAsync(any(PaymentData.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Enrichment failed")));
+
+        // Act
+        listener.processBatch("queue1", List.of(poison)).join();
+
+        // Assert
+        ArgumentCaptor<QuarantinedMessage> captor = ArgumentCaptor.forClass(QuarantinedMessage.class);
+        verify(quarantineSink, times(1)).quarantine(captor.capture());
+        assertEquals(3, captor.getValue().getReceiveCount());
+        verify(acknowledgementCallback, times(1)).onAcknowledge(poison);
+        verify(visibility, never()).changeToAsync(anyInt());
+    }
+
+    @Test
+    void processBatch_ShouldLeaveMessageOnQueueWhenQuarantineFails() throws Exception {
+        // Setup
+        Message<String> malformed = message("[]", 1);
+        doThrow(new IllegalStateException("disk full")).when(quarantineSink).quarantine(any(QuarantinedMessage.class));
+
+        // Act
+        listener.processBatch("queue1", List.of(malformed)).join();
+
+        // Assert
+        verify(acknowledgementCallback, never()).onAcknowledge(any(Message.class));
+        verify(visibility, times(1)).changeToAsync(30);
+    }
+
+    @Test
+    void processBatch_ShouldLeaveMessageOnQueueWhenQuarantineFailsWithoutAckOnCompletion() throws Exception {
+        // Setup
+        ReflectionTestUtils.setField(listener, "ackOnCompletion", false);
+        Message<String> malformed = message("[]", 1);
+        Message<String> valid = message(VALID_PAYLOAD, 1);
+        doThrow(new IllegalStateException("disk full")).when(quarantineSink).quarantine(any(QuarantinedMessage.class));
+        when(paymentEnrichmentService.enrichAndSavePaymentDataAsync(any(PaymentData.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        // Act
+        listener.processBatch("queue1", List.of(malformed, valid)).join();
+
+        // Assert
+        verify(acknowledgementCallback, never()).onAcknowledge(malformed);
+        verify(acknowledgementCallback, times(1)).onAcknowledge(valid);
+        verify(visibility, times(1)).changeToAsync(30);
+    }
+
+    @Test
+    void processBatch_ShouldDropDuplicatePaymentsAfterSuccess() {
+        // Setup
+        Message<String> original = message(VALID_PAYLOAD, 1);
+        Message<String> resent = message(VALID_PAYLOAD, 1);
+        when(paymentEnrichmentService.enrichAndSavePaymentDataAsync(any(PaymentData.class)))
+                .thenReturn(CompletableFuture.completedFuture(new EnrichedPaymentData()));
+
+        // Act
+        listener.processBatch("queue1", List.of(original)).join();
+        listener.processBatch("queue1", List.of(resent)).join();
+
+        // Assert
+        verify(paymentEnrichmentService, times(1)).enrichAndSavePaymentDataAsync(any(PaymentData.class));
+        verify(acknowledgementCallback, times(1)).onAcknowledge(original);
+        verify(acknowledgementCallback, times(1)).onAcknowledge(resent);
+    }
+
+    @Test
+    void processBatch_ShouldReprocessRedeliveryAfterFailure() {
+        // Setup
+        Message<String> message = message(VALID_PAYLOAD, 1);
+        when(paymentEnrichmentService.enrichAndSavePaymentDataAsync(any(PaymentData.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Enrichment failed")))
+                .thenReturn(CompletableFuture.completedFuture(new EnrichedPaymentData()));
+
+        // Act
+        listener.processBatch("queue1", List.of(message)).join();
+        listener.processBatch("queue1", List.of(message)).join();
+
+        // Assert
+        verify(paymentEnrichmentService, times(2)).enrichAndSavePaymentDataAsync(any(PaymentData.class));
+        verify(acknowledgementCallback, times(1)).onAcknowledge(message);
+    }
+
+    private Message<String> message(String payload, int receiveCount) {
+        return MessageBuilder.withPayload(payload)
+                .setHeader("AcknowledgementCallback", acknowledgementCallback)
+                .setHeader(SqsHeaders.SQS_VISIBILITY_TIMEOUT_HEADER, visibility)
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_RECEIVE_COUNT, String.valueOf(receiveCount))
+                .build();
+    }
+}
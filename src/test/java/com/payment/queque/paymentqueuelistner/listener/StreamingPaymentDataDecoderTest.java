@@ -0,0 +1,82 @@
+package com.payment.queque.paymentqueuelistner.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingPaymentDataDecoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final StreamingPaymentDataDecoder decoder = new StreamingPaymentDataDecoder(objectMapper);
+
+    @Test
+    void decode_ShouldMatchObjectMapperResult() throws IOException {
+        // Setup
+        String payload = "{\"id\":\"PAY-1\",\"transactionId\":\"TXN-1\",\"amount\":1250.5,\"currency\":\"USD\","
+                + "\"paymentMethod\":\"CREDIT_CARD\",\"status\":\"COMPLETED\",\"customerId\":\"VIP-1\","
+                + "\"merchantId\":\"RETAIL-9\",\"timestamp\":\"2024-03-01T10:15:30\"}";
+
+        // Act
+        PaymentData result = decoder.decode(payload);
+
+        // Assert - decoded straight into the record that is enriched, with the same payment fields
+        assertInstanceOf(EnrichedPaymentData.class, result);
+        assertEquals(EnrichedPaymentData.of(objectMapper.readValue(payload, PaymentData.class)), result);
+    }
+
+    @Test
+    void decode_ShouldSkipUnknownFields() throws IOException {
+        // Setup
+        String payload = "{\"id\":\"PAY-2\",\"extra\":{\"nested\":[1,2,{\"a\":\"b\"}]},\"processingStatus\":\"UNPROCESSED\","
+                + "\"amount\":\"42.00\",\"timestamp\":[2024,3,1,10,15,30]}";
+
+        // Act
+        PaymentData result = decoder.decode(payload);
+
+        // Assert
+        assertEquals("PAY-2", result.getId());
+        assertEquals(42.0, result.getAmount());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 10, 15, 30), result.getTimestamp());
+    }
+
+    @Test
+    void decode_ShouldInternLowCardinalityValues() throws IOException {
+        // Act
+        PaymentData first = decoder.decode("{\"currency\":\"EUR\",\"paymentMethod\":\"ACH\",\"status\":\"PENDING\"}");
+        PaymentData second = decoder.decode("{\"currency\":\"EUR\",\"paymentMethod\":\"ACH\",\"status\":\"PENDING\"}");
+
+        // Assert
+        assertSame(first.getCurrency(), second.getCurrency());
+        assertSame(first.getPaymentMethod(), second.getPaymentMethod());
+        assertSame(first.getStatus(), second.getStatus());
+    }
+
+    @Test
+    void decode_ShouldRejectMalformedPayloads() {
+        assertThrows(IOException.class, () -> decoder.decode("not json"));
+        assertThrows(IOException.class, () -> decoder.decode("[1,2,3]"));
+        assertThrows(IOException.class, () -> decoder.decode("{\"amount\":\"abc\"}"));
+        assertThrows(IOException.class, () -> decoder.decode("{\"id\":{\"nested\":true}}"));
+    }
+
+    @Test
+    void decode_ShouldRejectOutOfRangeTimestamps() {
+        assertThrows(IOException.class, () -> decoder.decode("{\"timestamp\":[2024,13,1,10,0]}"));
+        assertThrows(IOException.class, () -> decoder.decode("{\"timestamp\":[2024,2,30,10,0]}"));
+    }
+
+    @Test
+    void decode_ShouldRejectNonFiniteAmounts() {
+        assertThrows(IOException.class, () -> decoder.decode("{\"amount\":\"NaN\"}"));
+        assertThrows(IOException.class, () -> decoder.decode("{\"amount\":\"Infinity\"}"));
+        assertThrows(IOException.class, () -> decoder.decode("{\"amount\":\"-Infinity\"}"));
+        assertThrows(IOException.class, () -> decoder.decode("{\"amount\":1e400}"));
+    }
+}
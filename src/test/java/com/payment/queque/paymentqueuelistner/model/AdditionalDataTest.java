@@ -0,0 +1,68 @@
+package com.payment.queque.paymentqueuelistner.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdditionalDataTest {
+
+    @Test
+    void put_ShouldStoreKnownKeysInSlotsAndOthersInOverflow() {
+        // Setup
+        AdditionalData additionalData = new AdditionalData();
+
+        // Act
+        additionalData.put("paymentChannel", "CARD");
+        additionalData.put(AdditionalDataKey.CUSTOMER_CATEGORY, "VIP");
+        additionalData.put("velocity1m", "3");
+
+        // Assert
+        assertEquals(3, additionalData.size());
+        assertEquals("CARD", additionalData.get(AdditionalDataKey.PAYMENT_CHANNEL));
+        assertEquals("VIP", additionalData.get("customerCategory"));
+        assertEquals("3", additionalData.get("velocity1m"));
+        assertFalse(additionalData.containsKey("merchantCategory"));
+        assertEquals(Map.of("paymentChannel", "CARD", "customerCategory", "VIP", "velocity1m", "3"), additionalData);
+        assertEquals(additionalData, new HashMap<>(additionalData));
+    }
+
+    @Test
+    void remove_ShouldClearSlotsAndOverflowEntries() {
+        // Setup
+        AdditionalData additionalData = new AdditionalData(Map.of("timedOutSteps", "a,b", "extra", "x"));
+
+        // Act
+        additionalData.remove("timedOutSteps");
+        additionalData.put("extra", null);
+
+        // Assert
+        assertTrue(additionalData.isEmpty());
+        assertNull(additionalData.get(AdditionalDataKey.TIMED_OUT_STEPS));
+    }
+
+    @Test
+    void entrySet_ShouldIterateAndRemoveEveryEntry() {
+        // Setup
+        AdditionalData additionalData = new AdditionalData();
+        additionalData.put("merchantCategory", "RETAIL");
+        additionalData.put("processingTimestamp", "2026-01-01T00:00");
+        additionalData.put("extra", "x");
+
+        // Act
+        Map<String, String> copy = new HashMap<>();
+        Iterator<Map.Entry<String, String>> iterator = additionalData.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> entry = iterator.next();
+            copy.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+
+        // Assert
+        assertEquals(Map.of("merchantCategory", "RETAIL", "processingTimestamp", "2026-01-01T00:00", "extra", "x"), copy);
+        assertEquals(0, additionalData.size());
+    }
+}
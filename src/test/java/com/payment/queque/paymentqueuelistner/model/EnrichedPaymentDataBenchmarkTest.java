@@ -0,0 +1,90 @@
+package com.payment.queque.paymentqueuelistner.model;
+
+import com.payment.queque.paymentqueuelistner.Benchmark;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the bytes allocated per message to build an enriched record: copying the parsed
+ * payment into a new record with a {@code HashMap} of additional data, against enriching the
+ * decoded record in place with an {@link AdditionalData} map.
+ * Run with {@code mvn test -Dtest=EnrichedPaymentDataBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class EnrichedPaymentDataBenchmarkTest {
+
+    private static final int ITERATIONS = 5_000_000;
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private static final String PROCESSED_AT = TIMESTAMP.toString();
+
+    @Test
+    void build_ShouldAllocateLessPerMessageWhenEnrichingInPlace() {
+        Benchmark.Measurement copying = Benchmark.measure(ITERATIONS, () -> run(this::copyWithHashMap));
+        Benchmark.Measurement inPlace = Benchmark.measure(ITERATIONS, () -> run(this::enrichInPlace));
+
+        Benchmark.report("copy + HashMap", copying, "message");
+        Benchmark.report("in place + slot map", inPlace, "message");
+        assertTrue(inPlace.bytes() < copying.bytes(),
+                "in-place enrichment allocated " + inPlace.bytes() + " bytes vs " + copying.bytes());
+    }
+
+    private static void run(IntFunction<EnrichedPaymentData> build) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            Benchmark.keep(i, build.apply(i));
+        }
+    }
+
+    private EnrichedPaymentData copyWithHashMap(int i) {
+        PaymentData paymentData = decode(new PaymentData());
+        EnrichedPaymentData enrichedData = new EnrichedPaymentData();
+        enrichedData.setId(paymentData.getId());
+        enrichedData.setTransactionId(paymentData.getTransactionId());
+        enrichedData.setAmount(paymentData.getAmount());
+        enrichedData.setCurrency(paymentData.getCurrency());
+        enrichedData.setPaymentMethod(paymentData.getPaymentMethod());
+        enrichedData.setStatus(paymentData.getStatus());
+        enrichedData.setCustomerId(paymentData.getCustomerId());
+        enrichedData.setMerchantId(paymentData.getMerchantId());
+        enrichedData.setTimestamp(paymentData.getTimestamp());
+        enrichedData.setSourceQueue(paymentData.getSourceQueue());
+        return fill(enrichedData, new HashMap<>());
+    }
+
+    private EnrichedPaymentData enrichInPlace(int i) {
+        EnrichedPaymentData enrichedData = EnrichedPaymentData.of(decode(new EnrichedPaymentData()));
+        return fill(enrichedData, new AdditionalData());
+    }
+
+    private static PaymentData decode(PaymentData paymentData) {
+        paymentData.setId("PAY-1");
+        paymentData.setTransactionId("TXN-1");
+        paymentData.setAmount(250.0);
+        paymentData.setCurrency("USD");
+        paymentData.setPaymentMethod("CREDIT_CARD");
+        paymentData.setStatus("PENDING");
+        paymentData.setCustomerId("CUST1");
+        paymentData.setMerchantId("RETAIL1");
+        paymentData.setTimestamp(TIMESTAMP);
+        paymentData.setSourceQueue("queue1");
+        return paymentData;
+    }
+
+    private static EnrichedPaymentData fill(EnrichedPaymentData enrichedData, Map<String, String> additionalData) {
+        additionalData.put("processingTimestamp", PROCESSED_AT);
+        additionalData.put("paymentChannel", EnrichmentValues.CHANNEL_CARD);
+        additionalData.put("customerCategory", EnrichmentValues.CUSTOMER_REGULAR);
+        additionalData.put("merchantCategory", EnrichmentValues.MERCHANT_RETAIL);
+        enrichedData.setAdditionalData(additionalData);
+        enrichedData.setRiskScore("LOW");
+        enrichedData.setFraudStatus("CLEAR");
+        enrichedData.setProcessingStatus(EnrichmentValues.STATUS_COMPLETED);
+        return enrichedData;
+    }
+}
@@ -0,0 +1,90 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.config.ResilienceProperties;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AsyncDynamoDbPaymentRepositoryTest {
+
+    private static final TableSchema<EnrichedPaymentData> SCHEMA = PaymentTableSchema.create();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+    private AsyncDynamoDbPaymentRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbAsyncClient = mock(DynamoDbAsyncClient.class);
+        repository = repository(true);
+    }
+
+    @Test
+    void saveAsync_ShouldCompleteOnlyOnceDynamoDbAcceptsTheItem() {
+        // Setup
+        CompletableFuture<PutItemResponse> response = new CompletableFuture<>();
+        when(dynamoDbAsyncClient.putItem(any(PutItemRequest.class))).thenReturn(response);
+        EnrichedPaymentData record = EnrichedPaymentData.builder().id("PAY1").transactionId("TXN1").build();
+
+        // Act
+        CompletableFuture<EnrichedPaymentData> saved = repository.saveAsync(record);
+
+        // Assert
+        assertFalse(saved.isDone());
+        response.complete(PutItemResponse.builder().build());
+        assertSame(record, saved.join());
+        verify(dynamoDbAsyncClient).putItem(any(PutItemRequest.class));
+    }
+
+    @Test
+    void saveAsync_ShouldFailWhenPutItemFails() {
+        // Setup
+        when(dynamoDbAsyncClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("throttled")));
+        EnrichedPaymentData record = EnrichedPaymentData.builder().id("PAY1").transactionId("TXN1").build();
+
+        // Act & Assert
+        CompletionException e = assertThrows(CompletionException.class, () -> repository.saveAsync(record).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(RuntimeException.class, () -> repository.save(record));
+    }
+
+    @Test
+    void saveAsync_ShouldReturnAFailedFutureWhenPutItemThrowsWithTheGuardDisabled() {
+        // Setup
+        repository = repository(false);
+        when(dynamoDbAsyncClient.putItem(any(PutItemRequest.class))).thenThrow(new IllegalStateException("no client"));
+        EnrichedPaymentData record = EnrichedPaymentData.builder().id("PAY1").transactionId("TXN1").build();
+
+        // Act
+        CompletableFuture<EnrichedPaymentData> saved = repository.saveAsync(record);
+
+        // Assert
+        CompletionException e = assertThrows(CompletionException.class, saved::join);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    private AsyncDynamoDbPaymentRepository repository(boolean guardEnabled) {
+        ResilienceProperties resilience = new ResilienceProperties();
+        resilience.getPaymentStore().setEnabled(guardEnabled);
+        resilience.getPaymentStore().setFallbackOnFailure(false);
+        return new AsyncDynamoDbPaymentRepository(
+                DynamoDbEnhancedAsyncClient.builder().dynamoDbClient(dynamoDbAsyncClient).build().table("payment-data", SCHEMA),
+                new DependencyGuards(resilience, meterRegistry), mock(PaymentBatchReader.class),
+                new PaymentReadCache(meterRegistry, false, 0, 0, 0));
+    }
+}
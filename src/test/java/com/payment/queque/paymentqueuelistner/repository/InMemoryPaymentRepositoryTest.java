@@ -0,0 +1,72 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryPaymentRepositoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryPaymentRepository repository = new InMemoryPaymentRepository(meterRegistry, 8);
+
+    @Test
+    void save_ShouldReplaceThePaymentWithTheSameKey() {
+        // Setup
+        repository.save(record("PAY1", "PENDING"));
+
+        // Act
+        repository.saveAsync(record("PAY1", "COMPLETED")).join();
+
+        // Assert
+        assertEquals("COMPLETED", repository.findById("PAY1", "TXN-PAY1").orElseThrow().getStatus());
+        assertTrue(repository.findById("PAY1", "OTHER").isEmpty());
+        assertEquals(1, repository.size());
+    }
+
+    @Test
+    void save_ShouldKeepEveryPaymentSavedConcurrently() throws Exception {
+        // Setup
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<?>> saves = new ArrayList<>();
+
+        // Act
+        for (int thread = 0; thread < 16; thread++) {
+            int first = thread * 1000;
+            saves.add(executor.submit(() -> {
+                for (int i = first; i < first + 1000; i++) {
+                    repository.save(record("PAY" + i, "COMPLETED"));
+                }
+            }));
+        }
+        for (Future<?> save : saves) {
+            save.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(16_000, repository.size());
+        assertEquals(16_000, meterRegistry.get("payment.store.items").gauge().value());
+        Map<PaymentKey, EnrichedPaymentData> found = repository.findAllByIds(List.of(
+                new PaymentKey("PAY15999", "TXN-PAY15999"), new PaymentKey("PAY0", "TXN-PAY0"),
+                new PaymentKey("PAY0", "TXN-PAY0"), new PaymentKey("PAY16000", "TXN-PAY16000")));
+        assertEquals(List.of(new PaymentKey("PAY15999", "TXN-PAY15999"), new PaymentKey("PAY0", "TXN-PAY0")),
+                List.copyOf(found.keySet()));
+    }
+
+    private static EnrichedPaymentData record(String id, String status) {
+        return EnrichedPaymentData.builder()
+                .id(id)
+                .transactionId("TXN-" + id)
+                .status(status)
+                .build();
+    }
+}
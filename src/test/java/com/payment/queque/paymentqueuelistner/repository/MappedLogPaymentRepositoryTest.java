@@ -0,0 +1,140 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.payment.queque.paymentqueuelistner.model.AdditionalData;
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLogPaymentRepositoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findById_ShouldReadPaymentsBackAfterARestart() throws IOException {
+        // Setup
+        MappedLogPaymentRepository repository = newRepository(4096);
+        EnrichedPaymentData record = record("PAY1", "PENDING");
+        repository.save(record);
+        repository.save(record("PAY2", "COMPLETED"));
+        repository.save(record("PAY1", "COMPLETED"));
+        repository.flush();
+
+        // Act
+        MappedLogPaymentRepository reopened = newRepository(4096);
+
+        // Assert
+        EnrichedPaymentData read = reopened.findById("PAY1", "TXN-PAY1").orElseThrow();
+        record.setStatus("COMPLETED");
+        assertEquals(record, read);
+        assertTrue(reopened.findById("PAY2", "TXN-PAY2").isPresent());
+        assertTrue(reopened.findById("PAY3", "TXN-PAY3").isEmpty());
+    }
+
+    @Test
+    void save_ShouldStartANewSegmentWhenTheCurrentOneIsFull() throws IOException {
+        // Setup
+        MappedLogPaymentRepository repository = newRepository(2048);
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            repository.save(record("PAY" + i, "COMPLETED"));
+        }
+
+        // Assert
+        try (var files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+        MappedLogPaymentRepository reopened = newRepository(2048);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(reopened.findById("PAY" + i, "TXN-PAY" + i).isPresent(), "PAY" + i);
+        }
+        assertEquals(2, reopened.findAllByIds(List.of(
+                new PaymentKey("PAY0", "TXN-PAY0"), new PaymentKey("PAY19", "TXN-PAY19"))).size());
+    }
+
+    @Test
+    void save_ShouldRejectAPaymentWithoutATransactionId() throws IOException {
+        // Setup
+        MappedLogPaymentRepository repository = newRepository(4096);
+        EnrichedPaymentData record = record("PAY1", "PENDING");
+        record.setTransactionId(null);
+
+        // Act
+        RuntimeException e = assertThrows(RuntimeException.class, () -> repository.save(record));
+
+        // Assert
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("transactionId"));
+        repository.save(record("PAY2", "COMPLETED"));
+        assertTrue(newRepository(4096).findById("PAY2", "TXN-PAY2").isPresent());
+    }
+
+    @Test
+    void recover_ShouldIgnoreATornRecordAndOverwriteIt() throws IOException {
+        // Setup - corrupt the payload of the second record, as a crash in the middle of a write would
+        MappedLogPaymentRepository repository = newRepository(4096);
+        repository.save(record("PAY1", "COMPLETED"));
+        repository.save(record("PAY2", "COMPLETED"));
+        repository.flush();
+        Path segment;
+        try (var files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            // The second record starts after the first record's 8-byte header and payload
+            int second = 8 + buffer.getInt(0);
+            buffer.put(second + 20, (byte) ~buffer.get(second + 20));
+            buffer.force();
+        }
+
+        // Act
+        MappedLogPaymentRepository reopened = newRepository(4096);
+        reopened.save(record("PAY3", "COMPLETED"));
+
+        // Assert
+        assertTrue(reopened.findById("PAY1", "TXN-PAY1").isPresent());
+        assertTrue(reopened.findById("PAY2", "TXN-PAY2").isEmpty());
+        assertTrue(newRepository(4096).findById("PAY3", "TXN-PAY3").isPresent());
+    }
+
+    private MappedLogPaymentRepository newRepository(int segmentBytes) throws IOException {
+        return new MappedLogPaymentRepository(objectMapper, new SimpleMeterRegistry(), directory, segmentBytes, true);
+    }
+
+    private static EnrichedPaymentData record(String id, String status) {
+        AdditionalData additionalData = new AdditionalData();
+        additionalData.put(AdditionalDataKey.PAYMENT_CHANNEL, "CARD");
+        return EnrichedPaymentData.builder()
+                .id(id)
+                .transactionId("TXN-" + id)
+                .amount(125.5)
+                .currency("USD")
+                .status(status)
+                .timestamp(LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_456_000))
+                .additionalData(additionalData)
+                .riskScore("LOW")
+                .processingTimeMs(12L)
+                .build();
+    }
+}
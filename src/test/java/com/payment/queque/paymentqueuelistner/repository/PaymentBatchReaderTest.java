@@ -0,0 +1,118 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.paginators.BatchGetItemIterable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PaymentBatchReaderTest {
+
+    private static final String TABLE = "payment-data";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DynamoDbClient dynamoDbClient;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = mock(DynamoDbClient.class);
+        // The enhanced client reads batches through the paginator, which calls batchGetItem per page
+        when(dynamoDbClient.batchGetItemPaginator(any(BatchGetItemRequest.class)))
+                .thenAnswer(invocation -> new BatchGetItemIterable(dynamoDbClient, invocation.getArgument(0)));
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenAnswer(invocation -> found(invocation.getArgument(0), 0));
+    }
+
+    @Test
+    void readAll_ShouldSendAtMostOneHundredKeysPerRequest() {
+        // Setup
+        PaymentBatchReader reader = newReader(3);
+        List<PaymentKey> keys = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            keys.add(new PaymentKey("PAY" + i, "TXN" + i));
+        }
+
+        // Act
+        Map<PaymentKey, EnrichedPaymentData> found = reader.readAll(keys);
+
+        // Assert
+        ArgumentCaptor<BatchGetItemRequest> requests = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(dynamoDbClient, times(3)).batchGetItem(requests.capture());
+        assertEquals(List.of(100, 100, 50), requests.getAllValues().stream()
+                .map(request -> request.requestItems().get(TABLE).keys().size()).toList());
+        assertEquals(250, found.size());
+        assertEquals("TXN7", found.get(new PaymentKey("PAY7", "TXN7")).getTransactionId());
+    }
+
+    @Test
+    void readAll_ShouldRequestUnprocessedKeysAgain() {
+        // Setup - DynamoDB leaves the first key of the first request unprocessed
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenAnswer(invocation -> found(invocation.getArgument(0), 1))
+                .thenAnswer(invocation -> found(invocation.getArgument(0), 0));
+        PaymentBatchReader reader = newReader(3);
+
+        // Act
+        Map<PaymentKey, EnrichedPaymentData> found = reader.readAll(
+                List.of(new PaymentKey("PAY1", "TXN1"), new PaymentKey("PAY2", "TXN2")));
+
+        // Assert
+        assertEquals(2, found.size());
+        ArgumentCaptor<BatchGetItemRequest> requests = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(dynamoDbClient, times(2)).batchGetItem(requests.capture());
+        assertEquals(1, requests.getAllValues().get(1).requestItems().get(TABLE).keys().size());
+        assertEquals(1, meterRegistry.get("payment.store.batch.get.unprocessed").counter().count());
+    }
+
+    @Test
+    void readAll_ShouldFailWhenKeysStayUnprocessed() {
+        // Setup
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenAnswer(invocation -> found(invocation.getArgument(0), 1));
+        PaymentBatchReader reader = newReader(2);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+                () -> reader.readAll(List.of(new PaymentKey("PAY1", "TXN1"))));
+        verify(dynamoDbClient, times(2)).batchGetItem(any(BatchGetItemRequest.class));
+    }
+
+    private PaymentBatchReader newReader(int maxAttempts) {
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        return new PaymentBatchReader(enhancedClient, enhancedClient.table(TABLE, PaymentTableSchema.create()),
+                meterRegistry, maxAttempts, 1, 5);
+    }
+
+    /**
+     * Answers a request with an item for every key, except the first {@code unprocessed} keys.
+     */
+    private static BatchGetItemResponse found(BatchGetItemRequest request, int unprocessed) {
+        List<Map<String, AttributeValue>> keys = request.requestItems().get(TABLE).keys();
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (Map<String, AttributeValue> key : keys.subList(unprocessed, keys.size())) {
+            items.add(Map.of("id", key.get("id"), "transactionId", key.get("transactionId"),
+                    "amount", AttributeValue.fromN("100.0")));
+        }
+        BatchGetItemResponse.Builder response = BatchGetItemResponse.builder().responses(Map.of(TABLE, items));
+        if (unprocessed > 0) {
+            response.unprocessedKeys(Map.of(TABLE, KeysAndAttributes.builder()
+                    .keys(keys.subList(0, unprocessed)).build()));
+        }
+        return response.build();
+    }
+}
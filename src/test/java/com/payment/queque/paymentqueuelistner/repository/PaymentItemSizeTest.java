@@ -0,0 +1,134 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.Benchmark;
+import com.payment.queque.paymentqueuelistner.model.AdditionalData;
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.model.EnrichmentValues;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the average size of enriched payment items in the standard and the compact format,
+ * counted the way DynamoDB bills them: attribute names plus values, with numbers taking one byte
+ * per two significant digits plus one, and maps one byte per entry plus three.
+ * Print the sizes with {@code mvn test -Dtest=PaymentItemSizeTest -Dbenchmark=true}.
+ */
+class PaymentItemSizeTest {
+
+    private static final int RECORDS = 1_000;
+
+    @Test
+    void itemToMap_ShouldWriteSmallerItemsInCompactMode() {
+        // Act
+        double standardAverage = averageItemSize(PaymentTableSchema.create(false));
+        double compactAverage = averageItemSize(PaymentTableSchema.create(true));
+
+        // Assert
+        assertTrue(compactAverage < standardAverage * 0.8,
+                "compact items averaged " + compactAverage + " bytes vs " + standardAverage);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void itemToMap_ShouldReportAverageItemSizeBeforeAndAfterCompaction() {
+        // Act
+        double standardAverage = averageItemSize(PaymentTableSchema.create(false));
+        double compactAverage = averageItemSize(PaymentTableSchema.create(true));
+
+        // Assert
+        Benchmark.reportSize("standard items", standardAverage, "item");
+        Benchmark.reportSize("compact items", compactAverage, "item");
+        Benchmark.reportSize("saved", standardAverage - compactAverage, "item");
+        assertTrue(compactAverage < standardAverage);
+    }
+
+    private static double averageItemSize(TableSchema<EnrichedPaymentData> schema) {
+        long bytes = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            bytes += itemSize(schema.itemToMap(record(i), true));
+        }
+        return (double) bytes / RECORDS;
+    }
+
+    /**
+     * Builds a record the way the enrichment pipeline fills it in.
+     */
+    private static EnrichedPaymentData record(int i) {
+        LocalDateTime timestamp = LocalDateTime.of(2026, 1, 1, 12, 0).plusNanos(i * 7_654_321_000L);
+        AdditionalData additionalData = new AdditionalData();
+        additionalData.put(AdditionalDataKey.PROCESSING_TIMESTAMP, timestamp.plusNanos(41_500_000).toString());
+        additionalData.put(AdditionalDataKey.PAYMENT_CHANNEL, EnrichmentValues.CHANNEL_CARD);
+        additionalData.put(AdditionalDataKey.CUSTOMER_CATEGORY, EnrichmentValues.CUSTOMER_REGULAR);
+        additionalData.put(AdditionalDataKey.MERCHANT_CATEGORY, EnrichmentValues.MERCHANT_RETAIL);
+        additionalData.put(AdditionalDataKey.CUSTOMER_COUNT_1M, String.valueOf(1 + i % 3));
+        additionalData.put(AdditionalDataKey.CUSTOMER_AMOUNT_1M, String.valueOf(100 + i % 900));
+        additionalData.put(AdditionalDataKey.CUSTOMER_COUNT_5M, String.valueOf(1 + i % 5));
+        additionalData.put(AdditionalDataKey.CUSTOMER_AMOUNT_5M, String.valueOf(100 + i % 2400));
+        additionalData.put(AdditionalDataKey.CUSTOMER_COUNT_60M, String.valueOf(1 + i % 11));
+        additionalData.put(AdditionalDataKey.CUSTOMER_AMOUNT_60M, String.valueOf(100 + i % 9000));
+        additionalData.put(AdditionalDataKey.MERCHANT_COUNT_1M, String.valueOf(10 + i % 40));
+        additionalData.put(AdditionalDataKey.MERCHANT_AMOUNT_1M, String.valueOf(5000 + i % 20000));
+        additionalData.put(AdditionalDataKey.MERCHANT_COUNT_5M, String.valueOf(50 + i % 200));
+        additionalData.put(AdditionalDataKey.MERCHANT_AMOUNT_5M, String.valueOf(25000 + i % 100000));
+        additionalData.put(AdditionalDataKey.MERCHANT_COUNT_60M, String.valueOf(600 + i % 2400));
+        additionalData.put(AdditionalDataKey.MERCHANT_AMOUNT_60M, String.valueOf(300000 + i % 1200000));
+        return EnrichedPaymentData.builder()
+                .id("PAY" + (100000 + i))
+                .transactionId("TXN" + (500000 + i))
+                .amount(10.0 + (i % 1000) + 0.99)
+                .currency("USD")
+                .paymentMethod("CREDIT_CARD")
+                .status("PENDING")
+                .customerId("CUST" + (i % 500))
+                .merchantId("RETAIL" + (i % 50))
+                .timestamp(timestamp)
+                .sourceQueue("payment-queue")
+                .enrichmentId("3f2b8c1e-5d4a-4b7e-9a61-" + String.format("%012d", i))
+                .additionalData(additionalData)
+                .riskScore(i % 10 == 0 ? "HIGH" : "LOW")
+                .fraudStatus(EnrichmentValues.FRAUD_CLEAR)
+                .enrichmentTimestamp(timestamp.plusNanos(42_123_456))
+                .processingStatus(EnrichmentValues.STATUS_COMPLETED)
+                .processingTimeMs(40L + i % 20)
+                .build();
+    }
+
+    private static long itemSize(Map<String, AttributeValue> item) {
+        long size = 0;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            size += utf8Length(attribute.getKey()) + valueSize(attribute.getValue());
+        }
+        return size;
+    }
+
+    private static long valueSize(AttributeValue value) {
+        if (value.s() != null) {
+            return utf8Length(value.s());
+        }
+        if (value.n() != null) {
+            BigDecimal number = new BigDecimal(value.n()).stripTrailingZeros();
+            return (number.precision() + 1) / 2 + 1;
+        }
+        if (value.b() != null) {
+            return value.b().asByteArrayUnsafe().length;
+        }
+        if (value.hasM()) {
+            return 3 + value.m().size() + itemSize(value.m());
+        }
+        return 1;
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
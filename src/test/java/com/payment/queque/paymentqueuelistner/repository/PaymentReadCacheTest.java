@@ -0,0 +1,169 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentReadCacheTest {
+
+    private static final PaymentKey FIRST = new PaymentKey("PAY1", "TXN1");
+    private static final PaymentKey SECOND = new PaymentKey("PAY2", "TXN2");
+    private static final PaymentKey MISSING = new PaymentKey("PAY3", "TXN3");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Set<PaymentKey>> loads = new ArrayList<>();
+
+    @Test
+    void getAll_ShouldReadEachDistinctKeyOnceAndServeRepeatsFromTheCache() {
+        // Setup
+        PaymentReadCache cache = newCache(true);
+
+        // Act
+        Map<PaymentKey, EnrichedPaymentData> first = cache.getAll(List.of(SECOND, FIRST, SECOND, MISSING), this::load);
+        Map<PaymentKey, EnrichedPaymentData> second = cache.getAll(List.of(FIRST, MISSING), this::load);
+
+        // Assert
+        assertEquals(List.of(SECOND, FIRST), List.copyOf(first.keySet()));
+        assertEquals(List.of(FIRST), List.copyOf(second.keySet()));
+        assertEquals(List.of(Set.of(FIRST, SECOND, MISSING)), loads);
+        assertEquals(1, meterRegistry.get("payment.store.read.duplicates").counter().count());
+        assertEquals(0.4, meterRegistry.get("payment.store.cache.hit.ratio").gauge().value(), 0.001);
+    }
+
+    @Test
+    void getAll_ShouldStillDropDuplicateKeysWhenDisabled() {
+        // Setup
+        PaymentReadCache cache = newCache(false);
+
+        // Act
+        Map<PaymentKey, EnrichedPaymentData> found = cache.getAll(List.of(FIRST, FIRST, MISSING), this::load);
+        cache.getAll(List.of(FIRST), this::load);
+
+        // Assert
+        assertEquals(Set.of(FIRST), found.keySet());
+        assertEquals(List.of(Set.of(FIRST, MISSING), Set.of(FIRST)), loads);
+    }
+
+    @Test
+    void onSave_ShouldReplaceTheCachedPaymentOnlyOnceTheWriteSucceeds() {
+        // Setup
+        PaymentReadCache cache = newCache(true);
+        AtomicInteger reads = new AtomicInteger();
+        cache.get(FIRST, key -> {
+            reads.incrementAndGet();
+            return Optional.of(payment(key, "PENDING"));
+        });
+        EnrichedPaymentData updated = payment(FIRST, "COMPLETED");
+        CompletableFuture<EnrichedPaymentData> write = new CompletableFuture<>();
+
+        // Act
+        CompletableFuture<EnrichedPaymentData> saved = cache.onSave(updated, write);
+        String beforeWrite = cache.get(FIRST, key -> Optional.empty()).orElseThrow().getStatus();
+        write.complete(updated);
+
+        // Assert
+        assertSame(updated, saved.join());
+        assertEquals("PENDING", beforeWrite);
+        assertEquals("COMPLETED", cache.get(FIRST, key -> Optional.empty()).orElseThrow().getStatus());
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    void onSave_ShouldCacheTheRecordAsItWasWhenTheSaveStarted() {
+        // Setup
+        PaymentReadCache cache = newCache(true);
+        EnrichedPaymentData updated = payment(FIRST, "COMPLETED");
+        CompletableFuture<EnrichedPaymentData> write = new CompletableFuture<>();
+
+        // Act
+        cache.onSave(updated, write);
+        updated.setProcessingTimeMs(42L);
+        write.complete(updated);
+        updated.setStatus("CHANGED");
+
+        // Assert
+        EnrichedPaymentData cached = cache.get(FIRST, key -> Optional.empty()).orElseThrow();
+        assertNotSame(updated, cached);
+        assertEquals("COMPLETED", cached.getStatus());
+        assertNull(cached.getProcessingTimeMs());
+    }
+
+    @Test
+    void getAll_ShouldNotReplaceAPaymentSavedWhileTheKeysWereLoading() {
+        // Setup
+        PaymentReadCache cache = newCache(true);
+        EnrichedPaymentData saved = payment(FIRST, "SAVED");
+
+        // Act
+        Map<PaymentKey, EnrichedPaymentData> found = cache.getAll(List.of(FIRST), keys -> {
+            Map<PaymentKey, EnrichedPaymentData> stale = load(keys);
+            cache.onSave(saved, CompletableFuture.completedFuture(saved));
+            return stale;
+        });
+
+        // Assert
+        assertEquals("COMPLETED", found.get(FIRST).getStatus());
+        assertEquals("SAVED", cache.get(FIRST, key -> Optional.empty()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void getAll_ShouldNotCacheKeysLoadedWhileASaveFailed() {
+        // Setup
+        PaymentReadCache cache = newCache(true);
+        EnrichedPaymentData failed = payment(FIRST, "FAILED");
+
+        // Act
+        cache.getAll(List.of(FIRST), keys -> {
+            Map<PaymentKey, EnrichedPaymentData> stale = load(keys);
+            cache.onSave(failed, CompletableFuture.failedFuture(new IllegalStateException("timed out")));
+            return stale;
+        });
+        Optional<EnrichedPaymentData> reread = cache.get(FIRST, key -> Optional.of(payment(key, "REREAD")));
+
+        // Assert
+        assertEquals("REREAD", reread.orElseThrow().getStatus());
+    }
+
+    @Test
+    void onSave_ShouldEvictThePaymentWhenTheWriteFails() {
+        // Setup
+        PaymentReadCache cache = newCache(true);
+        cache.get(FIRST, key -> Optional.of(payment(key, "PENDING")));
+
+        // Act
+        cache.onSave(payment(FIRST, "COMPLETED"), CompletableFuture.failedFuture(new IllegalStateException("throttled")));
+
+        // Assert
+        assertEquals(Optional.empty(), cache.get(FIRST, key -> Optional.empty()));
+    }
+
+    private PaymentReadCache newCache(boolean enabled) {
+        return new PaymentReadCache(meterRegistry, enabled, 100, 300, 30);
+    }
+
+    private Map<PaymentKey, EnrichedPaymentData> load(Set<PaymentKey> keys) {
+        loads.add(Set.copyOf(keys));
+        Map<PaymentKey, EnrichedPaymentData> found = new HashMap<>();
+        keys.stream().filter(key -> !key.equals(MISSING)).forEach(key -> found.put(key, payment(key, "COMPLETED")));
+        return found;
+    }
+
+    private static EnrichedPaymentData payment(PaymentKey key, String status) {
+        return EnrichedPaymentData.builder()
+                .id(key.id())
+                .transactionId(key.transactionId())
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,153 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.repository.PaymentSpillJournal.SpilledPayment;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentSpillJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void append_ShouldFlushConcurrentSpillsTogether() throws IOException {
+        // Setup
+        PaymentSpillJournal journal = newJournal(1 << 20);
+
+        // Act
+        List<CompletableFuture<EnrichedPaymentData>> spills = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            spills.add(journal.append(record("PAY" + i)));
+        }
+        spills.forEach(CompletableFuture::join);
+
+        // Assert
+        assertEquals(50, journal.pending());
+        assertEquals(50, meterRegistry.get("payment.spill.sync.size").summary().totalAmount());
+        assertTrue(meterRegistry.get("payment.spill.sync.size").summary().count() < 50);
+        List<SpilledPayment> spilled = journal.peek(100);
+        assertEquals(50, spilled.size());
+        assertEquals(record("PAY0"), spilled.get(0).paymentData());
+        assertEquals("PAY49", spilled.get(49).paymentData().getId());
+    }
+
+    @Test
+    void markReplayed_ShouldDeleteReplayedSegmentsAndResumeAfterRestart() throws IOException {
+        // Setup - each segment holds a few records
+        PaymentSpillJournal journal = newJournal(2048);
+        for (int i = 0; i < 20; i++) {
+            journal.append(record("PAY" + i)).join();
+        }
+        long segments = segmentCount();
+
+        // Act
+        journal.markReplayed(journal.peek(12));
+        PaymentSpillJournal reopened = newJournal(2048);
+
+        // Assert
+        assertTrue(segmentCount() < segments);
+        assertEquals(8, reopened.pending());
+        List<SpilledPayment> remaining = reopened.peek(100);
+        assertEquals(8, remaining.size());
+        assertEquals("PAY12", remaining.get(0).paymentData().getId());
+    }
+
+    @Test
+    void markReplayed_ShouldEmptyTheJournalOnceEverythingIsReplayed() throws IOException {
+        // Setup
+        PaymentSpillJournal journal = newJournal(4096);
+        journal.append(record("PAY1")).join();
+        journal.append(record("PAY2")).join();
+
+        // Act
+        journal.markReplayed(journal.peek(10));
+        journal.append(record("PAY3")).join();
+
+        // Assert
+        assertEquals(1, journal.pending());
+        assertEquals(1, segmentCount());
+        assertEquals("PAY3", journal.peek(10).get(0).paymentData().getId());
+        PaymentSpillJournal reopened = newJournal(4096);
+        assertEquals(List.of("PAY3"), reopened.peek(10).stream().map(s -> s.paymentData().getId()).toList());
+    }
+
+    @Test
+    void accepts_ShouldSpillTransientFailuresOnly() throws IOException {
+        // Setup
+        PaymentSpillJournal journal = newJournal(4096);
+        DynamoDbException throttled = (DynamoDbException) DynamoDbException.builder()
+                .statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ProvisionedThroughputExceededException").build())
+                .build();
+        DynamoDbException invalid = (DynamoDbException) DynamoDbException.builder()
+                .statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ValidationException").build())
+                .build();
+
+        // Act & Assert
+        assertTrue(journal.accepts(new RuntimeException("Failed to save payment data to DynamoDB", throttled)));
+        assertTrue(journal.accepts(new DependencyUnavailableException("paymentStore", "circuit open", null)));
+        assertTrue(journal.accepts(new RuntimeException(ApiCallTimeoutException.create(1000))));
+        assertFalse(journal.accepts(new RuntimeException("Failed to save payment data to DynamoDB", invalid)));
+        assertFalse(journal.accepts(new DependencyUnavailableException("paymentStore", "call failed", invalid)));
+        assertFalse(journal.accepts(new IllegalStateException("unexpected item state")));
+    }
+
+    private PaymentSpillJournal newJournal(int segmentBytes) throws IOException {
+        return new PaymentSpillJournal(objectMapper, executor, meterRegistry, true, directory, segmentBytes, 5);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".spill")).count();
+        }
+    }
+
+    private static EnrichedPaymentData record(String id) {
+        return EnrichedPaymentData.builder()
+                .id(id)
+                .transactionId("TXN-" + id)
+                .amount(125.5)
+                .currency("USD")
+                .status("PENDING")
+                .timestamp(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .riskScore("LOW")
+                .build();
+    }
+}
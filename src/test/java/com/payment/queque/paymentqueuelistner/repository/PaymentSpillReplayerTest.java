@@ -0,0 +1,210 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentSpillReplayerTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    private PaymentSpillJournal journal;
+    private PaymentSpillReplayer replayer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new PaymentSpillJournal(new ObjectMapper().registerModule(new JavaTimeModule()), executor,
+                meterRegistry, true, directory, 1 << 20, 5);
+        replayer = new PaymentSpillReplayer(journal, paymentRepository, meterRegistry, 2, 3);
+        for (int i = 1; i <= 3; i++) {
+            journal.append(record("PAY" + i)).join();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void replay_ShouldSaveABatchPerRunUntilTheJournalIsEmpty() {
+        // Act
+        replayer.replay();
+
+        // Assert
+        assertEquals(1, journal.pending());
+        replayer.replay();
+        assertEquals(0, journal.pending());
+        verify(paymentRepository, times(3)).save(any(EnrichedPaymentData.class));
+        assertEquals(3, meterRegistry.get("payment.spill.replayed").counter().count());
+    }
+
+    @Test
+    void replay_ShouldStopAtAFailedSaveAndRetryItNextRun() {
+        // Setup - the store is unavailable for the second payment's first attempt
+        AtomicBoolean unavailable = new AtomicBoolean(true);
+        when(paymentRepository.save(any(EnrichedPaymentData.class))).thenAnswer(invocation -> {
+            EnrichedPaymentData payment = invocation.getArgument(0);
+            if (payment.getId().equals("PAY2") && unavailable.getAndSet(false)) {
+                throw new DependencyUnavailableException("paymentStore", "circuit open", null);
+            }
+            return payment;
+        });
+
+        // Act
+        replayer.replay();
+
+        // Assert
+        assertEquals(2, journal.pending());
+        assertEquals("PAY2", journal.peek(1).get(0).paymentData().getId());
+        replayer.replay();
+        replayer.replay();
+        assertEquals(0, journal.pending());
+    }
+
+    @Test
+    void replay_ShouldSetAsideAPaymentTheStoreRejects() throws IOException {
+        // Setup
+        DynamoDbException invalid = (DynamoDbException) DynamoDbException.builder()
+                .statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ValidationException").build())
+                .build();
+        when(paymentRepository.save(any(EnrichedPaymentData.class))).thenAnswer(invocation -> {
+            EnrichedPaymentData payment = invocation.getArgument(0);
+            if (payment.getId().equals("PAY1")) {
+                throw new RuntimeException("Failed to save payment data to DynamoDB", invalid);
+            }
+            return payment;
+        });
+
+        // Act
+        replayer.replay();
+
+        // Assert
+        assertEquals(1, journal.pending());
+        assertEquals(1, meterRegistry.get("payment.spill.set.aside").counter().count());
+        assertEquals(1, meterRegistry.get("payment.spill.replayed").counter().count());
+        assertEquals(1, rejectedCount(directory));
+    }
+
+    @Test
+    void replay_ShouldSetAsideAPaymentOnlyAfterItsLastAttemptFails() throws IOException {
+        // Setup
+        when(paymentRepository.save(any(EnrichedPaymentData.class))).thenAnswer(invocation -> {
+            EnrichedPaymentData payment = invocation.getArgument(0);
+            if (payment.getId().equals("PAY1")) {
+                throw new IllegalStateException("unexpected item state");
+            }
+            return payment;
+        });
+
+        // Act
+        replayer.replay();
+        replayer.replay();
+
+        // Assert
+        assertEquals(3, journal.pending());
+        assertFalse(Files.exists(directory.resolve("rejected")));
+        replayer.replay();
+        assertEquals(1, journal.pending());
+        assertEquals(1, rejectedCount(directory));
+        assertEquals(1, meterRegistry.get("payment.spill.set.aside").counter().count());
+    }
+
+    @Test
+    void replay_ShouldSetAsideARecordThatCannotBeDecoded() throws IOException {
+        // Setup - a timestamp cannot be read back without the java.time module
+        Path otherDirectory = directory.resolve("other");
+        PaymentSpillJournal writing = new PaymentSpillJournal(new ObjectMapper().registerModule(new JavaTimeModule()),
+                executor, new SimpleMeterRegistry(), true, otherDirectory, 1 << 20, 5);
+        EnrichedPaymentData payment = record("PAY9");
+        payment.setTimestamp(LocalDateTime.of(2026, 1, 1, 12, 0));
+        writing.append(payment).join();
+        PaymentSpillJournal reading = new PaymentSpillJournal(new ObjectMapper(), executor, new SimpleMeterRegistry(),
+                true, otherDirectory, 1 << 20, 5);
+        PaymentSpillReplayer undecodable = new PaymentSpillReplayer(reading, paymentRepository, meterRegistry, 2, 3);
+
+        // Act
+        undecodable.replay();
+
+        // Assert
+        assertEquals(0, reading.pending());
+        assertEquals(1, rejectedCount(otherDirectory));
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    void replay_ShouldSkipAPaymentSavedAgainSinceItWasSpilled() throws IOException {
+        // Setup - PAY1 was redelivered, enriched again and saved directly after it was spilled
+        PaymentSpillJournal stamped = new PaymentSpillJournal(new ObjectMapper().registerModule(new JavaTimeModule()),
+                executor, meterRegistry, true, directory.resolve("stamped"), 1 << 20, 5);
+        LocalDateTime spilledAt = LocalDateTime.of(2026, 1, 1, 12, 0);
+        EnrichedPaymentData stale = record("PAY1");
+        stale.setEnrichmentTimestamp(spilledAt);
+        EnrichedPaymentData other = record("PAY2");
+        other.setEnrichmentTimestamp(spilledAt);
+        stamped.append(stale).join();
+        stamped.append(other).join();
+        EnrichedPaymentData newer = record("PAY1");
+        newer.setEnrichmentTimestamp(spilledAt.plusMinutes(5));
+        when(paymentRepository.findById("PAY1", "TXN-PAY1")).thenReturn(Optional.of(newer));
+        PaymentSpillReplayer stampedReplayer = new PaymentSpillReplayer(stamped, paymentRepository, meterRegistry, 2, 3);
+
+        // Act
+        stampedReplayer.replay();
+
+        // Assert
+        assertEquals(0, stamped.pending());
+        verify(paymentRepository, never()).save(stale);
+        verify(paymentRepository, times(1)).save(other);
+        assertEquals(1, meterRegistry.get("payment.spill.superseded").counter().count());
+    }
+
+    private static long rejectedCount(Path journalDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(journalDirectory.resolve("rejected"))) {
+            return files.count();
+        }
+    }
+
+    private static EnrichedPaymentData record(String id) {
+        return EnrichedPaymentData.builder()
+                .id(id)
+                .transactionId("TXN-" + id)
+                .status("PENDING")
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.Benchmark;
+import com.payment.queque.paymentqueuelistner.model.AdditionalData;
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the explicitly built {@link PaymentTableSchema} with {@code TableSchema.fromBean}: the
+ * time taken to create each schema, which is spent once at startup, and the time and bytes
+ * allocated to map one record to a DynamoDB item and back, which is spent on every save and read.
+ * The bean schema is cached by the SDK, so this must run in its own JVM to see its real startup cost.
+ * Run with {@code mvn test -Dtest=PaymentTableSchemaBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaymentTableSchemaBenchmarkTest {
+
+    private static final int ITERATIONS = 1_000_000;
+
+    @Test
+    void create_ShouldBeCheaperAndAllocateLessPerItemThanTheBeanSchema() {
+        // The first static schema loads the mapper and converter classes the bean schema also builds on
+        long start = System.nanoTime();
+        PaymentTableSchema.create();
+        long classLoadingNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        TableSchema<EnrichedPaymentData> beanSchema = TableSchema.fromBean(EnrichedPaymentData.class);
+        long beanStartupNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        TableSchema<EnrichedPaymentData> staticSchema = PaymentTableSchema.create();
+        long staticStartupNanos = System.nanoTime() - start;
+
+        EnrichedPaymentData record = record();
+        Benchmark.Measurement bean = Benchmark.measure(ITERATIONS, () -> run(beanSchema, record));
+        Benchmark.Measurement explicit = Benchmark.measure(ITERATIONS, () -> run(staticSchema, record));
+        bean = Benchmark.measure(ITERATIONS, () -> run(beanSchema, record));
+
+        System.out.printf("shared classes:   %7.2f ms%n", classLoadingNanos / 1e6);
+        System.out.printf("schema creation:  fromBean %7.2f ms, static %7.2f ms%n",
+                beanStartupNanos / 1e6, staticStartupNanos / 1e6);
+        Benchmark.report("fromBean mapping", bean, "item");
+        Benchmark.report("static mapping", explicit, "item");
+        assertTrue(staticStartupNanos < beanStartupNanos,
+                "static schema took " + staticStartupNanos + " ns to create vs " + beanStartupNanos);
+        assertTrue(explicit.bytes() <= bean.bytes(),
+                "static schema allocated " + explicit.bytes() + " bytes per item vs " + bean.bytes());
+    }
+
+    private static void run(TableSchema<EnrichedPaymentData> schema, EnrichedPaymentData record) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            Map<String, AttributeValue> item = schema.itemToMap(record, true);
+            Benchmark.keep(i, schema.mapToItem(item));
+        }
+    }
+
+    private static EnrichedPaymentData record() {
+        AdditionalData additionalData = new AdditionalData();
+        additionalData.put(AdditionalDataKey.PROCESSING_TIMESTAMP, "2026-01-01T12:00:01");
+        additionalData.put(AdditionalDataKey.PAYMENT_CHANNEL, "ONLINE");
+        additionalData.put(AdditionalDataKey.CUSTOMER_CATEGORY, "PREMIUM");
+        additionalData.put(AdditionalDataKey.MERCHANT_CATEGORY, "RETAIL");
+        return EnrichedPaymentData.builder()
+                .id("PAY1")
+                .transactionId("TXN1")
+                .amount(125.5)
+                .currency("USD")
+                .paymentMethod("CREDIT_CARD")
+                .status("PENDING")
+                .customerId("CUST1")
+                .merchantId("MERCH1")
+                .timestamp(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .sourceQueue("payment-queue")
+                .enrichmentId("ENR1")
+                .additionalData(additionalData)
+                .riskScore("LOW")
+                .fraudStatus("CLEAR")
+                .enrichmentTimestamp(LocalDateTime.of(2026, 1, 1, 12, 0, 1))
+                .processingStatus("COMPLETED")
+                .processingTimeMs(12L)
+                .build();
+    }
+}
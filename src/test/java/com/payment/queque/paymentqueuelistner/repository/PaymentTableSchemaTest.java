@@ -0,0 +1,147 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.AdditionalData;
+import com.payment.queque.paymentqueuelistner.model.AdditionalDataKey;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentTableSchemaTest {
+
+    private final TableSchema<EnrichedPaymentData> schema = PaymentTableSchema.create();
+    private final TableSchema<EnrichedPaymentData> compactSchema = PaymentTableSchema.create(true);
+    private final TableSchema<EnrichedPaymentData> beanSchema = TableSchema.fromBean(EnrichedPaymentData.class);
+
+    @Test
+    void itemToMap_ShouldWriteTheSameAttributesAsTheBeanSchema() {
+        // Setup
+        EnrichedPaymentData record = record();
+
+        // Act
+        Map<String, AttributeValue> item = schema.itemToMap(record, true);
+
+        // Assert
+        assertEquals(beanSchema.itemToMap(record, true), item);
+        assertEquals(17, item.size());
+        TableMetadata metadata = schema.tableMetadata();
+        assertEquals("id", metadata.primaryPartitionKey());
+        assertEquals("transactionId", metadata.primarySortKey().orElseThrow());
+    }
+
+    @Test
+    void mapToItem_ShouldReadItemsWrittenByTheBeanSchema() {
+        // Setup
+        EnrichedPaymentData record = record();
+        Map<String, AttributeValue> item = beanSchema.itemToMap(record, true);
+
+        // Act
+        EnrichedPaymentData read = schema.mapToItem(item);
+
+        // Assert
+        assertEquals(record, read);
+        assertInstanceOf(AdditionalData.class, read.getAdditionalData());
+        assertEquals("PREMIUM", ((AdditionalData) read.getAdditionalData()).get(AdditionalDataKey.CUSTOMER_CATEGORY));
+    }
+
+    @Test
+    void itemToMap_ShouldWriteCodesNumbersAndBinaryInCompactMode() {
+        // Setup
+        EnrichedPaymentData record = record();
+        record.setFraudStatus("MANUAL_HOLD");
+        record.setEnrichmentTimestamp(LocalDateTime.of(2026, 1, 1, 12, 0, 1, 123_456_789));
+
+        // Act
+        Map<String, AttributeValue> item = compactSchema.itemToMap(record, true);
+
+        // Assert
+        assertEquals("1", item.get("riskScore").n());
+        assertEquals("MANUAL_HOLD", item.get("fraudStatus").s());
+        assertEquals("1", item.get("processingStatus").n());
+        assertEquals("1767268800", item.get("timestamp").n());
+        assertEquals("1767268801.123456789", item.get("enrichmentTimestamp").n());
+        assertNotNull(item.get("additionalData").b());
+        assertEquals(record, compactSchema.mapToItem(item));
+    }
+
+    @Test
+    void mapToItem_ShouldReadItemsInEitherFormatWithEitherSchema() {
+        // Setup
+        EnrichedPaymentData record = record();
+        Map<String, String> additionalData = new HashMap<>(record.getAdditionalData());
+        for (int i = 0; i < 20; i++) {
+            additionalData.put("note" + i, "repeated value " + (i % 3));
+        }
+        record.setAdditionalData(additionalData);
+
+        // Act
+        EnrichedPaymentData compactReadByStandard = schema.mapToItem(compactSchema.itemToMap(record, true));
+        EnrichedPaymentData standardReadByCompact = compactSchema.mapToItem(schema.itemToMap(record, true));
+
+        // Assert
+        assertEquals(record, compactReadByStandard);
+        assertEquals(record, standardReadByCompact);
+    }
+
+    @Test
+    void itemToMap_ShouldWriteAdditionalDataTooLongForTheBinaryFormatAsAMap() {
+        // Setup
+        EnrichedPaymentData record = record();
+        Map<String, String> additionalData = new HashMap<>(record.getAdditionalData());
+        additionalData.put("note", "x".repeat(70_000));
+        record.setAdditionalData(additionalData);
+
+        // Act
+        Map<String, AttributeValue> item = compactSchema.itemToMap(record, true);
+
+        // Assert
+        assertEquals(70_000, item.get("additionalData").m().get("note").s().length());
+        assertEquals(record, compactSchema.mapToItem(item));
+    }
+
+    @Test
+    void mapToItem_ShouldRejectAnUnknownAdditionalDataKeyCode() {
+        // Setup
+        Map<String, AttributeValue> item = new HashMap<>(compactSchema.itemToMap(record(), true));
+        item.put("additionalData", AttributeValue.fromB(SdkBytes.fromByteArray(new byte[] {0, (byte) 200, 0, 1, 'x'})));
+
+        // Act
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> compactSchema.mapToItem(item));
+
+        // Assert
+        assertEquals("Unknown additional data key code 200", error.getMessage());
+    }
+
+    private static EnrichedPaymentData record() {
+        Map<String, String> additionalData = new HashMap<>();
+        additionalData.put(AdditionalDataKey.CUSTOMER_CATEGORY.key(), "PREMIUM");
+        additionalData.put("customKey", "customValue");
+        return EnrichedPaymentData.builder()
+                .id("PAY1")
+                .transactionId("TXN1")
+                .amount(125.5)
+                .currency("USD")
+                .paymentMethod("CREDIT_CARD")
+                .status("PENDING")
+                .customerId("CUST1")
+                .merchantId("MERCH1")
+                .timestamp(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .sourceQueue("payment-queue")
+                .enrichmentId("ENR1")
+                .additionalData(additionalData)
+                .riskScore("LOW")
+                .fraudStatus("CLEAR")
+                .enrichmentTimestamp(LocalDateTime.of(2026, 1, 1, 12, 0, 1))
+                .processingStatus("COMPLETED")
+                .processingTimeMs(12L)
+                .build();
+    }
+}
@@ -0,0 +1,209 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.config.ResilienceProperties;
+import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PaymentWriteBufferTest {
+
+    private static final String TABLE = "payment-data";
+    private static final TableSchema<EnrichedPaymentData> SCHEMA = PaymentTableSchema.create();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private DynamoDbClient dynamoDbClient;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = mock(DynamoDbClient.class);
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void write_ShouldGroupRecordsIntoBatchesOfTwentyFive() throws Exception {
+        // Setup
+        PaymentWriteBuffer buffer = newBuffer(3);
+
+        // Act - two full batches are sent at once, the last ten after the linger time
+        List<CompletableFuture<EnrichedPaymentData>> futures = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            futures.add(buffer.write(record("PAY" + i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        ArgumentCaptor<BatchWriteItemRequest> requests = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(3)).batchWriteItem(requests.capture());
+        assertEquals(List.of(25, 25, 10), requests.getAllValues().stream()
+                .map(request -> request.requestItems().get(TABLE).size()).sorted((a, b) -> b - a).toList());
+        assertEquals("PAY0", futures.get(0).get().getId());
+        assertEquals(60, meterRegistry.get("payment.store.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void write_ShouldRetryUnprocessedRecordsUntilWritten() throws Exception {
+        // Setup - DynamoDB leaves the first record of the first request unprocessed
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenAnswer(invocation -> unprocessedFirst(invocation.getArgument(0)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+        PaymentWriteBuffer buffer = newBuffer(3);
+
+        // Act
+        CompletableFuture<EnrichedPaymentData> first = buffer.write(record("PAY1"));
+        CompletableFuture<EnrichedPaymentData> second = buffer.write(record("PAY2"));
+
+        // Assert
+        assertEquals("PAY1", first.get(5, TimeUnit.SECONDS).getId());
+        assertEquals("PAY2", second.get(5, TimeUnit.SECONDS).getId());
+        ArgumentCaptor<BatchWriteItemRequest> requests = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(2)).batchWriteItem(requests.capture());
+        assertEquals(1, requests.getAllValues().get(1).requestItems().get(TABLE).size());
+        assertEquals(1, meterRegistry.get("payment.store.unprocessed").counter().count());
+    }
+
+    @Test
+    void write_ShouldFailRecordsWhenRetriesAreExhausted() {
+        // Setup
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("throttled").build());
+        PaymentWriteBuffer buffer = newBuffer(2);
+
+        // Act
+        CompletableFuture<EnrichedPaymentData> future = buffer.write(record("PAY1"));
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ProvisionedThroughputExceededException.class, e.getCause());
+        verify(dynamoDbClient, times(2)).batchWriteItem(any(BatchWriteItemRequest.class));
+        assertEquals(1, meterRegistry.get("payment.store.failed").counter().count());
+    }
+
+    @Test
+    void write_ShouldReplaceABufferedRecordWithTheNewerSaveOfItsKey() throws Exception {
+        // Setup
+        PaymentWriteBuffer buffer = newBuffer(3);
+        EnrichedPaymentData older = record("PAY1");
+        EnrichedPaymentData newer = record("PAY1");
+        newer.setProcessingStatus("PARTIAL");
+
+        // Act
+        CompletableFuture<EnrichedPaymentData> first = buffer.write(older);
+        CompletableFuture<EnrichedPaymentData> second = buffer.write(newer);
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        // Assert - one put of the newer record, and each save completes with its own record
+        ArgumentCaptor<BatchWriteItemRequest> requests = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(1)).batchWriteItem(requests.capture());
+        List<WriteRequest> puts = requests.getValue().requestItems().get(TABLE);
+        assertEquals(1, puts.size());
+        assertEquals("PARTIAL", puts.get(0).putRequest().item().get("processingStatus").s());
+        assertSame(older, first.get());
+        assertSame(newer, second.get());
+    }
+
+    @Test
+    void write_ShouldWriteAKeyAfterTheBatchStillWritingIt() throws Exception {
+        // Setup - the first request blocks until released
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(invocation -> {
+            BatchWriteItemRequest request = invocation.getArgument(0);
+            firstStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            written.add(request.requestItems().get(TABLE).get(0).putRequest().item().get("processingStatus").s());
+            return BatchWriteItemResponse.builder().build();
+        });
+        PaymentWriteBuffer buffer = newBuffer(3);
+        EnrichedPaymentData newer = record("PAY1");
+        newer.setProcessingStatus("PARTIAL");
+
+        // Act
+        CompletableFuture<EnrichedPaymentData> first = buffer.write(record("PAY1"));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<EnrichedPaymentData> second = buffer.write(newer);
+        Thread.sleep(200);
+
+        // Assert - the second batch waits past its linger time for the first write
+        verify(dynamoDbClient, times(1)).batchWriteItem(any(BatchWriteItemRequest.class));
+        release.countDown();
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("COMPLETED", "PARTIAL"), written);
+    }
+
+    @Test
+    void flushPending_ShouldWriteBufferedRecordsAndWaitForWritesInFlight() throws Exception {
+        // Setup - a long linger time keeps the record buffered
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        PaymentWriteBuffer buffer = new PaymentWriteBuffer(enhancedClient, enhancedClient.table(TABLE, SCHEMA),
+                new DependencyGuards(new ResilienceProperties(), meterRegistry), executor, meterRegistry, true, 25,
+                60_000, 3, 1, 5);
+        CompletableFuture<EnrichedPaymentData> future = buffer.write(record("PAY1"));
+
+        // Act
+        buffer.flushPending();
+
+        // Assert
+        assertTrue(future.isDone());
+        assertEquals("PAY1", future.get().getId());
+        verify(dynamoDbClient, times(1)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    private PaymentWriteBuffer newBuffer(int maxAttempts) {
+        ResilienceProperties resilience = new ResilienceProperties();
+        resilience.getPaymentStore().setFallbackOnFailure(false);
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        return new PaymentWriteBuffer(enhancedClient, enhancedClient.table(TABLE, SCHEMA),
+                new DependencyGuards(resilience, meterRegistry), executor, meterRegistry, true, 25, 50, maxAttempts, 1, 5);
+    }
+
+    private static BatchWriteItemResponse unprocessedFirst(BatchWriteItemRequest request) {
+        WriteRequest first = request.requestItems().get(TABLE).get(0);
+        return BatchWriteItemResponse.builder()
+                .unprocessedItems(Map.of(TABLE, List.of(first)))
+                .build();
+    }
+
+    private static EnrichedPaymentData record(String id) {
+        return EnrichedPaymentData.builder()
+                .id(id)
+                .transactionId("TXN-" + id)
+                .amount(100.0)
+                .currency("USD")
+                .processingStatus("COMPLETED")
+                .build();
+    }
+}
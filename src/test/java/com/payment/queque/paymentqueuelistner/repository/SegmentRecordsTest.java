@@ -0,0 +1,36 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentRecordsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_ShouldReturnRecordsUpToTheFirstTornOne() throws IOException {
+        // Setup
+        MappedByteBuffer buffer = SegmentRecords.map(directory.resolve("segment"), 256);
+        byte[] first = "first".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "second".getBytes(StandardCharsets.UTF_8);
+        int next = SegmentRecords.write(buffer, 0, first, SegmentRecords.checksum(first));
+        SegmentRecords.write(buffer, next, second, SegmentRecords.checksum(second));
+
+        // Act - corrupt the second payload as a crash part way through its write would
+        buffer.put(next + SegmentRecords.HEADER_BYTES, (byte) 'X');
+
+        // Assert
+        assertArrayEquals(first, SegmentRecords.read(buffer, 0, buffer.capacity(), "segment"));
+        assertNull(SegmentRecords.read(buffer, next, buffer.capacity(), "segment"));
+        assertNull(SegmentRecords.read(buffer, next + SegmentRecords.HEADER_BYTES + second.length,
+                buffer.capacity(), "segment"));
+    }
+}
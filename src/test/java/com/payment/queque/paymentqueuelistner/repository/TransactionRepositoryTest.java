@@ -0,0 +1,103 @@
+package com.payment.queque.paymentqueuelistner.repository;
+
+import com.payment.queque.paymentqueuelistner.model.OutboxTransaction;
+import com.payment.queque.paymentqueuelistner.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class TransactionRepositoryTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void findPageByProcessingStatus_ShouldReadEveryRowOnceInTimestampAndIdOrder() {
+        // Setup - rows without a timestamp, rows sharing a timestamp, and a processed row
+        transactionRepository.saveAll(List.of(
+                transaction("E", TIME.plusMinutes(1), "UNPROCESSED"),
+                transaction("D", TIME, "UNPROCESSED"),
+                transaction("B", TIME, "UNPROCESSED"),
+                transaction("C", null, "UNPROCESSED"),
+                transaction("A", null, "UNPROCESSED"),
+                transaction("F", TIME, "PROCESSED"),
+                transaction("G", TIME.plusMinutes(2), "UNPROCESSED")));
+
+        // Act
+        List<List<String>> pages = new ArrayList<>();
+        List<OutboxTransaction> page = transactionRepository.findPageByProcessingStatus("UNPROCESSED", null, "",
+                Limit.of(2));
+        while (!page.isEmpty()) {
+            pages.add(page.stream().map(OutboxTransaction::id).toList());
+            OutboxTransaction last = page.get(page.size() - 1);
+            page = transactionRepository.findPageByProcessingStatus("UNPROCESSED", last.timestamp(), last.id(),
+                    Limit.of(2));
+        }
+
+        // Assert
+        assertEquals(List.of(List.of("A", "C"), List.of("B", "D"), List.of("E", "G")), pages);
+    }
+
+    @Test
+    void findPageByProcessingStatus_ShouldProjectEveryColumn() {
+        // Setup
+        Transaction saved = transactionRepository.save(transaction("A", TIME, "UNPROCESSED"));
+
+        // Act
+        OutboxTransaction read = transactionRepository.findPageByProcessingStatus("UNPROCESSED", null, "",
+                Limit.of(10)).get(0);
+
+        // Assert
+        assertEquals(new OutboxTransaction(saved.getId(), saved.getTransactionId(), saved.getAmount(),
+                saved.getCurrency(), saved.getPaymentMethod(), saved.getStatus(), saved.getCustomerId(),
+                saved.getMerchantId(), saved.getTimestamp(), saved.getProcessingStatus(),
+                saved.getProcessedTimestamp()), read);
+    }
+
+    @Test
+    void updateProcessingStatusByIds_ShouldUpdateTheGivenRowsInOneStatement() {
+        // Setup
+        transactionRepository.saveAll(List.of(
+                transaction("A", TIME, "UNPROCESSED"),
+                transaction("B", TIME, "UNPROCESSED"),
+                transaction("C", TIME, "UNPROCESSED")));
+
+        // Act
+        int updated = transactionRepository.updateProcessingStatusByIds(List.of("A", "C", "MISSING"), "PROCESSED",
+                TIME.plusMinutes(5));
+
+        // Assert
+        assertEquals(2, updated);
+        assertEquals(List.of("B"), transactionRepository.findPageByProcessingStatus("UNPROCESSED", null, "",
+                Limit.of(10)).stream().map(OutboxTransaction::id).toList());
+        List<OutboxTransaction> processed = transactionRepository.findPageByProcessingStatus("PROCESSED", null, "",
+                Limit.of(10));
+        assertEquals(List.of("A", "C"), processed.stream().map(OutboxTransaction::id).toList());
+        assertEquals(TIME.plusMinutes(5), processed.get(0).processedTimestamp());
+    }
+
+    private static Transaction transaction(String id, LocalDateTime timestamp, String processingStatus) {
+        return Transaction.builder()
+                .id(id)
+                .transactionId("TXN-" + id)
+                .amount(100.0)
+                .currency("USD")
+                .paymentMethod("CREDIT_CARD")
+                .status("COMPLETED")
+                .customerId("CUST1")
+                .merchantId("MERCH1")
+                .timestamp(timestamp)
+                .processingStatus(processingStatus)
+                .build();
+    }
+}
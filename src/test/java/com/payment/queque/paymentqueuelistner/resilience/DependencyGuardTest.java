@@ -0,0 +1,229 @@
+package com.payment.queque.paymentqueuelistner.resilience;
+
+import com.payment.queque.paymentqueuelistner.config.ResilienceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private ResilienceProperties.GuardSpec spec;
+
+    @BeforeEach
+    void setUp() {
+        spec = new ResilienceProperties.GuardSpec();
+        spec.setSlidingWindowSize(10);
+        spec.setMinimumCalls(4);
+        spec.setFailureRateThreshold(50);
+        spec.setSlowCallDuration(Duration.ofMillis(100));
+        spec.setSlowCallRateThreshold(50);
+        spec.setOpenDuration(Duration.ofSeconds(10));
+        spec.setHalfOpenCalls(2);
+    }
+
+    @Test
+    void call_ShouldOpenCircuitAndFailFastWhenFailureRateIsReached() {
+        // Setup
+        spec.setFallbackOnFailure(true);
+        DependencyGuard guard = newGuard();
+        guard.call(() -> "ok");
+        guard.call(() -> "ok");
+
+        // Act
+        for (int i = 0; i < 2; i++) {
+            DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                    () -> guard.call(() -> {
+                        throw new IllegalStateException("lookup failed");
+                    }));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+
+        // Assert
+        assertEquals(DependencyGuard.State.OPEN, guard.state());
+        assertThrows(DependencyUnavailableException.class, () -> guard.call(() -> fail("called through an open circuit")));
+        assertEquals(1, meterRegistry.get("payment.resilience.rejected").tag("reason", "circuit_open").counter().count());
+        assertEquals(1, meterRegistry.get("payment.resilience.transitions").tag("to", "OPEN").counter().count());
+        assertEquals(1, meterRegistry.get("payment.resilience.state").gauge().value());
+    }
+
+    @Test
+    void call_ShouldCloseCircuitAfterSuccessfulProbesAndReopenOnSlowProbe() {
+        // Setup - four slow calls open the circuit
+        DependencyGuard guard = newGuard();
+        for (int i = 0; i < 4; i++) {
+            guard.call(() -> clock.addAndGet(200_000_000));
+        }
+        assertEquals(DependencyGuard.State.OPEN, guard.state());
+
+        // Act & Assert - a slow probe opens the circuit again
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        guard.call(() -> clock.addAndGet(200_000_000));
+        assertEquals(DependencyGuard.State.OPEN, guard.state());
+
+        // Act & Assert - two fast probes close it
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        guard.call(() -> "ok");
+        assertEquals(DependencyGuard.State.HALF_OPEN, guard.state());
+        guard.call(() -> "ok");
+        assertEquals(DependencyGuard.State.CLOSED, guard.state());
+        assertEquals(2, meterRegistry.get("payment.resilience.transitions").tag("to", "HALF_OPEN").counter().count());
+    }
+
+    @Test
+    void callAsync_ShouldReopenCircuitWhenProbesDoNotCompleteInTime() {
+        // Setup - four failed calls open the circuit, then both probes hang
+        spec.setMaxWaitInHalfOpen(Duration.ofSeconds(30));
+        DependencyGuard guard = newGuard();
+        for (int i = 0; i < 4; i++) {
+            guard.callAsync(() -> CompletableFuture.failedFuture(new IllegalStateException("down")));
+        }
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        CompletableFuture<String> hung = new CompletableFuture<>();
+        guard.callAsync(() -> hung);
+        guard.callAsync(() -> new CompletableFuture<String>());
+
+        // Act
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        CompletableFuture<String> rejected = guard.callAsync(() -> CompletableFuture.completedFuture("ok"));
+
+        // Assert
+        assertInstanceOf(DependencyUnavailableException.class,
+                assertThrows(CompletionException.class, rejected::join).getCause());
+        assertEquals(DependencyGuard.State.OPEN, guard.state());
+
+        // Act & Assert - a probe finishing late is not counted towards the next half-open state
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        guard.callAsync(() -> CompletableFuture.completedFuture("ok"));
+        assertEquals(DependencyGuard.State.HALF_OPEN, guard.state());
+        hung.complete("late");
+        assertEquals(DependencyGuard.State.HALF_OPEN, guard.state());
+        guard.callAsync(() -> CompletableFuture.completedFuture("ok"));
+        assertEquals(DependencyGuard.State.CLOSED, guard.state());
+    }
+
+    @Test
+    void call_ShouldPassFailureOnWhenNotFallingBackOnFailure() {
+        // Setup
+        spec.setFallbackOnFailure(false);
+        DependencyGuard guard = newGuard();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> guard.call(() -> {
+            throw new IllegalStateException("save failed");
+        }));
+    }
+
+    @Test
+    void call_ShouldRejectCallsBeyondTheBulkhead() throws Exception {
+        // Setup
+        spec.setMaxConcurrentCalls(1);
+        spec.setMaxWait(Duration.ZERO);
+        DependencyGuard guard = newGuard();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        Future<String> running = executor.submit(() -> guard.call(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "done";
+        }));
+        started.await();
+
+        // Act
+        assertThrows(DependencyUnavailableException.class, () -> guard.call(() -> "second"));
+        release.countDown();
+
+        // Assert
+        assertEquals("done", running.get());
+        assertEquals("third", guard.call(() -> "third"));
+        assertEquals(1, meterRegistry.get("payment.resilience.rejected").tag("reason", "bulkhead_full").counter().count());
+        assertEquals(DependencyGuard.State.CLOSED, guard.state());
+        executor.shutdown();
+    }
+
+    @Test
+    void callAsync_ShouldHoldBulkheadSlotUntilTheCallCompletes() {
+        // Setup
+        spec.setMaxConcurrentCalls(1);
+        spec.setMaxWait(Duration.ZERO);
+        DependencyGuard guard = newGuard();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        // Act
+        CompletableFuture<String> first = guard.callAsync(() -> pending);
+        CompletableFuture<String> second = guard.callAsync(() -> CompletableFuture.completedFuture("second"));
+        pending.complete("first");
+        CompletableFuture<String> third = guard.callAsync(() -> CompletableFuture.completedFuture("third"));
+
+        // Assert
+        assertEquals("first", first.join());
+        CompletionException e = assertThrows(CompletionException.class, second::join);
+        assertInstanceOf(DependencyUnavailableException.class, e.getCause());
+        assertEquals("third", third.join());
+    }
+
+    @Test
+    void callAsync_ShouldStartAQueuedCallOnceASlotIsFreed() {
+        // Setup
+        spec.setMaxConcurrentCalls(1);
+        spec.setMaxWait(Duration.ofSeconds(30));
+        DependencyGuard guard = newGuard();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = guard.callAsync(() -> pending);
+
+        // Act
+        CompletableFuture<String> second = guard.callAsync(() -> CompletableFuture.completedFuture("second"));
+        boolean startedBeforeSlotFreed = second.isDone();
+        pending.complete("first");
+
+        // Assert
+        assertFalse(startedBeforeSlotFreed);
+        assertEquals("first", first.join());
+        assertEquals("second", second.join());
+        assertEquals("third", guard.callAsync(() -> CompletableFuture.completedFuture("third")).join());
+        assertEquals(0, meterRegistry.get("payment.resilience.rejected").tag("reason", "bulkhead_full").counter().count());
+    }
+
+    @Test
+    void callAsync_ShouldRejectAQueuedCallWhenNoSlotIsFreedWithinMaxWait() {
+        // Setup
+        spec.setMaxConcurrentCalls(2);
+        spec.setMaxWait(Duration.ofMillis(50));
+        DependencyGuard guard = newGuard();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        guard.callAsync(() -> pending);
+        guard.callAsync(() -> pending);
+
+        // Act
+        CompletableFuture<String> queued = guard.callAsync(() -> CompletableFuture.completedFuture("queued"));
+
+        // Assert
+        CompletionException e = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(DependencyUnavailableException.class, e.getCause());
+        assertEquals(1, meterRegistry.get("payment.resilience.rejected").tag("reason", "bulkhead_full").counter().count());
+        pending.complete("done");
+        assertEquals("later", guard.callAsync(() -> CompletableFuture.completedFuture("later")).join());
+        assertEquals(DependencyGuard.State.CLOSED, guard.state());
+    }
+
+    private DependencyGuard newGuard() {
+        return new DependencyGuard("customerLookup", spec, meterRegistry, clock::get);
+    }
+}
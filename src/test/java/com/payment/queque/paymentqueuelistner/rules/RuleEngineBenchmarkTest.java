@@ -0,0 +1,67 @@
+package com.payment.queque.paymentqueuelistner.rules;
+
+import com.payment.queque.paymentqueuelistner.Benchmark;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures rule evaluation cost and allocation as the rule set grows.
+ * Run with {@code mvn test -Dtest=RuleEngineBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RuleEngineBenchmarkTest {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "CAD"};
+    private static final int AMOUNTS = 1 << 12;
+    private static final int ITERATIONS = 20_000_000;
+
+    @Test
+    void evaluate_ShouldStayInNanosecondsAsRuleSetGrows() {
+        for (int ruleCount : new int[] {2, 10, 100, 500, 1000}) {
+            CompiledRuleSet ruleSet = CompiledRuleSet.compile("benchmark", ruleSet(ruleCount));
+            Random random = new Random(42);
+            double[] amounts = new double[AMOUNTS];
+            String[] currencies = new String[AMOUNTS];
+            for (int i = 0; i < AMOUNTS; i++) {
+                amounts[i] = random.nextDouble() * 20_000;
+                currencies[i] = CURRENCIES[random.nextInt(CURRENCIES.length)];
+            }
+
+            Benchmark.Measurement measurement = Benchmark.measure(ITERATIONS,
+                    () -> Benchmark.keep(run(ruleSet, amounts, currencies, ITERATIONS)));
+
+            Benchmark.report("rules=" + ruleCount, measurement, "evaluation");
+            assertTrue(measurement.nanos() < 1_000, "evaluation took " + measurement.nanos() + "ns");
+        }
+    }
+
+    private static int run(CompiledRuleSet ruleSet, double[] amounts, String[] currencies, int iterations) {
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            int slot = i & (AMOUNTS - 1);
+            sink += ruleSet.evaluate(amounts[slot], currencies[slot]).length();
+        }
+        return sink;
+    }
+
+    private static RuleDefinitions.RuleSet ruleSet(int ruleCount) {
+        Random random = new Random(7);
+        List<RuleDefinitions.Rule> rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            double min = random.nextDouble() * 15_000;
+            rules.add(RuleDefinitions.Rule.builder()
+                    .minAmount(min)
+                    .maxAmount(random.nextBoolean() ? min + random.nextDouble() * 5_000 : null)
+                    .currency(random.nextInt(3) == 0 ? CURRENCIES[random.nextInt(CURRENCIES.length)] : null)
+                    .result("R" + (i % 7))
+                    .build());
+        }
+        return new RuleDefinitions.RuleSet("CLEAR", rules);
+    }
+}
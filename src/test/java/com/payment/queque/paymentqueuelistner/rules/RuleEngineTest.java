@@ -0,0 +1,92 @@
+package com.payment.queque.paymentqueuelistner.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path rulesFile;
+    private RuleEngine ruleEngine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rulesFile = tempDir.resolve("rules.json");
+        Files.copy(getClass().getResourceAsStream("/rules/payment-rules.json"), rulesFile);
+        ruleEngine = new RuleEngine(new DefaultResourceLoader(), new ObjectMapper(), rulesFile.toUri().toString());
+    }
+
+    @Test
+    void riskScore_ShouldMatchDefaultThresholds() {
+        // Act & Assert
+        assertEquals("LOW", ruleEngine.riskScore(500.0, "USD"));
+        assertEquals("MEDIUM", ruleEngine.riskScore(500.01, "USD"));
+        assertEquals("MEDIUM", ruleEngine.riskScore(1000.0, "EUR"));
+        assertEquals("HIGH", ruleEngine.riskScore(1500.0, null));
+    }
+
+    @Test
+    void fraudStatus_ShouldApplyFirstMatchingRule() {
+        // Act & Assert
+        assertEquals("CLEAR", ruleEngine.fraudStatus(5000.0, "USD"));
+        assertEquals("REVIEW_REQUIRED", ruleEngine.fraudStatus(5000.5, "USD"));
+        assertEquals("REVIEW_REQUIRED", ruleEngine.fraudStatus(20000.0, "USD"));
+        assertEquals("CLEAR", ruleEngine.fraudStatus(7000.0, "EUR"));
+        assertEquals("SUSPICIOUS", ruleEngine.fraudStatus(20000.0, "EUR"));
+        assertEquals("SUSPICIOUS", ruleEngine.fraudStatus(20000.0, null));
+    }
+
+    @Test
+    void compile_ShouldHonourAmountRanges() {
+        // Setup
+        RuleDefinitions.RuleSet ruleSet = new RuleDefinitions.RuleSet("NONE", List.of(
+                RuleDefinitions.Rule.builder().minAmount(100.0).maxAmount(200.0).currency("GBP").result("BAND").build(),
+                RuleDefinitions.Rule.builder().maxAmount(50.0).result("SMALL").build()));
+
+        // Act
+        CompiledRuleSet compiled = CompiledRuleSet.compile("test", ruleSet);
+
+        // Assert
+        assertEquals("SMALL", compiled.evaluate(50.0, "GBP"));
+        assertEquals("NONE", compiled.evaluate(100.0, "GBP"));
+        assertEquals("BAND", compiled.evaluate(150.0, "GBP"));
+        assertEquals("BAND", compiled.evaluate(200.0, "GBP"));
+        assertEquals("NONE", compiled.evaluate(150.0, "USD"));
+        assertEquals("NONE", compiled.evaluate(200.01, "GBP"));
+    }
+
+    @Test
+    void reload_ShouldSwapInEditedRules() throws Exception {
+        // Setup
+        Files.writeString(rulesFile, Files.readString(rulesFile).replace("\"minAmount\": 1000", "\"minAmount\": 800"));
+
+        // Act
+        RuleEngine.RulesSummary summary = ruleEngine.reload();
+
+        // Assert
+        assertEquals(2, summary.version());
+        assertEquals("HIGH", ruleEngine.riskScore(900.0, "USD"));
+    }
+
+    @Test
+    void reload_ShouldKeepActiveRulesWhenFileIsInvalid() throws Exception {
+        // Setup
+        Files.writeString(rulesFile, "{\"risk\":{\"rules\":[]},\"fraud\":{\"defaultResult\":\"CLEAR\"}}");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.reload());
+        assertEquals(1, ruleEngine.summary().version());
+        assertEquals("HIGH", ruleEngine.riskScore(1500.0, "USD"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.payment.queque.paymentqueuelistner.service;
+
+import com.payment.queque.paymentqueuelistner.config.CategoryCacheProperties;
+import com.payment.queque.paymentqueuelistner.config.ResilienceProperties;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryLookupServiceTest {
+
+    private CategoryCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CategoryCacheProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void customerCategory_ShouldServeRepeatedLookupsFromCache() {
+        // Setup
+        CategoryLookupService service = newService();
+
+        // Act
+        String first = service.customerCategory("VIP123");
+        String second = service.customerCategory("VIP123");
+
+        // Assert
+        assertEquals("VIP", first);
+        assertEquals("VIP", second);
+        assertEquals(1, loads("customerCategory"));
+        assertEquals(0.5, meterRegistry.get("payment.category.cache.hit.ratio").tag("lookup", "customerCategory")
+                .gauge().value());
+    }
+
+    @Test
+    void merchantCategory_ShouldCacheUnknownMerchants() {
+        // Setup
+        CategoryLookupService service = newService();
+
+        // Act
+        String first = service.merchantCategory(" ");
+        String second = service.merchantCategory(" ");
+
+        // Assert
+        assertEquals("UNKNOWN", first);
+        assertEquals("UNKNOWN", second);
+        assertEquals(1, loads("merchantCategory"));
+    }
+
+    @Test
+    void merchantCategory_ShouldLookUpEveryTimeWhenCacheDisabled() {
+        // Setup
+        properties.getMerchant().setEnabled(false);
+        CategoryLookupService service = newService();
+
+        // Act
+        service.merchantCategory("FOOD42");
+        String result = service.merchantCategory("FOOD42");
+
+        // Assert
+        assertEquals("FOOD_AND_BEVERAGE", result);
+        assertEquals(2, loads("merchantCategory"));
+    }
+
+    @Test
+    void merchantCategory_ShouldCoalesceConcurrentLookupsWhenCacheDisabled() throws Exception {
+        // Setup
+        properties.getMerchant().setEnabled(false);
+        properties.setCoalescingWindow(Duration.ofMillis(20));
+        CategoryLookupService service = newService();
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+        // Act
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(callers.submit(() -> service.merchantCategory("TRAVEL9")));
+        }
+
+        // Assert
+        for (Future<String> result : results) {
+            assertEquals("TRAVEL", result.get());
+        }
+        assertEquals(1, loads("merchantCategory"));
+        assertEquals(7, meterRegistry.get("payment.category.lookup.coalesced").tag("lookup", "merchantCategory")
+                .counter().count());
+        callers.shutdown();
+    }
+
+    @Test
+    void customerCategory_ShouldReturnUnknownForMissingId() {
+        // Act & Assert
+        assertEquals("UNKNOWN", newService().customerCategory(null));
+        assertEquals(0, loads("customerCategory"));
+    }
+
+    private CategoryLookupService newService() {
+        return new CategoryLookupService(properties, meterRegistry, Executors.newVirtualThreadPerTaskExecutor(),
+                new DependencyGuards(new ResilienceProperties(), meterRegistry));
+    }
+
+    private long loads(String lookup) {
+        return meterRegistry.get("payment.category.lookup.latency").tag("lookup", lookup).timer().count();
+    }
+}
@@ -1,18 +1,45 @@
 package com.payment.queque.paymentqueuelistner.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.queque.paymentqueuelistner.config.CategoryCacheProperties;
+import com.payment.queque.paymentqueuelistner.config.ResilienceProperties;
+import com.payment.queque.paymentqueuelistner.enrichment.CustomerCategoryStep;
+import com.payment.queque.paymentqueuelistner.enrichment.EnrichmentPipeline;
+import com.payment.queque.paymentqueuelistner.enrichment.FraudStatusStep;
+import com.payment.queque.paymentqueuelistner.enrichment.MerchantCategoryStep;
+import com.payment.queque.paymentqueuelistner.enrichment.PaymentChannelStep;
+import com.payment.queque.paymentqueuelistner.enrichment.RiskScoreStep;
+import com.payment.queque.paymentqueuelistner.enrichment.VelocityStep;
+import com.payment.queque.paymentqueuelistner.model.AdditionalData;
 import com.payment.queque.paymentqueuelistner.model.EnrichedPaymentData;
 import com.payment.queque.paymentqueuelistner.model.PaymentData;
 import com.payment.queque.paymentqueuelistner.repository.PaymentRepository;
+import com.payment.queque.paymentqueuelistner.repository.PaymentSpillJournal;
+import com.payment.queque.paymentqueuelistner.resilience.DependencyGuards;
+import com.payment.queque.paymentqueuelistner.rules.RuleEngine;
+import com.payment.queque.paymentqueuelistner.velocity.VelocityTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -27,6 +54,27 @@ class PaymentEnrichmentServiceTest {
     @Mock
     private ExecutorService virtualThreadExecutor;
 
+    @Mock
+    private PaymentSpillJournal spillJournal;
+
+    // Enrichment steps run on real virtual threads
+    private final ExecutorService stepExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RuleEngine ruleEngine = newRuleEngine();
+
+    private final DependencyGuards dependencyGuards = new DependencyGuards(new ResilienceProperties(), meterRegistry);
+
+    private final VelocityTracker velocityTracker = new VelocityTracker(meterRegistry, true, 4, 1000, 1000, 65, 1000);
+
+    @Spy
+    private CategoryLookupService categoryLookupService = new CategoryLookupService(
+            new CategoryCacheProperties(), meterRegistry, stepExecutor, dependencyGuards);
+
+    @Spy
+    private EnrichmentPipeline enrichmentPipeline = pipeline(2000);
+
     @InjectMocks
     private PaymentEnrichmentService paymentEnrichmentService;
 
@@ -34,6 +82,7 @@ class PaymentEnrichmentServiceTest {
 
     @BeforeEach
     void setUp() {
+
         // Create test payment data
         testPaymentData = PaymentData.builder()
                 .id(UUID.randomUUID().toString())
@@ -49,7 +98,14 @@ class PaymentEnrichmentServiceTest {
                 .build();
         
         // Setup repository mock
-        when(paymentRepository.save(any(EnrichedPaymentData.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(paymentRepository.save(any(EnrichedPaymentData.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(paymentRepository.saveAsync(any(EnrichedPaymentData.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stepExecutor.shutdownNow();
     }
 
     @Test
@@ -77,6 +133,68 @@ class PaymentEnrichmentServiceTest {
         verify(paymentRepository, times(1)).save(any(EnrichedPaymentData.class));
     }
 
+    @Test
+    void enrichAndSavePaymentData_ShouldEnrichDecodedRecordInPlace() {
+        // Setup - the streaming decoder produces an EnrichedPaymentData
+        EnrichedPaymentData decoded = EnrichedPaymentData.of(testPaymentData);
+
+        // Act
+        EnrichedPaymentData result = paymentEnrichmentService.enrichAndSavePaymentData(decoded);
+
+        // Assert
+        assertSame(decoded, result);
+        assertInstanceOf(AdditionalData.class, result.getAdditionalData());
+        assertEquals("CARD", result.getAdditionalData().get("paymentChannel"));
+        assertEquals("REGULAR", result.getAdditionalData().get("customerCategory"));
+        assertNotSame(testPaymentData, EnrichedPaymentData.of(testPaymentData));
+    }
+
+    @Test
+    void enrichAndSavePaymentData_ShouldUseFallbackAndMarkPartialWhenStepTimesOut() {
+        // Setup - the category lookups take 30ms, well past this timeout
+        ReflectionTestUtils.setField(paymentEnrichmentService, "enrichmentPipeline", pipeline(1));
+
+        // Act
+        EnrichedPaymentData result = paymentEnrichmentService.enrichAndSavePaymentData(testPaymentData);
+
+        // Assert
+        assertEquals("PARTIAL", result.getProcessingStatus());
+        assertEquals("UNKNOWN", result.getAdditionalData().get("customerCategory"));
+        assertEquals("UNKNOWN", result.getAdditionalData().get("merchantCategory"));
+        assertEquals("customerCategory,merchantCategory", result.getAdditionalData().get("timedOutSteps"));
+        assertEquals("MEDIUM", result.getRiskScore());
+        verify(paymentRepository, times(1)).save(any(EnrichedPaymentData.class));
+    }
+
+    @Test
+    void prefetch_ShouldLookUpEachDistinctCustomerAndMerchantOfABatchOnce() {
+        // Setup
+        doAnswer(invocation -> {
+            stepExecutor.execute(invocation.getArgument(0));
+            return null;
+        }).when(virtualThreadExecutor).execute(any(Runnable.class));
+        List<PaymentData> batch = List.of(payment("CUST1", "RETAIL1"), payment("CUST1", "RETAIL1"),
+                payment("CUST2", "RETAIL1"), payment("CUST1", "FOOD1"));
+
+        // Act
+        paymentEnrichmentService.prefetch(batch);
+        List<EnrichedPaymentData> results = batch.stream()
+                .map(paymentEnrichmentService::enrichAndSavePaymentDataAsync)
+                .toList()
+                .stream()
+                .map(CompletableFuture::join)
+                .toList();
+
+        // Assert
+        assertEquals(4, results.size());
+        assertEquals("RETAIL", results.get(0).getAdditionalData().get("merchantCategory"));
+        assertEquals("FOOD_AND_BEVERAGE", results.get(3).getAdditionalData().get("merchantCategory"));
+        verify(categoryLookupService, times(1)).prefetch(batch);
+        assertEquals(2, meterRegistry.get("payment.category.lookup.latency").tag("lookup", "customerCategory").timer().count());
+        assertEquals(2, meterRegistry.get("payment.category.lookup.latency").tag("lookup", "merchantCategory").timer().count());
+        verify(paymentRepository, times(4)).saveAsync(any(EnrichedPaymentData.class));
+    }
+
     @Test
     void processPaymentDataAsync_ShouldSubmitTaskToExecutor() {
         // Setup
@@ -94,6 +212,104 @@ class PaymentEnrichmentServiceTest {
         verify(paymentRepository, times(1)).save(any(EnrichedPaymentData.class));
     }
 
+    @Test
+    void enrichAndSavePaymentDataAsync_ShouldCompleteAfterSave() {
+        // Setup
+        doAnswer(invocation -> {
+            Runnable runnable = invocation.getArgument(0);
+            runnable.run();
+            return null;
+        }).when(virtualThreadExecutor).execute(any(Runnable.class));
+
+        // Act
+        EnrichedPaymentData result = paymentEnrichmentService.enrichAndSavePaymentDataAsync(testPaymentData).join();
+
+        // Assert
+        assertEquals(testPaymentData.getId(), result.getId());
+        assertNotNull(result.getProcessingTimeMs());
+        verify(paymentRepository, times(1)).saveAsync(any(EnrichedPaymentData.class));
+        verify(paymentRepository, never()).save(any(EnrichedPaymentData.class));
+    }
+
+    @Test
+    void enrichAndSavePaymentDataAsync_ShouldFailWhenSaveFails() {
+        // Setup
+        doAnswer(invocation -> {
+            Runnable runnable = invocation.getArgument(0);
+            runnable.run();
+            return null;
+        }).when(virtualThreadExecutor).execute(any(Runnable.class));
+        when(paymentRepository.saveAsync(any(EnrichedPaymentData.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("throttled")));
+
+        // Act
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> paymentEnrichmentService.enrichAndSavePaymentDataAsync(testPaymentData).join());
+
+        // Assert
+        assertEquals("Failed to enrich payment data", e.getCause().getMessage());
+        assertInstanceOf(IllegalStateException.class, e.getCause().getCause());
+    }
+
+    @Test
+    void enrichAndSavePaymentDataAsync_ShouldSpillToJournalWhenSaveFails() {
+        // Setup
+        doAnswer(invocation -> {
+            Runnable runnable = invocation.getArgument(0);
+            runnable.run();
+            return null;
+        }).when(virtualThreadExecutor).execute(any(Runnable.class));
+        IllegalStateException throttled = new IllegalStateException("throttled");
+        when(paymentRepository.saveAsync(any(EnrichedPaymentData.class)))
+                .thenReturn(CompletableFuture.failedFuture(throttled));
+        when(spillJournal.accepts(throttled)).thenReturn(true);
+        when(spillJournal.append(any(EnrichedPaymentData.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        // Act
+        EnrichedPaymentData result = paymentEnrichmentService.enrichAndSavePaymentDataAsync(testPaymentData).join();
+
+        // Assert
+        assertEquals(testPaymentData.getId(), result.getId());
+        assertNotNull(result.getEnrichmentId());
+        verify(spillJournal, times(1)).append(result);
+    }
+
+    @Test
+    void enrichAndSavePaymentData_ShouldSpillToJournalWhenSaveFails() {
+        // Setup
+        RuntimeException unavailable = new RuntimeException("Failed to save payment data to DynamoDB");
+        when(paymentRepository.save(any(EnrichedPaymentData.class))).thenThrow(unavailable);
+        when(spillJournal.accepts(unavailable)).thenReturn(true);
+        when(spillJournal.append(any(EnrichedPaymentData.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        // Act
+        EnrichedPaymentData result = paymentEnrichmentService.enrichAndSavePaymentData(testPaymentData);
+
+        // Assert
+        assertEquals("COMPLETED", result.getProcessingStatus());
+        verify(spillJournal, times(1)).append(result);
+    }
+
+    @Test
+    void calculateFraudStatus_ShouldRequireReviewWhenCustomerVelocityExceedsLimit() {
+        // Setup - the rules clear small payments, the customer limit is 3 payments a minute
+        List<EnrichedPaymentData> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            results.add(paymentEnrichmentService.enrichAndSavePaymentData(payment("CUST1", "RETAIL" + i)));
+        }
+
+        // Assert
+        assertEquals("CLEAR", results.get(2).getFraudStatus());
+        assertEquals("REVIEW_REQUIRED", results.get(3).getFraudStatus());
+        assertEquals("4", results.get(3).getAdditionalData().get("customerCount1m"));
+        assertEquals("400.00", results.get(3).getAdditionalData().get("customerAmount60m"));
+        assertEquals("1", results.get(3).getAdditionalData().get("merchantCount60m"));
+    }
+
     @Test
     void calculateRiskScore_ShouldReturnHighForLargeAmount() {
         // Setup
@@ -129,4 +345,33 @@ class PaymentEnrichmentServiceTest {
         // Assert
         assertEquals("LOW", result.getRiskScore());
     }
-}
\ No newline at end of file
+
+    private EnrichmentPipeline pipeline(long lookupTimeoutMs) {
+        return new EnrichmentPipeline(List.of(
+                new PaymentChannelStep(2000),
+                new CustomerCategoryStep(categoryLookupService, lookupTimeoutMs),
+                new MerchantCategoryStep(categoryLookupService, lookupTimeoutMs),
+                new RiskScoreStep(ruleEngine, dependencyGuards, 2000),
+                new VelocityStep(velocityTracker, 2000),
+                new FraudStatusStep(ruleEngine, dependencyGuards, 2000, 3, 20000, 0)), stepExecutor, 2000);
+    }
+
+    private PaymentData payment(String customerId, String merchantId) {
+        return PaymentData.builder()
+                .id(UUID.randomUUID().toString())
+                .transactionId(UUID.randomUUID().toString())
+                .amount(100.0)
+                .currency("USD")
+                .customerId(customerId)
+                .merchantId(merchantId)
+                .build();
+    }
+
+    private static RuleEngine newRuleEngine() {
+        try {
+            return new RuleEngine(new DefaultResourceLoader(), new ObjectMapper(), "classpath:rules/payment-rules.json");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,7 +2,7 @@ package com.payment.queque.paymentqueuelistner.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.payment.queque.paymentqueuelistner.model.Transaction;
+import com.payment.queque.paymentqueuelistner.model.OutboxTransaction;
 import com.payment.queque.paymentqueuelistner.repository.TransactionRepository;
 import io.awspring.cloud.sqs.operations.SqsTemplate;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +11,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -22,11 +26,14 @@ import java.util.concurrent.ExecutorService;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
 class TransactionServiceTest {
 
     @Mock
@@ -44,49 +51,35 @@ class TransactionServiceTest {
     @InjectMocks
     private TransactionService transactionService;
 
-    private Transaction transaction1;
-    private Transaction transaction2;
-    private List<Transaction> transactions;
+    private OutboxTransaction transaction1;
+    private OutboxTransaction transaction2;
+    private List<OutboxTransaction> transactions;
 
     @BeforeEach
     void setUp() throws JsonProcessingException {
+        ReflectionTestUtils.setField(transactionService, "transactionQueueUrl", "test-transaction-queue");
+        ReflectionTestUtils.setField(transactionService, "pageSize", 500);
+        ReflectionTestUtils.setField(transactionService, "updateChunkSize", 500);
+
         // Create test transactions
-        transaction1 = Transaction.builder()
-                .id(UUID.randomUUID().toString())
-                .transactionId(UUID.randomUUID().toString())
-                .amount(1000.0)
-                .currency("USD")
-                .paymentMethod("CREDIT_CARD")
-                .status("COMPLETED")
-                .customerId("CUST123")
-                .merchantId("MERCH456")
-                .timestamp(LocalDateTime.now())
-                .processingStatus("UNPROCESSED")
-                .build();
-
-        transaction2 = Transaction.builder()
-                .id(UUID.randomUUID().toString())
-                .transactionId(UUID.randomUUID().toString())
-                .amount(500.0)
-                .currency("EUR")
-                .paymentMethod("DEBIT_CARD")
-                .status("COMPLETED")
-                .customerId("CUST789")
-                .merchantId("MERCH012")
-                .timestamp(LocalDateTime.now())
-                .processingStatus("UNPROCESSED")
-                .build();
+        transaction1 = transaction(UUID.randomUUID().toString(), 1000.0, "USD", "CREDIT_CARD", "CUST123", "MERCH456");
+
+        transaction2 = transaction(UUID.randomUUID().toString(), 500.0, "EUR", "DEBIT_CARD", "CUST789", "MERCH012");
 
         transactions = Arrays.asList(transaction1, transaction2);
 
         // Setup mocks
-        when(transactionRepository.findByProcessingStatus("UNPROCESSED")).thenReturn(transactions);
-        when(objectMapper.writeValueAsString(any(Transaction.class))).thenReturn("{}");
-        when(transactionRepository.updateProcessingStatus(anyString(), eq("PROCESSED"), any(LocalDateTime.class))).thenReturn(1);
+        when(transactionRepository.findPageByProcessingStatus(eq("UNPROCESSED"), isNull(), eq(""), any(Limit.class)))
+                .thenReturn(transactions);
+        when(objectMapper.writeValueAsString(any(OutboxTransaction.class))).thenReturn("{}");
+        when(transactionRepository.updateProcessingStatusByIds(anyList(), eq("PROCESSED"), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> invocation.<List<String>>getArgument(0).size());
 
         // Setup CompletableFuture.supplyAsync to execute immediately with the provided executor
         doAnswer(invocation -> {
-            return CompletableFuture.completedFuture(true);
+            Runnable runnable = invocation.getArgument(0);
+            runnable.run();
+            return null;
         }).when(executorService).execute(any(Runnable.class));
     }
 
@@ -97,29 +90,31 @@ class TransactionServiceTest {
 
         // Assert
         assertEquals(2, result);
-        verify(transactionRepository, times(1)).findByProcessingStatus("UNPROCESSED");
+        verify(transactionRepository, times(1))
+                .findPageByProcessingStatus(eq("UNPROCESSED"), isNull(), eq(""), eq(Limit.of(500)));
         verify(executorService, times(2)).execute(any(Runnable.class));
     }
 
     @Test
     void processUnprocessedTransactions_ShouldHandleEmptyList() {
         // Setup
-        when(transactionRepository.findByProcessingStatus("UNPROCESSED")).thenReturn(Collections.emptyList());
+        when(transactionRepository.findPageByProcessingStatus(eq("UNPROCESSED"), isNull(), eq(""), any(Limit.class)))
+                .thenReturn(Collections.emptyList());
 
         // Act
         int result = transactionService.processUnprocessedTransactions();
 
         // Assert
         assertEquals(0, result);
-        verify(transactionRepository, times(1)).findByProcessingStatus("UNPROCESSED");
+        verify(transactionRepository, times(1))
+                .findPageByProcessingStatus(eq("UNPROCESSED"), isNull(), eq(""), eq(Limit.of(500)));
         verify(executorService, never()).execute(any(Runnable.class));
     }
 
     @Test
     void processUnprocessedTransactions_ShouldHandleFailures() throws JsonProcessingException {
         // Setup
-        when(transactionRepository.updateProcessingStatus(eq(transaction1.getId()), eq("PROCESSED"), any(LocalDateTime.class))).thenReturn(1);
-        when(transactionRepository.updateProcessingStatus(eq(transaction2.getId()), eq("PROCESSED"), any(LocalDateTime.class))).thenReturn(0);
+        when(objectMapper.writeValueAsString(transaction2)).thenThrow(new JsonProcessingException("bad amount") { });
 
         // Setup CompletableFuture behavior for success and failure
         doAnswer(invocation -> {
@@ -133,31 +128,52 @@ class TransactionServiceTest {
 
         // Assert
         assertEquals(1, result);
-        verify(transactionRepository, times(1)).findByProcessingStatus("UNPROCESSED");
-        verify(sqsTemplate, times(2)).send(anyString(), anyString());
-        verify(transactionRepository, times(2)).updateProcessingStatus(anyString(), eq("PROCESSED"), any(LocalDateTime.class));
+        verify(transactionRepository, times(1))
+                .findPageByProcessingStatus(eq("UNPROCESSED"), isNull(), eq(""), eq(Limit.of(500)));
+        verify(sqsTemplate, times(1)).send(anyString(), anyString());
+        verify(transactionRepository, times(1))
+                .updateProcessingStatusByIds(eq(List.of(transaction1.id())), eq("PROCESSED"), any(LocalDateTime.class));
     }
 
     @Test
-    void processUnprocessedTransactions_ShouldUseNativeQueryWhenConfigured() {
-        // Setup
-        when(transactionRepository.findByProcessingStatusNative("UNPROCESSED")).thenReturn(transactions);
+    void processUnprocessedTransactions_ShouldMarkSentTransactionsProcessedInChunks() {
+        // Setup - one UPDATE per transaction, and the second one fails
+        ReflectionTestUtils.setField(transactionService, "updateChunkSize", 1);
+        when(transactionRepository.updateProcessingStatusByIds(eq(List.of(transaction2.id())), eq("PROCESSED"),
+                any(LocalDateTime.class))).thenThrow(new IllegalStateException("lock timeout"));
 
-        // Set useNativeQuery to true using reflection
-        try {
-            java.lang.reflect.Field field = TransactionService.class.getDeclaredField("useNativeQuery");
-            field.setAccessible(true);
-            field.set(transactionService, true);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // Act
+        int result = transactionService.processUnprocessedTransactions();
+
+        // Assert
+        assertEquals(1, result);
+        verify(transactionRepository, times(2))
+                .updateProcessingStatusByIds(anyList(), eq("PROCESSED"), any(LocalDateTime.class));
+        verify(transactionRepository, never()).updateProcessingStatus(anyString(), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void processUnprocessedTransactions_ShouldFetchEachPageAfterTheLastRowOfThePreviousOne() {
+        // Setup - with pages of 2 rows, a full first page is followed by a short last page
+        ReflectionTestUtils.setField(transactionService, "pageSize", 2);
+        OutboxTransaction transaction3 = transaction("TX3", 20.0, "USD", "CREDIT_CARD", "CUST1", "MERCH1");
+        when(transactionRepository.findPageByProcessingStatus("UNPROCESSED", transaction2.timestamp(),
+                transaction2.id(), Limit.of(2))).thenReturn(List.of(transaction3));
 
         // Act
         int result = transactionService.processUnprocessedTransactions();
 
         // Assert
-        assertEquals(2, result);
-        verify(transactionRepository, times(1)).findByProcessingStatusNative("UNPROCESSED");
-        verify(transactionRepository, never()).findByProcessingStatus("UNPROCESSED");
+        assertEquals(3, result);
+        verify(transactionRepository, times(2)).findPageByProcessingStatus(anyString(), any(), anyString(), any(Limit.class));
+        verify(sqsTemplate, times(3)).send(anyString(), anyString());
+        verify(transactionRepository, times(2))
+                .updateProcessingStatusByIds(anyList(), eq("PROCESSED"), any(LocalDateTime.class));
+    }
+
+    private static OutboxTransaction transaction(String id, double amount, String currency, String paymentMethod,
+                                                 String customerId, String merchantId) {
+        return new OutboxTransaction(id, UUID.randomUUID().toString(), amount, currency, paymentMethod, "COMPLETED",
+                customerId, merchantId, LocalDateTime.now(), "UNPROCESSED", null);
     }
 }
@@ -0,0 +1,54 @@
+package com.payment.queque.paymentqueuelistner.velocity;
+
+import com.payment.queque.paymentqueuelistner.Benchmark;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the cost of recording a payment and reading back its velocity features.
+ * Run with {@code mvn test -Dtest=VelocityStoreBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VelocityStoreBenchmarkTest {
+
+    private static final int KEYS = 1 << 14;
+    private static final int ITERATIONS = 10_000_000;
+
+    @Test
+    void record_ShouldTakeLessThanAMicrosecond() {
+        VelocityStore store = new VelocityStore("benchmark", 64, KEYS * 2, 65, new SimpleMeterRegistry());
+        Random random = new Random(42);
+        String[] keys = new String[KEYS];
+        double[] amounts = new double[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "CUST" + random.nextInt(KEYS * 4);
+            amounts[i] = random.nextDouble() * 1_000;
+        }
+        // The warm-up run spreads payments over the hour before the measured one
+        long[] from = {System.currentTimeMillis() - 3_600_000};
+
+        Benchmark.Measurement measurement = Benchmark.measure(ITERATIONS, () -> {
+            Benchmark.keep(run(store, keys, amounts, from[0], ITERATIONS));
+            from[0] += 3_600_000;
+        });
+
+        Benchmark.report("keys=" + store.size(), measurement, "payment");
+        assertTrue(measurement.nanos() < 1_000, "recording took " + measurement.nanos() + "ns");
+    }
+
+    private static long run(VelocityStore store, String[] keys, double[] amounts, long from, int iterations) {
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            int slot = i & (KEYS - 1);
+            // Advance the clock by the hour over the run so the windows hold a realistic spread
+            long now = from + (long) i * 3_600_000 / iterations;
+            sink += store.record(keys[slot], amounts[slot], now).count5m();
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,110 @@
+package com.payment.queque.paymentqueuelistner.velocity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VelocityStoreTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long START = 29_000_000 * MINUTE;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VelocityStore store = new VelocityStore("customer", 4, 100, 65, meterRegistry);
+
+    @Test
+    void record_ShouldCountPaymentsPerWindow() {
+        // Setup
+        store.record("CUST1", 10.00, START);
+        store.record("CUST1", 20.00, START + 3 * MINUTE);
+        store.record("CUST2", 99.99, START + 3 * MINUTE);
+
+        // Act
+        VelocityFeatures features = store.record("CUST1", 12.34, START + 10 * MINUTE);
+
+        // Assert
+        assertEquals(new VelocityFeatures(1, 1234, 1, 1234, 3, 4234), features);
+        assertEquals(new VelocityFeatures(1, 9999, 1, 9999, 1, 9999), store.features("CUST2", START + 3 * MINUTE));
+    }
+
+    @Test
+    void features_ShouldWeightTheBucketLeavingTheWindow() {
+        // Setup - four payments in one minute, read three quarters of the way through the next minute
+        for (int i = 0; i < 4; i++) {
+            store.record("CUST1", 25.00, START);
+        }
+
+        // Act
+        VelocityFeatures features = store.features("CUST1", START + MINUTE + 45_000);
+
+        // Assert - a quarter of the previous minute is still inside the 1-minute window
+        assertEquals(1, features.count1m());
+        assertEquals(2500, features.amountMinor1m());
+        assertEquals(4, features.count60m());
+    }
+
+    @Test
+    void features_ShouldForgetPaymentsOlderThanAnHourAndReuseTheirBuckets() {
+        // Setup
+        store.record("CUST1", 50.00, START);
+
+        // Act - a full ring of five-minute buckets later the same bucket is written again
+        VelocityFeatures features = store.record("CUST1", 5.00, START + VelocityStore.HISTORY_MINUTES * MINUTE);
+
+        // Assert
+        assertEquals(new VelocityFeatures(1, 500, 1, 500, 1, 500), features);
+        assertEquals(VelocityFeatures.EMPTY, store.features("CUST1", START + 3 * VelocityStore.HISTORY_MINUTES * MINUTE));
+    }
+
+    @Test
+    void evictIdle_ShouldBoundTheNumberOfKeys() {
+        // Setup - 25 keys per stripe fill the store
+        for (int i = 0; i < 400; i++) {
+            store.record("CUST" + i, 1.00, START);
+        }
+        int tracked = store.size();
+
+        // Act
+        VelocityFeatures untracked = store.record("NEW", 1.00, START);
+        int evicted = store.evictIdle(START + 70 * MINUTE);
+
+        // Assert
+        assertTrue(tracked <= 100);
+        assertEquals(new VelocityFeatures(1, 100, 1, 100, 1, 100), untracked);
+        assertEquals(tracked, evicted);
+        assertEquals(0, store.size());
+        assertTrue(meterRegistry.get("payment.velocity.rejected").counter().count() > 0);
+    }
+
+    @Test
+    void record_ShouldNotLoseConcurrentUpdates() throws Exception {
+        // Setup
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    store.record("HOT", 1.00, START + 30_000);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        VelocityFeatures features = store.features("HOT", START + 30_000);
+        assertEquals(80_000, features.count1m());
+        assertEquals(8_000_000, features.amountMinor60m());
+    }
+}
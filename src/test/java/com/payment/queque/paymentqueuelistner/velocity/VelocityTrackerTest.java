@@ -0,0 +1,51 @@
+package com.payment.queque.paymentqueuelistner.velocity;
+
+import com.payment.queque.paymentqueuelistner.model.PaymentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VelocityTrackerTest {
+
+    private final VelocityTracker tracker = new VelocityTracker(new SimpleMeterRegistry(), true, 4, 100, 100, 65, 100);
+
+    @Test
+    void record_ShouldKeepSeparateWindowsPerCurrency() {
+        // Setup
+        tracker.record(payment("PAY1", 100.00, "USD"));
+        tracker.record(payment("PAY2", 50.00, "JPY"));
+
+        // Act
+        PaymentVelocity velocity = tracker.record(payment("PAY3", 25.00, "USD"));
+
+        // Assert
+        assertEquals(2, velocity.customer().count60m());
+        assertEquals(12500, velocity.customer().amountMinor60m());
+        assertEquals(2, velocity.merchant().count60m());
+    }
+
+    @Test
+    void record_ShouldNotCountAPaymentRecordedAgain() {
+        // Setup
+        tracker.record(payment("PAY1", 100.00, "USD"));
+
+        // Act
+        PaymentVelocity velocity = tracker.record(payment("PAY1", 100.00, "USD"));
+
+        // Assert
+        assertEquals(1, velocity.customer().count1m());
+        assertEquals(10000, velocity.customer().amountMinor1m());
+        assertEquals(1, velocity.merchant().count1m());
+    }
+
+    private static PaymentData payment(String id, double amount, String currency) {
+        return PaymentData.builder()
+                .id(id)
+                .amount(amount)
+                .currency(currency)
+                .customerId("CUST1")
+                .merchantId("MERCH1")
+                .build();
+    }
+}